@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insertions and lookups in a {@link FastByIDMap}, which backs most in-memory taste data structures. Times are per
+ * operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastByIDMapBenchmark {
+
+  private static final int OPERATIONS = 10000;
+
+  @Param({"1000", "1000000"})
+  public int size;
+
+  private FastByIDMap<Integer> map;
+  private long[] presentKeys;
+  private long[] absentKeys;
+
+  @Setup
+  public void setUp() {
+    long[] keys = SyntheticData.distinctKeys(size + OPERATIONS, SyntheticData.SEED);
+    map = new FastByIDMap<Integer>();
+    for (int i = 0; i < size; i++) {
+      map.put(keys[i], i);
+    }
+    presentKeys = new long[OPERATIONS];
+    absentKeys = new long[OPERATIONS];
+    for (int i = 0; i < OPERATIONS; i++) {
+      presentKeys[i] = keys[i % size];
+      absentKeys[i] = keys[size + i];
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public int getPresent() {
+    int sum = 0;
+    for (long key : presentKeys) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public int getAbsent() {
+    int found = 0;
+    for (long key : absentKeys) {
+      if (map.get(key) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public FastByIDMap<Integer> putIntoEmpty() {
+    FastByIDMap<Integer> fresh = new FastByIDMap<Integer>();
+    Integer value = 1;
+    for (long key : absentKeys) {
+      fresh.put(key, value);
+    }
+    return fresh;
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import org.apache.mahout.classifier.sgd.CsvRecordFactory;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.vectorizer.encoders.FeatureBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of csv records with a numeric, a categorical and a short text field, once from Strings into a fresh
+ * {@link RandomAccessSparseVector} per record and once from a byte buffer into a reused {@link FeatureBuffer}. Times
+ * are per record; run with {@code -prof gc} to compare the garbage created.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureEncodingBenchmark {
+
+  private static final int NUM_RECORDS = 1000;
+  private static final int NUM_FEATURES = 1 << 16;
+  private static final String HEADER = "x,category,y,text";
+
+  private String[] lines;
+  private byte[] bytes;
+  private int[] lineStarts;
+  private CsvRecordFactory factory;
+  private FeatureBuffer buffer;
+
+  @Setup
+  public void setUp() {
+    Random random = RandomUtils.getRandom(SyntheticData.SEED);
+    lines = new String[NUM_RECORDS];
+    StringBuilder all = new StringBuilder();
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      StringBuilder text = new StringBuilder();
+      for (int j = 0; j < 8; j++) {
+        text.append(" w").append(random.nextInt(500));
+      }
+      lines[i] = random.nextInt(10000) / 100.0 + ",c" + random.nextInt(50) + ',' + (random.nextBoolean() ? "a" : "b")
+          + ",\"" + text + '"';
+      all.append(lines[i]).append('\n');
+    }
+    bytes = all.toString().getBytes(Charsets.UTF_8);
+    lineStarts = new int[NUM_RECORDS + 1];
+    for (int i = 0, line = 1; i < bytes.length; i++) {
+      if (bytes[i] == '\n') {
+        lineStarts[line++] = i + 1;
+      }
+    }
+    factory = new CsvRecordFactory("y", ImmutableMap.of("x", "n", "category", "w", "text", "t"));
+    factory.includeBiasTerm(true);
+    factory.firstLine(HEADER);
+    buffer = new FeatureBuffer(NUM_FEATURES);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_RECORDS)
+  public double encodeStrings() {
+    double sum = 0;
+    for (String line : lines) {
+      Vector v = new RandomAccessSparseVector(NUM_FEATURES);
+      sum += factory.processLine(line, v) + v.getNumNondefaultElements();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_RECORDS)
+  public double encodeBytes() {
+    double sum = 0;
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      int start = lineStarts[i];
+      int length = lineStarts[i + 1] - 1 - start;
+      sum += factory.processLine(bytes, start, length, buffer) + buffer.getNumNondefaultElements();
+      buffer.clear();
+    }
+    return sum;
+  }
+
+}
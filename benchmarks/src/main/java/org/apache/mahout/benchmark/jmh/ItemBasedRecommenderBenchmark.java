@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.model.GenericDataModel;
+import org.apache.mahout.cf.taste.impl.recommender.GenericItemBasedRecommender;
+import org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.recommender.RecommendedItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Top-10 recommendations from a {@link GenericItemBasedRecommender} with uncached Pearson correlations, for a
+ * different user on each invocation, with candidate items scored on the calling thread or in parallel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemBasedRecommenderBenchmark {
+
+  @Param({"1000"})
+  public int numUsers;
+
+  @Param({"500", "5000"})
+  public int numItems;
+
+  @Param({"20", "100"})
+  public int prefsPerUser;
+
+  @Param({"false", "true"})
+  public boolean parallelScoring;
+
+  private GenericItemBasedRecommender recommender;
+  private long nextUserID;
+
+  @Setup
+  public void setUp() throws TasteException {
+    DataModel dataModel =
+        new GenericDataModel(SyntheticData.randomPreferences(numUsers, numItems, prefsPerUser, SyntheticData.SEED));
+    recommender = new GenericItemBasedRecommender(dataModel, new PearsonCorrelationSimilarity(dataModel));
+    recommender.setMinCandidatesForParallelScoring(
+        parallelScoring ? 1 : GenericItemBasedRecommender.NO_PARALLEL_SCORING);
+  }
+
+  @Benchmark
+  public List<RecommendedItem> recommend() throws TasteException {
+    long userID = nextUserID;
+    nextUserID = (nextUserID + 1) % numUsers;
+    return recommender.recommend(userID, 10);
+  }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.apache.mahout.clustering.Cluster;
+import org.apache.mahout.clustering.classify.ClusterClassifier;
+import org.apache.mahout.clustering.iterator.ClusterIterator;
+import org.apache.mahout.clustering.iterator.KMeansClusteringPolicy;
+import org.apache.mahout.clustering.kmeans.Kluster;
+import org.apache.mahout.common.distance.EuclideanDistanceMeasure;
+import org.apache.mahout.math.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One in-memory k-means iteration of {@link ClusterIterator} over points drawn from Gaussian clusters, starting from
+ * the same initial centers each time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KMeansBenchmark {
+
+  @Param({"10000"})
+  public int numPoints;
+
+  @Param({"10", "100"})
+  public int dimension;
+
+  @Param({"10", "50"})
+  public int k;
+
+  private List<Vector> points;
+
+  @Setup
+  public void setUp() {
+    points = SyntheticData.gaussianClusters(numPoints, dimension, k, SyntheticData.SEED);
+  }
+
+  @Benchmark
+  public ClusterClassifier iteration() {
+    List<Cluster> models = Lists.newArrayListWithCapacity(k);
+    EuclideanDistanceMeasure measure = new EuclideanDistanceMeasure();
+    for (int i = 0; i < k; i++) {
+      // the first points are as good initial centers as random ones
+      models.add(new Kluster(points.get(i), i, measure));
+    }
+    ClusterClassifier prior = new ClusterClassifier(models, new KMeansClusteringPolicy());
+    return new ClusterIterator().iterate(points, prior, 1);
+  }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.classifier.sgd.HogwildTrainer;
+import org.apache.mahout.classifier.sgd.L1;
+import org.apache.mahout.classifier.sgd.OnlineLogisticRegression;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One pass of {@link OnlineLogisticRegression#train(int, Vector)} over sparse synthetic examples, starting from an
+ * untrained model each time, on one thread and with {@link HogwildTrainer} on all cores, and scoring of the same
+ * examples with a trained model row by row and as one block. Times are per example.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OnlineLogisticRegressionBenchmark {
+
+  private static final int NUM_EXAMPLES = 1000;
+
+  @Param({"1000", "100000"})
+  public int numFeatures;
+
+  @Param({"10", "100"})
+  public int nonZerosPerExample;
+
+  private List<Vector> examples;
+  private final int[] labels = new int[NUM_EXAMPLES];
+  private Matrix block;
+  private OnlineLogisticRegression trained;
+
+  @Setup
+  public void setUp() {
+    examples = SyntheticData.labeledExamples(NUM_EXAMPLES, numFeatures, nonZerosPerExample, labels,
+        SyntheticData.SEED);
+    block = new SparseRowMatrix(NUM_EXAMPLES, numFeatures, examples.toArray(new Vector[NUM_EXAMPLES]), true, true);
+    trained = train();
+    trained.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXAMPLES)
+  public OnlineLogisticRegression train() {
+    OnlineLogisticRegression learner = new OnlineLogisticRegression(2, numFeatures, new L1())
+        .lambda(1.0e-5)
+        .learningRate(1.0);
+    for (int i = 0; i < NUM_EXAMPLES; i++) {
+      learner.train(labels[i], examples.get(i));
+    }
+    return learner;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXAMPLES)
+  public OnlineLogisticRegression trainHogwild() {
+    OnlineLogisticRegression learner = new OnlineLogisticRegression(2, numFeatures, new L1())
+        .lambda(1.0e-5)
+        .learningRate(1.0);
+    new HogwildTrainer(learner).chunkSize(64).train(labels, examples);
+    return learner;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXAMPLES)
+  public double classifyRows() {
+    double sum = 0.0;
+    for (Vector example : examples) {
+      sum += trained.classifyFull(example).get(1);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXAMPLES)
+  public Matrix classifyBlock() {
+    return trained.classifyFull(block);
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.math.map.OpenIntDoubleHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insertions and lookups in an {@link OpenIntDoubleHashMap}, the storage of
+ * {@link org.apache.mahout.math.RandomAccessSparseVector}. Times are per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenIntDoubleHashMapBenchmark {
+
+  private static final int OPERATIONS = 10000;
+
+  @Param({"1000", "1000000"})
+  public int size;
+
+  private OpenIntDoubleHashMap map;
+  private int[] presentKeys;
+  private int[] absentKeys;
+
+  @Setup
+  public void setUp() {
+    int[] keys = SyntheticData.distinctIntKeys(size + OPERATIONS, SyntheticData.SEED);
+    map = new OpenIntDoubleHashMap();
+    for (int i = 0; i < size; i++) {
+      map.put(keys[i], i);
+    }
+    presentKeys = new int[OPERATIONS];
+    absentKeys = new int[OPERATIONS];
+    for (int i = 0; i < OPERATIONS; i++) {
+      presentKeys[i] = keys[i % size];
+      absentKeys[i] = keys[size + i];
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public double getPresent() {
+    double sum = 0.0;
+    for (int key : presentKeys) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public double getAbsent() {
+    double sum = 0.0;
+    for (int key : absentKeys) {
+      sum += map.get(key);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public OpenIntDoubleHashMap putIntoEmpty() {
+    OpenIntDoubleHashMap fresh = new OpenIntDoubleHashMap();
+    for (int key : absentKeys) {
+      fresh.put(key, 1.0);
+    }
+    return fresh;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OPERATIONS)
+  public OpenIntDoubleHashMap adjustOrPutExisting() {
+    for (int key : presentKeys) {
+      map.adjustOrPutValue(key, 1.0, 1.0);
+    }
+    return map;
+  }
+
+}
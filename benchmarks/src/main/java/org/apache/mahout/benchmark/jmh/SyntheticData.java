@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Generators of the synthetic data used by the benchmarks. Each takes the seed of its random numbers, so that
+ * every run of a benchmark, and every implementation compared by it, sees exactly the same data.
+ */
+public final class SyntheticData {
+
+  /** Seed used by benchmarks unless they need several independent data sets. */
+  public static final long SEED = 0x4D41484F5554L;
+
+  /** Vector implementations, as accepted by {@link #randomVector(String, int, double, long)}. */
+  public static final String DENSE = "dense";
+  public static final String RANDOM_SPARSE = "randomSparse";
+  public static final String SEQUENTIAL_SPARSE = "sequentialSparse";
+
+  private SyntheticData() {
+  }
+
+  /**
+   * @param type one of {@link #DENSE}, {@link #RANDOM_SPARSE} or {@link #SEQUENTIAL_SPARSE}
+   * @param cardinality size of the vector
+   * @param density expected fraction of non-zero entries; ignored by dense vectors, which are entirely non-zero
+   * @param seed random seed
+   * @return a vector with standard normal entries
+   */
+  public static Vector randomVector(String type, int cardinality, double density, long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    if (DENSE.equals(type)) {
+      Vector vector = new DenseVector(cardinality);
+      for (int i = 0; i < cardinality; i++) {
+        vector.setQuick(i, random.nextGaussian());
+      }
+      return vector;
+    }
+    int numNonZeros = Math.max(1, (int) (cardinality * density));
+    Vector vector = new RandomAccessSparseVector(cardinality, numNonZeros);
+    for (int i = 0; i < numNonZeros; i++) {
+      vector.setQuick(random.nextInt(cardinality), random.nextGaussian());
+    }
+    if (SEQUENTIAL_SPARSE.equals(type)) {
+      return new SequentialAccessSparseVector(vector);
+    }
+    if (RANDOM_SPARSE.equals(type)) {
+      return vector;
+    }
+    throw new IllegalArgumentException("Unknown vector type: " + type);
+  }
+
+  /**
+   * @return a {@code rows x columns} matrix with standard normal entries
+   */
+  public static Matrix randomDenseMatrix(int rows, int columns, long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    double[][] values = new double[rows][columns];
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        values[row][column] = random.nextGaussian();
+      }
+    }
+    return new DenseMatrix(values, true);
+  }
+
+  /**
+   * @return {@code size} distinct non-negative keys, in random order
+   */
+  public static long[] distinctKeys(int size, long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    FastIDSet seen = new FastIDSet(size);
+    long[] keys = new long[size];
+    int count = 0;
+    while (count < size) {
+      long key = random.nextLong() & Long.MAX_VALUE;
+      if (seen.add(key)) {
+        keys[count++] = key;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * @return {@code size} distinct non-negative int keys, in random order
+   */
+  public static int[] distinctIntKeys(int size, long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    FastIDSet seen = new FastIDSet(size);
+    int[] keys = new int[size];
+    int count = 0;
+    while (count < size) {
+      int key = random.nextInt() & Integer.MAX_VALUE;
+      if (seen.add(key)) {
+        keys[count++] = key;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Generates ratings from 1 to 5 for which item popularity follows a power law, as in real data sets.
+   *
+   * @param numUsers number of users, with IDs {@code 0} to {@code numUsers - 1}
+   * @param numItems number of items, with IDs {@code 0} to {@code numItems - 1}
+   * @param prefsPerUser number of preferences of each user
+   * @return users' preferences, suitable for {@link org.apache.mahout.cf.taste.impl.model.GenericDataModel}
+   */
+  public static FastByIDMap<PreferenceArray> randomPreferences(int numUsers, int numItems, int prefsPerUser,
+                                                               long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    FastByIDMap<PreferenceArray> userData = new FastByIDMap<PreferenceArray>(numUsers);
+    for (int user = 0; user < numUsers; user++) {
+      FastIDSet itemIDs = new FastIDSet(prefsPerUser);
+      while (itemIDs.size() < Math.min(prefsPerUser, numItems)) {
+        // squaring a uniform number skews the choice towards low item IDs
+        double u = random.nextDouble();
+        itemIDs.add((long) (u * u * numItems));
+      }
+      PreferenceArray prefs = new GenericUserPreferenceArray(itemIDs.size());
+      prefs.setUserID(0, user);
+      int i = 0;
+      for (long itemID : itemIDs.toArray()) {
+        prefs.setItemID(i, itemID);
+        prefs.setValue(i, 1 + random.nextInt(5));
+        i++;
+      }
+      userData.put(user, prefs);
+    }
+    return userData;
+  }
+
+  /**
+   * @return {@code numPoints} points drawn from {@code numClusters} spherical Gaussians with standard deviation 1,
+   *  whose centers have standard normal coordinates scaled by 10
+   */
+  public static List<Vector> gaussianClusters(int numPoints, int dimension, int numClusters, long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    double[][] centers = new double[numClusters][dimension];
+    for (double[] center : centers) {
+      for (int d = 0; d < dimension; d++) {
+        center[d] = 10 * random.nextGaussian();
+      }
+    }
+    List<Vector> points = Lists.newArrayListWithCapacity(numPoints);
+    for (int p = 0; p < numPoints; p++) {
+      double[] center = centers[random.nextInt(numClusters)];
+      Vector point = new DenseVector(dimension);
+      for (int d = 0; d < dimension; d++) {
+        point.setQuick(d, center[d] + random.nextGaussian());
+      }
+      points.add(point);
+    }
+    return points;
+  }
+
+  /**
+   * Generates examples of a linearly separable problem with label noise, for classifiers.
+   *
+   * @param numExamples number of examples
+   * @param numFeatures number of features; the first feature is always 1, as an intercept term
+   * @param numNonZeros number of other non-zero features per example
+   * @param labels receives the label, 0 or 1, of each example
+   * @return the feature vectors
+   */
+  public static List<Vector> labeledExamples(int numExamples, int numFeatures, int numNonZeros, int[] labels,
+                                             long seed) {
+    Random random = RandomUtils.getRandom(seed);
+    Vector weights = new DenseVector(numFeatures);
+    for (int f = 0; f < numFeatures; f++) {
+      weights.setQuick(f, random.nextGaussian());
+    }
+    List<Vector> examples = Lists.newArrayListWithCapacity(numExamples);
+    for (int e = 0; e < numExamples; e++) {
+      Vector example = new RandomAccessSparseVector(numFeatures, numNonZeros + 1);
+      example.setQuick(0, 1.0);
+      for (int i = 0; i < numNonZeros; i++) {
+        example.setQuick(1 + random.nextInt(numFeatures - 1), random.nextGaussian());
+      }
+      double score = example.dot(weights);
+      labels[e] = (score > 0.0) == (random.nextDouble() > 0.05) ? 1 : 0;
+      examples.add(example);
+    }
+    return examples;
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.benchmark.jmh;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.Functions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Common {@link Vector} operations, for each vector implementation, between two vectors of the same
+ * implementation. Supersedes the hand-rolled timing loops of {@code org.apache.mahout.benchmark.VectorBenchmarks}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+  @Param({SyntheticData.DENSE, SyntheticData.RANDOM_SPARSE, SyntheticData.SEQUENTIAL_SPARSE})
+  public String type;
+
+  @Param({"1000", "100000"})
+  public int cardinality;
+
+  @Param({"0.01", "0.1"})
+  public double density;
+
+  private Vector a;
+  private Vector b;
+  private int[] indices;
+
+  @Setup
+  public void setUp() {
+    a = SyntheticData.randomVector(type, cardinality, density, SyntheticData.SEED);
+    b = SyntheticData.randomVector(type, cardinality, density, SyntheticData.SEED + 1);
+    indices = new int[1024];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = (int) ((i * 0x9E3779B97F4A7C15L >>> 32) % cardinality);
+    }
+  }
+
+  @Benchmark
+  public double dot() {
+    return a.dot(b);
+  }
+
+  @Benchmark
+  public Vector plus() {
+    return a.plus(b);
+  }
+
+  @Benchmark
+  public Vector times() {
+    return a.times(2.0);
+  }
+
+  @Benchmark
+  public Vector assignPlus() {
+    return a.like().assign(b, Functions.PLUS);
+  }
+
+  @Benchmark
+  public double norm2() {
+    return a.norm(2);
+  }
+
+  @Benchmark
+  public double distanceSquared() {
+    return a.getDistanceSquared(b);
+  }
+
+  @Benchmark
+  public double iterateNonZero() {
+    double sum = 0.0;
+    Iterator<Vector.Element> it = a.iterateNonZero();
+    while (it.hasNext()) {
+      sum += it.next().get();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double randomGet() {
+    double sum = 0.0;
+    for (int index : indices) {
+      sum += a.getQuick(index);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Vector cloneVector() {
+    return a.clone();
+  }
+
+}
@@ -17,11 +17,17 @@
 
 package org.apache.mahout.cf.taste.impl.common;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import org.apache.mahout.cf.taste.common.TasteException;
 
-import java.util.Iterator;
-
 /**
  * <p>
  * An efficient Map-like class which caches values for keys. Values are not "put" into a ;
@@ -30,6 +36,14 @@ import java.util.Iterator;
  * </p>
  *
  * <p>
+ * The cache is safe for use by many threads at once. Entries are spread over a number of independently locked
+ * segments, each a {@link FastMap} holding its share of the maximum size and evicting with the second-chance
+ * policy {@link FastMap} implements. Concurrent misses on the same key share a single call to the
+ * {@link Retriever}: the first thread loads the value while the others wait for it. A {@link Retriever} must
+ * not get the key it is loading from the same cache, which fails with an {@link IllegalStateException}.
+ * </p>
+ *
+ * <p>
  * The cache does not support {@code null} keys.
  * </p>
  *
@@ -41,9 +55,18 @@ import java.util.Iterator;
 public final class Cache<K,V> implements Retriever<K,V> {
 
   private static final Object NULL = new Object();
+
+  /** Default number of segments, bounding how many threads can touch the cache without contending. */
+  public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
   
-  private final FastMap<K,V> cache;
+  private final Segment<K>[] segments;
+  private final int segmentMask;
   private final Retriever<? super K,? extends V> retriever;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong loadCount = new AtomicLong();
+  private final AtomicLong totalLoadTime = new AtomicLong();
   
   /**
    * <p>
@@ -68,9 +91,37 @@ public final class Cache<K,V> implements Retriever<K,V> {
    *          maximum number of entries the cache will store before evicting some
    */
   public Cache(Retriever<? super K,? extends V> retriever, int maxEntries) {
+    this(retriever, maxEntries, DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * <p>
+   * Creates a new cache based on the given {@link Retriever}, with given maximum size and expected number of
+   * concurrently accessing threads.
+   * </p>
+   *
+   * @param retriever
+   *          object which can retrieve values for keys
+   * @param maxEntries
+   *          maximum number of entries the cache will store before evicting some
+   * @param concurrencyLevel
+   *          number of independently locked segments to create; rounded down to a power of two and capped by
+   *          {@code maxEntries}
+   */
+  public Cache(Retriever<? super K,? extends V> retriever, int maxEntries, int concurrencyLevel) {
     Preconditions.checkArgument(retriever != null, "retriever is null");
     Preconditions.checkArgument(maxEntries >= 1, "maxEntries must be at least 1");
-    cache = new FastMap<K, V>(11, maxEntries);
+    Preconditions.checkArgument(concurrencyLevel >= 1, "concurrencyLevel must be at least 1");
+    int numSegments = Integer.highestOneBit(Math.min(concurrencyLevel, maxEntries));
+    int maxSegmentEntries =
+        maxEntries == FastMap.NO_MAX_SIZE ? FastMap.NO_MAX_SIZE : (maxEntries + numSegments - 1) / numSegments;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Segment<K>[] newSegments = (Segment<K>[]) new Segment[numSegments];
+    segments = newSegments;
+    for (int i = 0; i < numSegments; i++) {
+      segments[i] = new Segment<K>(maxSegmentEntries);
+    }
+    segmentMask = numSegments - 1;
     this.retriever = retriever;
   }
   
@@ -84,17 +135,84 @@ public final class Cache<K,V> implements Retriever<K,V> {
    * @return value for that key
    * @throws TasteException
    *           if an exception occurs while retrieving a new cached value
+   * @throws IllegalStateException
+   *           if called by the {@link Retriever} for the very key it is loading
    */
   @Override
   public V get(K key) throws TasteException {
-    V value;
-    synchronized (cache) {
-      value = cache.get(key);
+    Segment<K> segment = segmentFor(key);
+    Load loader;
+    boolean loading = false;
+    synchronized (segment) {
+      Object value = segment.cache.get(key);
+      if (value != null) {
+        hitCount.incrementAndGet();
+        return unmask(value);
+      }
+      loader = segment.loaders.get(key);
+      if (loader == null) {
+        loader = new Load(new Loader(key));
+        segment.loaders.put(key, loader);
+        loading = true;
+      } else if (loader.thread == Thread.currentThread()) {
+        // waiting for our own load would never return
+        throw new IllegalStateException("Recursive load of key " + key);
+      }
+    }
+    missCount.incrementAndGet();
+    if (loading) {
+      load(segment, key, loader);
+    }
+    return waitFor(loader);
+  }
+
+  private void load(Segment<K> segment, K key, Load loader) {
+    long start = System.nanoTime();
+    loader.run();
+    totalLoadTime.addAndGet(System.nanoTime() - start);
+    loadCount.incrementAndGet();
+    synchronized (segment) {
+      // Only publish the value if nobody removed or cleared the key while it was being loaded
+      if (segment.loaders.get(key) == loader) {
+        segment.loaders.remove(key);
+        try {
+          segment.cache.put(key, loader.get());
+        } catch (InterruptedException ie) {
+          // can't happen, the task has already run
+        } catch (ExecutionException ee) {
+          // not cached; reported to callers by waitFor()
+        }
+      }
     }
-    if (value == null) {
-      return getAndCacheValue(key);
+  }
+
+  private V waitFor(Load loader) throws TasteException {
+    Object value;
+    try {
+      value = loader.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TasteException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof TasteException) {
+        throw (TasteException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new TasteException(cause);
     }
-    return value == NULL ? null : value;
+    return unmask(value);
+  }
+
+  /** @return the value as stored, which is a {@code V} unless it is {@link #NULL} */
+  @SuppressWarnings("unchecked")
+  private static <V> V unmask(Object value) {
+    return value == NULL ? null : (V) value;
   }
   
   /**
@@ -106,8 +224,10 @@ public final class Cache<K,V> implements Retriever<K,V> {
    *          cache key
    */
   public void remove(K key) {
-    synchronized (cache) {
-      cache.remove(key);
+    Segment<K> segment = segmentFor(key);
+    synchronized (segment) {
+      segment.cache.remove(key);
+      segment.loaders.remove(key);
     }
   }
 
@@ -115,13 +235,10 @@ public final class Cache<K,V> implements Retriever<K,V> {
    * Clears all cache entries whose key matches the given predicate.
    */
   public void removeKeysMatching(MatchPredicate<K> predicate) {
-    synchronized (cache) {
-      Iterator<K> it = cache.keySet().iterator();
-      while (it.hasNext()) {
-        K key = it.next();
-        if (predicate.matches(key)) {
-          it.remove();
-        }
+    for (Segment<K> segment : segments) {
+      synchronized (segment) {
+        removeMatching(segment.cache.keySet().iterator(), predicate);
+        removeMatching(segment.loaders.keySet().iterator(), predicate);
       }
     }
   }
@@ -130,16 +247,26 @@ public final class Cache<K,V> implements Retriever<K,V> {
    * Clears all cache entries whose value matches the given predicate.
    */
   public void removeValueMatching(MatchPredicate<V> predicate) {
-    synchronized (cache) {
-      Iterator<V> it = cache.values().iterator();
-      while (it.hasNext()) {
-        V value = it.next();
-        if (predicate.matches(value)) {
-          it.remove();
+    for (Segment<K> segment : segments) {
+      synchronized (segment) {
+        Iterator<Object> it = segment.cache.values().iterator();
+        while (it.hasNext()) {
+          V value = unmask(it.next());
+          if (predicate.matches(value)) {
+            it.remove();
+          }
         }
       }
     }
   }
+
+  private static <T> void removeMatching(Iterator<T> it, MatchPredicate<T> predicate) {
+    while (it.hasNext()) {
+      if (predicate.matches(it.next())) {
+        it.remove();
+      }
+    }
+  }
   
   /**
    * <p>
@@ -147,20 +274,62 @@ public final class Cache<K,V> implements Retriever<K,V> {
    * </p>
    */
   public void clear() {
-    synchronized (cache) {
-      cache.clear();
+    for (Segment<K> segment : segments) {
+      synchronized (segment) {
+        segment.cache.clear();
+        segment.loaders.clear();
+      }
     }
   }
-  
-  private V getAndCacheValue(K key) throws TasteException {
-    V value = retriever.get(key);
-    if (value == null) {
-      value = (V) NULL;
-    }
-    synchronized (cache) {
-      cache.put(key, value);
+
+  /**
+   * @return number of entries currently cached
+   */
+  public int size() {
+    int size = 0;
+    for (Segment<K> segment : segments) {
+      synchronized (segment) {
+        size += segment.cache.size();
+      }
     }
-    return value;
+    return size;
+  }
+
+  /**
+   * @return number of calls to {@link #get(Object)} answered from the cache
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return number of calls to {@link #get(Object)} that did not find a cached value, including those that
+   *  waited for another thread's load of the same key
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * @return number of calls made to the underlying {@link Retriever}
+   */
+  public long getLoadCount() {
+    return loadCount.get();
+  }
+
+  /**
+   * @return total time spent in the underlying {@link Retriever}, in nanoseconds
+   */
+  public long getTotalLoadTime() {
+    return totalLoadTime.get();
+  }
+
+  private Segment<K> segmentFor(Object key) {
+    int h = key.hashCode();
+    // spread the bits, as the low ones also pick the slot inside the segment's FastMap
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return segments[h & segmentMask];
   }
   
   @Override
@@ -174,5 +343,43 @@ public final class Cache<K,V> implements Retriever<K,V> {
   public interface MatchPredicate<T> {
     boolean matches(T thing);
   }
+
+  /** One independently locked part of the cache, guarded by its own monitor. */
+  private static final class Segment<K> {
+
+    private final FastMap<K,Object> cache;
+    /** Loads in progress, so that concurrent misses on a key wait for the same result. */
+    private final Map<K,Load> loaders;
+
+    private Segment(int maxEntries) {
+      cache = new FastMap<K,Object>(11, maxEntries);
+      loaders = Maps.newHashMap();
+    }
+  }
+
+  /** A load in progress, run by the thread which created it. */
+  private static final class Load extends FutureTask<Object> {
+
+    private final Thread thread = Thread.currentThread();
+
+    private Load(Callable<Object> loader) {
+      super(loader);
+    }
+  }
+
+  private final class Loader implements Callable<Object> {
+
+    private final K key;
+
+    private Loader(K key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object call() throws TasteException {
+      V value = retriever.get(key);
+      return value == null ? NULL : value;
+    }
+  }
   
 }
@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Records when the data of each user or item ID last changed, so that a cache can tell in constant time whether a
+ * value it loaded is out of date, instead of searching all its entries for those of a changed ID.
+ * </p>
+ *
+ * <p>
+ * A value is out of date when one of its IDs changed after the {@link #now()} read before loading it. The tracker
+ * keeps one entry per changed ID.
+ * </p>
+ */
+public final class ChangeTracker {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final ConcurrentMap<Long,Long> lastChanges = new ConcurrentHashMap<Long,Long>();
+
+  /**
+   * @return the current time of this tracker, to read before loading a value
+   */
+  public long now() {
+    return clock.get();
+  }
+
+  /**
+   * Records that the data of the given ID changed, which makes out of date every value loaded before.
+   */
+  public void changed(long id) {
+    long time = clock.incrementAndGet();
+    Long lastChange = lastChanges.putIfAbsent(id, time);
+    // several threads may change the same ID at once; the latest time must win
+    while (lastChange != null && lastChange < time && !lastChanges.replace(id, lastChange, time)) {
+      lastChange = lastChanges.get(id);
+    }
+  }
+
+  /**
+   * @return true if the data of the given ID changed after the given time
+   */
+  public boolean changedSince(long id, long time) {
+    Long lastChange = lastChanges.get(id);
+    return lastChange != null && lastChange > time;
+  }
+
+}
@@ -0,0 +1,311 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A map from {@code long} IDs to {@code long} values, typically offsets into some larger primitive storage, for
+ * the sizes where {@link FastByIDMap} becomes a burden: keys and values live in {@link ChunkedLongArray}s, so
+ * there is no object per entry, no single huge array, and the map can hold more than 2<sup>31</sup> entries.
+ * <p/>
+ * It uses open addressing with linear probing over a power-of-two table; removal shifts the following entries
+ * back instead of leaving "removed" markers, so the table never needs a rehash to clean up. The key
+ * {@link Long#MIN_VALUE} is reserved.
+ *
+ * @see ChunkedIDSet
+ */
+public final class ChunkedIDLongMap implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Value returned by {@link #get(long)}, {@link #put(long, long)} and {@link #remove(long)} for absent keys */
+  public static final long NO_VALUE = Long.MIN_VALUE;
+
+  private static final float DEFAULT_LOAD_FACTOR = 1.5f;
+
+  private static final long NULL = Long.MIN_VALUE;
+
+  private ChunkedLongArray keys;
+  private ChunkedLongArray values;
+  private long mask;
+  private long maxEntries;
+  private final float loadFactor;
+  private long numEntries;
+
+  public ChunkedIDLongMap() {
+    this(2);
+  }
+
+  public ChunkedIDLongMap(long size) {
+    this(size, DEFAULT_LOAD_FACTOR);
+  }
+
+  public ChunkedIDLongMap(long size, float loadFactor) {
+    Preconditions.checkArgument(size >= 0, "size must be at least 0");
+    Preconditions.checkArgument(loadFactor >= 1.0f, "loadFactor must be at least 1.0");
+    this.loadFactor = loadFactor;
+    allocate(tableSize(size, loadFactor));
+  }
+
+  /**
+   * Builds the map from IDs to their rank in a sorted sequence, e.g. the offsets of the users of a data model
+   * stored in ID order. The table is sized once from the expected number of IDs.
+   *
+   * @param sortedIDs
+   *          IDs in strictly increasing order
+   * @param size
+   *          expected number of IDs
+   * @throws IllegalArgumentException
+   *           if the IDs are not in strictly increasing order
+   */
+  public static ChunkedIDLongMap fromSorted(LongPrimitiveIterator sortedIDs, long size) {
+    ChunkedIDLongMap map = new ChunkedIDLongMap(size);
+    long offset = 0;
+    long previous = NULL;
+    while (sortedIDs.hasNext()) {
+      long id = sortedIDs.nextLong();
+      Preconditions.checkArgument(offset == 0 || id > previous, "IDs not in increasing order: %s after %s",
+                                  id, previous);
+      map.put(id, offset++);
+      previous = id;
+    }
+    return map;
+  }
+
+  static long tableSize(long size, float loadFactor) {
+    long minSize = Math.max(2L, (long) Math.ceil(size * (double) loadFactor));
+    return Long.highestOneBit(minSize - 1) << 1;
+  }
+
+  private void allocate(long tableSize) {
+    keys = new ChunkedLongArray(tableSize);
+    keys.fill(NULL);
+    values = new ChunkedLongArray(tableSize);
+    mask = tableSize - 1;
+    // keeps a free slot, where looking up a missing key stops
+    maxEntries = Math.min(tableSize - 1, (long) (tableSize / loadFactor));
+  }
+
+  static long hash(long key) {
+    // finalizer of MurmurHash3, since IDs are often sequential and only the low bits select the slot
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * @return slot of the key, or the empty slot where it would be added
+   */
+  private long find(long key) {
+    ChunkedLongArray keys = this.keys;
+    long index = hash(key) & mask;
+    long currentKey;
+    while ((currentKey = keys.get(index)) != NULL && currentKey != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /**
+   * @return the value of the key, or {@link #NO_VALUE} if it is not in the map
+   */
+  public long get(long key) {
+    if (key == NULL) {
+      return NO_VALUE;
+    }
+    long index = find(key);
+    return keys.get(index) == NULL ? NO_VALUE : values.get(index);
+  }
+
+  public boolean containsKey(long key) {
+    return key != NULL && keys.get(find(key)) != NULL;
+  }
+
+  public long size() {
+    return numEntries;
+  }
+
+  public boolean isEmpty() {
+    return numEntries == 0;
+  }
+
+  /**
+   * @return the previous value of the key, or {@link #NO_VALUE} if it was not in the map
+   */
+  public long put(long key, long value) {
+    Preconditions.checkArgument(key != NULL, "Reserved key: %s", key);
+    long index = find(key);
+    if (keys.get(index) == key) {
+      long oldValue = values.get(index);
+      values.set(index, value);
+      return oldValue;
+    }
+    if (numEntries >= maxEntries) {
+      rehash(keys.length() << 1);
+      index = find(key);
+    }
+    keys.set(index, key);
+    values.set(index, value);
+    numEntries++;
+    return NO_VALUE;
+  }
+
+  /**
+   * @return the value the key had, or {@link #NO_VALUE} if it was not in the map
+   */
+  public long remove(long key) {
+    if (key == NULL) {
+      return NO_VALUE;
+    }
+    long hole = find(key);
+    if (keys.get(hole) == NULL) {
+      return NO_VALUE;
+    }
+    long oldValue = values.get(hole);
+    // move back the following entries of the run that may not stay after the hole
+    long index = (hole + 1) & mask;
+    long currentKey;
+    while ((currentKey = keys.get(index)) != NULL) {
+      long home = hash(currentKey) & mask;
+      if (((index - home) & mask) >= ((index - hole) & mask)) {
+        keys.set(hole, currentKey);
+        values.set(hole, values.get(index));
+        hole = index;
+      }
+      index = (index + 1) & mask;
+    }
+    keys.set(hole, NULL);
+    numEntries--;
+    return oldValue;
+  }
+
+  public void clear() {
+    keys.fill(NULL);
+    numEntries = 0;
+  }
+
+  /**
+   * Shrinks the table to the smallest size that holds the current entries, e.g. after many removals
+   */
+  public void rehash() {
+    rehash(tableSize(numEntries, loadFactor));
+  }
+
+  private void rehash(long newTableSize) {
+    ChunkedLongArray oldKeys = keys;
+    ChunkedLongArray oldValues = values;
+    allocate(newTableSize);
+    long length = oldKeys.length();
+    for (long index = 0; index < length; index++) {
+      long key = oldKeys.get(index);
+      if (key != NULL) {
+        long newIndex = find(key);
+        keys.set(newIndex, key);
+        values.set(newIndex, oldValues.get(index));
+      }
+    }
+  }
+
+  /**
+   * @return an iterator over the keys, in no particular order; it does not support removal
+   */
+  public LongPrimitiveIterator keySetIterator() {
+    return new KeyIterator();
+  }
+
+  @Override
+  public String toString() {
+    if (isEmpty()) {
+      return "{}";
+    }
+    StringBuilder result = new StringBuilder();
+    result.append('{');
+    long length = keys.length();
+    for (long index = 0; index < length; index++) {
+      long key = keys.get(index);
+      if (key != NULL) {
+        result.append(key).append('=').append(values.get(index)).append(',');
+      }
+    }
+    result.setCharAt(result.length() - 1, '}');
+    return result.toString();
+  }
+
+  private final class KeyIterator extends AbstractLongPrimitiveIterator {
+
+    private long position;
+
+    @Override
+    public boolean hasNext() {
+      goToNext();
+      return position < keys.length();
+    }
+
+    @Override
+    public long nextLong() {
+      goToNext();
+      if (position >= keys.length()) {
+        throw new NoSuchElementException();
+      }
+      return keys.get(position++);
+    }
+
+    @Override
+    public long peek() {
+      goToNext();
+      if (position >= keys.length()) {
+        throw new NoSuchElementException();
+      }
+      return keys.get(position);
+    }
+
+    private void goToNext() {
+      long length = keys.length();
+      while (position < length && keys.get(position) == NULL) {
+        position++;
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public Iterator<Long> iterator() {
+      return new KeyIterator();
+    }
+
+    @Override
+    public void skip(int n) {
+      for (int i = 0; i < n && hasNext(); i++) {
+        position++;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A set of {@code long} IDs that can grow beyond 2<sup>31</sup> entries without one huge array.
+ *
+ * @see ChunkedIDLongMap
+ */
+public final class ChunkedIDSet implements Serializable, Iterable<Long> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final float DEFAULT_LOAD_FACTOR = 1.5f;
+
+  private static final long NULL = Long.MIN_VALUE;
+
+  private ChunkedLongArray keys;
+  private long mask;
+  private long maxEntries;
+  private final float loadFactor;
+  private long numEntries;
+
+  public ChunkedIDSet() {
+    this(2);
+  }
+
+  public ChunkedIDSet(long size) {
+    this(size, DEFAULT_LOAD_FACTOR);
+  }
+
+  public ChunkedIDSet(long size, float loadFactor) {
+    Preconditions.checkArgument(size >= 0, "size must be at least 0");
+    Preconditions.checkArgument(loadFactor >= 1.0f, "loadFactor must be at least 1.0");
+    this.loadFactor = loadFactor;
+    allocate(ChunkedIDLongMap.tableSize(size, loadFactor));
+  }
+
+  /**
+   * Builds the set from IDs in increasing order, for instance read from a sorted file
+   *
+   * @param size
+   *          expected number of IDs
+   * @throws IllegalArgumentException
+   *           if the IDs are not in strictly increasing order
+   */
+  public static ChunkedIDSet fromSorted(LongPrimitiveIterator sortedIDs, long size) {
+    ChunkedIDSet set = new ChunkedIDSet(size);
+    boolean first = true;
+    long previous = NULL;
+    while (sortedIDs.hasNext()) {
+      long id = sortedIDs.nextLong();
+      Preconditions.checkArgument(first || id > previous, "IDs not in increasing order: %s after %s",
+                                  id, previous);
+      set.add(id);
+      previous = id;
+      first = false;
+    }
+    return set;
+  }
+
+  private void allocate(long tableSize) {
+    keys = new ChunkedLongArray(tableSize);
+    keys.fill(NULL);
+    mask = tableSize - 1;
+    // keeps a free slot, where looking up a missing key stops
+    maxEntries = Math.min(tableSize - 1, (long) (tableSize / loadFactor));
+  }
+
+  /**
+   * @return slot of the key, or the empty slot where it would be added
+   */
+  private long find(long key) {
+    ChunkedLongArray keys = this.keys;
+    long index = ChunkedIDLongMap.hash(key) & mask;
+    long currentKey;
+    while ((currentKey = keys.get(index)) != NULL && currentKey != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  public long size() {
+    return numEntries;
+  }
+
+  public boolean isEmpty() {
+    return numEntries == 0;
+  }
+
+  public boolean contains(long key) {
+    return key != NULL && keys.get(find(key)) != NULL;
+  }
+
+  public boolean add(long key) {
+    Preconditions.checkArgument(key != NULL, "Reserved key: %s", key);
+    long index = find(key);
+    if (keys.get(index) == key) {
+      return false;
+    }
+    if (numEntries >= maxEntries) {
+      rehash(keys.length() << 1);
+      index = find(key);
+    }
+    keys.set(index, key);
+    numEntries++;
+    return true;
+  }
+
+  public boolean addAll(long[] c) {
+    boolean changed = false;
+    for (long k : c) {
+      if (add(k)) {
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  public boolean remove(long key) {
+    if (key == NULL) {
+      return false;
+    }
+    long hole = find(key);
+    if (keys.get(hole) == NULL) {
+      return false;
+    }
+    // move back the following entries of the run that may not stay after the hole
+    long index = (hole + 1) & mask;
+    long currentKey;
+    while ((currentKey = keys.get(index)) != NULL) {
+      long home = ChunkedIDLongMap.hash(currentKey) & mask;
+      if (((index - home) & mask) >= ((index - hole) & mask)) {
+        keys.set(hole, currentKey);
+        hole = index;
+      }
+      index = (index + 1) & mask;
+    }
+    keys.set(hole, NULL);
+    numEntries--;
+    return true;
+  }
+
+  public void clear() {
+    keys.fill(NULL);
+    numEntries = 0;
+  }
+
+  /**
+   * Shrinks the table to the smallest size that holds the current entries, e.g. after many removals
+   */
+  public void rehash() {
+    rehash(ChunkedIDLongMap.tableSize(numEntries, loadFactor));
+  }
+
+  private void rehash(long newTableSize) {
+    ChunkedLongArray oldKeys = keys;
+    allocate(newTableSize);
+    long length = oldKeys.length();
+    for (long index = 0; index < length; index++) {
+      long key = oldKeys.get(index);
+      if (key != NULL) {
+        keys.set(find(key), key);
+      }
+    }
+  }
+
+  /**
+   * @return number of elements of the other set that are also in this one
+   */
+  public long intersectionSize(ChunkedIDSet other) {
+    long count = 0;
+    long length = other.keys.length();
+    for (long index = 0; index < length; index++) {
+      long key = other.keys.get(index);
+      if (key != NULL && keys.get(find(key)) != NULL) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @throws IllegalStateException
+   *           if the set has more elements than an array can hold
+   */
+  public long[] toArray() {
+    Preconditions.checkState(numEntries <= Integer.MAX_VALUE, "Too many elements for an array: %s", numEntries);
+    long[] result = new long[(int) numEntries];
+    LongPrimitiveIterator it = iterator();
+    for (int i = 0; i < result.length; i++) {
+      result[i] = it.nextLong();
+    }
+    return result;
+  }
+
+  /**
+   * @return an iterator over the elements, in no particular order; it does not support removal
+   */
+  @Override
+  public LongPrimitiveIterator iterator() {
+    return new KeyIterator();
+  }
+
+  @Override
+  public String toString() {
+    if (isEmpty()) {
+      return "[]";
+    }
+    StringBuilder result = new StringBuilder();
+    result.append('[');
+    LongPrimitiveIterator it = iterator();
+    while (it.hasNext()) {
+      result.append(it.nextLong()).append(',');
+    }
+    result.setCharAt(result.length() - 1, ']');
+    return result.toString();
+  }
+
+  private final class KeyIterator extends AbstractLongPrimitiveIterator {
+
+    private long position;
+
+    @Override
+    public boolean hasNext() {
+      goToNext();
+      return position < keys.length();
+    }
+
+    @Override
+    public long nextLong() {
+      goToNext();
+      if (position >= keys.length()) {
+        throw new NoSuchElementException();
+      }
+      return keys.get(position++);
+    }
+
+    @Override
+    public long peek() {
+      goToNext();
+      if (position >= keys.length()) {
+        throw new NoSuchElementException();
+      }
+      return keys.get(position);
+    }
+
+    private void goToNext() {
+      long length = keys.length();
+      while (position < length && keys.get(position) == NULL) {
+        position++;
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public Iterator<Long> iterator() {
+      return new KeyIterator();
+    }
+
+    @Override
+    public void skip(int n) {
+      for (int i = 0; i < n && hasNext(); i++) {
+        position++;
+      }
+    }
+
+  }
+
+}
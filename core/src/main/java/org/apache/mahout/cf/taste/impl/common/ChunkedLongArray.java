@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A fixed-length array of {@code long}s indexed by a {@code long}, stored as chunks of 2<sup>20</sup>
+ * elements. It can hold more than 2<sup>31</sup> elements, never needs one huge contiguous allocation, and the
+ * garbage collector only sees a few primitive arrays however large it grows.
+ */
+public final class ChunkedLongArray implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int CHUNK_BITS = 20;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final long[][] chunks;
+  private final long length;
+
+  public ChunkedLongArray(long length) {
+    Preconditions.checkArgument(length >= 0, "length must be at least 0");
+    long nbChunks = (length + CHUNK_MASK) >>> CHUNK_BITS;
+    Preconditions.checkArgument(nbChunks <= Integer.MAX_VALUE, "length too large: %s", length);
+    this.length = length;
+    chunks = new long[(int) nbChunks][];
+    for (int chunk = 0; chunk < chunks.length; chunk++) {
+      // the last chunk is only as large as needed, so that small arrays stay small
+      chunks[chunk] = new long[(int) Math.min(CHUNK_SIZE, length - ((long) chunk << CHUNK_BITS))];
+    }
+  }
+
+  public long length() {
+    return length;
+  }
+
+  public long get(long index) {
+    return chunks[(int) (index >>> CHUNK_BITS)][(int) index & CHUNK_MASK];
+  }
+
+  public void set(long index, long value) {
+    chunks[(int) (index >>> CHUNK_BITS)][(int) index & CHUNK_MASK] = value;
+  }
+
+  public void fill(long value) {
+    for (long[] chunk : chunks) {
+      Arrays.fill(chunk, value);
+    }
+  }
+
+}
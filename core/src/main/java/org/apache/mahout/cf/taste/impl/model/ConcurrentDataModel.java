@@ -0,0 +1,608 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveArrayIterator;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.Preference;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.model.PreferenceChangeListener;
+
+/**
+ * <p>
+ * An in-memory {@link DataModel} which, unlike {@link GenericDataModel}, can be updated while it is in use: a stream
+ * of preference updates and removals may be applied through {@link #setPreference(long, long, float, long)} and
+ * {@link #removePreference(long, long)} from any number of threads, and each becomes visible to readers as soon as
+ * the call returns. There is no need to {@link #refresh(Collection)} this model.
+ * </p>
+ *
+ * <p>
+ * The preferences of each user and each item are held in {@link PreferenceArray}s which are never modified once
+ * published. An update copies the affected user's and item's arrays and swaps the copies in, so readers never
+ * block and always see a consistent array, though a reader may briefly see a user's array already updated while the
+ * item's array is not yet. Both swaps of an update are made under a lock chosen from the user and the item, so
+ * concurrent updates of the same preference are applied in the same order to both. Updates are therefore cheap for
+ * users and items with up to some thousands of preferences, which is the common case, and get slower for the most
+ * popular items. Arrays returned by this model are these snapshots, which callers must not sort or modify, and which
+ * later updates leave untouched.
+ * </p>
+ *
+ * <p>
+ * {@link PreferenceChangeListener}s registered with {@link #addPreferenceChangeListener(PreferenceChangeListener)}
+ * are told about every change once it is visible, for example a {@link
+ * org.apache.mahout.cf.taste.impl.similarity.CachingItemSimilarity} which then forgets only the similarities of the
+ * changed item. Users and items without preferences are removed from the model. The minimum and maximum preference
+ * values only ever widen.
+ * </p>
+ */
+public final class ConcurrentDataModel extends AbstractDataModel {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Marks a preference without timestamp. */
+  private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+  /** number of locks serializing the updates of a same preference, a power of two */
+  private static final int NUM_LOCKS = 64;
+
+  private final ConcurrentMap<Long,Preferences> preferencesFromUsers;
+  private final ConcurrentMap<Long,Preferences> preferencesForItems;
+  /** listeners are not serialized along with the model */
+  private transient List<PreferenceChangeListener> listeners;
+  private transient Object[] locks;
+  /** incremented whenever users, respectively items, are added or removed */
+  private final AtomicInteger userIDsVersion = new AtomicInteger();
+  private final AtomicInteger itemIDsVersion = new AtomicInteger();
+  private transient volatile SortedIDs userIDs;
+  private transient volatile SortedIDs itemIDs;
+  private volatile float maxPreference;
+  private volatile float minPreference;
+
+  /**
+   * Creates an empty model.
+   */
+  public ConcurrentDataModel() {
+    this(new FastByIDMap<PreferenceArray>());
+  }
+
+  /**
+   * Creates a model initially holding the given users and their preferences, without timestamps.
+   *
+   * @param userData users to include; their arrays are copied
+   */
+  public ConcurrentDataModel(FastByIDMap<PreferenceArray> userData) {
+    Preconditions.checkArgument(userData != null, "userData is null");
+    preferencesFromUsers = new ConcurrentHashMap<Long,Preferences>(Math.max(16, userData.size()));
+    listeners = new CopyOnWriteArrayList<PreferenceChangeListener>();
+    locks = newLocks();
+    maxPreference = Float.NaN;
+    minPreference = Float.NaN;
+
+    FastByIDMap<Collection<Preference>> prefsForItems = new FastByIDMap<Collection<Preference>>();
+    for (Map.Entry<Long,PreferenceArray> entry : userData.entrySet()) {
+      PreferenceArray original = entry.getValue();
+      int length = original.length();
+      if (length == 0) {
+        continue;
+      }
+      // copied into a GenericUserPreferenceArray, as boolean arrays cannot take values
+      PreferenceArray prefs = new GenericUserPreferenceArray(length);
+      prefs.setUserID(0, entry.getKey());
+      for (int i = 0; i < length; i++) {
+        prefs.setItemID(i, original.getItemID(i));
+        prefs.setValue(i, original.getValue(i));
+      }
+      prefs.sortByItem();
+      preferencesFromUsers.put(entry.getKey(), new Preferences(prefs, null));
+      for (Preference preference : prefs) {
+        Collection<Preference> prefsForItem = prefsForItems.get(preference.getItemID());
+        if (prefsForItem == null) {
+          prefsForItem = Lists.newArrayListWithCapacity(2);
+          prefsForItems.put(preference.getItemID(), prefsForItem);
+        }
+        prefsForItem.add(preference);
+        widenPreferenceRange(preference.getValue());
+      }
+    }
+
+    preferencesForItems = new ConcurrentHashMap<Long,Preferences>(Math.max(16, prefsForItems.size()));
+    for (Map.Entry<Long,PreferenceArray> entry : GenericDataModel.toDataMap(prefsForItems, false).entrySet()) {
+      PreferenceArray prefs = entry.getValue();
+      prefs.sortByUser();
+      preferencesForItems.put(entry.getKey(), new Preferences(prefs, null));
+    }
+  }
+
+  public void addPreferenceChangeListener(PreferenceChangeListener listener) {
+    listeners.add(Preconditions.checkNotNull(listener));
+  }
+
+  public void removePreferenceChangeListener(PreferenceChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public LongPrimitiveArrayIterator getUserIDs() {
+    int version = userIDsVersion.get();
+    SortedIDs ids = userIDs;
+    if (ids == null || ids.version != version) {
+      ids = new SortedIDs(sortedKeys(preferencesFromUsers), version);
+      userIDs = ids;
+    }
+    return new LongPrimitiveArrayIterator(ids.ids);
+  }
+
+  @Override
+  public PreferenceArray getPreferencesFromUser(long userID) throws NoSuchUserException {
+    Preferences prefs = preferencesFromUsers.get(userID);
+    if (prefs == null) {
+      throw new NoSuchUserException(userID);
+    }
+    return prefs.array;
+  }
+
+  @Override
+  public FastIDSet getItemIDsFromUser(long userID) throws NoSuchUserException {
+    Preferences userPrefs = preferencesFromUsers.get(userID);
+    if (userPrefs == null) {
+      throw new NoSuchUserException(userID);
+    }
+    PreferenceArray prefs = userPrefs.array;
+    int size = prefs.length();
+    FastIDSet result = new FastIDSet(size);
+    for (int i = 0; i < size; i++) {
+      result.add(prefs.getItemID(i));
+    }
+    return result;
+  }
+
+  @Override
+  public LongPrimitiveArrayIterator getItemIDs() {
+    int version = itemIDsVersion.get();
+    SortedIDs ids = itemIDs;
+    if (ids == null || ids.version != version) {
+      ids = new SortedIDs(sortedKeys(preferencesForItems), version);
+      itemIDs = ids;
+    }
+    return new LongPrimitiveArrayIterator(ids.ids);
+  }
+
+  @Override
+  public PreferenceArray getPreferencesForItem(long itemID) throws NoSuchItemException {
+    Preferences prefs = preferencesForItems.get(itemID);
+    if (prefs == null) {
+      throw new NoSuchItemException(itemID);
+    }
+    return prefs.array;
+  }
+
+  @Override
+  public Float getPreferenceValue(long userID, long itemID) throws NoSuchUserException {
+    Preferences prefs = preferencesFromUsers.get(userID);
+    if (prefs == null) {
+      throw new NoSuchUserException(userID);
+    }
+    int index = prefs.indexOf(itemID, true);
+    return index < 0 ? null : prefs.array.getValue(index);
+  }
+
+  @Override
+  public Long getPreferenceTime(long userID, long itemID) throws NoSuchUserException {
+    Preferences prefs = preferencesFromUsers.get(userID);
+    if (prefs == null) {
+      throw new NoSuchUserException(userID);
+    }
+    int index = prefs.indexOf(itemID, true);
+    if (index < 0 || prefs.times == null || prefs.times[index] == NO_TIMESTAMP) {
+      return null;
+    }
+    return prefs.times[index];
+  }
+
+  @Override
+  public int getNumItems() {
+    return preferencesForItems.size();
+  }
+
+  @Override
+  public int getNumUsers() {
+    return preferencesFromUsers.size();
+  }
+
+  @Override
+  public int getNumUsersWithPreferenceFor(long itemID) {
+    Preferences prefs = preferencesForItems.get(itemID);
+    return prefs == null ? 0 : prefs.array.length();
+  }
+
+  @Override
+  public int getNumUsersWithPreferenceFor(long itemID1, long itemID2) {
+    Preferences prefs1 = preferencesForItems.get(itemID1);
+    if (prefs1 == null) {
+      return 0;
+    }
+    Preferences prefs2 = preferencesForItems.get(itemID2);
+    if (prefs2 == null) {
+      return 0;
+    }
+    PreferenceArray array1 = prefs1.array;
+    PreferenceArray array2 = prefs2.array;
+    int size1 = array1.length();
+    int size2 = array2.length();
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size1 && j < size2) {
+      long userID1 = array1.getUserID(i);
+      long userID2 = array2.getUserID(j);
+      if (userID1 < userID2) {
+        i++;
+      } else if (userID1 > userID2) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Sets a preference without timestamp, replacing any previous value and timestamp.
+   */
+  @Override
+  public void setPreference(long userID, long itemID, float value) {
+    setPreference(userID, itemID, value, NO_TIMESTAMP);
+  }
+
+  /**
+   * Sets a preference, replacing any previous value.
+   *
+   * @param time time of the preference, in milliseconds since the epoch
+   */
+  public void setPreference(long userID, long itemID, float value, long time) {
+    Preconditions.checkArgument(!Float.isNaN(value), "NaN value");
+    widenPreferenceRange(value);
+
+    // other preferences of the user or the item may still change concurrently, hence the compare-and-swap loops
+    synchronized (lockFor(userID, itemID)) {
+      Preferences current;
+      Preferences updated;
+      do {
+        current = preferencesFromUsers.get(userID);
+        updated = current == null
+            ? Preferences.single(new GenericUserPreferenceArray(1), userID, itemID, value, time, true)
+            : current.with(itemID, value, time, true);
+      } while (!replace(preferencesFromUsers, userID, current, updated));
+
+      do {
+        current = preferencesForItems.get(itemID);
+        updated = current == null
+            ? Preferences.single(new GenericItemPreferenceArray(1), itemID, userID, value, NO_TIMESTAMP, false)
+            : current.with(userID, value, NO_TIMESTAMP, false);
+      } while (!replace(preferencesForItems, itemID, current, updated));
+    }
+
+    fireChanged(userID, itemID);
+  }
+
+  /**
+   * Removes a preference, if present. A user or item left without preferences is removed from the model.
+   */
+  @Override
+  public void removePreference(long userID, long itemID) {
+    boolean removed = false;
+    synchronized (lockFor(userID, itemID)) {
+      Preferences current;
+      Preferences updated;
+      do {
+        current = preferencesFromUsers.get(userID);
+        if (current == null || current.indexOf(itemID, true) < 0) {
+          break;
+        }
+        updated = current.without(itemID, true);
+        removed = true;
+      } while (!replace(preferencesFromUsers, userID, current, updated));
+
+      do {
+        current = preferencesForItems.get(itemID);
+        if (current == null || current.indexOf(userID, false) < 0) {
+          break;
+        }
+        updated = current.without(userID, false);
+        removed = true;
+      } while (!replace(preferencesForItems, itemID, current, updated));
+    }
+
+    if (removed) {
+      fireChanged(userID, itemID);
+    }
+  }
+
+  /**
+   * Nothing to do, updates are visible immediately.
+   */
+  @Override
+  public void refresh(Collection<Refreshable> alreadyRefreshed) {
+  }
+
+  @Override
+  public boolean hasPreferenceValues() {
+    return true;
+  }
+
+  @Override
+  public float getMaxPreference() {
+    return maxPreference;
+  }
+
+  @Override
+  public float getMinPreference() {
+    return minPreference;
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentDataModel[users:" + getNumUsers() + ", items:" + getNumItems() + ']';
+  }
+
+  /**
+   * Atomically replaces the mapping of {@code id} if it still is {@code current}, adding it if {@code current} is
+   * {@code null} and removing it if {@code updated} is {@code null}.
+   */
+  private boolean replace(ConcurrentMap<Long,Preferences> map, long id, Preferences current, Preferences updated) {
+    boolean replaced;
+    if (current == null) {
+      replaced = map.putIfAbsent(id, updated) == null;
+    } else if (updated == null) {
+      replaced = map.remove(id, current);
+    } else {
+      return map.replace(id, current, updated);
+    }
+    if (replaced) {
+      (map == preferencesFromUsers ? userIDsVersion : itemIDsVersion).incrementAndGet();
+    }
+    return replaced;
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    listeners = new CopyOnWriteArrayList<PreferenceChangeListener>();
+    locks = newLocks();
+  }
+
+  private static Object[] newLocks() {
+    Object[] locks = new Object[NUM_LOCKS];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+    return locks;
+  }
+
+  private Object lockFor(long userID, long itemID) {
+    long hash = 31 * userID + itemID;
+    hash ^= hash >>> 32;
+    int h = (int) hash;
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return locks[h & (NUM_LOCKS - 1)];
+  }
+
+  private void fireChanged(long userID, long itemID) {
+    for (PreferenceChangeListener listener : listeners) {
+      listener.preferenceChanged(userID, itemID);
+    }
+  }
+
+  private void widenPreferenceRange(float value) {
+    // most values fall within the range, so only a value widening it takes the lock; false while the range is NaN
+    if (value >= minPreference && value <= maxPreference) {
+      return;
+    }
+    synchronized (this) {
+      if (Float.isNaN(maxPreference) || value > maxPreference) {
+        maxPreference = value;
+      }
+      if (Float.isNaN(minPreference) || value < minPreference) {
+        minPreference = value;
+      }
+    }
+  }
+
+  private static long[] sortedKeys(Map<Long,?> map) {
+    long[] ids = new long[map.size()];
+    int size = 0;
+    Iterator<Long> it = map.keySet().iterator();
+    while (it.hasNext()) {
+      long id = it.next();
+      if (size == ids.length) {
+        // the map grew while being copied
+        ids = Arrays.copyOf(ids, 2 * size + 1);
+      }
+      ids[size++] = id;
+    }
+    if (size < ids.length) {
+      ids = Arrays.copyOf(ids, size);
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  /** Sorted snapshot of the user or item IDs, valid as long as the version has not changed. */
+  private static final class SortedIDs {
+
+    private final long[] ids;
+    private final int version;
+
+    private SortedIDs(long[] ids, int version) {
+      this.ids = ids;
+      this.version = version;
+    }
+  }
+
+  /**
+   * An immutable snapshot of the preferences of one user, sorted by item, or one item, sorted by user. Compared by
+   * identity, so that swapping it in is cheap.
+   */
+  private static final class Preferences implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PreferenceArray array;
+    /** timestamps aligned with {@link #array}, or {@code null} if none has one */
+    private final long[] times;
+
+    private Preferences(PreferenceArray array, long[] times) {
+      this.array = array;
+      this.times = times;
+    }
+
+    static Preferences single(PreferenceArray array, long id, long otherID, float value, long time, boolean byUser) {
+      if (byUser) {
+        array.setUserID(0, id);
+        array.setItemID(0, otherID);
+      } else {
+        array.setItemID(0, id);
+        array.setUserID(0, otherID);
+      }
+      array.setValue(0, value);
+      return new Preferences(array, time == NO_TIMESTAMP ? null : new long[] { time });
+    }
+
+    /** @return index of the preference for {@code otherID}, or {@code -(insertion point) - 1} */
+    int indexOf(long otherID, boolean byUser) {
+      int low = 0;
+      int high = array.length() - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        long middleID = byUser ? array.getItemID(middle) : array.getUserID(middle);
+        if (middleID < otherID) {
+          low = middle + 1;
+        } else if (middleID > otherID) {
+          high = middle - 1;
+        } else {
+          return middle;
+        }
+      }
+      return -(low + 1);
+    }
+
+    Preferences with(long otherID, float value, long time, boolean byUser) {
+      int index = indexOf(otherID, byUser);
+      if (index >= 0) {
+        PreferenceArray copy = array.clone();
+        copy.setValue(index, value);
+        long[] newTimes = times;
+        if (times != null || time != NO_TIMESTAMP) {
+          newTimes = times == null ? noTimestamps(array.length()) : times.clone();
+          newTimes[index] = time;
+        }
+        return new Preferences(copy, newTimes);
+      }
+
+      int insertAt = -index - 1;
+      int length = array.length();
+      PreferenceArray copy = byUser ? new GenericUserPreferenceArray(length + 1)
+                                    : new GenericItemPreferenceArray(length + 1);
+      for (int i = 0; i < length; i++) {
+        copy(array, i, copy, i < insertAt ? i : i + 1, byUser);
+      }
+      if (byUser) {
+        copy.setUserID(0, array.getUserID(0));
+        copy.setItemID(insertAt, otherID);
+      } else {
+        copy.setItemID(0, array.getItemID(0));
+        copy.setUserID(insertAt, otherID);
+      }
+      copy.setValue(insertAt, value);
+
+      long[] newTimes = null;
+      if (times != null || time != NO_TIMESTAMP) {
+        if (times == null) {
+          newTimes = noTimestamps(length + 1);
+        } else {
+          newTimes = new long[length + 1];
+          System.arraycopy(times, 0, newTimes, 0, insertAt);
+          System.arraycopy(times, insertAt, newTimes, insertAt + 1, length - insertAt);
+        }
+        newTimes[insertAt] = time;
+      }
+      return new Preferences(copy, newTimes);
+    }
+
+    /** @return this without the preference for {@code otherID}, which must exist, or {@code null} if none is left */
+    Preferences without(long otherID, boolean byUser) {
+      int removeAt = indexOf(otherID, byUser);
+      int length = array.length();
+      if (length == 1) {
+        return null;
+      }
+      PreferenceArray copy = byUser ? new GenericUserPreferenceArray(length - 1)
+                                    : new GenericItemPreferenceArray(length - 1);
+      for (int i = 0; i < length; i++) {
+        if (i != removeAt) {
+          copy(array, i, copy, i < removeAt ? i : i - 1, byUser);
+        }
+      }
+      long[] newTimes = null;
+      if (times != null) {
+        newTimes = new long[length - 1];
+        System.arraycopy(times, 0, newTimes, 0, removeAt);
+        System.arraycopy(times, removeAt + 1, newTimes, removeAt, length - removeAt - 1);
+      }
+      return new Preferences(copy, newTimes);
+    }
+
+    private static void copy(PreferenceArray from, int i, PreferenceArray to, int j, boolean byUser) {
+      if (byUser) {
+        to.setItemID(j, from.getItemID(i));
+      } else {
+        to.setUserID(j, from.getUserID(i));
+      }
+      to.setValue(j, from.getValue(i));
+    }
+
+    private static long[] noTimestamps(int length) {
+      long[] result = new long[length];
+      Arrays.fill(result, NO_TIMESTAMP);
+      return result;
+    }
+  }
+
+}
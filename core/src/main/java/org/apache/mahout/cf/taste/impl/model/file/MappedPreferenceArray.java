@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.util.Iterator;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import org.apache.mahout.cf.taste.impl.model.GenericItemPreferenceArray;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
+import org.apache.mahout.cf.taste.model.Preference;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.common.iterator.CountingIterator;
+import org.apache.mahout.math.Sorting;
+import org.apache.mahout.math.function.IntComparator;
+
+/**
+ * <p>
+ * A read-only {@link PreferenceArray} that is a view onto one user's or one item's block of a
+ * {@link MemoryMappedDataModel}. Nothing is copied onto the heap until {@link #clone()} or {@link #getIDs()}
+ * is called.
+ * </p>
+ *
+ * <p>
+ * A user's preferences are stored sorted by item ID and an item's by user ID. Sorting by value only
+ * reorders this view, through a permutation of the stored order, and sorting by item, respectively user,
+ * goes back to the stored order. All other methods which would change the array throw
+ * {@link UnsupportedOperationException}; {@link #clone()} it first to get a mutable copy.
+ * </p>
+ */
+final class MappedPreferenceArray implements PreferenceArray {
+
+  private static final long serialVersionUID = 1L;
+
+  private final boolean byUser;
+  private final long id;
+  private final MappedRegion ids;
+  private final MappedRegion values;
+  private final long start;
+  private final int length;
+  /** stored index of each preference once sorted by value, or {@code null} while in the stored order */
+  private int[] order;
+
+  /**
+   * @param byUser true if this holds one user's preferences, false for one item's
+   * @param id the user or item ID all the preferences share
+   * @param ids the other IDs of the block's model side
+   * @param values preference values parallel to {@code ids}, or {@code null} if the model has none
+   * @param start index of the first preference in {@code ids}
+   * @param length number of preferences
+   */
+  MappedPreferenceArray(boolean byUser, long id, MappedRegion ids, MappedRegion values, long start, int length) {
+    this.byUser = byUser;
+    this.id = id;
+    this.ids = ids;
+    this.values = values;
+    this.start = start;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public Preference get(int i) {
+    return new PreferenceView(i);
+  }
+
+  @Override
+  public void set(int i, Preference pref) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getUserID(int i) {
+    return byUser ? id : ids.getLong(start + stored(i));
+  }
+
+  @Override
+  public void setUserID(int i, long userID) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getItemID(int i) {
+    return byUser ? ids.getLong(start + stored(i)) : id;
+  }
+
+  @Override
+  public void setItemID(int i, long itemID) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return a copy of the item IDs of a user's preferences, or the user IDs of an item's
+   */
+  @Override
+  public long[] getIDs() {
+    long[] result = new long[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = ids.getLong(start + stored(i));
+    }
+    return result;
+  }
+
+  @Override
+  public float getValue(int i) {
+    return values == null ? 1.0f : values.getFloat(start + stored(i));
+  }
+
+  private int stored(int i) {
+    return order == null ? i : order[i];
+  }
+
+  @Override
+  public void setValue(int i, float value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return a mutable, heap-based copy of this array
+   */
+  @Override
+  public PreferenceArray clone() {
+    PreferenceArray copy = byUser ? new GenericUserPreferenceArray(length) : new GenericItemPreferenceArray(length);
+    for (int i = 0; i < length; i++) {
+      copy.setUserID(i, getUserID(i));
+      copy.setItemID(i, getItemID(i));
+      copy.setValue(i, getValue(i));
+    }
+    return copy;
+  }
+
+  @Override
+  public void sortByUser() {
+    if (!byUser) {
+      order = null;
+    }
+  }
+
+  @Override
+  public void sortByItem() {
+    if (byUser) {
+      order = null;
+    }
+  }
+
+  @Override
+  public void sortByValue() {
+    sortByValue(false);
+  }
+
+  @Override
+  public void sortByValueReversed() {
+    sortByValue(true);
+  }
+
+  private void sortByValue(final boolean reversed) {
+    if (values == null) {
+      return;
+    }
+    int[] newOrder = new int[length];
+    for (int i = 0; i < length; i++) {
+      newOrder[i] = i;
+    }
+    // stable, so that equal values stay in the stored order
+    Sorting.mergeSort(newOrder, 0, length, new IntComparator() {
+      @Override
+      public int compare(int a, int b) {
+        float valueA = values.getFloat(start + a);
+        float valueB = values.getFloat(start + b);
+        return reversed ? Float.compare(valueB, valueA) : Float.compare(valueA, valueB);
+      }
+    });
+    order = newOrder;
+  }
+
+  @Override
+  public boolean hasPrefWithUserID(long userID) {
+    return byUser ? id == userID : ids.binarySearch(start, start + length, userID) >= 0;
+  }
+
+  @Override
+  public boolean hasPrefWithItemID(long itemID) {
+    return byUser ? ids.binarySearch(start, start + length, itemID) >= 0 : id == itemID;
+  }
+
+  @Override
+  public Iterator<Preference> iterator() {
+    return Iterators.transform(new CountingIterator(length),
+                               new Function<Integer, Preference>() {
+                                 @Override
+                                 public Preference apply(Integer from) {
+                                   return new PreferenceView(from);
+                                 }
+                               });
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(20 * length + 40);
+    result.append("MappedPreferenceArray[").append(byUser ? "userID:" : "itemID:").append(id).append(",{");
+    for (int i = 0; i < length; i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      result.append(ids.getLong(start + stored(i)));
+      result.append('=');
+      result.append(getValue(i));
+    }
+    result.append("}]");
+    return result.toString();
+  }
+
+  private final class PreferenceView implements Preference {
+
+    private final int i;
+
+    private PreferenceView(int i) {
+      this.i = i;
+    }
+
+    @Override
+    public long getUserID() {
+      return MappedPreferenceArray.this.getUserID(i);
+    }
+
+    @Override
+    public long getItemID() {
+      return MappedPreferenceArray.this.getItemID(i);
+    }
+
+    @Override
+    public float getValue() {
+      return MappedPreferenceArray.this.getValue(i);
+    }
+
+    @Override
+    public void setValue(float value) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
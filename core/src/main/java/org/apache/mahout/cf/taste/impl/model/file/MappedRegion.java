@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only, memory-mapped region of a file holding a run of {@code long}s or {@code float}s. Regions larger
+ * than a single {@link ByteBuffer} can address are mapped in several chunks.
+ */
+final class MappedRegion {
+
+  private static final int CHUNK_SHIFT = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+  private final ByteBuffer[] chunks;
+  private final int elementShift;
+  private final long numElements;
+
+  /**
+   * @param channel file to map
+   * @param position byte offset of the region in the file
+   * @param numElements number of elements in the region
+   * @param elementSize size of an element in bytes, either 4 or 8
+   */
+  MappedRegion(FileChannel channel, long position, long numElements, int elementSize) throws IOException {
+    this.elementShift = elementSize == 8 ? 3 : 2;
+    this.numElements = numElements;
+    long numBytes = numElements << elementShift;
+    int numChunks = (int) ((numBytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+    chunks = new ByteBuffer[numChunks];
+    for (int i = 0; i < numChunks; i++) {
+      long chunkStart = (long) i << CHUNK_SHIFT;
+      long chunkSize = Math.min(numBytes - chunkStart, 1L << CHUNK_SHIFT);
+      chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + chunkStart, chunkSize);
+    }
+  }
+
+  long size() {
+    return numElements;
+  }
+
+  long getLong(long index) {
+    long offset = index << 3;
+    return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+  }
+
+  float getFloat(long index) {
+    long offset = index << 2;
+    return chunks[(int) (offset >>> CHUNK_SHIFT)].getFloat((int) (offset & CHUNK_MASK));
+  }
+
+  /**
+   * @return index of {@code value} among the sorted {@code long}s in {@code [from, to)}, or
+   *  {@code -(insertion point) - 1} if absent, as in {@link java.util.Arrays#binarySearch(long[], long)}
+   */
+  long binarySearch(long from, long to, long value) {
+    long low = from;
+    long high = to - 1;
+    while (low <= high) {
+      long mid = (low + high) >>> 1;
+      long midValue = getLong(mid);
+      if (midValue < value) {
+        low = mid + 1;
+      } else if (midValue > value) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+}
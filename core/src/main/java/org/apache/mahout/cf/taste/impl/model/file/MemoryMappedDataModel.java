@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.AbstractLongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.model.AbstractDataModel;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A read-only {@link DataModel} which memory-maps a compact binary file, as written by
+ * {@link MemoryMappedDataModelWriter}. Opening the model only reads a small header, and preferences are read
+ * straight from the operating system's page cache, so startup is near-instant and heap usage does not depend
+ * on the amount of data.
+ * </p>
+ *
+ * <p>
+ * The file holds two sorted, compressed-row blocks of preferences: one by user, with item IDs sorted within
+ * each user, and one by item, with user IDs sorted within each item. {@link #getPreferencesFromUser(long)}
+ * and {@link #getPreferencesForItem(long)} return views onto these blocks rather than copies. IDs are found
+ * by binary search, so lookups cost {@code O(log n)} rather than the {@code O(1)} of the hash-based models.
+ * </p>
+ *
+ * <p>
+ * All numbers are big-endian. The file starts with a header of {@value #HEADER_SIZE} bytes:
+ * </p>
+ *
+ * <ul>
+ *   <li>{@code int} magic number {@value #MAGIC}, {@code int} format version</li>
+ *   <li>{@code int} flags: {@value #FLAG_PREF_VALUES} if preference values are present,
+ *   {@value #FLAG_TIMESTAMPS} if timestamps are present</li>
+ *   <li>{@code int} number of users, {@code int} number of items</li>
+ *   <li>{@code float} minimum and {@code float} maximum preference value, {@code int} reserved</li>
+ *   <li>{@code long} number of preferences</li>
+ * </ul>
+ *
+ * <p>
+ * followed by these sections, each padded to a multiple of 8 bytes:
+ * </p>
+ *
+ * <ul>
+ *   <li>sorted user IDs, and for each user the {@code long} offset of its first preference, plus the total</li>
+ *   <li>item IDs of all users' preferences, their {@code float} values and their {@code long} timestamps,
+ *   the last two only if present; a missing timestamp is stored as {@link Long#MIN_VALUE}</li>
+ *   <li>sorted item IDs and their offsets, as for users</li>
+ *   <li>user IDs of all items' preferences and, if present, their values</li>
+ * </ul>
+ *
+ * <p>
+ * This class will re-map the file when {@link #refresh(Collection)} is called and the file has changed, so a
+ * new model can be swapped in by writing it elsewhere and renaming it over the old one.
+ * </p>
+ */
+public final class MemoryMappedDataModel extends AbstractDataModel {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger log = LoggerFactory.getLogger(MemoryMappedDataModel.class);
+
+  static final int MAGIC = 0x4D4D444D;
+  static final int VERSION = 1;
+  static final int FLAG_PREF_VALUES = 1;
+  static final int FLAG_TIMESTAMPS = 2;
+  static final int HEADER_SIZE = 40;
+  static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+  private final File dataFile;
+  private final ReentrantLock reloadLock;
+  private long lastModified;
+  private transient volatile Index index;
+
+  /**
+   * @param dataFile file written by {@link MemoryMappedDataModelWriter}
+   * @throws IOException if the file can't be read or is not in the expected format
+   */
+  public MemoryMappedDataModel(File dataFile) throws IOException {
+    this.dataFile = Preconditions.checkNotNull(dataFile.getAbsoluteFile());
+    if (!dataFile.exists() || dataFile.isDirectory()) {
+      throw new IOException("Data file " + dataFile + " does not exist or is a directory");
+    }
+    this.reloadLock = new ReentrantLock();
+    this.lastModified = dataFile.lastModified();
+    this.index = new Index(dataFile);
+  }
+
+  public File getDataFile() {
+    return dataFile;
+  }
+
+  @Override
+  public LongPrimitiveIterator getUserIDs() {
+    return new MappedIDIterator(index.userIDs);
+  }
+
+  @Override
+  public PreferenceArray getPreferencesFromUser(long userID) throws NoSuchUserException {
+    Index index = this.index;
+    long position = index.findUser(userID);
+    return new MappedPreferenceArray(true, userID, index.userItemIDs, index.userValues,
+        index.userOffsets.getLong(position), index.length(index.userOffsets, position));
+  }
+
+  @Override
+  public FastIDSet getItemIDsFromUser(long userID) throws NoSuchUserException {
+    Index index = this.index;
+    long position = index.findUser(userID);
+    long start = index.userOffsets.getLong(position);
+    int length = index.length(index.userOffsets, position);
+    FastIDSet result = new FastIDSet(length);
+    for (int i = 0; i < length; i++) {
+      result.add(index.userItemIDs.getLong(start + i));
+    }
+    return result;
+  }
+
+  @Override
+  public LongPrimitiveIterator getItemIDs() {
+    return new MappedIDIterator(index.itemIDs);
+  }
+
+  @Override
+  public PreferenceArray getPreferencesForItem(long itemID) throws NoSuchItemException {
+    Index index = this.index;
+    long position = index.itemIDs.binarySearch(0, index.itemIDs.size(), itemID);
+    if (position < 0) {
+      throw new NoSuchItemException(itemID);
+    }
+    return new MappedPreferenceArray(false, itemID, index.itemUserIDs, index.itemValues,
+        index.itemOffsets.getLong(position), index.length(index.itemOffsets, position));
+  }
+
+  @Override
+  public Float getPreferenceValue(long userID, long itemID) throws NoSuchUserException {
+    Index index = this.index;
+    long position = index.findPreference(userID, itemID);
+    if (position < 0) {
+      return null;
+    }
+    return index.userValues == null ? 1.0f : index.userValues.getFloat(position);
+  }
+
+  @Override
+  public Long getPreferenceTime(long userID, long itemID) throws NoSuchUserException {
+    Index index = this.index;
+    long position = index.findPreference(userID, itemID);
+    if (position < 0 || index.userTimestamps == null) {
+      return null;
+    }
+    long time = index.userTimestamps.getLong(position);
+    return time == NO_TIMESTAMP ? null : time;
+  }
+
+  @Override
+  public int getNumItems() {
+    return (int) index.itemIDs.size();
+  }
+
+  @Override
+  public int getNumUsers() {
+    return (int) index.userIDs.size();
+  }
+
+  @Override
+  public int getNumUsersWithPreferenceFor(long itemID) {
+    Index index = this.index;
+    long position = index.itemIDs.binarySearch(0, index.itemIDs.size(), itemID);
+    return position < 0 ? 0 : index.length(index.itemOffsets, position);
+  }
+
+  @Override
+  public int getNumUsersWithPreferenceFor(long itemID1, long itemID2) {
+    Index index = this.index;
+    MappedRegion itemIDs = index.itemIDs;
+    long position1 = itemIDs.binarySearch(0, itemIDs.size(), itemID1);
+    if (position1 < 0) {
+      return 0;
+    }
+    long position2 = itemIDs.binarySearch(0, itemIDs.size(), itemID2);
+    if (position2 < 0) {
+      return 0;
+    }
+    MappedRegion userIDs = index.itemUserIDs;
+    long i = index.itemOffsets.getLong(position1);
+    long end1 = index.itemOffsets.getLong(position1 + 1);
+    long j = index.itemOffsets.getLong(position2);
+    long end2 = index.itemOffsets.getLong(position2 + 1);
+    int count = 0;
+    while (i < end1 && j < end2) {
+      long userID1 = userIDs.getLong(i);
+      long userID2 = userIDs.getLong(j);
+      if (userID1 < userID2) {
+        i++;
+      } else if (userID1 > userID2) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void setPreference(long userID, long itemID, float value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removePreference(long userID, long itemID) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void refresh(Collection<Refreshable> alreadyRefreshed) {
+    if (dataFile.lastModified() != lastModified && reloadLock.tryLock()) {
+      try {
+        log.debug("File has changed; re-mapping...");
+        long modified = dataFile.lastModified();
+        index = new Index(dataFile);
+        lastModified = modified;
+      } catch (IOException ioe) {
+        log.warn("Exception while re-mapping", ioe);
+      } finally {
+        reloadLock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean hasPreferenceValues() {
+    return index.userValues != null;
+  }
+
+  @Override
+  public float getMaxPreference() {
+    return index.maxPreference;
+  }
+
+  @Override
+  public float getMinPreference() {
+    return index.minPreference;
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryMappedDataModel[dataFile:" + dataFile + ']';
+  }
+
+  /** Size in bytes of a section of {@code count} elements of the given size, padded to a multiple of 8. */
+  static long sectionSize(long count, int elementSize) {
+    return (count * elementSize + 7L) & ~7L;
+  }
+
+  /** All regions of one mapping of the file; replaced as a whole when the file is re-mapped. */
+  private static final class Index {
+
+    private final float minPreference;
+    private final float maxPreference;
+    private final MappedRegion userIDs;
+    private final MappedRegion userOffsets;
+    private final MappedRegion userItemIDs;
+    private final MappedRegion userValues;
+    private final MappedRegion userTimestamps;
+    private final MappedRegion itemIDs;
+    private final MappedRegion itemOffsets;
+    private final MappedRegion itemUserIDs;
+    private final MappedRegion itemValues;
+
+    private Index(File dataFile) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+      try {
+        FileChannel channel = raf.getChannel();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+          if (channel.read(header, header.position()) < 0) {
+            throw new IOException("Truncated header in " + dataFile);
+          }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+          throw new IOException(dataFile + " is not a memory-mapped data model file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+          throw new IOException("Unsupported format version " + version + " in " + dataFile);
+        }
+        int flags = header.getInt();
+        int numUsers = header.getInt();
+        int numItems = header.getInt();
+        minPreference = header.getFloat();
+        maxPreference = header.getFloat();
+        header.getInt();
+        long numPrefs = header.getLong();
+        boolean hasPrefValues = (flags & FLAG_PREF_VALUES) != 0;
+        boolean hasTimestamps = (flags & FLAG_TIMESTAMPS) != 0;
+
+        long position = HEADER_SIZE;
+        userIDs = new MappedRegion(channel, position, numUsers, 8);
+        position += sectionSize(numUsers, 8);
+        userOffsets = new MappedRegion(channel, position, numUsers + 1L, 8);
+        position += sectionSize(numUsers + 1L, 8);
+        userItemIDs = new MappedRegion(channel, position, numPrefs, 8);
+        position += sectionSize(numPrefs, 8);
+        if (hasPrefValues) {
+          userValues = new MappedRegion(channel, position, numPrefs, 4);
+          position += sectionSize(numPrefs, 4);
+        } else {
+          userValues = null;
+        }
+        if (hasTimestamps) {
+          userTimestamps = new MappedRegion(channel, position, numPrefs, 8);
+          position += sectionSize(numPrefs, 8);
+        } else {
+          userTimestamps = null;
+        }
+        itemIDs = new MappedRegion(channel, position, numItems, 8);
+        position += sectionSize(numItems, 8);
+        itemOffsets = new MappedRegion(channel, position, numItems + 1L, 8);
+        position += sectionSize(numItems + 1L, 8);
+        itemUserIDs = new MappedRegion(channel, position, numPrefs, 8);
+        position += sectionSize(numPrefs, 8);
+        if (hasPrefValues) {
+          itemValues = new MappedRegion(channel, position, numPrefs, 4);
+          position += sectionSize(numPrefs, 4);
+        } else {
+          itemValues = null;
+        }
+        if (position != channel.size()) {
+          throw new IOException("Expected " + position + " bytes in " + dataFile + " but found " + channel.size());
+        }
+      } finally {
+        Closeables.closeQuietly(raf);
+      }
+    }
+
+    private long findUser(long userID) throws NoSuchUserException {
+      long position = userIDs.binarySearch(0, userIDs.size(), userID);
+      if (position < 0) {
+        throw new NoSuchUserException(userID);
+      }
+      return position;
+    }
+
+    /** @return index of the preference among all users' preferences, or a negative value if there is none */
+    private long findPreference(long userID, long itemID) throws NoSuchUserException {
+      long position = findUser(userID);
+      return userItemIDs.binarySearch(userOffsets.getLong(position), userOffsets.getLong(position + 1), itemID);
+    }
+
+    private int length(MappedRegion offsets, long position) {
+      return (int) (offsets.getLong(position + 1) - offsets.getLong(position));
+    }
+  }
+
+  private static final class MappedIDIterator extends AbstractLongPrimitiveIterator {
+
+    private final MappedRegion ids;
+    private long position;
+
+    private MappedIDIterator(MappedRegion ids) {
+      this.ids = ids;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < ids.size();
+    }
+
+    @Override
+    public long nextLong() {
+      if (position >= ids.size()) {
+        throw new NoSuchElementException();
+      }
+      return ids.getLong(position++);
+    }
+
+    @Override
+    public long peek() {
+      if (position >= ids.size()) {
+        throw new NoSuchElementException();
+      }
+      return ids.getLong(position);
+    }
+
+    @Override
+    public void skip(int n) {
+      if (n > 0) {
+        position += n;
+      }
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.google.common.io.Closeables;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the contents of a {@link DataModel} in the binary format read by {@link MemoryMappedDataModel}.
+ * The source model is read in several passes, one per section of the file, so apart from the sorted user and
+ * item IDs nothing beyond what the source model itself holds is kept in memory.
+ */
+public final class MemoryMappedDataModelWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(MemoryMappedDataModelWriter.class);
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private MemoryMappedDataModelWriter() {
+  }
+
+  /**
+   * Converts a file in the text format read by {@link FileDataModel} to the binary format.
+   *
+   * @param textFile file of {@code userID,itemID[,preference[,timestamp]]} lines
+   * @param binaryFile file to write
+   */
+  public static void convert(File textFile, File binaryFile) throws IOException, TasteException {
+    write(new FileDataModel(textFile), binaryFile);
+  }
+
+  /**
+   * @param dataModel model to write
+   * @param binaryFile file to write
+   */
+  public static void write(DataModel dataModel, File binaryFile) throws IOException, TasteException {
+    long[] userIDs = sortedIDs(dataModel.getUserIDs(), dataModel.getNumUsers());
+    long[] itemIDs = sortedIDs(dataModel.getItemIDs(), dataModel.getNumItems());
+    boolean hasPrefValues = dataModel.hasPreferenceValues();
+
+    long numPrefs = 0;
+    boolean hasTimestamps = false;
+    float minPreference = Float.POSITIVE_INFINITY;
+    float maxPreference = Float.NEGATIVE_INFINITY;
+    for (long userID : userIDs) {
+      PreferenceArray prefs = dataModel.getPreferencesFromUser(userID);
+      int length = prefs.length();
+      numPrefs += length;
+      for (int i = 0; i < length; i++) {
+        float value = prefs.getValue(i);
+        minPreference = Math.min(minPreference, value);
+        maxPreference = Math.max(maxPreference, value);
+        if (!hasTimestamps && preferenceTime(dataModel, userID, prefs.getItemID(i)) != null) {
+          hasTimestamps = true;
+        }
+      }
+    }
+    if (numPrefs == 0) {
+      minPreference = Float.NaN;
+      maxPreference = Float.NaN;
+    }
+
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile), BUFFER_SIZE));
+    try {
+      out.writeInt(MemoryMappedDataModel.MAGIC);
+      out.writeInt(MemoryMappedDataModel.VERSION);
+      out.writeInt((hasPrefValues ? MemoryMappedDataModel.FLAG_PREF_VALUES : 0)
+                   | (hasTimestamps ? MemoryMappedDataModel.FLAG_TIMESTAMPS : 0));
+      out.writeInt(userIDs.length);
+      out.writeInt(itemIDs.length);
+      out.writeFloat(minPreference);
+      out.writeFloat(maxPreference);
+      out.writeInt(0);
+      out.writeLong(numPrefs);
+
+      writeIDs(out, userIDs);
+      writeOffsets(out, dataModel, userIDs, true);
+      writeOtherIDs(out, dataModel, userIDs, true);
+      if (hasPrefValues) {
+        writeValues(out, dataModel, userIDs, true, numPrefs);
+      }
+      if (hasTimestamps) {
+        for (long userID : userIDs) {
+          PreferenceArray prefs = preferences(dataModel, userID, true);
+          for (int i = 0; i < prefs.length(); i++) {
+            Long time = preferenceTime(dataModel, userID, prefs.getItemID(i));
+            out.writeLong(time == null ? MemoryMappedDataModel.NO_TIMESTAMP : time);
+          }
+        }
+      }
+
+      writeIDs(out, itemIDs);
+      writeOffsets(out, dataModel, itemIDs, false);
+      writeOtherIDs(out, dataModel, itemIDs, false);
+      if (hasPrefValues) {
+        writeValues(out, dataModel, itemIDs, false, numPrefs);
+      }
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+    log.info("Wrote {} preferences of {} users to {}", new Object[] {numPrefs, userIDs.length, binaryFile});
+  }
+
+  private static long[] sortedIDs(LongPrimitiveIterator it, int size) {
+    long[] ids = new long[size];
+    int i = 0;
+    while (it.hasNext()) {
+      ids[i++] = it.nextLong();
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  /** @return preferences of a user sorted by item, or of an item sorted by user */
+  private static PreferenceArray preferences(DataModel dataModel, long id, boolean byUser) throws TasteException {
+    PreferenceArray prefs = byUser ? dataModel.getPreferencesFromUser(id) : dataModel.getPreferencesForItem(id);
+    for (int i = 1; i < prefs.length(); i++) {
+      boolean outOfOrder = byUser
+          ? prefs.getItemID(i - 1) > prefs.getItemID(i)
+          : prefs.getUserID(i - 1) > prefs.getUserID(i);
+      if (outOfOrder) {
+        prefs = prefs.clone();
+        if (byUser) {
+          prefs.sortByItem();
+        } else {
+          prefs.sortByUser();
+        }
+        break;
+      }
+    }
+    return prefs;
+  }
+
+  private static Long preferenceTime(DataModel dataModel, long userID, long itemID) throws TasteException {
+    try {
+      return dataModel.getPreferenceTime(userID, itemID);
+    } catch (NoSuchUserException nsue) {
+      // some models only know users that have timestamps
+      return null;
+    }
+  }
+
+  private static void writeIDs(DataOutputStream out, long[] ids) throws IOException {
+    for (long id : ids) {
+      out.writeLong(id);
+    }
+  }
+
+  private static void writeOffsets(DataOutputStream out, DataModel dataModel, long[] ids, boolean byUser)
+    throws IOException, TasteException {
+    long offset = 0;
+    for (long id : ids) {
+      out.writeLong(offset);
+      offset += byUser
+          ? dataModel.getPreferencesFromUser(id).length()
+          : dataModel.getPreferencesForItem(id).length();
+    }
+    out.writeLong(offset);
+  }
+
+  private static void writeOtherIDs(DataOutputStream out, DataModel dataModel, long[] ids, boolean byUser)
+    throws IOException, TasteException {
+    for (long id : ids) {
+      PreferenceArray prefs = preferences(dataModel, id, byUser);
+      for (int i = 0; i < prefs.length(); i++) {
+        out.writeLong(byUser ? prefs.getItemID(i) : prefs.getUserID(i));
+      }
+    }
+  }
+
+  private static void writeValues(DataOutputStream out,
+                                  DataModel dataModel,
+                                  long[] ids,
+                                  boolean byUser,
+                                  long numPrefs) throws IOException, TasteException {
+    for (long id : ids) {
+      PreferenceArray prefs = preferences(dataModel, id, byUser);
+      for (int i = 0; i < prefs.length(); i++) {
+        out.writeFloat(prefs.getValue(i));
+      }
+    }
+    // pad the section to a multiple of 8 bytes
+    if ((numPrefs & 1L) != 0) {
+      out.writeInt(0);
+    }
+  }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.recommender;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.recommender.RecommendationCallback;
+import org.apache.mahout.cf.taste.recommender.RecommendedItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Runs the per-user part of a {@link org.apache.mahout.cf.taste.recommender.BatchRecommender} batch for many
+ * users on all available cores, passing each result to a {@link RecommendationCallback} as soon as it is
+ * computed.
+ * </p>
+ */
+public final class BatchRecommendations {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchRecommendations.class);
+
+  /** Number of users handed to a thread at a time. */
+  private static final int USERS_PER_TASK = 64;
+
+  private BatchRecommendations() { }
+
+  /**
+   * @param userIDs users to recommend for
+   * @param recommender computes one user's recommendations; called from several threads at once
+   * @param callback receives the recommendations; called from several threads at once
+   */
+  public static void recommend(long[] userIDs,
+                               final UserRecommender recommender,
+                               final RecommendationCallback callback) throws TasteException {
+    Preconditions.checkArgument(userIDs != null, "userIDs is null");
+    Preconditions.checkArgument(recommender != null, "recommender is null");
+    Preconditions.checkArgument(callback != null, "callback is null");
+
+    List<Callable<Void>> tasks = Lists.newArrayList();
+    for (int start = 0; start < userIDs.length; start += USERS_PER_TASK) {
+      final long[] users = Arrays.copyOfRange(userIDs, start, Math.min(userIDs.length, start + USERS_PER_TASK));
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws TasteException {
+          for (long userID : users) {
+            List<RecommendedItem> recommendations;
+            try {
+              recommendations = recommender.recommend(userID);
+            } catch (NoSuchUserException nsue) {
+              recommendations = Collections.emptyList();
+            }
+            callback.recommended(userID, recommendations);
+          }
+          return null;
+        }
+      });
+    }
+
+    int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, tasks.size()));
+    log.info("Recommending for {} users in {} threads", userIDs.length, numThreads);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Void>> futures = Lists.newArrayListWithCapacity(tasks.size());
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      // stops at the first failure; shutdownNow() below then cancels what is left
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TasteException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof TasteException) {
+        throw (TasteException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new TasteException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Computes the recommendations of one user of a batch.
+   */
+  public interface UserRecommender {
+
+    /**
+     * @param userID user to recommend for
+     * @return recommended items, ordered from most strongly recommend to least
+     * @throws NoSuchUserException if the user is unknown; the user then gets no recommendations
+     */
+    List<RecommendedItem> recommend(long userID) throws TasteException;
+
+  }
+
+}
@@ -25,10 +25,12 @@ import java.util.concurrent.Callable;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.Cache;
+import org.apache.mahout.cf.taste.impl.common.ChangeTracker;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.common.Retriever;
 import org.apache.mahout.cf.taste.impl.model.PlusAnonymousUserDataModel;
 import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceChangeListener;
 import org.apache.mahout.cf.taste.recommender.IDRescorer;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Recommender;
@@ -42,8 +44,13 @@ import com.google.common.base.Preconditions;
  * <p>
  * A {@link Recommender} which caches the results from another {@link Recommender} in memory.
  * </p>
+ *
+ * <p>
+ * Registered as a {@link PreferenceChangeListener} with a mutable {@link DataModel}, it forgets the recommendations
+ * of each user whose preferences change, like {@link #setPreference(long, long, float)} does.
+ * </p>
  */
-public final class CachingRecommender implements Recommender {
+public final class CachingRecommender implements Recommender, PreferenceChangeListener {
   
   private static final Logger log = LoggerFactory.getLogger(CachingRecommender.class);
   
@@ -51,7 +58,8 @@ public final class CachingRecommender implements Recommender {
   private final int[] maxHowMany;
   private final Retriever<Long,Recommendations> recommendationsRetriever;
   private final Cache<Long,Recommendations> recommendationCache;
-  private final Cache<LongPair,Float> estimatedPrefCache;
+  private final Cache<LongPair,EstimatedPreference> estimatedPrefCache;
+  private final ChangeTracker userChanges;
   private final RefreshHelper refreshHelper;
   private IDRescorer currentRescorer;
   
@@ -63,7 +71,8 @@ public final class CachingRecommender implements Recommender {
     int numUsers = recommender.getDataModel().getNumUsers();
     recommendationsRetriever = new RecommendationRetriever();
     recommendationCache = new Cache<Long, Recommendations>(recommendationsRetriever, numUsers);
-    estimatedPrefCache = new Cache<LongPair, Float>(new EstimatedPrefRetriever(), numUsers);
+    userChanges = new ChangeTracker();
+    estimatedPrefCache = new Cache<LongPair, EstimatedPreference>(new EstimatedPrefRetriever(), numUsers);
     refreshHelper = new RefreshHelper(new Callable<Object>() {
       @Override
       public Object call() {
@@ -124,7 +133,13 @@ public final class CachingRecommender implements Recommender {
   
   @Override
   public float estimatePreference(long userID, long itemID) throws TasteException {
-    return estimatedPrefCache.get(new LongPair(userID, itemID));
+    LongPair key = new LongPair(userID, itemID);
+    EstimatedPreference estimate = estimatedPrefCache.get(key);
+    if (userChanges.changedSince(userID, estimate.time)) {
+      estimatedPrefCache.remove(key);
+      estimate = estimatedPrefCache.get(key);
+    }
+    return estimate.value;
   }
   
   @Override
@@ -157,17 +172,18 @@ public final class CachingRecommender implements Recommender {
    * @param userID
    *          clear cached data associated with this user ID
    */
-  public void clear(final long userID) {
+  public void clear(long userID) {
     log.debug("Clearing recommendations for user ID '{}'", userID);
     recommendationCache.remove(userID);
-    estimatedPrefCache.removeKeysMatching(new Cache.MatchPredicate<LongPair>() {
-      @Override
-      public boolean matches(LongPair userItemPair) {
-        return userItemPair.getFirst() == userID;
-      }
-    });
+    // estimated preferences of the user are reloaded when next read, without searching the cache for them now
+    userChanges.changed(userID);
   }
   
+  @Override
+  public void preferenceChanged(long userID, long itemID) {
+    clear(userID);
+  }
+
   /**
    * <p>
    * Clears all cached recommendations.
@@ -196,13 +212,26 @@ public final class CachingRecommender implements Recommender {
     }
   }
   
-  private final class EstimatedPrefRetriever implements Retriever<LongPair,Float> {
+  private final class EstimatedPrefRetriever implements Retriever<LongPair,EstimatedPreference> {
     @Override
-    public Float get(LongPair key) throws TasteException {
+    public EstimatedPreference get(LongPair key) throws TasteException {
       long userID = key.getFirst();
       long itemID = key.getSecond();
       log.debug("Retrieving estimated preference for user ID '{}' and item ID '{}'", userID, itemID);
-      return recommender.estimatePreference(userID, itemID);
+      long time = userChanges.now();
+      return new EstimatedPreference(recommender.estimatePreference(userID, itemID), time);
+    }
+  }
+
+  /** An estimated preference and the time of the {@link ChangeTracker} before it was estimated. */
+  private static final class EstimatedPreference {
+
+    private final float value;
+    private final long time;
+
+    private EstimatedPreference(float value, long time) {
+      this.value = value;
+      this.time = time;
     }
   }
   
@@ -49,9 +49,11 @@ public final class GenericBooleanPrefItemBasedRecommender extends GenericItemBas
    * sum of similarities.
    */
   @Override
-  protected float doEstimatePreference(long userID, PreferenceArray preferencesFromUser, long itemID)
-    throws TasteException {
-    double[] similarities = getSimilarity().itemSimilarities(itemID, preferencesFromUser.getIDs());
+  protected float doEstimatePreference(long userID,
+                                       PreferenceArray preferencesFromUser,
+                                       long itemID,
+                                       ItemSimilarity similarity) throws TasteException {
+    double[] similarities = similarity.itemSimilarities(itemID, preferencesFromUser.getIDs());
     boolean foundAPref = false;
     double totalSimilarity = 0.0;
     for (double theSimilarity : similarities) {
@@ -29,11 +29,15 @@ import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.impl.common.FullRunningAverage;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.common.RunningAverage;
+import org.apache.mahout.cf.taste.impl.similarity.CachingItemSimilarity;
+import org.apache.mahout.cf.taste.impl.similarity.GenericItemSimilarity;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.BatchRecommender;
 import org.apache.mahout.cf.taste.recommender.IDRescorer;
 import org.apache.mahout.cf.taste.recommender.ItemBasedRecommender;
 import org.apache.mahout.cf.taste.recommender.MostSimilarItemsCandidateItemsStrategy;
+import org.apache.mahout.cf.taste.recommender.RecommendationCallback;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Rescorer;
 import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
@@ -66,7 +70,8 @@ import com.google.common.base.Preconditions;
  * similarities in real-time, but will probably find this painfully slow for large amounts of data.
  * </p>
  */
-public class GenericItemBasedRecommender extends AbstractRecommender implements ItemBasedRecommender {
+public class GenericItemBasedRecommender extends AbstractRecommender
+    implements ItemBasedRecommender, BatchRecommender {
   
   private static final Logger log = LoggerFactory.getLogger(GenericItemBasedRecommender.class);
   
@@ -74,9 +79,18 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
   private final MostSimilarItemsCandidateItemsStrategy mostSimilarItemsCandidateItemsStrategy;
   private final RefreshHelper refreshHelper;
   private EstimatedPreferenceCapper capper;
+  private volatile int minCandidatesForParallelScoring = NO_PARALLEL_SCORING;
+  /** cached similarity of the batch being recommended on the current thread, if any */
+  private final ThreadLocal<ItemSimilarity> currentBatchSimilarity = new ThreadLocal<ItemSimilarity>();
 
   private static final boolean EXCLUDE_ITEM_IF_NOT_SIMILAR_TO_ALL_BY_DEFAULT = true;
 
+  /** Maximum number of item-item similarities cached while recommending for a batch of users. */
+  private static final int BATCH_SIMILARITY_CACHE_SIZE = 1 << 20;
+
+  /** Value of {@link #setMinCandidatesForParallelScoring(int)} which keeps scoring on the calling thread. */
+  public static final int NO_PARALLEL_SCORING = Integer.MAX_VALUE;
+
   public GenericItemBasedRecommender(DataModel dataModel,
                                      ItemSimilarity similarity,
                                      CandidateItemsStrategy candidateItemsStrategy,
@@ -113,6 +127,30 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
   public ItemSimilarity getSimilarity() {
     return similarity;
   }
+
+  /**
+   * <p>
+   * Lets {@link #recommend(long, int, IDRescorer)} score the candidate items of a user on several threads once
+   * there are at least this many of them. Partitions of the candidates are scored on a shared pool of threads,
+   * see {@link TopItems#getTopItemsInParallel(int, long[], IDRescorer, TopItems.Estimator)}. For few candidates
+   * the overhead outweighs the gain, so values in the thousands are sensible.
+   * </p>
+   *
+   * <p>
+   * The {@link ItemSimilarity} and any {@link IDRescorer} passed in must be thread-safe when this is enabled.
+   * </p>
+   *
+   * @param minCandidates minimum number of candidate items for parallel scoring, or {@link #NO_PARALLEL_SCORING}
+   *  (the default) to always score on the calling thread
+   */
+  public void setMinCandidatesForParallelScoring(int minCandidates) {
+    Preconditions.checkArgument(minCandidates >= 1, "minCandidates must be at least 1");
+    this.minCandidatesForParallelScoring = minCandidates;
+  }
+
+  public int getMinCandidatesForParallelScoring() {
+    return minCandidatesForParallelScoring;
+  }
   
   @Override
   public List<RecommendedItem> recommend(long userID, int howMany, IDRescorer rescorer) throws TasteException {
@@ -128,13 +166,54 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
 
     TopItems.Estimator<Long> estimator = new Estimator(userID, preferencesFromUser);
 
-    List<RecommendedItem> topItems = TopItems.getTopItems(howMany, possibleItemIDs.iterator(), rescorer,
-      estimator);
+    List<RecommendedItem> topItems;
+    if (possibleItemIDs.size() >= minCandidatesForParallelScoring) {
+      topItems = TopItems.getTopItemsInParallel(howMany, possibleItemIDs.toArray(), rescorer, estimator);
+    } else {
+      topItems = TopItems.getTopItems(howMany, possibleItemIDs.iterator(), rescorer, estimator);
+    }
 
     log.debug("Recommendations are: {}", topItems);
     return topItems;
   }
   
+  /**
+   * <p>
+   * Recommends for the users of the batch on all available cores. Unless the {@link ItemSimilarity} is already
+   * cached or precomputed, item-item similarities are cached for the duration of the batch, so that those
+   * needed by many users are computed only once. Candidate items of each user are scored on the thread handling
+   * that user, regardless of {@link #setMinCandidatesForParallelScoring(int)}.
+   * </p>
+   */
+  @Override
+  public void recommend(long[] userIDs,
+                        final int howMany,
+                        final IDRescorer rescorer,
+                        RecommendationCallback callback) throws TasteException {
+    Preconditions.checkArgument(howMany >= 1, "howMany must be at least 1");
+    final ItemSimilarity batchSimilarity =
+        similarity instanceof CachingItemSimilarity || similarity instanceof GenericItemSimilarity
+        ? similarity
+        : new CachingItemSimilarity(similarity, BATCH_SIMILARITY_CACHE_SIZE);
+    BatchRecommendations.recommend(userIDs, new BatchRecommendations.UserRecommender() {
+      @Override
+      public List<RecommendedItem> recommend(long userID) throws TasteException {
+        PreferenceArray preferencesFromUser = getDataModel().getPreferencesFromUser(userID);
+        if (preferencesFromUser.length() == 0) {
+          return Collections.emptyList();
+        }
+        FastIDSet possibleItemIDs = getAllOtherItems(userID, preferencesFromUser);
+        TopItems.Estimator<Long> estimator = new Estimator(userID, preferencesFromUser);
+        currentBatchSimilarity.set(batchSimilarity);
+        try {
+          return TopItems.getTopItems(howMany, possibleItemIDs.iterator(), rescorer, estimator);
+        } finally {
+          currentBatchSimilarity.remove();
+        }
+      }
+    }, callback);
+  }
+  
   @Override
   public float estimatePreference(long userID, long itemID) throws TasteException {
     PreferenceArray preferencesFromUser = getDataModel().getPreferencesFromUser(userID);
@@ -225,8 +304,27 @@ public class GenericItemBasedRecommender extends AbstractRecommender implements
     return TopItems.getTopItems(howMany, possibleItemIDs.iterator(), null, estimator);
   }
   
+  /**
+   * Estimates a preference with {@link #doEstimatePreference(long, PreferenceArray, long, ItemSimilarity)}, using
+   * the similarity of the batch being recommended on the current thread, if any, or else {@link #getSimilarity()}.
+   * This is the method {@link #recommend(long, int, IDRescorer)} and batches call for each candidate item.
+   */
   protected float doEstimatePreference(long userID, PreferenceArray preferencesFromUser, long itemID)
     throws TasteException {
+    ItemSimilarity batchSimilarity = currentBatchSimilarity.get();
+    return doEstimatePreference(userID, preferencesFromUser, itemID,
+                                batchSimilarity == null ? similarity : batchSimilarity);
+  }
+
+  /**
+   * Estimates a preference using the given {@link ItemSimilarity}, which is either {@link #getSimilarity()} or,
+   * during a batch, a cache in front of it. Subclasses changing how preferences are estimated may override
+   * this method, so that they benefit from the batch cache, or the three-argument one.
+   */
+  protected float doEstimatePreference(long userID,
+                                       PreferenceArray preferencesFromUser,
+                                       long itemID,
+                                       ItemSimilarity similarity) throws TasteException {
     double preference = 0.0;
     double totalSimilarity = 0.0;
     int count = 0;
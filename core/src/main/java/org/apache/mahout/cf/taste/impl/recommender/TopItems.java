@@ -17,16 +17,24 @@
 
 package org.apache.mahout.cf.taste.impl.recommender;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.mahout.cf.taste.common.NoSuchItemException;
 import org.apache.mahout.cf.taste.common.NoSuchUserException;
 import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveArrayIterator;
 import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
 import org.apache.mahout.cf.taste.impl.similarity.GenericItemSimilarity;
 import org.apache.mahout.cf.taste.impl.similarity.GenericUserSimilarity;
@@ -43,8 +51,19 @@ import com.google.common.base.Preconditions;
 public final class TopItems {
   
   private static final long[] NO_IDS = new long[0];
+
+  private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /** Partitions per thread, so that slow partitions don't leave the other threads idle at the end. */
+  private static final int PARTITIONS_PER_THREAD = 4;
   
   private TopItems() { }
+
+  /** Lazily creates the pool shared by all parallel scoring, on first use. */
+  private static final class PoolHolder {
+    static final ExecutorService POOL = Executors.newFixedThreadPool(
+        NUM_THREADS, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("top-items-%d").build());
+  }
   
   public static List<RecommendedItem> getTopItems(int howMany,
                                                   LongPrimitiveIterator possibleItemIDs,
@@ -89,6 +108,73 @@ public final class TopItems {
     return result;
   }
   
+  /**
+   * <p>
+   * Like {@link #getTopItems(int, LongPrimitiveIterator, IDRescorer, Estimator)}, but splits the candidates
+   * into partitions which are scored concurrently on a pool of threads shared by all callers. Each partition
+   * keeps its own top {@code howMany} items, and these are merged at the end.
+   * </p>
+   *
+   * <p>
+   * The {@link Estimator} and {@link IDRescorer} are called from several threads at once and so must be
+   * thread-safe.
+   * </p>
+   */
+  public static List<RecommendedItem> getTopItemsInParallel(final int howMany,
+                                                            long[] possibleItemIDs,
+                                                            final IDRescorer rescorer,
+                                                            final Estimator<Long> estimator) throws TasteException {
+    Preconditions.checkArgument(possibleItemIDs != null, "argument is null");
+    Preconditions.checkArgument(estimator != null, "argument is null");
+
+    int numItems = possibleItemIDs.length;
+    int numPartitions = Math.min(NUM_THREADS * PARTITIONS_PER_THREAD, numItems);
+    if (numPartitions <= 1) {
+      return getTopItems(howMany, new LongPrimitiveArrayIterator(possibleItemIDs), rescorer, estimator);
+    }
+
+    List<Future<List<RecommendedItem>>> futures = Lists.newArrayListWithCapacity(numPartitions);
+    for (int i = 0; i < numPartitions; i++) {
+      final long[] partition = Arrays.copyOfRange(possibleItemIDs,
+                                                  (int) ((long) numItems * i / numPartitions),
+                                                  (int) ((long) numItems * (i + 1) / numPartitions));
+      futures.add(PoolHolder.POOL.submit(new Callable<List<RecommendedItem>>() {
+        @Override
+        public List<RecommendedItem> call() throws TasteException {
+          return getTopItems(howMany, new LongPrimitiveArrayIterator(partition), rescorer, estimator);
+        }
+      }));
+    }
+
+    List<RecommendedItem> merged = Lists.newArrayListWithCapacity(numPartitions * howMany);
+    try {
+      for (Future<List<RecommendedItem>> future : futures) {
+        merged.addAll(future.get());
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TasteException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof TasteException) {
+        throw (TasteException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new TasteException(cause);
+    } finally {
+      for (Future<List<RecommendedItem>> future : futures) {
+        future.cancel(true);
+      }
+    }
+    if (merged.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Collections.sort(merged, ByValueRecommendedItemComparator.getInstance());
+    return merged.size() > howMany ? Lists.newArrayList(merged.subList(0, howMany)) : merged;
+  }
+  
   public static long[] getTopUsers(int howMany,
                                    LongPrimitiveIterator allUserIDs,
                                    IDRescorer rescorer,
@@ -67,11 +67,12 @@ public final class KnnItemBasedRecommender extends GenericItemBasedRecommender {
         getDefaultMostSimilarItemsCandidateItemsStrategy(), neighborhoodSize);
   }
   
-  private List<RecommendedItem> mostSimilarItems(long itemID,
-                                                 LongPrimitiveIterator possibleItemIDs,
-                                                 int howMany,
-                                                 Rescorer<LongPair> rescorer) throws TasteException {
-    TopItems.Estimator<Long> estimator = new MostSimilarEstimator(itemID, getSimilarity(), rescorer);
+  private static List<RecommendedItem> mostSimilarItems(long itemID,
+                                                        LongPrimitiveIterator possibleItemIDs,
+                                                        int howMany,
+                                                        ItemSimilarity similarity,
+                                                        Rescorer<LongPair> rescorer) throws TasteException {
+    TopItems.Estimator<Long> estimator = new MostSimilarEstimator(itemID, similarity, rescorer);
     return TopItems.getTopItems(howMany, possibleItemIDs, null, estimator);
   }
   
@@ -180,9 +181,15 @@ public final class KnnItemBasedRecommender extends GenericItemBasedRecommender {
     return optimizer.optimize(aMatrix, b);
   }
   
+  /**
+   * The neighborhood of the item is made of its most similar items according to {@code similarity}; the
+   * interpolation weights then come from the rating data alone.
+   */
   @Override
-  protected float doEstimatePreference(long theUserID, PreferenceArray preferencesFromUser, long itemID)
-    throws TasteException {
+  protected float doEstimatePreference(long theUserID,
+                                       PreferenceArray preferencesFromUser,
+                                       long itemID,
+                                       ItemSimilarity similarity) throws TasteException {
     
     DataModel dataModel = getDataModel();
     int size = preferencesFromUser.length();
@@ -193,7 +200,7 @@ public final class KnnItemBasedRecommender extends GenericItemBasedRecommender {
     possibleItemIDs.remove(itemID);
     
     List<RecommendedItem> mostSimilar = mostSimilarItems(itemID, possibleItemIDs.iterator(),
-      neighborhoodSize, null);
+      neighborhoodSize, similarity, null);
     long[] theNeighborhood = new long[mostSimilar.size() + 1];
     theNeighborhood[0] = -1;
   
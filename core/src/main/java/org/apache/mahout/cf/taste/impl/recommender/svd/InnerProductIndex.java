@@ -0,0 +1,34 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.recommender.svd;
+
+/**
+ * Finds the items whose feature vectors have the largest inner product with a query vector, typically a user's
+ * feature vector, without necessarily looking at every item. Implementations may trade recall for speed and so
+ * miss some of the true top items.
+ */
+public interface InnerProductIndex {
+
+  /**
+   * @param query feature vector to search for
+   * @param howMany maximum number of item IDs to return
+   * @return IDs of up to {@code howMany} items, ordered from largest inner product with {@code query} to smallest
+   */
+  long[] search(double[] query, int howMany);
+
+}
@@ -15,26 +15,14 @@
  * limitations under the License.
  */
 
-package org.apache.mahout.cf.taste.impl.similarity;
-
-import org.apache.mahout.cf.taste.impl.common.Cache;
-import org.apache.mahout.common.LongPair;
+package org.apache.mahout.cf.taste.impl.recommender.svd;
 
 /**
- * A {@link Cache.MatchPredicate} which will match an ID against either element of a
- * {@link LongPair}.
+ * Creates an {@link InnerProductIndex} over the item features of a {@link Factorization}. {@link SVDRecommender}
+ * calls this whenever it computes or loads a factorization.
  */
-final class LongPairMatchPredicate implements Cache.MatchPredicate<LongPair> {
-
-  private final long id;
-
-  LongPairMatchPredicate(long id) {
-    this.id = id;
-  }
+public interface InnerProductIndexBuilder {
 
-  @Override
-  public boolean matches(LongPair pair) {
-    return pair.getFirst() == id || pair.getSecond() == id;
-  }
+  InnerProductIndex build(Factorization factorization);
 
 }
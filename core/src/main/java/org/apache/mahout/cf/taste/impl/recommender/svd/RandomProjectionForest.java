@@ -0,0 +1,318 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.recommender.svd;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.list.IntArrayList;
+
+/**
+ * <p>
+ * An {@link InnerProductIndex} made of several random projection trees, in the spirit of Annoy.
+ * </p>
+ *
+ * <p>
+ * Maximum inner product search is first reduced to nearest neighbor search under the angular distance: with
+ * {@code M} the largest norm of any item vector, each item vector {@code x} is extended by one dimension holding
+ * {@code sqrt(M^2 - |x|^2)}, and a query by one dimension holding zero. All extended item vectors then have the
+ * same norm and inner products are unchanged, so the items with the largest inner product are those at the
+ * smallest angle to the query.
+ * </p>
+ *
+ * <p>
+ * Each tree recursively splits the items by the hyperplane through the origin which lies halfway between two
+ * randomly chosen items, until at most {@code maxLeafSize} items are left. A search descends all trees at once,
+ * best-first by the distance of the query to the hyperplanes along the way, until {@code searchSize} distinct items
+ * have been collected, and then ranks those items by their exact inner product with the query. More trees and a
+ * larger {@code searchSize} give better recall at the cost of memory and latency respectively.
+ * </p>
+ */
+public final class RandomProjectionForest implements InnerProductIndex {
+
+  /** Split attempts before a node falls back to an arbitrary split into halves. */
+  private static final int MAX_SPLIT_ATTEMPTS = 5;
+
+  private final long[] itemIDs;
+  private final double[][] itemFeatures;
+  /** last coordinate of the extended item vectors */
+  private final double[] extraFeature;
+  private final Tree[] trees;
+  private final int searchSize;
+
+  /**
+   * @param factorization factorization whose item features are indexed
+   * @param numTrees number of trees to build
+   * @param maxLeafSize maximum number of items in a leaf of a tree
+   * @param searchSize minimum number of distinct items to rank exactly per search
+   */
+  public RandomProjectionForest(Factorization factorization, int numTrees, int maxLeafSize, int searchSize)
+    throws NoSuchItemException {
+    Preconditions.checkArgument(numTrees >= 1, "numTrees must be at least 1");
+    Preconditions.checkArgument(maxLeafSize >= 1, "maxLeafSize must be at least 1");
+    Preconditions.checkArgument(searchSize >= 1, "searchSize must be at least 1");
+    this.searchSize = searchSize;
+
+    int numItems = factorization.numItems();
+    itemIDs = new long[numItems];
+    itemFeatures = new double[numItems][];
+    int index = 0;
+    for (Map.Entry<Long,Integer> mapping : factorization.getItemIDMappings()) {
+      itemIDs[index] = mapping.getKey();
+      itemFeatures[index] = factorization.getItemFeatures(mapping.getKey());
+      index++;
+    }
+
+    double[] squaredNorms = new double[numItems];
+    double maxSquaredNorm = 0.0;
+    for (int i = 0; i < numItems; i++) {
+      squaredNorms[i] = dot(itemFeatures[i], itemFeatures[i]);
+      maxSquaredNorm = Math.max(maxSquaredNorm, squaredNorms[i]);
+    }
+    extraFeature = new double[numItems];
+    for (int i = 0; i < numItems; i++) {
+      extraFeature[i] = Math.sqrt(maxSquaredNorm - squaredNorms[i]);
+    }
+
+    Random random = RandomUtils.getRandom();
+    trees = new Tree[numTrees];
+    for (int t = 0; t < numTrees; t++) {
+      trees[t] = new Tree(maxLeafSize, random);
+    }
+  }
+
+  @Override
+  public long[] search(double[] query, int howMany) {
+    int numItems = itemIDs.length;
+    int wanted = Math.max(searchSize, howMany);
+    IntArrayList candidates;
+    if (numItems <= wanted) {
+      candidates = new IntArrayList(numItems);
+      for (int i = 0; i < numItems; i++) {
+        candidates.add(i);
+      }
+    } else {
+      candidates = collectCandidates(query, wanted);
+    }
+
+    int numCandidates = candidates.size();
+    Scored[] scored = new Scored[numCandidates];
+    for (int i = 0; i < numCandidates; i++) {
+      int item = candidates.getQuick(i);
+      scored[i] = new Scored(item, dot(query, itemFeatures[item]));
+    }
+    Arrays.sort(scored);
+
+    long[] result = new long[Math.min(howMany, numCandidates)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = itemIDs[scored[i].item];
+    }
+    return result;
+  }
+
+  private IntArrayList collectCandidates(double[] query, int wanted) {
+    PriorityQueue<NodeToVisit> queue = new PriorityQueue<NodeToVisit>(trees.length * 4);
+    for (Tree tree : trees) {
+      queue.add(new NodeToVisit(tree, 0, Double.POSITIVE_INFINITY));
+    }
+    FastIDSet seen = new FastIDSet(wanted);
+    IntArrayList candidates = new IntArrayList(wanted);
+    while (candidates.size() < wanted && !queue.isEmpty()) {
+      NodeToVisit next = queue.poll();
+      Tree tree = next.tree;
+      int node = next.node;
+      double[] normal = tree.normals.get(node);
+      if (normal == null) {
+        for (int i = tree.lowerBound(node); i < tree.upperBound(node); i++) {
+          int item = tree.order[i];
+          if (seen.add(item)) {
+            candidates.add(item);
+          }
+        }
+      } else {
+        // the extra coordinate of a query is zero
+        double margin = dot(query, normal);
+        queue.add(new NodeToVisit(tree, tree.above(node), Math.min(next.priority, margin)));
+        queue.add(new NodeToVisit(tree, tree.below(node), Math.min(next.priority, -margin)));
+      }
+    }
+    return candidates;
+  }
+
+  private static double dot(double[] a, double[] b) {
+    double sum = 0.0;
+    for (int k = 0; k < a.length; k++) {
+      sum += a[k] * b[k];
+    }
+    return sum;
+  }
+
+  private double extendedDot(double[] normal, int item) {
+    double[] features = itemFeatures[item];
+    return dot(features, normal) + normal[features.length] * extraFeature[item];
+  }
+
+  /**
+   * One random projection tree. Its leaves own contiguous ranges of {@link #order}; node {@code n} is described by
+   * {@code nodes[4n..4n+3]}: the children above and below the splitting hyperplane, and the range of items
+   * below the node.
+   */
+  private final class Tree {
+
+    private final int[] order;
+    private final IntArrayList nodes = new IntArrayList();
+    /** normal of the splitting hyperplane in the extended space, or {@code null} for a leaf */
+    private final List<double[]> normals = Lists.newArrayList();
+
+    private Tree(int maxLeafSize, Random random) {
+      int numItems = itemIDs.length;
+      order = new int[numItems];
+      for (int i = 0; i < numItems; i++) {
+        order[i] = i;
+      }
+      addNode(0, numItems);
+      // nodes are split breadth-first, without recursion, as they are appended
+      for (int node = 0; node < normals.size(); node++) {
+        int lower = lowerBound(node);
+        int upper = upperBound(node);
+        if (upper - lower > maxLeafSize) {
+          split(node, lower, upper, random);
+        }
+      }
+    }
+
+    private int addNode(int lower, int upper) {
+      nodes.add(-1);
+      nodes.add(-1);
+      nodes.add(lower);
+      nodes.add(upper);
+      normals.add(null);
+      return normals.size() - 1;
+    }
+
+    private void split(int node, int lower, int upper, Random random) {
+      int size = upper - lower;
+      double[] normal = null;
+      int middle = lower;
+      for (int attempt = 0; attempt < MAX_SPLIT_ATTEMPTS && (middle == lower || middle == upper); attempt++) {
+        int first = order[lower + random.nextInt(size)];
+        int second = order[lower + random.nextInt(size)];
+        normal = extendedDifference(first, second);
+        middle = partition(normal, lower, upper);
+      }
+      if (middle == lower || middle == upper) {
+        // all items are (nearly) identical; any split will do
+        middle = lower + size / 2;
+        normal = new double[itemFeatures[order[lower]].length + 1];
+      }
+      normals.set(node, normal);
+      nodes.setQuick(4 * node, addNode(lower, middle));
+      nodes.setQuick(4 * node + 1, addNode(middle, upper));
+    }
+
+    /** @return normal of the hyperplane through the origin halfway between two extended item vectors */
+    private double[] extendedDifference(int first, int second) {
+      double[] a = itemFeatures[first];
+      double[] b = itemFeatures[second];
+      double[] normal = new double[a.length + 1];
+      for (int k = 0; k < a.length; k++) {
+        normal[k] = a[k] - b[k];
+      }
+      normal[a.length] = extraFeature[first] - extraFeature[second];
+      return normal;
+    }
+
+    /** Moves the items above the hyperplane to the front of the range; @return index of the first item below */
+    private int partition(double[] normal, int lower, int upper) {
+      int i = lower;
+      int j = upper - 1;
+      while (i <= j) {
+        if (extendedDot(normal, order[i]) > 0.0) {
+          i++;
+        } else {
+          int swap = order[i];
+          order[i] = order[j];
+          order[j] = swap;
+          j--;
+        }
+      }
+      return i;
+    }
+
+    int above(int node) {
+      return nodes.getQuick(4 * node);
+    }
+
+    int below(int node) {
+      return nodes.getQuick(4 * node + 1);
+    }
+
+    int lowerBound(int node) {
+      return nodes.getQuick(4 * node + 2);
+    }
+
+    int upperBound(int node) {
+      return nodes.getQuick(4 * node + 3);
+    }
+  }
+
+  /** A node still to be visited, with the smallest margin of the query to the hyperplanes above it. */
+  private static final class NodeToVisit implements Comparable<NodeToVisit> {
+
+    private final Tree tree;
+    private final int node;
+    private final double priority;
+
+    private NodeToVisit(Tree tree, int node, double priority) {
+      this.tree = tree;
+      this.node = node;
+      this.priority = priority;
+    }
+
+    @Override
+    public int compareTo(NodeToVisit other) {
+      return Double.compare(other.priority, priority);
+    }
+  }
+
+  /** An item with its inner product with the query; sorts by descending score. */
+  private static final class Scored implements Comparable<Scored> {
+
+    private final int item;
+    private final double score;
+
+    private Scored(int item, double score) {
+      this.item = item;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(Scored other) {
+      return Double.compare(other.score, score);
+    }
+  }
+
+}
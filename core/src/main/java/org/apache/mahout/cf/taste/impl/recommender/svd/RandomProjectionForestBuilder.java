@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.recommender.svd;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+
+/**
+ * Builds a {@link RandomProjectionForest} over the item features of each factorization.
+ */
+public final class RandomProjectionForestBuilder implements InnerProductIndexBuilder {
+
+  public static final int DEFAULT_NUM_TREES = 10;
+  public static final int DEFAULT_MAX_LEAF_SIZE = 64;
+  public static final int DEFAULT_SEARCH_SIZE = 2000;
+
+  private final int numTrees;
+  private final int maxLeafSize;
+  private final int searchSize;
+
+  public RandomProjectionForestBuilder() {
+    this(DEFAULT_NUM_TREES, DEFAULT_MAX_LEAF_SIZE, DEFAULT_SEARCH_SIZE);
+  }
+
+  /**
+   * @param numTrees number of trees per forest; more trees improve recall and use more memory
+   * @param maxLeafSize maximum number of items in a leaf of a tree
+   * @param searchSize minimum number of distinct items to rank exactly per search; the recall-versus-latency knob
+   */
+  public RandomProjectionForestBuilder(int numTrees, int maxLeafSize, int searchSize) {
+    Preconditions.checkArgument(numTrees >= 1, "numTrees must be at least 1");
+    Preconditions.checkArgument(maxLeafSize >= 1, "maxLeafSize must be at least 1");
+    Preconditions.checkArgument(searchSize >= 1, "searchSize must be at least 1");
+    this.numTrees = numTrees;
+    this.maxLeafSize = maxLeafSize;
+    this.searchSize = searchSize;
+  }
+
+  @Override
+  public InnerProductIndex build(Factorization factorization) {
+    try {
+      return new RandomProjectionForest(factorization, numTrees, maxLeafSize, searchSize);
+    } catch (NoSuchItemException nsie) {
+      // cannot happen, the item IDs come from the factorization itself
+      throw new IllegalStateException(nsie);
+    }
+  }
+
+}
@@ -18,7 +18,9 @@
 package org.apache.mahout.cf.taste.impl.recommender.svd;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -26,26 +28,40 @@ import com.google.common.base.Preconditions;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveArrayIterator;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.recommender.AbstractRecommender;
+import org.apache.mahout.cf.taste.impl.recommender.BatchRecommendations;
 import org.apache.mahout.cf.taste.impl.recommender.TopItems;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.BatchRecommender;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
 import org.apache.mahout.cf.taste.recommender.IDRescorer;
+import org.apache.mahout.cf.taste.recommender.RecommendationCallback;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * <p>
  * A {@link org.apache.mahout.cf.taste.recommender.Recommender} that uses matrix factorization (a projection of users
  * and items onto a feature space)
+ * </p>
+ *
+ * <p>
+ * By default every candidate item is scored. Given an {@link InnerProductIndexBuilder}, an index over the item
+ * features is built along with each factorization, and only the items it returns are scored. Should those not yield
+ * enough recommendations after removing items which are not candidates or are filtered by the rescorer, all
+ * candidate items are scored after all.
+ * </p>
  */
-public final class SVDRecommender extends AbstractRecommender {
+public final class SVDRecommender extends AbstractRecommender implements BatchRecommender {
 
-  private Factorization factorization;
+  private volatile Model model;
   private final Factorizer factorizer;
   private final PersistenceStrategy persistenceStrategy;
+  private final InnerProductIndexBuilder indexBuilder;
   private final RefreshHelper refreshHelper;
 
   private static final Logger log = LoggerFactory.getLogger(SVDRecommender.class);
@@ -91,9 +107,28 @@ public final class SVDRecommender extends AbstractRecommender {
    */
   public SVDRecommender(DataModel dataModel, Factorizer factorizer, CandidateItemsStrategy candidateItemsStrategy,
       PersistenceStrategy persistenceStrategy) throws TasteException {
+    this(dataModel, factorizer, candidateItemsStrategy, persistenceStrategy, null);
+  }
+
+  /**
+   * Create an SVDRecommender which finds the top items of a user with an {@link InnerProductIndex}, built from each
+   * factorization with the given builder.
+   *
+   * @param dataModel
+   * @param factorizer
+   * @param candidateItemsStrategy
+   * @param persistenceStrategy
+   * @param indexBuilder builds the index over the item features, or {@code null} to always score all candidates
+   *
+   * @throws TasteException
+   */
+  public SVDRecommender(DataModel dataModel, Factorizer factorizer, CandidateItemsStrategy candidateItemsStrategy,
+      PersistenceStrategy persistenceStrategy, InnerProductIndexBuilder indexBuilder) throws TasteException {
     super(dataModel, candidateItemsStrategy);
     this.factorizer = Preconditions.checkNotNull(factorizer);
     this.persistenceStrategy = Preconditions.checkNotNull(persistenceStrategy);
+    this.indexBuilder = indexBuilder;
+    Factorization factorization;
     try {
       factorization = persistenceStrategy.load();
     } catch (IOException e) {
@@ -102,6 +137,8 @@ public final class SVDRecommender extends AbstractRecommender {
     
     if (factorization == null) {
       train();
+    } else {
+      model = newModel(factorization);
     }
     
     refreshHelper = new RefreshHelper(new Callable<Object>() {
@@ -120,12 +157,21 @@ public final class SVDRecommender extends AbstractRecommender {
   }
 
   private void train() throws TasteException {
-    factorization = factorizer.factorize();
+    Factorization factorization = factorizer.factorize();
     try {
       persistenceStrategy.maybePersist(factorization);
     } catch (IOException e) {
       throw new TasteException("Error persisting factorization", e);
     }
+    model = newModel(factorization);
+  }
+
+  private Model newModel(Factorization factorization) {
+    if (indexBuilder == null) {
+      return new Model(factorization, null);
+    }
+    log.info("Indexing features of {} items", factorization.numItems());
+    return new Model(factorization, indexBuilder.build(factorization));
   }
   
   @Override
@@ -133,14 +179,60 @@ public final class SVDRecommender extends AbstractRecommender {
     Preconditions.checkArgument(howMany >= 1, "howMany must be at least 1");
     log.debug("Recommending items for user ID '{}'", userID);
 
+    List<RecommendedItem> topItems = recommend(model, userID, howMany, rescorer);
+    log.debug("Recommendations are: {}", topItems);
+
+    return topItems;
+  }
+
+  /**
+   * All users of the batch are scored against the same factorization, even if a refresh replaces it meanwhile.
+   */
+  @Override
+  public void recommend(long[] userIDs,
+                        final int howMany,
+                        final IDRescorer rescorer,
+                        RecommendationCallback callback) throws TasteException {
+    Preconditions.checkArgument(howMany >= 1, "howMany must be at least 1");
+    final Model batchModel = model;
+    BatchRecommendations.recommend(userIDs, new BatchRecommendations.UserRecommender() {
+      @Override
+      public List<RecommendedItem> recommend(long userID) throws TasteException {
+        return SVDRecommender.this.recommend(batchModel, userID, howMany, rescorer);
+      }
+    }, callback);
+  }
+
+  private List<RecommendedItem> recommend(Model model, long userID, int howMany, IDRescorer rescorer)
+    throws TasteException {
     PreferenceArray preferencesFromUser = getDataModel().getPreferencesFromUser(userID);
     FastIDSet possibleItemIDs = getAllOtherItems(userID, preferencesFromUser);
+    if (possibleItemIDs.isEmpty()) {
+      return Collections.emptyList();
+    }
+    double[] userFeatures = model.factorization.getUserFeatures(userID);
+    Estimator estimator = new Estimator(model.factorization, userFeatures);
 
-    List<RecommendedItem> topItems = TopItems.getTopItems(howMany, possibleItemIDs.iterator(), rescorer,
-        new Estimator(userID));
-    log.debug("Recommendations are: {}", topItems);
+    if (model.itemIndex != null && possibleItemIDs.size() > howMany) {
+      // ask for enough items that those the user already knows cannot crowd out all the others
+      long[] nearestItemIDs = model.itemIndex.search(userFeatures, howMany + preferencesFromUser.length());
+      int numCandidates = 0;
+      for (long itemID : nearestItemIDs) {
+        if (possibleItemIDs.contains(itemID)) {
+          nearestItemIDs[numCandidates++] = itemID;
+        }
+      }
+      if (numCandidates >= howMany) {
+        List<RecommendedItem> topItems = TopItems.getTopItems(howMany,
+            new LongPrimitiveArrayIterator(Arrays.copyOf(nearestItemIDs, numCandidates)), rescorer, estimator);
+        if (topItems.size() == howMany) {
+          return topItems;
+        }
+      }
+      log.debug("Too few indexed items for user ID '{}', scoring all candidates", userID);
+    }
 
-    return topItems;
+    return TopItems.getTopItems(howMany, possibleItemIDs.iterator(), rescorer, estimator);
   }
 
   /**
@@ -148,26 +240,44 @@ public final class SVDRecommender extends AbstractRecommender {
    */
   @Override
   public float estimatePreference(long userID, long itemID) throws TasteException {
-    double[] userFeatures = factorization.getUserFeatures(userID);
-    double[] itemFeatures = factorization.getItemFeatures(itemID);
+    Factorization factorization = model.factorization;
+    return (float) dot(factorization.getUserFeatures(userID), factorization.getItemFeatures(itemID));
+  }
+
+  private static double dot(double[] userFeatures, double[] itemFeatures) {
     double estimate = 0;
     for (int feature = 0; feature < userFeatures.length; feature++) {
       estimate += userFeatures[feature] * itemFeatures[feature];
     }
-    return (float) estimate;
+    return estimate;
   }
 
-  private final class Estimator implements TopItems.Estimator<Long> {
+  /** Scores items for one user, whose feature vector is looked up only once. */
+  private static final class Estimator implements TopItems.Estimator<Long> {
 
-    private final long theUserID;
+    private final Factorization factorization;
+    private final double[] userFeatures;
 
-    private Estimator(long theUserID) {
-      this.theUserID = theUserID;
+    private Estimator(Factorization factorization, double[] userFeatures) {
+      this.factorization = factorization;
+      this.userFeatures = userFeatures;
     }
 
     @Override
     public double estimate(Long itemID) throws TasteException {
-      return estimatePreference(theUserID, itemID);
+      return (float) dot(userFeatures, factorization.getItemFeatures(itemID));
+    }
+  }
+
+  /** A factorization together with the index over its item features, replaced as one on refresh. */
+  private static final class Model {
+
+    private final Factorization factorization;
+    private final InnerProductIndex itemIndex;
+
+    private Model(Factorization factorization, InnerProductIndex itemIndex) {
+      this.factorization = factorization;
+      this.itemIndex = itemIndex;
     }
   }
 
@@ -23,20 +23,25 @@ import java.util.concurrent.Callable;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.Cache;
+import org.apache.mahout.cf.taste.impl.common.ChangeTracker;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.common.Retriever;
 import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceChangeListener;
 import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
 import org.apache.mahout.common.LongPair;
 import com.google.common.base.Preconditions;
 
 /**
- * Caches the results from an underlying {@link ItemSimilarity} implementation.
+ * Caches the results from an underlying {@link ItemSimilarity} implementation. Registered as a
+ * {@link PreferenceChangeListener} with a mutable {@link DataModel}, it forgets the similarities of each item whose
+ * preferences change.
  */
-public final class CachingItemSimilarity implements ItemSimilarity {
+public final class CachingItemSimilarity implements ItemSimilarity, PreferenceChangeListener {
 
   private final ItemSimilarity similarity;
-  private final Cache<LongPair,Double> similarityCache;
+  private final Cache<LongPair,CachedSimilarity> similarityCache;
+  private final ChangeTracker itemChanges;
   private final RefreshHelper refreshHelper;
 
   /**
@@ -54,7 +59,9 @@ public final class CachingItemSimilarity implements ItemSimilarity {
   public CachingItemSimilarity(ItemSimilarity similarity, int maxCacheSize) {
     Preconditions.checkArgument(similarity != null, "similarity is null");
     this.similarity = similarity;
-    this.similarityCache = new Cache<LongPair,Double>(new SimilarityRetriever(similarity), maxCacheSize);
+    this.itemChanges = new ChangeTracker();
+    this.similarityCache =
+        new Cache<LongPair,CachedSimilarity>(new SimilarityRetriever(similarity, itemChanges), maxCacheSize);
     this.refreshHelper = new RefreshHelper(new Callable<Void>() {
       @Override
       public Void call() {
@@ -68,7 +75,12 @@ public final class CachingItemSimilarity implements ItemSimilarity {
   @Override
   public double itemSimilarity(long itemID1, long itemID2) throws TasteException {
     LongPair key = itemID1 < itemID2 ? new LongPair(itemID1, itemID2) : new LongPair(itemID2, itemID1);
-    return similarityCache.get(key);
+    CachedSimilarity cached = similarityCache.get(key);
+    if (itemChanges.changedSince(itemID1, cached.time) || itemChanges.changedSince(itemID2, cached.time)) {
+      similarityCache.remove(key);
+      cached = similarityCache.get(key);
+    }
+    return cached.value;
   }
 
   @Override
@@ -92,19 +104,39 @@ public final class CachingItemSimilarity implements ItemSimilarity {
   }
 
   public void clearCacheForItem(long itemID) {
-    similarityCache.removeKeysMatching(new LongPairMatchPredicate(itemID));
+    // entries of the item are reloaded when next read, without searching the cache for them now
+    itemChanges.changed(itemID);
+  }
+
+  @Override
+  public void preferenceChanged(long userID, long itemID) {
+    clearCacheForItem(itemID);
   }
   
-  private static final class SimilarityRetriever implements Retriever<LongPair,Double> {
+  private static final class SimilarityRetriever implements Retriever<LongPair,CachedSimilarity> {
     private final ItemSimilarity similarity;
+    private final ChangeTracker itemChanges;
     
-    private SimilarityRetriever(ItemSimilarity similarity) {
+    private SimilarityRetriever(ItemSimilarity similarity, ChangeTracker itemChanges) {
       this.similarity = similarity;
+      this.itemChanges = itemChanges;
     }
     
     @Override
-    public Double get(LongPair key) throws TasteException {
-      return similarity.itemSimilarity(key.getFirst(), key.getSecond());
+    public CachedSimilarity get(LongPair key) throws TasteException {
+      long time = itemChanges.now();
+      return new CachedSimilarity(similarity.itemSimilarity(key.getFirst(), key.getSecond()), time);
+    }
+  }
+
+  /** A similarity and the time of the {@link ChangeTracker} before it was computed. */
+  private static final class CachedSimilarity {
+    private final double value;
+    private final long time;
+
+    private CachedSimilarity(double value, long time) {
+      this.value = value;
+      this.time = time;
     }
   }
 
@@ -23,9 +23,11 @@ import java.util.concurrent.Callable;
 import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.common.TasteException;
 import org.apache.mahout.cf.taste.impl.common.Cache;
+import org.apache.mahout.cf.taste.impl.common.ChangeTracker;
 import org.apache.mahout.cf.taste.impl.common.RefreshHelper;
 import org.apache.mahout.cf.taste.impl.common.Retriever;
 import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceChangeListener;
 import org.apache.mahout.cf.taste.similarity.PreferenceInferrer;
 import org.apache.mahout.cf.taste.similarity.UserSimilarity;
 import org.apache.mahout.common.LongPair;
@@ -33,12 +35,15 @@ import org.apache.mahout.common.LongPair;
 import com.google.common.base.Preconditions;
 
 /**
- * Caches the results from an underlying {@link UserSimilarity} implementation.
+ * Caches the results from an underlying {@link UserSimilarity} implementation. Registered as a
+ * {@link PreferenceChangeListener} with a mutable {@link DataModel}, it forgets the similarities of each user whose
+ * preferences change.
  */
-public final class CachingUserSimilarity implements UserSimilarity {
+public final class CachingUserSimilarity implements UserSimilarity, PreferenceChangeListener {
   
   private final UserSimilarity similarity;
-  private final Cache<LongPair,Double> similarityCache;
+  private final Cache<LongPair,CachedSimilarity> similarityCache;
+  private final ChangeTracker userChanges;
   private final RefreshHelper refreshHelper;
 
   /**
@@ -56,7 +61,9 @@ public final class CachingUserSimilarity implements UserSimilarity {
   public CachingUserSimilarity(UserSimilarity similarity, int maxCacheSize) {
     Preconditions.checkArgument(similarity != null, "similarity is null");
     this.similarity = similarity;
-    this.similarityCache = new Cache<LongPair,Double>(new SimilarityRetriever(similarity), maxCacheSize);
+    this.userChanges = new ChangeTracker();
+    this.similarityCache =
+        new Cache<LongPair,CachedSimilarity>(new SimilarityRetriever(similarity, userChanges), maxCacheSize);
     this.refreshHelper = new RefreshHelper(new Callable<Void>() {
       @Override
       public Void call() {
@@ -70,7 +77,12 @@ public final class CachingUserSimilarity implements UserSimilarity {
   @Override
   public double userSimilarity(long userID1, long userID2) throws TasteException {
     LongPair key = userID1 < userID2 ? new LongPair(userID1, userID2) : new LongPair(userID2, userID1);
-    return similarityCache.get(key);
+    CachedSimilarity cached = similarityCache.get(key);
+    if (userChanges.changedSince(userID1, cached.time) || userChanges.changedSince(userID2, cached.time)) {
+      similarityCache.remove(key);
+      cached = similarityCache.get(key);
+    }
+    return cached.value;
   }
   
   @Override
@@ -80,7 +92,13 @@ public final class CachingUserSimilarity implements UserSimilarity {
   }
 
   public void clearCacheForUser(long userID) {
-    similarityCache.removeKeysMatching(new LongPairMatchPredicate(userID));
+    // entries of the user are reloaded when next read, without searching the cache for them now
+    userChanges.changed(userID);
+  }
+
+  @Override
+  public void preferenceChanged(long userID, long itemID) {
+    clearCacheForUser(userID);
   }
   
   @Override
@@ -88,16 +106,30 @@ public final class CachingUserSimilarity implements UserSimilarity {
     refreshHelper.refresh(alreadyRefreshed);
   }
   
-  private static final class SimilarityRetriever implements Retriever<LongPair,Double> {
+  private static final class SimilarityRetriever implements Retriever<LongPair,CachedSimilarity> {
     private final UserSimilarity similarity;
+    private final ChangeTracker userChanges;
     
-    private SimilarityRetriever(UserSimilarity similarity) {
+    private SimilarityRetriever(UserSimilarity similarity, ChangeTracker userChanges) {
       this.similarity = similarity;
+      this.userChanges = userChanges;
     }
     
     @Override
-    public Double get(LongPair key) throws TasteException {
-      return similarity.userSimilarity(key.getFirst(), key.getSecond());
+    public CachedSimilarity get(LongPair key) throws TasteException {
+      long time = userChanges.now();
+      return new CachedSimilarity(similarity.userSimilarity(key.getFirst(), key.getSecond()), time);
+    }
+  }
+
+  /** A similarity and the time of the {@link ChangeTracker} before it was computed. */
+  private static final class CachedSimilarity {
+    private final double value;
+    private final long time;
+
+    private CachedSimilarity(double value, long time) {
+      this.value = value;
+      this.time = time;
     }
   }
   
@@ -0,0 +1,34 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.model;
+
+/**
+ * <p>
+ * Notified by a {@link DataModel} whenever one of its preferences is set or removed, so that caches of data derived
+ * from the model can drop just the entries which depend on that preference.
+ * </p>
+ */
+public interface PreferenceChangeListener {
+
+  /**
+   * Called after the preference of the given user for the given item has been set, changed or removed. May be called
+   * from several threads at once.
+   */
+  void preferenceChanged(long userID, long itemID);
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.recommender;
+
+import org.apache.mahout.cf.taste.common.TasteException;
+
+/**
+ * <p>
+ * A {@link Recommender} which can efficiently compute recommendations for many users at once, for example to
+ * precompute recommendations for all users. Implementations may share work between the users of a batch and
+ * compute their recommendations concurrently.
+ * </p>
+ */
+public interface BatchRecommender extends Recommender {
+
+  /**
+   * <p>
+   * Computes recommendations for each of the given users and hands them to {@code callback} as soon as they
+   * are available, rather than collecting them all first. Users for whom no recommendations can be made,
+   * including those unknown to the {@link org.apache.mahout.cf.taste.model.DataModel}, get an empty list.
+   * </p>
+   *
+   * @param userIDs
+   *          users for which recommendations are to be computed
+   * @param howMany
+   *          desired number of recommendations per user
+   * @param rescorer
+   *          rescoring function to apply before final list of recommendations is determined, or {@code null};
+   *          may be called from several threads at once
+   * @param callback
+   *          receives each user's recommendations, ordered from most strongly recommend to least; may be called
+   *          from several threads at once, in any order of users
+   * @throws TasteException
+   *           if an error occurs while accessing the {@link org.apache.mahout.cf.taste.model.DataModel}, or is
+   *           thrown by {@code callback}
+   */
+  void recommend(long[] userIDs, int howMany, IDRescorer rescorer, RecommendationCallback callback)
+    throws TasteException;
+
+}
@@ -122,6 +122,22 @@ public abstract class AbstractVectorClassifier {
     return r;
   }
 
+  /**
+   * Classifies each row of a matrix without applying the inverse link function.  Classifiers
+   * that can score a whole block of rows with a single matrix product should override this
+   * along with {@link #classify(Matrix)}.
+   *
+   * @param data The matrix whose rows are vectors to classify
+   * @return A matrix of scores, one row per row of the input matrix.
+   */
+  public Matrix classifyNoLink(Matrix data) {
+    Matrix r = new DenseMatrix(data.numRows(), numCategories() - 1);
+    for (int row = 0; row < data.numRows(); row++) {
+      r.assignRow(row, classifyNoLink(data.viewRow(row)));
+    }
+    return r;
+  }
+
   /**
    * Returns n probabilities, one for each category, for each row of a matrix.
    *
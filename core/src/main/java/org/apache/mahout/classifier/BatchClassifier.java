@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Writable;
+import org.apache.mahout.classifier.sgd.AbstractOnlineLogisticRegression;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scores all vectors in a directory of sequence files with an {@link AbstractVectorClassifier}, a block of rows
+ * at a time through {@link AbstractVectorClassifier#classifyFull(Matrix)} so that classifiers with a batch
+ * implementation can use matrix products. Blocks are scored on a pool of threads while the calling thread reads
+ * the input and writes the scores, one row of n probabilities per input vector, under the input's key and in the
+ * input's order.
+ * <p/>
+ * The classifier is used from several threads at once, so it must not change while scoring.  An
+ * {@link AbstractOnlineLogisticRegression} is closed before scoring starts, which applies any pending
+ * regularization so that classifying no longer writes to the model.
+ */
+public class BatchClassifier {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchClassifier.class);
+
+  private final AbstractVectorClassifier classifier;
+  private final int numThreads;
+
+  private int blockSize = 1000;
+
+  public BatchClassifier(AbstractVectorClassifier classifier) {
+    this(classifier, Runtime.getRuntime().availableProcessors());
+  }
+
+  public BatchClassifier(AbstractVectorClassifier classifier, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive: %s", numThreads);
+    this.classifier = classifier;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Chainable configuration option.
+   *
+   * @param blockSize Number of rows scored together, 1000 by default.
+   * @return This, so other configurations can be chained.
+   */
+  public BatchClassifier blockSize(int blockSize) {
+    Preconditions.checkArgument(blockSize > 0, "blockSize must be positive: %s", blockSize);
+    this.blockSize = blockSize;
+    return this;
+  }
+
+  /**
+   * Scores every vector found in the sequence files under {@code input}.
+   *
+   * @param input  a sequence file, or a directory of them, with {@link VectorWritable} values
+   * @param output the sequence file to write the scores to
+   * @return the number of vectors scored
+   */
+  public long classify(Path input, Path output, Configuration conf) throws IOException {
+    if (classifier instanceof AbstractOnlineLogisticRegression) {
+      ((AbstractOnlineLogisticRegression) classifier).close();
+    }
+
+    long start = System.currentTimeMillis();
+    long numScored = 0;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("batch-classifier-%d").build());
+    SequenceFile.Writer writer = null;
+    try {
+      // bounded, so that reading cannot run arbitrarily far ahead of scoring
+      Queue<Future<Block>> pending = new LinkedList<Future<Block>>();
+      Block block = new Block(blockSize);
+      for (Pair<Writable, VectorWritable> record : new SequenceFileDirIterable<Writable, VectorWritable>(
+          input, PathType.LIST, PathFilters.logsCRCFilter(), conf)) {
+        if (writer == null) {
+          FileSystem fs = output.getFileSystem(conf);
+          writer = SequenceFile.createWriter(fs, conf, output, record.getFirst().getClass(), VectorWritable.class);
+        }
+        block.add(record.getFirst(), record.getSecond().get());
+        if (block.size() == blockSize) {
+          pending.add(executor.submit(block));
+          block = new Block(blockSize);
+          if (pending.size() > 2 * numThreads) {
+            numScored += pending.remove().get().write(writer);
+          }
+        }
+      }
+      if (block.size() > 0) {
+        pending.add(executor.submit(block));
+      }
+      while (!pending.isEmpty()) {
+        numScored += pending.remove().get().write(writer);
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      executor.shutdownNow();
+      Closeables.closeQuietly(writer);
+    }
+
+    log.info("Scored {} vectors with {} threads in {} ms",
+             new Object[] {numScored, numThreads, System.currentTimeMillis() - start});
+    return numScored;
+  }
+
+  /** Rows read from the input together with their keys, and later their scores. */
+  private final class Block implements Callable<Block> {
+
+    private final List<Writable> keys;
+    private final List<Vector> rows;
+    private Matrix scores;
+
+    Block(int capacity) {
+      keys = Lists.newArrayListWithCapacity(capacity);
+      rows = Lists.newArrayListWithCapacity(capacity);
+    }
+
+    void add(Writable key, Vector row) {
+      keys.add(key);
+      rows.add(row);
+    }
+
+    int size() {
+      return rows.size();
+    }
+
+    @Override
+    public Block call() {
+      int numCols = rows.get(0).size();
+      Matrix data;
+      if (rows.get(0).isDense()) {
+        data = new DenseMatrix(rows.size(), numCols);
+        for (int row = 0; row < rows.size(); row++) {
+          data.assignRow(row, rows.get(row));
+        }
+      } else {
+        data = new SparseRowMatrix(rows.size(), numCols, rows.toArray(new Vector[rows.size()]), true, false);
+      }
+      scores = classifier.classifyFull(data);
+      return this;
+    }
+
+    int write(SequenceFile.Writer writer) throws IOException {
+      VectorWritable value = new VectorWritable();
+      for (int row = 0; row < keys.size(); row++) {
+        value.set(scores.viewRow(row));
+        writer.append(keys.get(row), value);
+      }
+      return keys.size();
+    }
+  }
+}
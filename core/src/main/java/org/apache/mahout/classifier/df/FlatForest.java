@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.io.Writable;
+import org.apache.mahout.classifier.df.data.Data;
+import org.apache.mahout.classifier.df.data.DataUtils;
+import org.apache.mahout.classifier.df.data.Dataset;
+import org.apache.mahout.classifier.df.data.Instance;
+import org.apache.mahout.classifier.df.node.CategoricalNode;
+import org.apache.mahout.classifier.df.node.Leaf;
+import org.apache.mahout.classifier.df.node.Node;
+import org.apache.mahout.classifier.df.node.NumericalNode;
+import org.apache.mahout.math.Varint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Read-only copy of a {@link DecisionForest} compiled into a few primitive arrays, for fast classification.<br>
+ * All the nodes of all the trees are numbered depth-first and described by the same index in three arrays:
+ * <ul>
+ * <li>LEAF: attribute is -1 and threshold is the label</li>
+ * <li>NUMERICAL: attribute is the split attribute, threshold the split value and child the index of the child
+ * taken when the value is lower than the split; the other child always follows it</li>
+ * <li>CATEGORICAL: attribute is -2 minus the split attribute, child the start of the node's table in
+ * {@code categoryChildren}, which gives the child of every category code (-1 for unknown codes), and threshold
+ * the size of that table</li>
+ * </ul>
+ * The batch classification copies the instances to a flat array and walks all of them down one tree before
+ * moving to the next, so each tree stays in cache while it is used.
+ */
+public final class FlatForest implements Writable {
+
+  private static final int LEAF = -1;
+
+  /** number of instances classified together by the batch classification */
+  private static final int BLOCK_SIZE = 256;
+
+  private int[] roots;
+
+  private int[] attributes;
+
+  private double[] thresholds;
+
+  private int[] children;
+
+  private int[] categoryChildren;
+
+  /** 1 + the largest attribute used by a split */
+  private int nbAttributes;
+
+  private FlatForest() { }
+
+  public FlatForest(DecisionForest forest) {
+    List<Node> trees = forest.getTrees();
+    long nbNodes = forest.nbNodes();
+    Preconditions.checkArgument(nbNodes <= Integer.MAX_VALUE, "too many nodes: " + nbNodes);
+    int tableSize = 0;
+    for (Node tree : trees) {
+      tableSize += tableSize(tree);
+    }
+
+    roots = new int[trees.size()];
+    attributes = new int[(int) nbNodes];
+    thresholds = new double[(int) nbNodes];
+    children = new int[(int) nbNodes];
+    categoryChildren = new int[tableSize];
+
+    // next free node and next free table entry
+    int[] next = new int[2];
+    for (int treeId = 0; treeId < roots.length; treeId++) {
+      roots[treeId] = next[0]++;
+      compile(trees.get(treeId), roots[treeId], next);
+    }
+    nbAttributes = countAttributes(attributes);
+  }
+
+  /**
+   * @return number of entries needed in categoryChildren by the CATEGORICAL nodes of the given tree
+   */
+  private static int tableSize(Node node) {
+    if (node instanceof NumericalNode) {
+      NumericalNode numerical = (NumericalNode) node;
+      return tableSize(numerical.getLoChild()) + tableSize(numerical.getHiChild());
+    }
+    if (node instanceof CategoricalNode) {
+      CategoricalNode categorical = (CategoricalNode) node;
+      int size = nodeTableSize(categorical);
+      for (Node child : categorical.getChilds()) {
+        size += tableSize(child);
+      }
+      return size;
+    }
+    return 0;
+  }
+
+  private static int nodeTableSize(CategoricalNode node) {
+    int size = 0;
+    for (double value : node.getValues()) {
+      Preconditions.checkArgument(value >= 0 && value == (int) value, "invalid category code: " + value);
+      size = Math.max(size, (int) value + 1);
+    }
+    return size;
+  }
+
+  /**
+   * Writes node at the given index, which is already reserved, and its subtree
+   *
+   * @param next
+   *          next free node and next free table entry, updated
+   */
+  private void compile(Node node, int index, int[] next) {
+    if (node instanceof Leaf) {
+      attributes[index] = LEAF;
+      thresholds[index] = ((Leaf) node).getLabel();
+    } else if (node instanceof NumericalNode) {
+      NumericalNode numerical = (NumericalNode) node;
+      int lo = next[0];
+      next[0] += 2;
+      attributes[index] = numerical.getAttr();
+      thresholds[index] = numerical.getSplit();
+      children[index] = lo;
+      compile(numerical.getLoChild(), lo, next);
+      compile(numerical.getHiChild(), lo + 1, next);
+    } else if (node instanceof CategoricalNode) {
+      CategoricalNode categorical = (CategoricalNode) node;
+      double[] values = categorical.getValues();
+      Node[] childs = categorical.getChilds();
+      int size = nodeTableSize(categorical);
+      int start = next[1];
+      next[1] += size;
+      int first = next[0];
+      next[0] += childs.length;
+      Arrays.fill(categoryChildren, start, start + size, -1);
+      attributes[index] = -2 - categorical.getAttr();
+      thresholds[index] = size;
+      children[index] = start;
+      for (int child = 0; child < childs.length; child++) {
+        categoryChildren[start + (int) values[child]] = first + child;
+        compile(childs[child], first + child, next);
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported node: " + node.getClass().getName());
+    }
+  }
+
+  private static int countAttributes(int[] attributes) {
+    int count = 0;
+    for (int attr : attributes) {
+      count = Math.max(count, attr >= 0 ? attr + 1 : -1 - attr);
+    }
+    return count;
+  }
+
+  public int nbTrees() {
+    return roots.length;
+  }
+
+  public int nbNodes() {
+    return attributes.length;
+  }
+
+  /**
+   * predicts the label for the instance, exactly as {@link DecisionForest#classify(Dataset, Random, Instance)}
+   *
+   * @param rng
+   *          Random number generator, used to break ties randomly
+   * @return -1 if the label cannot be predicted
+   */
+  public double classify(Dataset dataset, Random rng, Instance instance) {
+    double[] values = new double[nbAttributes];
+    copy(instance, values, 0);
+    if (dataset.isNumerical(dataset.getLabelId())) {
+      double sum = 0;
+      int cnt = 0;
+      for (int tree = 0; tree < roots.length; tree++) {
+        double prediction = classify(tree, values, 0);
+        if (prediction != -1) {
+          sum += prediction;
+          cnt++;
+        }
+      }
+      return sum / cnt;
+    } else {
+      int[] predictions = new int[dataset.nblabels()];
+      for (int tree = 0; tree < roots.length; tree++) {
+        double prediction = classify(tree, values, 0);
+        if (prediction != -1) {
+          predictions[(int) prediction]++;
+        }
+      }
+      if (DataUtils.sum(predictions) == 0) {
+        return -1; // no prediction available
+      }
+      return DataUtils.maxindex(rng, predictions);
+    }
+  }
+
+  /**
+   * predicts the label of every instance of the data, giving the same predictions as calling
+   * {@link #classify(Dataset, Random, Instance)} on each instance in turn
+   *
+   * @param rng
+   *          Random number generator, used to break ties randomly
+   * @param predictions
+   *          receives the predictions, -1 for the instances that cannot be predicted
+   */
+  public void classify(Dataset dataset, Random rng, Data data, double[] predictions) {
+    Preconditions.checkArgument(data.size() == predictions.length, "predictions.length must be equal to data.size()");
+    if (data.isEmpty()) {
+      return; // nothing to classify
+    }
+
+    boolean regression = dataset.isNumerical(dataset.getLabelId());
+    int nbLabels = regression ? 0 : dataset.nblabels();
+    int blockSize = Math.min(BLOCK_SIZE, data.size());
+    double[] values = new double[blockSize * nbAttributes];
+    double[] sums = new double[blockSize];
+    int[] counts = new int[regression ? blockSize : blockSize * nbLabels];
+    int[] votes = new int[nbLabels];
+
+    for (int start = 0; start < data.size(); start += blockSize) {
+      int size = Math.min(blockSize, data.size() - start);
+      for (int index = 0; index < size; index++) {
+        copy(data.get(start + index), values, index * nbAttributes);
+      }
+      Arrays.fill(sums, 0.0);
+      Arrays.fill(counts, 0);
+
+      for (int tree = 0; tree < roots.length; tree++) {
+        for (int index = 0; index < size; index++) {
+          double prediction = classify(tree, values, index * nbAttributes);
+          if (prediction != -1) {
+            if (regression) {
+              sums[index] += prediction;
+              counts[index]++;
+            } else {
+              counts[index * nbLabels + (int) prediction]++;
+            }
+          }
+        }
+      }
+
+      for (int index = 0; index < size; index++) {
+        if (regression) {
+          predictions[start + index] = sums[index] / counts[index];
+        } else {
+          System.arraycopy(counts, index * nbLabels, votes, 0, nbLabels);
+          predictions[start + index] = DataUtils.sum(votes) == 0 ? -1 : DataUtils.maxindex(rng, votes);
+        }
+      }
+    }
+  }
+
+  private void copy(Instance instance, double[] values, int offset) {
+    for (int attr = 0; attr < nbAttributes; attr++) {
+      values[offset + attr] = instance.get(attr);
+    }
+  }
+
+  /**
+   * @return prediction of a single tree for the instance stored in values at the given offset, -1 if the
+   *         instance reaches a category unknown to the tree
+   */
+  private double classify(int tree, double[] values, int offset) {
+    int node = roots[tree];
+    int attr;
+    while ((attr = attributes[node]) != LEAF) {
+      if (attr >= 0) {
+        node = children[node] + (values[offset + attr] < thresholds[node] ? 0 : 1);
+      } else {
+        double value = values[offset - 2 - attr];
+        int code = (int) value;
+        if (code != value || code < 0 || code >= thresholds[node]) {
+          return -1;
+        }
+        node = categoryChildren[children[node] + code];
+        if (node < 0) {
+          return -1;
+        }
+      }
+    }
+    return thresholds[node];
+  }
+
+  /**
+   * Nodes follow each other in the same order as in memory. Attributes are written as signed varints, the child
+   * of a NUMERICAL node as the (positive) distance to its parent and the table of a CATEGORICAL node as its start,
+   * both unsigned varints; leaves have no child.
+   */
+  @Override
+  public void write(DataOutput out) throws IOException {
+    Varint.writeUnsignedVarInt(roots.length, out);
+    Varint.writeUnsignedVarInt(attributes.length, out);
+    Varint.writeUnsignedVarInt(categoryChildren.length, out);
+    int previous = 0;
+    for (int root : roots) {
+      Varint.writeUnsignedVarInt(root - previous, out);
+      previous = root;
+    }
+    for (int node = 0; node < attributes.length; node++) {
+      int attr = attributes[node];
+      Varint.writeSignedVarInt(attr, out);
+      out.writeDouble(thresholds[node]);
+      if (attr >= 0) {
+        Varint.writeUnsignedVarInt(children[node] - node, out);
+      } else if (attr != LEAF) {
+        Varint.writeUnsignedVarInt(children[node], out);
+      }
+    }
+    for (int child : categoryChildren) {
+      Varint.writeSignedVarInt(child, out);
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    roots = new int[Varint.readUnsignedVarInt(in)];
+    int nbNodes = Varint.readUnsignedVarInt(in);
+    attributes = new int[nbNodes];
+    thresholds = new double[nbNodes];
+    children = new int[nbNodes];
+    categoryChildren = new int[Varint.readUnsignedVarInt(in)];
+    int previous = 0;
+    for (int tree = 0; tree < roots.length; tree++) {
+      previous += Varint.readUnsignedVarInt(in);
+      roots[tree] = previous;
+    }
+    for (int node = 0; node < nbNodes; node++) {
+      int attr = Varint.readSignedVarInt(in);
+      attributes[node] = attr;
+      thresholds[node] = in.readDouble();
+      if (attr >= 0) {
+        children[node] = node + Varint.readUnsignedVarInt(in);
+      } else if (attr != LEAF) {
+        children[node] = Varint.readUnsignedVarInt(in);
+      }
+    }
+    for (int entry = 0; entry < categoryChildren.length; entry++) {
+      categoryChildren[entry] = Varint.readSignedVarInt(in);
+    }
+    nbAttributes = countAttributes(attributes);
+  }
+
+  public static FlatForest read(DataInput in) throws IOException {
+    FlatForest forest = new FlatForest();
+    forest.readFields(in);
+    return forest;
+  }
+
+}
@@ -0,0 +1,550 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df.builder;
+
+import org.apache.mahout.classifier.df.data.ColumnarData;
+import org.apache.mahout.classifier.df.data.Data;
+import org.apache.mahout.classifier.df.data.DataUtils;
+import org.apache.mahout.classifier.df.data.Dataset;
+import org.apache.mahout.classifier.df.node.CategoricalNode;
+import org.apache.mahout.classifier.df.node.Leaf;
+import org.apache.mahout.classifier.df.node.Node;
+import org.apache.mahout.classifier.df.node.NumericalNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds a classification or regression tree, like {@link DecisionTreeBuilder}, over a {@link ColumnarData}.<br>
+ * A node is a range of a row index array; splitting a node reorders the rows in place so that each child gets a
+ * contiguous sub range. The best split of an attribute is found from a histogram of the label over the codes of
+ * the attribute, built in a single pass over the rows of the node, so attribute values are never sorted while
+ * growing the tree.<br>
+ * A builder only holds its parameters and can be shared by threads building trees concurrently.
+ */
+public class HistogramTreeBuilder implements TreeBuilder {
+
+  private static final Logger log = LoggerFactory.getLogger(HistogramTreeBuilder.class);
+
+  private static final double EPSILON = 1.0e-6;
+
+  private static final double LOG2 = Math.log(2.0);
+
+  /**
+   * number of attributes to select randomly at each node, 0 for the default
+   */
+  private int m;
+  /**
+   * tree is complemented
+   */
+  private boolean complemented = true;
+  /**
+   * minimum number for split
+   */
+  private double minSplitNum = 2.0;
+  /**
+   * minimum proportion of the total variance for split
+   */
+  private double minVarianceProportion = 1.0e-3;
+  /**
+   * maximum number of bins of the NUMERICAL attributes, used by {@link #build(Random, Data)}
+   */
+  private int maxBins = ColumnarData.DEFAULT_MAX_BINS;
+
+  public void setM(int m) {
+    this.m = m;
+  }
+
+  public void setComplemented(boolean complemented) {
+    this.complemented = complemented;
+  }
+
+  public void setMinSplitNum(int minSplitNum) {
+    this.minSplitNum = minSplitNum;
+  }
+
+  public void setMinVarianceProportion(double minVarianceProportion) {
+    this.minVarianceProportion = minVarianceProportion;
+  }
+
+  public void setMaxBins(int maxBins) {
+    this.maxBins = maxBins;
+  }
+
+  /**
+   * Makes a {@link ColumnarData} copy of the data and builds the tree on all its instances. To build many trees
+   * on the same data, make the copy once and use {@link #build(Random, ColumnarData, int[])}.
+   */
+  @Override
+  public Node build(Random rng, Data data) {
+    if (data.isEmpty()) {
+      return new Leaf(-1);
+    }
+    int[] rows = new int[data.size()];
+    for (int row = 0; row < rows.length; row++) {
+      rows[row] = row;
+    }
+    return build(rng, new ColumnarData(data, maxBins), rows);
+  }
+
+  /**
+   * Builds a tree on the given instances
+   *
+   * @param rng  random-numbers generator
+   * @param data training data
+   * @param rows row indices of the instances to train on, may contain duplicates. Reordered by this method
+   * @return root Node
+   */
+  public Node build(Random rng, ColumnarData data, int[] rows) {
+    return new Grower(rng, data, rows).grow(0, rows.length);
+  }
+
+  /**
+   * State of the construction of a single tree
+   */
+  private final class Grower {
+
+    private final Random rng;
+    private final ColumnarData data;
+    private final Dataset dataset;
+    private final int[] rows;
+    private final int[] buffer;
+    private final boolean regression;
+    private final int nbLabels;
+    private final int nbAttributes;
+
+    /**
+     * indicates which CATEGORICAL attributes have already been selected in the parent nodes
+     */
+    private boolean[] selected;
+    private double minVariance = Double.NaN;
+
+    // statistics of the node being split, valid until its children are grown
+    private final int[] labelCounts;
+    private double sum;
+    private double sumSquared;
+    private int splitCode;
+
+    // histograms, shared by all the nodes
+    private final int[] labelHistogram;
+    private final int[] lessCounts;
+    private final int[] moreCounts;
+    private final double[] sums;
+    private final double[] squares;
+    private final int[] counts;
+
+    Grower(Random rng, ColumnarData data, int[] rows) {
+      this.rng = rng;
+      this.data = data;
+      this.rows = rows;
+      dataset = data.getDataset();
+      buffer = new int[rows.length];
+      nbAttributes = dataset.nbAttributes();
+      regression = dataset.isNumerical(dataset.getLabelId());
+      nbLabels = regression ? 0 : dataset.nblabels();
+
+      selected = new boolean[nbAttributes];
+      selected[dataset.getLabelId()] = true; // never select the label
+
+      int maxCodes = 0;
+      for (int attr = 0; attr < nbAttributes; attr++) {
+        if (attr != dataset.getLabelId()) {
+          maxCodes = Math.max(maxCodes, data.nbCodes(attr));
+        }
+      }
+      labelCounts = new int[nbLabels];
+      labelHistogram = new int[maxCodes * nbLabels];
+      lessCounts = new int[nbLabels];
+      moreCounts = new int[nbLabels];
+      counts = new int[maxCodes];
+      sums = regression ? new double[maxCodes] : null;
+      squares = regression ? new double[maxCodes] : null;
+    }
+
+    private int m() {
+      if (m != 0) {
+        return m;
+      }
+      double e = nbAttributes - 1;
+      return regression ? (int) Math.ceil(e / 3.0) : (int) Math.ceil(Math.sqrt(e));
+    }
+
+    Node grow(int from, int to) {
+      int size = to - from;
+      if (size == 0) {
+        return new Leaf(-1);
+      }
+
+      if (regression) {
+        sum = 0.0;
+        sumSquared = 0.0;
+        for (int index = from; index < to; index++) {
+          double label = data.getLabel(rows[index]);
+          sum += label;
+          sumSquared += label * label;
+        }
+        double var = sumSquared - (sum * sum) / size;
+        if (Double.isNaN(minVariance)) {
+          minVariance = var / size * minVarianceProportion;
+          log.debug("minVariance:{}", minVariance);
+        }
+        if (var / size < minVariance) {
+          return new Leaf(sum / size);
+        }
+      } else {
+        Arrays.fill(labelCounts, 0);
+        for (int index = from; index < to; index++) {
+          labelCounts[(int) data.getLabel(rows[index])]++;
+        }
+        if (isIdentical(from, to)) {
+          return new Leaf(DataUtils.maxindex(rng, labelCounts));
+        }
+        if (labelCounts[(int) data.getLabel(rows[from])] == size) {
+          return new Leaf(data.getLabel(rows[from]));
+        }
+      }
+
+      int[] attributes = DefaultTreeBuilder.randomAttributes(rng, selected, m());
+      if (attributes.length == 0) {
+        // we tried all the attributes and could not split the data anymore
+        return leaf(size);
+      }
+
+      // find the best split
+      int bestAttr = -1;
+      int bestCode = -1;
+      double bestIg = 0.0;
+      for (int attr : attributes) {
+        double ig = dataset.isNumerical(attr) ? numericalSplit(attr, from, to) : categoricalSplit(attr, from, to);
+        if (bestAttr == -1 || bestIg < ig) {
+          bestAttr = attr;
+          bestIg = ig;
+          bestCode = splitCode;
+        }
+      }
+
+      // information gain is near to zero.
+      if (bestIg < EPSILON) {
+        return leaf(size);
+      }
+
+      return dataset.isNumerical(bestAttr)
+          ? numericalNode(bestAttr, bestCode, from, to)
+          : categoricalNode(bestAttr, from, to);
+    }
+
+    private Node numericalNode(int attr, int code, int from, int to) {
+      // move the instances with lesser codes to the front
+      int[] codes = data.getCodes(attr);
+      int mid = from;
+      for (int index = from; index < to; index++) {
+        int row = rows[index];
+        if (codes[row] < code) {
+          rows[index] = rows[mid];
+          rows[mid++] = row;
+        }
+      }
+
+      // size of the subset is less than the minSpitNum
+      if (mid - from < minSplitNum || to - mid < minSplitNum) {
+        return leaf(to - from);
+      }
+
+      boolean alreadySelected = selected[attr];
+      boolean[] temp = null;
+      if (mid == from || mid == to) {
+        // the selected attribute did not change the data, avoid using it in the child notes
+        selected[attr] = true;
+      } else {
+        // the data changed, so we can unselect all previousely selected NUMERICAL attributes
+        temp = selected;
+        selected = cloneCategoricalAttributes(dataset, selected);
+      }
+
+      Node loChild = grow(from, mid);
+      Node hiChild = grow(mid, to);
+
+      // restore the selection state of the attributes
+      if (temp != null) {
+        selected = temp;
+      } else {
+        selected[attr] = alreadySelected;
+      }
+
+      return new NumericalNode(attr, data.getValue(attr, code), loChild, hiChild);
+    }
+
+    private Node categoricalNode(int attr, int from, int to) {
+      // counting sort of the instances by code
+      int nbCodes = data.nbCodes(attr);
+      int[] codes = data.getCodes(attr);
+      int[] starts = new int[nbCodes + 1];
+      for (int index = from; index < to; index++) {
+        starts[codes[rows[index]] + 1]++;
+      }
+      int cnt = 0;
+      for (int code = 0; code < nbCodes; code++) {
+        if (starts[code + 1] >= minSplitNum) {
+          cnt++;
+        }
+        starts[code + 1] += starts[code];
+      }
+
+      // size of the subset is less than the minSpitNum
+      if (cnt < 2) {
+        return leaf(to - from);
+      }
+
+      int[] next = starts.clone();
+      for (int index = from; index < to; index++) {
+        int row = rows[index];
+        buffer[next[codes[row]]++] = row;
+      }
+      System.arraycopy(buffer, 0, rows, from, to - from);
+
+      // leaf label of the values missing from this node, the statistics are overwritten by the children
+      int[] parentCounts = regression ? null : labelCounts.clone();
+      double parentMean = sum / (to - from);
+
+      boolean alreadySelected = selected[attr];
+      selected[attr] = true;
+
+      double[] values = new double[nbCodes];
+      Node[] children = new Node[nbCodes];
+      int nbChildren = 0;
+      for (int code = 0; code < nbCodes; code++) {
+        boolean present = starts[code + 1] > starts[code];
+        if (present) {
+          children[nbChildren] = grow(from + starts[code], from + starts[code + 1]);
+        } else if (complemented) {
+          // tree is complemented
+          children[nbChildren] = new Leaf(regression ? parentMean : DataUtils.maxindex(rng, parentCounts));
+        } else {
+          continue;
+        }
+        values[nbChildren++] = data.getValue(attr, code);
+      }
+
+      selected[attr] = alreadySelected;
+
+      return new CategoricalNode(attr, Arrays.copyOf(values, nbChildren), Arrays.copyOf(children, nbChildren));
+    }
+
+    private Leaf leaf(int size) {
+      return new Leaf(regression ? sum / size : DataUtils.maxindex(rng, labelCounts));
+    }
+
+    /**
+     * Computes the best split of a NUMERICAL attribute, leaving the code of the first bin of its upper part in
+     * {@link #splitCode}
+     *
+     * @return information gain of the split, or variance reduction for regression
+     */
+    private double numericalSplit(int attr, int from, int to) {
+      int[] codes = data.getCodes(attr);
+      int nbCodes = data.nbCodes(attr);
+      int size = to - from;
+      double bestIg = 0.0;
+      splitCode = -1;
+
+      if (regression) {
+        Arrays.fill(counts, 0, nbCodes, 0);
+        Arrays.fill(sums, 0, nbCodes, 0.0);
+        Arrays.fill(squares, 0, nbCodes, 0.0);
+        for (int index = from; index < to; index++) {
+          int row = rows[index];
+          int code = codes[row];
+          double label = data.getLabel(row);
+          counts[code]++;
+          sums[code] += label;
+          squares[code] += label * label;
+        }
+        double totalVar = sumSquared - (sum * sum) / size;
+        int lessCount = 0;
+        double lessSum = 0.0;
+        double lessSquares = 0.0;
+        for (int code = 0; code < nbCodes; code++) {
+          if (counts[code] == 0) {
+            continue;
+          }
+          if (lessCount > 0) {
+            int moreCount = size - lessCount;
+            double moreSum = sum - lessSum;
+            double var = lessSquares - lessSum * lessSum / lessCount
+                + (sumSquared - lessSquares) - moreSum * moreSum / moreCount;
+            double ig = totalVar - var;
+            if (splitCode == -1 || ig > bestIg) {
+              bestIg = ig;
+              splitCode = code;
+            }
+          }
+          lessCount += counts[code];
+          lessSum += sums[code];
+          lessSquares += squares[code];
+        }
+        return bestIg;
+      }
+
+      fillLabelHistogram(codes, nbCodes, from, to);
+      double hy = entropy(labelCounts, size);
+      Arrays.fill(lessCounts, 0);
+      System.arraycopy(labelCounts, 0, moreCounts, 0, nbLabels);
+      int lessSize = 0;
+      for (int code = 0; code < nbCodes; code++) {
+        int binSize = counts[code];
+        if (binSize == 0) {
+          continue;
+        }
+        if (lessSize > 0) {
+          double ig = hy - lessSize * entropy(lessCounts, lessSize) / size
+              - (size - lessSize) * entropy(moreCounts, size - lessSize) / size;
+          if (splitCode == -1 || ig > bestIg) {
+            bestIg = ig;
+            splitCode = code;
+          }
+        }
+        int offset = code * nbLabels;
+        for (int label = 0; label < nbLabels; label++) {
+          lessCounts[label] += labelHistogram[offset + label];
+          moreCounts[label] -= labelHistogram[offset + label];
+        }
+        lessSize += binSize;
+      }
+      return bestIg;
+    }
+
+    /**
+     * Computes the split of a CATEGORICAL attribute
+     *
+     * @return information gain of the split, or variance reduction for regression
+     */
+    private double categoricalSplit(int attr, int from, int to) {
+      int[] codes = data.getCodes(attr);
+      int nbCodes = data.nbCodes(attr);
+      int size = to - from;
+
+      if (regression) {
+        Arrays.fill(counts, 0, nbCodes, 0);
+        Arrays.fill(sums, 0, nbCodes, 0.0);
+        Arrays.fill(squares, 0, nbCodes, 0.0);
+        for (int index = from; index < to; index++) {
+          int row = rows[index];
+          int code = codes[row];
+          double label = data.getLabel(row);
+          counts[code]++;
+          sums[code] += label;
+          squares[code] += label * label;
+        }
+        double var = 0.0;
+        for (int code = 0; code < nbCodes; code++) {
+          if (counts[code] > 0) {
+            var += squares[code] - sums[code] * sums[code] / counts[code];
+          }
+        }
+        return sumSquared - (sum * sum) / size - var;
+      }
+
+      fillLabelHistogram(codes, nbCodes, from, to);
+      double hyx = 0.0; // H(Y|X)
+      for (int code = 0; code < nbCodes; code++) {
+        if (counts[code] > 0) {
+          hyx += counts[code] * entropy(labelHistogram, code * nbLabels, counts[code]) / size;
+        }
+      }
+      return entropy(labelCounts, size) - hyx;
+    }
+
+    /**
+     * Counts the instances of each label for each code, and the instances of each code
+     */
+    private void fillLabelHistogram(int[] codes, int nbCodes, int from, int to) {
+      Arrays.fill(labelHistogram, 0, nbCodes * nbLabels, 0);
+      Arrays.fill(counts, 0, nbCodes, 0);
+      for (int index = from; index < to; index++) {
+        int row = rows[index];
+        int code = codes[row];
+        labelHistogram[code * nbLabels + (int) data.getLabel(row)]++;
+        counts[code]++;
+      }
+    }
+
+    private double entropy(int[] histogram, int dataSize) {
+      return entropy(histogram, 0, dataSize);
+    }
+
+    /**
+     * Computes the Entropy of the nbLabels counts starting at offset
+     */
+    private double entropy(int[] histogram, int offset, int dataSize) {
+      if (dataSize == 0) {
+        return 0.0;
+      }
+      double entropy = 0.0;
+      double invDataSize = 1.0 / dataSize;
+      for (int label = 0; label < nbLabels; label++) {
+        int count = histogram[offset + label];
+        if (count == 0) {
+          continue; // otherwise we get a NaN
+        }
+        double p = count * invDataSize;
+        entropy += -p * Math.log(p) / LOG2;
+      }
+      return entropy;
+    }
+
+    /**
+     * checks if all the instances have identical codes. Ignore selected attributes.
+     */
+    private boolean isIdentical(int from, int to) {
+      int first = rows[from];
+      for (int attr = 0; attr < nbAttributes; attr++) {
+        if (selected[attr]) {
+          continue;
+        }
+        int[] codes = data.getCodes(attr);
+        int code = codes[first];
+        for (int index = from + 1; index < to; index++) {
+          if (codes[rows[index]] != code) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Make a copy of the selection state of the attributes, unselect all numerical attributes
+   *
+   * @param selected selection state to clone
+   * @return cloned selection state
+   */
+  private static boolean[] cloneCategoricalAttributes(Dataset dataset, boolean[] selected) {
+    boolean[] cloned = new boolean[selected.length];
+
+    for (int i = 0; i < selected.length; i++) {
+      cloned[i] = !dataset.isNumerical(i) && selected[i];
+    }
+    cloned[dataset.getLabelId()] = true;
+
+    return cloned;
+  }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df.data;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Read-only, column-oriented copy of a {@link Data} where every attribute value is replaced by a small
+ * integer code, so that split finding only needs to count codes.<br>
+ * The values of each NUMERICAL attribute are sorted once, when the copy is made, and cut into at most
+ * {@code maxBins} bins of about the same number of instances; the code of a value is the index of its bin.
+ * When an attribute has no more distinct values than bins, every value gets its own bin and splits are the
+ * same as with the original data. The code of a CATEGORICAL value is its index among the sorted distinct
+ * values of the attribute.<br>
+ * Instances are identified by their row index; a single copy can be shared by any number of threads.
+ */
+public final class ColumnarData {
+
+  public static final int DEFAULT_MAX_BINS = 256;
+
+  private final Dataset dataset;
+
+  private final int size;
+
+  private final double[] labels;
+
+  /** codes[attr][row], null for the label */
+  private final int[][] codes;
+
+  /**
+   * NUMERICAL attributes: smallest value of each bin, in increasing order<br>
+   * CATEGORICAL attributes: value of each code, in increasing order
+   */
+  private final double[][] values;
+
+  public ColumnarData(Data data) {
+    this(data, DEFAULT_MAX_BINS);
+  }
+
+  public ColumnarData(Data data, int maxBins) {
+    Preconditions.checkArgument(maxBins > 1, "maxBins must be at least 2");
+    dataset = data.getDataset();
+    size = data.size();
+    labels = data.extractLabels();
+
+    int nbAttributes = dataset.nbAttributes();
+    codes = new int[nbAttributes][];
+    values = new double[nbAttributes][];
+    double[] column = new double[size];
+    for (int attr = 0; attr < nbAttributes; attr++) {
+      if (attr == dataset.getLabelId()) {
+        continue;
+      }
+      for (int row = 0; row < size; row++) {
+        column[row] = data.get(row).get(attr);
+      }
+      double[] sorted = column.clone();
+      Arrays.sort(sorted);
+      values[attr] = dataset.isNumerical(attr) ? binBounds(sorted, maxBins) : distinct(sorted, sorted.length);
+
+      int[] attrCodes = new int[size];
+      for (int row = 0; row < size; row++) {
+        attrCodes[row] = codeOf(values[attr], column[row]);
+      }
+      codes[attr] = attrCodes;
+    }
+  }
+
+  /**
+   * Picks the lower bounds of at most maxBins bins from the sorted values of an attribute, so that the bins
+   * hold about the same number of values.
+   */
+  private static double[] binBounds(double[] sorted, int maxBins) {
+    double[] distinct = distinct(sorted, sorted.length);
+    if (distinct.length <= maxBins) {
+      return distinct;
+    }
+    double[] bounds = new double[maxBins];
+    for (int bin = 0; bin < maxBins; bin++) {
+      bounds[bin] = sorted[(int) ((long) bin * sorted.length / maxBins)];
+    }
+    return distinct(bounds, maxBins);
+  }
+
+  private static double[] distinct(double[] sorted, int length) {
+    int nbDistinct = 0;
+    for (int index = 0; index < length; index++) {
+      if (index == 0 || sorted[index] != sorted[index - 1]) {
+        nbDistinct++;
+      }
+    }
+    double[] distinct = new double[nbDistinct];
+    int next = 0;
+    for (int index = 0; index < length; index++) {
+      if (index == 0 || sorted[index] != sorted[index - 1]) {
+        distinct[next++] = sorted[index];
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * @return index of the last bound that is not greater than value
+   */
+  private static int codeOf(double[] bounds, double value) {
+    int index = Arrays.binarySearch(bounds, value);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  public Dataset getDataset() {
+    return dataset;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public double getLabel(int row) {
+    return labels[row];
+  }
+
+  /**
+   * @return the code of every row for the given attribute, indexed by row. Must not be modified
+   */
+  public int[] getCodes(int attr) {
+    return codes[attr];
+  }
+
+  /**
+   * @return number of distinct codes of the given attribute
+   */
+  public int nbCodes(int attr) {
+    return values[attr].length;
+  }
+
+  /**
+   * @return for a NUMERICAL attribute the smallest value of the given bin, for a CATEGORICAL attribute the
+   *         value with the given code
+   */
+  public double getValue(int attr, int code) {
+    return values[attr][code];
+  }
+
+}
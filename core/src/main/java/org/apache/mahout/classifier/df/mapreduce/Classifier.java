@@ -36,6 +36,7 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.mahout.classifier.df.DFUtils;
 import org.apache.mahout.classifier.df.DecisionForest;
+import org.apache.mahout.classifier.df.FlatForest;
 import org.apache.mahout.classifier.df.data.DataConverter;
 import org.apache.mahout.classifier.df.data.Dataset;
 import org.apache.mahout.classifier.df.data.Instance;
@@ -186,7 +187,7 @@ public class Classifier {
 
     /** used to convert input values to data instances */
     private DataConverter converter;
-    private DecisionForest forest;
+    private FlatForest forest;
     private final Random rng = RandomUtils.getRandom();
     private boolean first = true;
     private final Text lvalue = new Text();
@@ -209,10 +210,11 @@ public class Classifier {
 
       converter = new DataConverter(dataset);
 
-      forest = DecisionForest.load(conf, new Path(files[1].getPath()));
-      if (forest == null) {
+      DecisionForest decisionForest = DecisionForest.load(conf, new Path(files[1].getPath()));
+      if (decisionForest == null) {
         throw new InterruptedException("DecisionForest not found!");
       }
+      forest = new FlatForest(decisionForest);
     }
 
     @Override
@@ -41,6 +41,24 @@ public class CategoricalNode extends Node {
     this.childs = childs;
   }
   
+  public int getAttr() {
+    return attr;
+  }
+
+  /**
+   * @return the attribute values this node knows about; must not be modified
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  /**
+   * @return the child of each value in {@link #getValues()}; must not be modified
+   */
+  public Node[] getChilds() {
+    return childs;
+  }
+
   @Override
   public double classify(Instance instance) {
     int index = ArrayUtils.indexOf(values, instance.get(attr));
@@ -37,6 +37,10 @@ public class Leaf extends Node {
     this.label = label;
   }
   
+  public double getLabel() {
+    return label;
+  }
+
   @Override
   public double classify(Instance instance) {
     return label;
@@ -48,6 +48,22 @@ public class NumericalNode extends Node {
     this.hiChild = hiChild;
   }
   
+  public int getAttr() {
+    return attr;
+  }
+
+  public double getSplit() {
+    return split;
+  }
+
+  public Node getLoChild() {
+    return loChild;
+  }
+
+  public Node getHiChild() {
+    return hiChild;
+  }
+
   @Override
   public double classify(Instance instance) {
     if (instance.get(attr) < split) {
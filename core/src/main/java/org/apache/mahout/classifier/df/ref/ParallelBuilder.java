@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df.ref;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.mahout.classifier.df.DecisionForest;
+import org.apache.mahout.classifier.df.builder.HistogramTreeBuilder;
+import org.apache.mahout.classifier.df.data.ColumnarData;
+import org.apache.mahout.classifier.df.data.Data;
+import org.apache.mahout.classifier.df.node.Node;
+import org.apache.mahout.common.RandomUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds a Random Decision Forest on several threads of the local machine.<br>
+ * The training data is copied once into a {@link ColumnarData} shared by all the threads; each tree is grown by a
+ * {@link HistogramTreeBuilder} on its own bootstrap sample of row indices. Every tree gets a random seed drawn in
+ * advance from the given generator, so the forest does not depend on the number of threads.
+ */
+public class ParallelBuilder {
+
+  private static final Logger log = LoggerFactory.getLogger(ParallelBuilder.class);
+
+  private final Random rng;
+
+  private final HistogramTreeBuilder treeBuilder;
+
+  private final ColumnarData data;
+
+  private final int numThreads;
+
+  /**
+   * Constructor
+   *
+   * @param rng
+   *          random-numbers generator
+   * @param treeBuilder
+   *          tree builder
+   * @param data
+   *          training data
+   * @param numThreads
+   *          number of trees built at the same time
+   */
+  public ParallelBuilder(Random rng, HistogramTreeBuilder treeBuilder, Data data, int numThreads) {
+    this(rng, treeBuilder, new ColumnarData(data), numThreads);
+  }
+
+  public ParallelBuilder(Random rng, HistogramTreeBuilder treeBuilder, ColumnarData data, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    this.rng = rng;
+    this.treeBuilder = treeBuilder;
+    this.data = data;
+    this.numThreads = numThreads;
+  }
+
+  public DecisionForest build(int nbTrees) {
+    Preconditions.checkArgument(nbTrees > 0, "nbTrees must be positive");
+    long[] seeds = new long[nbTrees];
+    for (int treeId = 0; treeId < nbTrees; treeId++) {
+      seeds[treeId] = rng.nextLong();
+    }
+    Node[] trees = new Node[nbTrees];
+
+    long start = System.currentTimeMillis();
+    TreeWorker worker = new TreeWorker(seeds, trees);
+    int workers = Math.min(numThreads, nbTrees);
+    ExecutorService pool = Executors.newFixedThreadPool(workers,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("forest-builder-%d").build());
+    try {
+      List<Future<Void>> futures = Lists.newArrayListWithCapacity(workers);
+      for (int i = 0; i < workers; i++) {
+        futures.add(pool.submit(worker));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+    log.info("Built {} trees in {} ms on {} threads ({} trees/second)",
+        new Object[] {nbTrees, elapsed, workers, nbTrees * 1000.0 / elapsed});
+
+    return new DecisionForest(Lists.newArrayList(Arrays.asList(trees)));
+  }
+
+  /**
+   * Grows trees until all of them are built
+   */
+  private final class TreeWorker implements Callable<Void> {
+
+    private final long[] seeds;
+    private final Node[] trees;
+    private final AtomicInteger nextTree = new AtomicInteger();
+    private final AtomicInteger built = new AtomicInteger();
+
+    TreeWorker(long[] seeds, Node[] trees) {
+      this.seeds = seeds;
+      this.trees = trees;
+    }
+
+    @Override
+    public Void call() {
+      int size = data.size();
+      int[] bag = new int[size];
+      int treeId;
+      while ((treeId = nextTree.getAndIncrement()) < trees.length) {
+        Random treeRng = RandomUtils.getRandom(seeds[treeId]);
+        for (int i = 0; i < size; i++) {
+          bag[i] = treeRng.nextInt(size);
+        }
+        trees[treeId] = treeBuilder.build(treeRng, data, bag);
+        logProgress(built.incrementAndGet(), trees.length);
+      }
+      return null;
+    }
+  }
+
+  private static void logProgress(int built, int nbTrees) {
+    int percent = (int) (100L * built / nbTrees);
+    if (percent / 10 != (int) (100L * (built - 1) / nbTrees) / 10) {
+      log.info("Building {}%", percent);
+    }
+  }
+
+}
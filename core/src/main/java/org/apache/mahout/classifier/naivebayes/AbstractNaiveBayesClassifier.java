@@ -17,11 +17,15 @@
 
 package org.apache.mahout.classifier.naivebayes;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.apache.mahout.classifier.AbstractVectorClassifier;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.Matrix;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.Vector.Element;
+import org.apache.mahout.math.map.OpenIntIntHashMap;
 
 /** Class implementing the Naive Bayes Classifier Algorithm */
 public abstract class AbstractNaiveBayesClassifier extends AbstractVectorClassifier {
@@ -62,6 +66,50 @@ public abstract class AbstractNaiveBayesClassifier extends AbstractVectorClassif
     return score;
   }
   
+  /**
+   * Scores a block of rows at once.  The scores of a feature for all labels are computed the first
+   * time the feature occurs in the block and then shared by every other row containing it, rather
+   * than being recomputed for every row.
+   */
+  @Override
+  public Matrix classifyFull(Matrix data) {
+    int numLabels = model.numLabels();
+    Matrix r = new DenseMatrix(data.numRows(), numLabels);
+    // position + 1 of the scores of a feature in featureScores, 0 if not computed yet
+    OpenIntIntHashMap positions = new OpenIntIntHashMap();
+    double[] featureScores = new double[64 * numLabels];
+    int numFeatures = 0;
+    double[] scores = new double[numLabels];
+    for (int row = 0; row < data.numRows(); row++) {
+      Arrays.fill(scores, 0.0);
+      Iterator<Element> elements = data.viewRow(row).iterateNonZero();
+      while (elements.hasNext()) {
+        Element e = elements.next();
+        int feature = e.index();
+        int position = positions.get(feature) - 1;
+        if (position < 0) {
+          position = numFeatures++;
+          if (numFeatures * numLabels > featureScores.length) {
+            featureScores = Arrays.copyOf(featureScores, 2 * featureScores.length);
+          }
+          for (int label = 0; label < numLabels; label++) {
+            featureScores[position * numLabels + label] = getScoreForLabelFeature(label, feature);
+          }
+          positions.put(feature, position + 1);
+        }
+        double x = e.get();
+        int offset = position * numLabels;
+        for (int label = 0; label < numLabels; label++) {
+          scores[label] += x * featureScores[offset + label];
+        }
+      }
+      for (int label = 0; label < numLabels; label++) {
+        r.setQuick(row, label, scores[label]);
+      }
+    }
+    return r;
+  }
+
   @Override
   public Vector classifyFull(Vector r, Vector instance) {
     r = classifyFull(instance);
@@ -28,6 +28,8 @@ import org.apache.commons.cli2.builder.GroupBuilder;
 import org.apache.commons.cli2.commandline.Parser;
 import org.apache.mahout.common.CommandLineUtil;
 import org.apache.mahout.common.commandline.DefaultOptionCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.DataOutputStream;
 import java.io.FileInputStream;
@@ -43,6 +45,8 @@ import java.util.Scanner;
  */
 public final class BaumWelchTrainer {
 
+  private static final Logger log = LoggerFactory.getLogger(BaumWelchTrainer.class);
+
   private BaumWelchTrainer() {
   }
 
@@ -74,10 +78,19 @@ public final class BaumWelchTrainer {
       withShortName("m").withArgument(argumentBuilder.withMaximum(1).withMinimum(1).
       withName("number").create()).withRequired(true).create();
 
+    Option sequencePerLineOption = optionBuilder.withLongName("sequencePerLine").
+      withDescription("Treat every input line as a separate observation sequence").
+      withShortName("l").create();
+
+    Option threadsOption = optionBuilder.withLongName("numThreads").
+      withDescription("Number of threads used to train on separate sequences, with --sequencePerLine").
+      withShortName("t").withArgument(argumentBuilder.withMaximum(1).withMinimum(1).
+      withName("number").withDefault("1").create()).create();
+
     Group optionGroup = new GroupBuilder().withOption(inputOption).
       withOption(outputOption).withOption(stateNumberOption).withOption(observedStateNumberOption).
-      withOption(epsilonOption).withOption(iterationsOption).
-      withName("Options").create();
+      withOption(epsilonOption).withOption(iterationsOption).withOption(sequencePerLineOption).
+      withOption(threadsOption).withName("Options").create();
 
     try {
       Parser parser = new Parser();
@@ -93,28 +106,50 @@ public final class BaumWelchTrainer {
       double epsilon = Double.parseDouble((String) commandLine.getValue(epsilonOption));
       int maxIterations = Integer.parseInt((String) commandLine.getValue(iterationsOption));
 
+      boolean sequencePerLine = commandLine.hasOption(sequencePerLineOption);
+      if (commandLine.hasOption(threadsOption) && !sequencePerLine) {
+        // a single sequence is trained on a single thread
+        log.error("--numThreads requires --sequencePerLine");
+        CommandLineUtil.printHelp(optionGroup);
+        System.exit(1);
+      }
+      int numThreads = Integer.parseInt((String) commandLine.getValue(threadsOption));
+
       //constructing random-generated HMM
       HmmModel model = new HmmModel(nrOfHiddenStates, nrOfObservedStates, new Date().getTime());
+      List<int[]> sequences = new ArrayList<int[]>();
       List<Integer> observations = new ArrayList<Integer>();
 
       //reading observations
       Scanner scanner = new Scanner(new FileInputStream(input));
       try {
-        while (scanner.hasNextInt()) {
-          observations.add(scanner.nextInt());
+        if (sequencePerLine) {
+          while (scanner.hasNextLine()) {
+            Scanner lineScanner = new Scanner(scanner.nextLine());
+            while (lineScanner.hasNextInt()) {
+              observations.add(lineScanner.nextInt());
+            }
+            if (!observations.isEmpty()) {
+              sequences.add(toArray(observations));
+              observations.clear();
+            }
+          }
+        } else {
+          while (scanner.hasNextInt()) {
+            observations.add(scanner.nextInt());
+          }
         }
       } finally {
         scanner.close();
       }
 
-      int[] observationsArray = new int[observations.size()];
-      for (int i = 0; i < observations.size(); ++i) {
-        observationsArray[i] = observations.get(i);
-      }
-
       //training
-      HmmModel trainedModel = HmmTrainer.trainBaumWelch(model,
-        observationsArray, epsilon, maxIterations, true);
+      HmmModel trainedModel;
+      if (sequencePerLine) {
+        trainedModel = HmmTrainer.trainBaumWelch(model, sequences, epsilon, maxIterations, numThreads);
+      } else {
+        trainedModel = HmmTrainer.trainBaumWelch(model, toArray(observations), epsilon, maxIterations, true);
+      }
 
       //serializing trained model
       DataOutputStream stream  = new DataOutputStream(new FileOutputStream(output));
@@ -165,4 +200,12 @@ public final class BaumWelchTrainer {
       CommandLineUtil.printHelp(optionGroup);
     }
   }
+
+  private static int[] toArray(List<Integer> observations) {
+    int[] observationsArray = new int[observations.size()];
+    for (int i = 0; i < observations.size(); ++i) {
+      observationsArray[i] = observations.get(i);
+    }
+    return observationsArray;
+  }
 }
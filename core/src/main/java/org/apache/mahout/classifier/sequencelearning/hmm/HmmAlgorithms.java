@@ -72,11 +72,12 @@ public final class HmmAlgorithms {
       }
 
       // Induction
+      double[][] logA = logTransitions(model);
       for (int t = 1; t < observations.length; t++) {
         for (int i = 0; i < model.getNrOfHiddenStates(); i++) {
           double sum = Double.NEGATIVE_INFINITY; // log(0)
           for (int j = 0; j < model.getNrOfHiddenStates(); j++) {
-            double tmp = alpha.getQuick(t - 1, j) + Math.log(a.getQuick(j, i));
+            double tmp = alpha.getQuick(t - 1, j) + logA[j][i];
             if (tmp > Double.NEGATIVE_INFINITY) {
               // make sure we handle log(0) correctly
               sum = tmp + Math.log1p(Math.exp(sum - tmp));
@@ -142,12 +143,16 @@ public final class HmmAlgorithms {
       }
 
       // induction
+      double[][] logA = logTransitions(model);
+      double[] logB = new double[model.getNrOfHiddenStates()];
       for (int t = observations.length - 2; t >= 0; t--) {
+        for (int j = 0; j < model.getNrOfHiddenStates(); j++) {
+          logB[j] = Math.log(b.getQuick(j, observations[t + 1]));
+        }
         for (int i = 0; i < model.getNrOfHiddenStates(); i++) {
           double sum = Double.NEGATIVE_INFINITY; // log(0)
           for (int j = 0; j < model.getNrOfHiddenStates(); j++) {
-            double tmp = beta.getQuick(t + 1, j) + Math.log(a.getQuick(i, j))
-                + Math.log(b.getQuick(j, observations[t + 1]));
+            double tmp = beta.getQuick(t + 1, j) + logA[i][j] + logB[j];
             if (tmp > Double.NEGATIVE_INFINITY) {
               // handle log(0)
               sum = tmp + Math.log1p(Math.exp(sum - tmp));
@@ -242,6 +247,7 @@ public final class HmmAlgorithms {
     // Induction
     // iterate over the time
     if (scaled) {
+      double[][] logA = logTransitions(model);
       for (int t = 1; t < observations.length; t++) {
         // iterate over the hidden states
         for (int i = 0; i < model.getNrOfHiddenStates(); i++) {
@@ -249,9 +255,9 @@ public final class HmmAlgorithms {
           // leading up
           // to this
           int maxState = 0;
-          double maxProb = delta[t - 1][0] + Math.log(a.getQuick(0, i));
+          double maxProb = delta[t - 1][0] + logA[0][i];
           for (int j = 1; j < model.getNrOfHiddenStates(); j++) {
-            double prob = delta[t - 1][j] + Math.log(a.getQuick(j, i));
+            double prob = delta[t - 1][j] + logA[j][i];
             if (prob > maxProb) {
               maxProb = prob;
               maxState = j;
@@ -303,4 +309,23 @@ public final class HmmAlgorithms {
     }
   }
 
+  /**
+   * Computes the logarithms of the transition probabilities once, so that the
+   * log-scaled recursions do not take them again for every time step.
+   *
+   * @param model model to take the transition probabilities from.
+   * @return nrOfHiddenStates x nrOfHiddenStates array of log transition probabilities.
+   */
+  private static double[][] logTransitions(HmmModel model) {
+    Matrix a = model.getTransitionMatrix();
+    int n = model.getNrOfHiddenStates();
+    double[][] logA = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        logA[i][j] = Math.log(a.getQuick(i, j));
+      }
+    }
+    return logA;
+  }
+
 }
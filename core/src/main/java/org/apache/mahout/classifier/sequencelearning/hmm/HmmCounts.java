@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.sequencelearning.hmm;
+
+import java.util.Arrays;
+
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Expected initial, transition and emission counts gathered by {@link HmmEngine} during the expectation
+ * step of Baum-Welch training. Counts from separate threads are merged with {@link #add} before the
+ * model is re-estimated.
+ */
+final class HmmCounts {
+
+  private final int nrOfHiddenStates;
+  private final int nrOfOutputStates;
+  private final double[] initial;
+  /** {@code transitions[j * n + i]}: expected number of transitions from state j to state i. */
+  private final double[] transitions;
+  /** {@code emissions[o * n + i]}: expected number of times state i emitted output o. */
+  private final double[] emissions;
+  private double logLikelihood;
+  private int nrOfSequences;
+
+  HmmCounts(int nrOfHiddenStates, int nrOfOutputStates) {
+    this.nrOfHiddenStates = nrOfHiddenStates;
+    this.nrOfOutputStates = nrOfOutputStates;
+    initial = new double[nrOfHiddenStates];
+    transitions = new double[nrOfHiddenStates * nrOfHiddenStates];
+    emissions = new double[nrOfOutputStates * nrOfHiddenStates];
+  }
+
+  double[] getInitial() {
+    return initial;
+  }
+
+  double[] getTransitions() {
+    return transitions;
+  }
+
+  double[] getEmissions() {
+    return emissions;
+  }
+
+  /**
+   * @return the summed log-likelihood of the sequences counted so far
+   */
+  double getLogLikelihood() {
+    return logLikelihood;
+  }
+
+  /**
+   * @return the number of sequences counted so far
+   */
+  int getNrOfSequences() {
+    return nrOfSequences;
+  }
+
+  void addSequence(double sequenceLogLikelihood) {
+    logLikelihood += sequenceLogLikelihood;
+    nrOfSequences++;
+  }
+
+  void reset() {
+    Arrays.fill(initial, 0.0);
+    Arrays.fill(transitions, 0.0);
+    Arrays.fill(emissions, 0.0);
+    logLikelihood = 0.0;
+    nrOfSequences = 0;
+  }
+
+  void add(HmmCounts other) {
+    for (int i = 0; i < initial.length; i++) {
+      initial[i] += other.initial[i];
+    }
+    for (int i = 0; i < transitions.length; i++) {
+      transitions[i] += other.transitions[i];
+    }
+    for (int i = 0; i < emissions.length; i++) {
+      emissions[i] += other.emissions[i];
+    }
+    logLikelihood += other.logLikelihood;
+    nrOfSequences += other.nrOfSequences;
+  }
+
+  /**
+   * Overwrites the parameters of the model with the normalized counts. Hidden states that were never
+   * visited keep their previous transition and emission probabilities.
+   */
+  void maximize(HmmModel model) {
+    int n = nrOfHiddenStates;
+    Vector initialProbabilities = model.getInitialProbabilities();
+    Matrix transitionMatrix = model.getTransitionMatrix();
+    Matrix emissionMatrix = model.getEmissionMatrix();
+
+    double isum = 0;
+    for (int i = 0; i < n; i++) {
+      isum += initial[i];
+    }
+    if (isum > 0) {
+      for (int i = 0; i < n; i++) {
+        initialProbabilities.setQuick(i, initial[i] / isum);
+      }
+    }
+    for (int j = 0; j < n; j++) {
+      int row = j * n;
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += transitions[row + i];
+      }
+      if (sum > 0) {
+        for (int i = 0; i < n; i++) {
+          transitionMatrix.setQuick(j, i, transitions[row + i] / sum);
+        }
+      }
+      sum = 0;
+      for (int o = 0; o < nrOfOutputStates; o++) {
+        sum += emissions[o * n + j];
+      }
+      if (sum > 0) {
+        for (int o = 0; o < nrOfOutputStates; o++) {
+          emissionMatrix.setQuick(j, o, emissions[o * n + j] / sum);
+        }
+      }
+    }
+  }
+
+}
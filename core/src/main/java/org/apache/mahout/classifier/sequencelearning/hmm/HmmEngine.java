@@ -0,0 +1,515 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.sequencelearning.hmm;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Forward, backward and Viterbi computations over a snapshot of an {@link HmmModel}, kept in flat
+ * {@code double[]} arrays together with work buffers that are reused from one sequence to the next.
+ *
+ * <p>Instead of log-space arithmetic the forward and backward factors are rescaled at every step so
+ * that each row of alpha sums to one (Rabiner's scaling); the scale factors give the log-likelihood of
+ * the sequence and the inner loops need no calls to {@code log} or {@code exp}. Viterbi decoding works
+ * on log probabilities computed once per model.</p>
+ *
+ * <p>When few transitions are possible the transition matrix is kept in compressed rows, so that each
+ * step costs time proportional to the number of non-zero transitions instead of the square of the
+ * number of hidden states.</p>
+ *
+ * <p>An engine is not thread-safe; use one per thread.</p>
+ */
+public final class HmmEngine {
+
+  /** Transition matrices with at most this fraction of non-zero entries are stored in compressed rows. */
+  private static final double SPARSE_DENSITY = 0.25;
+
+  private final int nrOfHiddenStates;
+  private final int nrOfOutputStates;
+  private final boolean sparse;
+
+  private final double[] initial;
+  /** Emission probabilities by output state: {@code emissions[o * n + i] = P(o | i)}. */
+  private final double[] emissions;
+  /** Dense transitions by source state: {@code transitions[j * n + i] = P(i | j)}. */
+  private final double[] transitions;
+  /** Compressed transition rows, used instead of {@link #transitions} when sparse. */
+  private final int[] rowStarts;
+  private int[] columns;
+  private double[] values;
+
+  // log probabilities for Viterbi, computed on first use after each assign
+  private boolean logsValid;
+  private double[] logInitial;
+  private double[] logEmissions;
+  /** Dense log transitions by target state: {@code logTransitions[i * n + j] = log P(i | j)}. */
+  private double[] logTransitions;
+  private double[] logValues;
+
+  // work buffers, grown to the longest sequence seen
+  private double[] alpha = new double[0];
+  private double[] beta = new double[0];
+  private double[] scale = new double[0];
+  private int[] backPointers = new int[0];
+  private final double[] weighted;
+  private final double[] previous;
+  private final double[] current;
+
+  /**
+   * Creates an engine for the given model, storing the transitions in compressed rows if they are
+   * sparse enough.
+   */
+  public HmmEngine(HmmModel model) {
+    this(model, countNonZeros(model.getTransitionMatrix(), model.getNrOfHiddenStates())
+        <= SPARSE_DENSITY * model.getNrOfHiddenStates() * model.getNrOfHiddenStates());
+  }
+
+  /**
+   * @param model             model to take the parameters from
+   * @param sparseTransitions whether to keep the transitions in compressed rows
+   */
+  public HmmEngine(HmmModel model, boolean sparseTransitions) {
+    nrOfHiddenStates = model.getNrOfHiddenStates();
+    nrOfOutputStates = model.getNrOfOutputStates();
+    sparse = sparseTransitions;
+    int n = nrOfHiddenStates;
+    initial = new double[n];
+    emissions = new double[nrOfOutputStates * n];
+    if (sparse) {
+      transitions = null;
+      rowStarts = new int[n + 1];
+      columns = new int[0];
+      values = new double[0];
+    } else {
+      transitions = new double[n * n];
+      rowStarts = null;
+    }
+    weighted = new double[n];
+    previous = new double[n];
+    current = new double[n];
+    assign(model);
+  }
+
+  /**
+   * Replaces the parameters of this engine with those of the given model, keeping the work buffers.
+   *
+   * @param model model with the same number of hidden and output states as the one this engine was
+   *              created for
+   */
+  public void assign(HmmModel model) {
+    Preconditions.checkArgument(model.getNrOfHiddenStates() == nrOfHiddenStates
+        && model.getNrOfOutputStates() == nrOfOutputStates, "Model has a different number of states");
+    int n = nrOfHiddenStates;
+    Vector ip = model.getInitialProbabilities();
+    Matrix a = model.getTransitionMatrix();
+    Matrix b = model.getEmissionMatrix();
+    for (int i = 0; i < n; i++) {
+      initial[i] = ip.getQuick(i);
+      for (int o = 0; o < nrOfOutputStates; o++) {
+        emissions[o * n + i] = b.getQuick(i, o);
+      }
+    }
+    if (sparse) {
+      int nonZeros = countNonZeros(a, n);
+      if (columns.length < nonZeros) {
+        columns = new int[nonZeros];
+        values = new double[nonZeros];
+      }
+      int k = 0;
+      for (int j = 0; j < n; j++) {
+        rowStarts[j] = k;
+        for (int i = 0; i < n; i++) {
+          double p = a.getQuick(j, i);
+          if (p != 0.0) {
+            columns[k] = i;
+            values[k++] = p;
+          }
+        }
+      }
+      rowStarts[n] = k;
+    } else {
+      for (int j = 0; j < n; j++) {
+        for (int i = 0; i < n; i++) {
+          transitions[j * n + i] = a.getQuick(j, i);
+        }
+      }
+    }
+    logsValid = false;
+  }
+
+  public int getNrOfHiddenStates() {
+    return nrOfHiddenStates;
+  }
+
+  public int getNrOfOutputStates() {
+    return nrOfOutputStates;
+  }
+
+  /**
+   * @return true if the transitions are kept in compressed rows
+   */
+  public boolean isSparse() {
+    return sparse;
+  }
+
+  /**
+   * Runs the forward algorithm, leaving the scaled alpha factors available through {@link #getAlpha}.
+   *
+   * @param observations non-empty sequence of output state ids
+   * @return the natural logarithm of the likelihood of the sequence, or negative infinity if the model
+   *         cannot produce it
+   */
+  public double forward(int[] observations) {
+    int length = observations.length;
+    Preconditions.checkArgument(length > 0, "Empty observation sequence");
+    ensureCapacity(length);
+    int n = nrOfHiddenStates;
+
+    double logLikelihood = 0.0;
+    int emission = observations[0] * n;
+    double sum = 0.0;
+    for (int i = 0; i < n; i++) {
+      double p = initial[i] * emissions[emission + i];
+      alpha[i] = p;
+      sum += p;
+    }
+    if (!rescale(alpha, 0, sum)) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    logLikelihood += Math.log(sum);
+
+    for (int t = 1; t < length; t++) {
+      int from = (t - 1) * n;
+      int to = t * n;
+      Arrays.fill(alpha, to, to + n, 0.0);
+      if (sparse) {
+        for (int j = 0; j < n; j++) {
+          double aj = alpha[from + j];
+          if (aj != 0.0) {
+            for (int k = rowStarts[j]; k < rowStarts[j + 1]; k++) {
+              alpha[to + columns[k]] += aj * values[k];
+            }
+          }
+        }
+      } else {
+        for (int j = 0; j < n; j++) {
+          double aj = alpha[from + j];
+          if (aj != 0.0) {
+            int row = j * n;
+            for (int i = 0; i < n; i++) {
+              alpha[to + i] += aj * transitions[row + i];
+            }
+          }
+        }
+      }
+      emission = observations[t] * n;
+      sum = 0.0;
+      for (int i = 0; i < n; i++) {
+        double p = alpha[to + i] * emissions[emission + i];
+        alpha[to + i] = p;
+        sum += p;
+      }
+      if (!rescale(alpha, t, sum)) {
+        return Double.NEGATIVE_INFINITY;
+      }
+      logLikelihood += Math.log(sum);
+    }
+    return logLikelihood;
+  }
+
+  /**
+   * Runs the backward algorithm with the scale factors of the preceding call to {@link #forward} on the
+   * same sequence, leaving the scaled beta factors available through {@link #getBeta}. With this scaling
+   * {@code getAlpha(t, i) * getBeta(t, i)} is the posterior probability of hidden state i at time t.
+   */
+  public void backward(int[] observations) {
+    int length = observations.length;
+    int n = nrOfHiddenStates;
+    int last = (length - 1) * n;
+    Arrays.fill(beta, last, last + n, 1.0);
+    for (int t = length - 2; t >= 0; t--) {
+      weigh(observations[t + 1], t + 1);
+      int to = t * n;
+      if (sparse) {
+        for (int j = 0; j < n; j++) {
+          double sum = 0.0;
+          for (int k = rowStarts[j]; k < rowStarts[j + 1]; k++) {
+            sum += values[k] * weighted[columns[k]];
+          }
+          beta[to + j] = sum;
+        }
+      } else {
+        for (int j = 0; j < n; j++) {
+          int row = j * n;
+          double sum = 0.0;
+          for (int i = 0; i < n; i++) {
+            sum += transitions[row + i] * weighted[i];
+          }
+          beta[to + j] = sum;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the scaled forward factor of hidden state i at time t from the last call to {@link #forward}
+   */
+  public double getAlpha(int t, int i) {
+    return alpha[t * nrOfHiddenStates + i];
+  }
+
+  /**
+   * @return the scaled backward factor of hidden state i at time t from the last call to {@link #backward}
+   */
+  public double getBeta(int t, int i) {
+    return beta[t * nrOfHiddenStates + i];
+  }
+
+  /**
+   * @return the natural logarithm of the likelihood that the model produced the given sequence
+   */
+  public double logLikelihood(int[] observations) {
+    return forward(observations);
+  }
+
+  /**
+   * Computes the most likely sequence of hidden states for the given observations.
+   */
+  public int[] viterbi(int[] observations) {
+    int[] path = new int[observations.length];
+    viterbi(observations, path);
+    return path;
+  }
+
+  /**
+   * Computes the most likely sequence of hidden states for the given observations into {@code path}.
+   * Ties are broken towards the lowest state id, as in {@link HmmAlgorithms#viterbiAlgorithm}.
+   *
+   * @return the natural logarithm of the probability of the returned path
+   */
+  public double viterbi(int[] observations, int[] path) {
+    int length = observations.length;
+    Preconditions.checkArgument(length > 0, "Empty observation sequence");
+    Preconditions.checkArgument(path.length >= length, "Path is shorter than the sequence");
+    ensureCapacity(length);
+    computeLogs();
+    int n = nrOfHiddenStates;
+
+    double[] delta = previous;
+    double[] next = current;
+    int emission = observations[0] * n;
+    for (int i = 0; i < n; i++) {
+      delta[i] = logInitial[i] + logEmissions[emission + i];
+    }
+    for (int t = 1; t < length; t++) {
+      int pointers = (t - 1) * n;
+      if (sparse) {
+        Arrays.fill(next, Double.NEGATIVE_INFINITY);
+        Arrays.fill(backPointers, pointers, pointers + n, 0);
+        for (int j = 0; j < n; j++) {
+          double dj = delta[j];
+          if (dj > Double.NEGATIVE_INFINITY) {
+            for (int k = rowStarts[j]; k < rowStarts[j + 1]; k++) {
+              double p = dj + logValues[k];
+              int i = columns[k];
+              if (p > next[i]) {
+                next[i] = p;
+                backPointers[pointers + i] = j;
+              }
+            }
+          }
+        }
+      } else {
+        for (int i = 0; i < n; i++) {
+          int row = i * n;
+          int maxState = 0;
+          double maxProb = delta[0] + logTransitions[row];
+          for (int j = 1; j < n; j++) {
+            double p = delta[j] + logTransitions[row + j];
+            if (p > maxProb) {
+              maxProb = p;
+              maxState = j;
+            }
+          }
+          next[i] = maxProb;
+          backPointers[pointers + i] = maxState;
+        }
+      }
+      emission = observations[t] * n;
+      for (int i = 0; i < n; i++) {
+        next[i] += logEmissions[emission + i];
+      }
+      double[] swap = delta;
+      delta = next;
+      next = swap;
+    }
+
+    double maxProb = Double.NEGATIVE_INFINITY;
+    path[length - 1] = 0;
+    for (int i = 0; i < n; i++) {
+      if (delta[i] > maxProb) {
+        maxProb = delta[i];
+        path[length - 1] = i;
+      }
+    }
+    for (int t = length - 2; t >= 0; t--) {
+      path[t] = backPointers[t * n + path[t + 1]];
+    }
+    return maxProb;
+  }
+
+  /**
+   * Runs forward and backward over the sequence and adds its expected initial, transition and emission
+   * counts to {@code counts}. Sequences the model cannot produce are skipped.
+   *
+   * @return the natural logarithm of the likelihood of the sequence
+   */
+  double accumulate(int[] observations, HmmCounts counts) {
+    double logLikelihood = forward(observations);
+    if (logLikelihood == Double.NEGATIVE_INFINITY) {
+      return logLikelihood;
+    }
+    backward(observations);
+    int n = nrOfHiddenStates;
+    double[] initialCounts = counts.getInitial();
+    double[] transitionCounts = counts.getTransitions();
+    double[] emissionCounts = counts.getEmissions();
+
+    for (int i = 0; i < n; i++) {
+      initialCounts[i] += alpha[i] * beta[i];
+    }
+    for (int t = 0; t < observations.length; t++) {
+      int offset = t * n;
+      int emission = observations[t] * n;
+      for (int i = 0; i < n; i++) {
+        emissionCounts[emission + i] += alpha[offset + i] * beta[offset + i];
+      }
+    }
+    for (int t = 0; t < observations.length - 1; t++) {
+      weigh(observations[t + 1], t + 1);
+      int offset = t * n;
+      for (int j = 0; j < n; j++) {
+        double aj = alpha[offset + j];
+        if (aj == 0.0) {
+          continue;
+        }
+        int row = j * n;
+        if (sparse) {
+          for (int k = rowStarts[j]; k < rowStarts[j + 1]; k++) {
+            int i = columns[k];
+            transitionCounts[row + i] += aj * values[k] * weighted[i];
+          }
+        } else {
+          for (int i = 0; i < n; i++) {
+            transitionCounts[row + i] += aj * transitions[row + i] * weighted[i];
+          }
+        }
+      }
+    }
+    counts.addSequence(logLikelihood);
+    return logLikelihood;
+  }
+
+  /**
+   * Fills {@link #weighted} with {@code P(o | i) * beta(t, i) / scale(t)}, the factor shared by the
+   * backward step and the expected transition counts.
+   */
+  private void weigh(int observation, int t) {
+    int n = nrOfHiddenStates;
+    int emission = observation * n;
+    int offset = t * n;
+    double c = scale[t];
+    for (int i = 0; i < n; i++) {
+      weighted[i] = emissions[emission + i] * beta[offset + i] / c;
+    }
+  }
+
+  private boolean rescale(double[] factors, int t, double sum) {
+    scale[t] = sum;
+    if (sum <= 0.0) {
+      return false;
+    }
+    int offset = t * nrOfHiddenStates;
+    for (int i = 0; i < nrOfHiddenStates; i++) {
+      factors[offset + i] /= sum;
+    }
+    return true;
+  }
+
+  private void ensureCapacity(int length) {
+    if (scale.length < length) {
+      int capacity = Math.max(length, scale.length + (scale.length >> 1));
+      alpha = new double[capacity * nrOfHiddenStates];
+      beta = new double[capacity * nrOfHiddenStates];
+      scale = new double[capacity];
+      backPointers = new int[capacity * nrOfHiddenStates];
+    }
+  }
+
+  private void computeLogs() {
+    if (logsValid) {
+      return;
+    }
+    int n = nrOfHiddenStates;
+    if (logInitial == null) {
+      logInitial = new double[n];
+      logEmissions = new double[emissions.length];
+      if (!sparse) {
+        logTransitions = new double[n * n];
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      logInitial[i] = Math.log(initial[i]);
+    }
+    for (int k = 0; k < emissions.length; k++) {
+      logEmissions[k] = Math.log(emissions[k]);
+    }
+    if (sparse) {
+      if (logValues == null || logValues.length < values.length) {
+        logValues = new double[values.length];
+      }
+      for (int k = 0; k < rowStarts[n]; k++) {
+        logValues[k] = Math.log(values[k]);
+      }
+    } else {
+      for (int j = 0; j < n; j++) {
+        for (int i = 0; i < n; i++) {
+          logTransitions[i * n + j] = Math.log(transitions[j * n + i]);
+        }
+      }
+    }
+    logsValid = true;
+  }
+
+  private static int countNonZeros(Matrix transitionMatrix, int n) {
+    int nonZeros = 0;
+    for (int j = 0; j < n; j++) {
+      for (int i = 0; i < n; i++) {
+        if (transitionMatrix.getQuick(j, i) != 0.0) {
+          nonZeros++;
+        }
+      }
+    }
+    return nonZeros;
+  }
+
+}
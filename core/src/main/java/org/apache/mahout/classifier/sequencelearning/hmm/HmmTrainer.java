@@ -19,7 +19,18 @@ package org.apache.mahout.classifier.sequencelearning.hmm;
 
 import java.util.Collection;
 import java.util.Iterator;
-
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Matrix;
@@ -360,6 +371,134 @@ public final class HmmTrainer {
     return iteration;
   }
 
+  /**
+   * Iteratively train the parameters of the given initial model wrt a
+   * collection of observed sequences using Baum-Welch training. The expected
+   * counts of each iteration are gathered by several threads, each with its
+   * own {@link HmmEngine}, and merged before the model is re-estimated.
+   *
+   * @param initialModel      The initial model that gets iterated
+   * @param observedSequences The non-empty sequences of observed states
+   * @param epsilon           Convergence criteria
+   * @param maxIterations     The maximum number of training iterations
+   * @param numThreads        The number of threads computing expected counts
+   * @return The iterated model
+   */
+  public static HmmModel trainBaumWelch(HmmModel initialModel, Collection<int[]> observedSequences,
+                                        double epsilon, int maxIterations, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    List<int[]> sequences = observedSequences instanceof RandomAccess
+        ? (List<int[]>) observedSequences
+        : Lists.newArrayList(observedSequences);
+
+    // allocate space for the iterations
+    HmmModel lastIteration = initialModel.clone();
+    HmmModel iteration = initialModel.clone();
+
+    int workers = Math.max(1, Math.min(numThreads, sequences.size()));
+    List<BaumWelchWorker> tasks = Lists.newArrayListWithCapacity(workers);
+    for (int i = 0; i < workers; i++) {
+      tasks.add(new BaumWelchWorker(sequences, new HmmEngine(iteration),
+          new HmmCounts(iteration.getNrOfHiddenStates(), iteration.getNrOfOutputStates())));
+    }
+    ExecutorService pool = workers > 1 ? Executors.newFixedThreadPool(workers - 1,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("baum-welch-%d").build()) : null;
+    try {
+      for (int it = 0; it < maxIterations; ++it) {
+        // expectation: every worker counts a share of the sequences
+        AtomicInteger nextSequence = new AtomicInteger();
+        for (BaumWelchWorker task : tasks) {
+          task.reset(iteration, nextSequence);
+        }
+        List<Future<Void>> futures = Lists.newArrayListWithCapacity(workers - 1);
+        for (BaumWelchWorker task : tasks.subList(1, workers)) {
+          futures.add(pool.submit(task));
+        }
+        tasks.get(0).call();
+        waitFor(futures);
+
+        // maximization on the merged counts
+        HmmCounts counts = tasks.get(0).getCounts();
+        for (BaumWelchWorker task : tasks.subList(1, workers)) {
+          counts.add(task.getCounts());
+        }
+        counts.maximize(iteration);
+        // check for convergence
+        if (checkConvergence(lastIteration, iteration, epsilon)) {
+          break;
+        }
+        // overwrite the last iterated model by the new iteration
+        lastIteration.assign(iteration);
+      }
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+    }
+    return iteration;
+  }
+
+  private static void waitFor(Iterable<Future<Void>> futures) {
+    try {
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Claims chunks of sequences from a shared counter and adds their expected
+   * counts to its own {@link HmmCounts}.
+   */
+  private static final class BaumWelchWorker implements Callable<Void> {
+
+    /** Number of sequences claimed at a time, to keep contention on the counter low. */
+    private static final int CHUNK_SIZE = 32;
+
+    private final List<int[]> sequences;
+    private final HmmEngine engine;
+    private final HmmCounts counts;
+    private AtomicInteger nextSequence;
+
+    BaumWelchWorker(List<int[]> sequences, HmmEngine engine, HmmCounts counts) {
+      this.sequences = sequences;
+      this.engine = engine;
+      this.counts = counts;
+    }
+
+    void reset(HmmModel model, AtomicInteger nextSequence) {
+      engine.assign(model);
+      counts.reset();
+      this.nextSequence = nextSequence;
+    }
+
+    HmmCounts getCounts() {
+      return counts;
+    }
+
+    @Override
+    public Void call() {
+      int size = sequences.size();
+      int start;
+      while ((start = nextSequence.getAndAdd(CHUNK_SIZE)) < size) {
+        int end = Math.min(size, start + CHUNK_SIZE);
+        for (int s = start; s < end; s++) {
+          engine.accumulate(sequences.get(s), counts);
+        }
+      }
+      return null;
+    }
+  }
+
   private static void unscaledBaumWelch(int[] observedSequence, HmmModel iteration, Matrix alpha, Matrix beta) {
     Vector initialProbabilities = iteration.getInitialProbabilities();
     Matrix emissionMatrix = iteration.getEmissionMatrix();
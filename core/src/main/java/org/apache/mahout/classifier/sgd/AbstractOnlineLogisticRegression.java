@@ -20,6 +20,8 @@ package org.apache.mahout.classifier.sgd;
 import com.google.common.base.Preconditions;
 import org.apache.mahout.classifier.AbstractVectorClassifier;
 import org.apache.mahout.classifier.OnlineLearner;
+import org.apache.mahout.math.CardinalityException;
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Matrix;
 import org.apache.mahout.math.Vector;
@@ -27,6 +29,7 @@ import org.apache.mahout.math.function.DoubleFunction;
 import org.apache.mahout.math.function.Functions;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Generic definition of a 1 of n logistic regression classifier that returns probabilities in
@@ -45,7 +48,11 @@ public abstract class AbstractOnlineLogisticRegression extends AbstractVectorCla
   // number of categories we are classifying.  This should the number of rows of beta plus one.
   protected int numCategories;
 
-  protected int step;
+  // volatile and advanced atomically so that several threads can train this model at once
+  protected volatile int step;
+
+  private static final AtomicIntegerFieldUpdater<AbstractOnlineLogisticRegression> STEP_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(AbstractOnlineLogisticRegression.class, "step");
 
   // information about how long since coefficient rows were updated.  This allows lazy regularization.
   protected Vector updateSteps;
@@ -154,6 +161,82 @@ public abstract class AbstractOnlineLogisticRegression extends AbstractVectorCla
     return link(classifyScalarNoLink(instance));
   }
 
+  /**
+   * Computes the linear part of the classification of every row of a matrix at once.  Dense
+   * input is multiplied by the transpose of the coefficients as a single matrix product, sparse
+   * rows are accumulated from their non-zero elements straight into the rows of the result.
+   *
+   * @param data The matrix whose rows are vectors to classify.
+   * @return A matrix of scores with one row per row of the input and numCategories - 1 columns.
+   */
+  @Override
+  public Matrix classifyNoLink(Matrix data) {
+    if (data.numCols() != beta.numCols()) {
+      throw new CardinalityException(beta.numCols(), data.numCols());
+    }
+    int rows = data.numRows();
+    // apply pending regularization to whichever coefficients matter
+    for (int row = 0; row < rows; row++) {
+      regularize(data.viewRow(row));
+    }
+    if (data instanceof DenseMatrix && beta instanceof DenseMatrix) {
+      return data.times(beta.transpose());
+    }
+
+    int n = numCategories - 1;
+    double[][] scores = new double[rows][n];
+    for (int row = 0; row < rows; row++) {
+      double[] rowScores = scores[row];
+      Iterator<Vector.Element> nonZeros = data.viewRow(row).iterateNonZero();
+      while (nonZeros.hasNext()) {
+        Vector.Element element = nonZeros.next();
+        int j = element.index();
+        double x = element.get();
+        for (int i = 0; i < n; i++) {
+          rowScores[i] += x * beta.getQuick(i, j);
+        }
+      }
+    }
+    return new DenseMatrix(scores, true);
+  }
+
+  @Override
+  public Matrix classify(Matrix data) {
+    Matrix r = classifyNoLink(data);
+    for (int row = 0; row < r.numRows(); row++) {
+      r.assignRow(row, link(r.viewRow(row)));
+    }
+    return r;
+  }
+
+  @Override
+  public Matrix classifyFull(Matrix data) {
+    Matrix probabilities = classify(data);
+    Matrix r = new DenseMatrix(probabilities.numRows(), numCategories);
+    for (int row = 0; row < r.numRows(); row++) {
+      double sum = 0.0;
+      for (int i = 0; i < numCategories - 1; i++) {
+        double p = probabilities.getQuick(row, i);
+        r.setQuick(row, i + 1, p);
+        sum += p;
+      }
+      r.setQuick(row, 0, 1.0 - sum);
+    }
+    return r;
+  }
+
+  @Override
+  public Vector classifyScalar(Matrix data) {
+    Preconditions.checkArgument(numCategories() == 2, "Can only call classifyScalar with two categories");
+
+    Matrix scores = classifyNoLink(data);
+    Vector r = new DenseVector(data.numRows());
+    for (int row = 0; row < r.size(); row++) {
+      r.setQuick(row, link(scores.getQuick(row, 0)));
+    }
+    return r;
+  }
+
   @Override
   public void train(long trackingKey, String groupKey, int actual, Vector instance) {
     unseal();
@@ -165,6 +248,37 @@ public abstract class AbstractOnlineLogisticRegression extends AbstractVectorCla
 
     // update each row of coefficients according to result
     Vector gradient = this.gradient.apply(groupKey, actual, instance, this);
+    applyGradient(gradient, instance, learningRate);
+    nextStep();
+
+  }
+
+  /**
+   * Trains on a mini-batch of examples. The gradients of all examples are computed before any of them is
+   * applied, all with the learning rate of the current step, and the step then advances by the size of the batch.
+   * For a batch of one example this is the same as {@link #train(int, Vector)}.
+   *
+   * @param actual    The target categories of the examples.
+   * @param instances The feature vectors of the examples.
+   * @param count     The number of examples to take from the start of both arrays.
+   */
+  public void train(int[] actual, Vector[] instances, int count) {
+    unseal();
+
+    double learningRate = currentLearningRate();
+
+    Vector[] gradients = new Vector[count];
+    for (int k = 0; k < count; k++) {
+      regularize(instances[k]);
+      gradients[k] = this.gradient.apply(null, actual[k], instances[k], this);
+    }
+    for (int k = 0; k < count; k++) {
+      applyGradient(gradients[k], instances[k], learningRate);
+    }
+    STEP_UPDATER.addAndGet(this, count);
+  }
+
+  private void applyGradient(Vector gradient, Vector instance, double learningRate) {
     for (int i = 0; i < numCategories - 1; i++) {
       double gradientBase = gradient.get(i);
 
@@ -187,8 +301,6 @@ public abstract class AbstractOnlineLogisticRegression extends AbstractVectorCla
       updateSteps.setQuick(j, getStep());
       updateCounts.setQuick(j, updateCounts.getQuick(j) + 1);
     }
-    nextStep();
-
   }
 
   @Override
@@ -271,7 +383,7 @@ public abstract class AbstractOnlineLogisticRegression extends AbstractVectorCla
   }
 
   protected void nextStep() {
-    step++;
+    STEP_UPDATER.incrementAndGet(this);
   }
 
   public boolean isSealed() {
@@ -291,7 +403,7 @@ public abstract class AbstractOnlineLogisticRegression extends AbstractVectorCla
   @Override
   public void close() {
     if (!sealed) {
-      step++;
+      nextStep();
       regularizeAll();
       sealed = true;
     }
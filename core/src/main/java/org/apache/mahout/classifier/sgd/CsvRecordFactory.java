@@ -18,6 +18,7 @@
 package org.apache.mahout.classifier.sgd;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
@@ -35,6 +36,7 @@ import org.apache.mahout.vectorizer.encoders.TextValueEncoder;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -99,6 +101,17 @@ public class CsvRecordFactory implements RecordFactory {
   private final Map<String, String> typeMap;
   private List<String> variableNames;
   private boolean includeBiasTerm;
+
+  // state for decoding lines held in byte buffers, see processLine(byte[], int, int, Vector)
+  private int[] predictorColumns;
+  private FeatureVectorEncoder[] predictorEncoderArray;
+  private int maxColumn;
+  private int[] fieldStarts = new int[16];
+  private int[] fieldEnds = new int[16];
+  private byte[][] targetKeys = new byte[4][];
+  private int[] targetCodes = new int[4];
+  private int numTargetKeys;
+
   private static final String CANNOT_CONSTRUCT_CONVERTER =
       "Unable to construct type converter... shouldn't be possible";
 
@@ -225,6 +238,15 @@ public class CsvRecordFactory implements RecordFactory {
         throw new IllegalStateException(CANNOT_CONSTRUCT_CONVERTER, e);
       }
     }
+
+    predictorColumns = new int[predictors.size()];
+    predictorEncoderArray = new FeatureVectorEncoder[predictors.size()];
+    maxColumn = target;
+    for (int i = 0; i < predictorColumns.length; i++) {
+      predictorColumns[i] = predictors.get(i);
+      predictorEncoderArray[i] = predictorEncoders.get(predictors.get(i));
+      maxColumn = Math.max(maxColumn, predictorColumns[i]);
+    }
   }
 
 
@@ -259,6 +281,108 @@ public class CsvRecordFactory implements RecordFactory {
     return targetValue;
   }
   
+  /**
+   * Decodes a single line of csv data held in a slice of a byte buffer, exactly as
+   * {@link #processLine(String, Vector)} would decode the same line read as a UTF-8 String.  Fields
+   * are split and the target is looked up in place and every predictor is handed to its encoder as a
+   * slice, so together with a reused feature vector such as a
+   * {@link org.apache.mahout.vectorizer.encoders.FeatureBuffer} this creates no garbage per line.
+   *
+   * @param line          The buffer holding the raw data.
+   * @param offset        Where the line starts in the buffer.
+   * @param length        The length of the line, not counting the line terminator.
+   * @param featureVector Where to fill in the features.  Should be zeroed before calling
+   *                      processLine.
+   * @return The value of the target variable.
+   */
+  public int processLine(byte[] line, int offset, int length, Vector featureVector) {
+    int numFields = splitFields(line, offset, length);
+    if (numFields <= maxColumn) {
+      throw new IllegalArgumentException("Expected at least " + (maxColumn + 1) + " fields but found " + numFields);
+    }
+
+    int targetValue = internTarget(line, fieldStarts[target], fieldEnds[target]);
+    if (targetValue >= maxTargetValue) {
+      targetValue = maxTargetValue - 1;
+    }
+
+    for (int i = 0; i < predictorColumns.length; i++) {
+      int column = predictorColumns[i];
+      if (column >= 0) {
+        int start = fieldStarts[column];
+        predictorEncoderArray[i].addToVector(line, start, fieldEnds[column] - start, 1.0, featureVector);
+      } else {
+        predictorEncoderArray[i].addToVector(line, offset, 0, 1.0, featureVector);
+      }
+    }
+    return targetValue;
+  }
+
+  /**
+   * Records where each field of a line starts and ends, trimming double quotes the same way
+   * {@link #COMMA} does.
+   *
+   * @return the number of fields
+   */
+  private int splitFields(byte[] line, int offset, int length) {
+    int end = offset + length;
+    int numFields = 0;
+    int start = offset;
+    for (int i = offset; i <= end; i++) {
+      if (i == end || line[i] == ',') {
+        if (numFields == fieldStarts.length) {
+          fieldStarts = Arrays.copyOf(fieldStarts, 2 * numFields);
+          fieldEnds = Arrays.copyOf(fieldEnds, 2 * numFields);
+        }
+        int fieldStart = start;
+        int fieldEnd = i;
+        while (fieldStart < fieldEnd && line[fieldStart] == '"') {
+          fieldStart++;
+        }
+        while (fieldEnd > fieldStart && line[fieldEnd - 1] == '"') {
+          fieldEnd--;
+        }
+        fieldStarts[numFields] = fieldStart;
+        fieldEnds[numFields] = fieldEnd;
+        numFields++;
+        start = i + 1;
+      }
+    }
+    return numFields;
+  }
+
+  /**
+   * Looks up the code of a target value, only decoding it to intern it in the target dictionary the
+   * first time it is seen.  Targets have few distinct values, so a linear scan is fine.
+   */
+  private int internTarget(byte[] line, int start, int end) {
+    int length = end - start;
+    for (int i = 0; i < numTargetKeys; i++) {
+      byte[] key = targetKeys[i];
+      if (key.length == length && regionMatches(key, line, start)) {
+        return targetCodes[i];
+      }
+    }
+    int code = targetDictionary.intern(new String(line, start, length, Charsets.UTF_8));
+    if (numTargetKeys == targetKeys.length) {
+      targetKeys = Arrays.copyOf(targetKeys, 2 * numTargetKeys);
+      targetCodes = Arrays.copyOf(targetCodes, 2 * numTargetKeys);
+    }
+    targetKeys[numTargetKeys] = Arrays.copyOfRange(line, start, end);
+    targetCodes[numTargetKeys] = code;
+    numTargetKeys++;
+    return code;
+  }
+
+  private static boolean regionMatches(byte[] key, byte[] line, int start) {
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != line[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /***
    * Decodes a single line of csv data and records the target(if retrunTarget is true)
    * and predictor variables in a record. As a side effect, features are added into the featureVector.
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.sgd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import org.apache.mahout.classifier.OnlineLearner;
+import org.apache.mahout.vectorizer.encoders.FeatureBuffer;
+
+/**
+ * Feeds a stream of csv lines to an {@link OnlineLearner} without creating garbage per line. Bytes are read into a
+ * reusable buffer, each complete line is decoded in place by
+ * {@link CsvRecordFactory#processLine(byte[], int, int, org.apache.mahout.math.Vector)} into a single
+ * {@link FeatureBuffer} and, after the learner has been trained on it, the feature buffer is cleared for the next
+ * line.
+ * <p/>
+ * The first line seen is taken to be the header and is passed to {@link CsvRecordFactory#firstLine(String)}. Empty
+ * lines are skipped and a trailing carriage return is dropped, as {@link java.io.BufferedReader#readLine()} would.
+ */
+public class CsvStreamTrainer {
+
+  private final CsvRecordFactory factory;
+  private final OnlineLearner learner;
+  private final FeatureBuffer features;
+
+  private byte[] buffer;
+  private boolean seenHeader;
+  private long numRecords;
+
+  public CsvStreamTrainer(CsvRecordFactory factory, OnlineLearner learner, int numFeatures) {
+    this(factory, learner, numFeatures, 64 * 1024);
+  }
+
+  public CsvStreamTrainer(CsvRecordFactory factory, OnlineLearner learner, int numFeatures, int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive: %s", bufferSize);
+    this.factory = factory;
+    this.learner = learner;
+    this.features = new FeatureBuffer(numFeatures);
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Trains on every line of a stream. A final line need not be terminated. The stream is not closed.
+   *
+   * @return the number of records trained on so far
+   */
+  public long train(InputStream in) throws IOException {
+    int filled = 0;
+    while (true) {
+      if (filled == buffer.length) {
+        // a single line longer than the buffer
+        buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+      }
+      int read = in.read(buffer, filled, buffer.length - filled);
+      if (read < 0) {
+        break;
+      }
+      filled += read;
+      int consumed = train(buffer, 0, filled);
+      System.arraycopy(buffer, consumed, buffer, 0, filled - consumed);
+      filled -= consumed;
+    }
+    if (filled > 0) {
+      trainLine(buffer, 0, filled);
+    }
+    return numRecords;
+  }
+
+  /**
+   * Trains on the complete lines in a slice of a buffer, for callers that manage their own buffers such as
+   * memory mapped files.
+   *
+   * @return the number of bytes consumed, that is up to and including the last line terminator in the slice; the
+   *         remainder is an incomplete line that should be presented again once more data is available
+   */
+  public int train(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int lineStart = offset;
+    for (int i = offset; i < end; i++) {
+      if (bytes[i] == '\n') {
+        trainLine(bytes, lineStart, i - lineStart);
+        lineStart = i + 1;
+      }
+    }
+    return lineStart - offset;
+  }
+
+  private void trainLine(byte[] bytes, int offset, int length) {
+    if (length > 0 && bytes[offset + length - 1] == '\r') {
+      length--;
+    }
+    if (length == 0) {
+      return;
+    }
+    if (!seenHeader) {
+      factory.firstLine(new String(bytes, offset, length, Charsets.UTF_8));
+      seenHeader = true;
+      return;
+    }
+    int target = factory.processLine(bytes, offset, length, features);
+    learner.train(target, features);
+    features.clear();
+    numRecords++;
+  }
+
+  public long getNumRecords() {
+    return numRecords;
+  }
+
+  public OnlineLearner getLearner() {
+    return learner;
+  }
+}
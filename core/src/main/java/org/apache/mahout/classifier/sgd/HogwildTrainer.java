@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.sgd;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.math.Vector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Trains one {@link AbstractOnlineLogisticRegression} from several threads at once, in the style of Hogwild!
+ * (Niu et al., 2011): the threads share a single coefficient matrix and update it without any locking. With sparse
+ * examples two threads rarely touch the same coefficients, so the occasional lost update costs little accuracy
+ * while the training throughput grows with the number of cores.
+ * <p/>
+ * Threads claim examples from the shared stream a chunk at a time and train on them either one by one or in
+ * mini-batches. With a single thread the examples are trained on by the calling thread in stream order, which
+ * gives exactly the model that calling {@link AbstractOnlineLogisticRegression#train(int, Vector)} for each of them
+ * would, so tests stay deterministic.
+ * <p/>
+ * The model's {@link Gradient} is called from all threads; the default one is stateless and thus safe to use.
+ */
+public class HogwildTrainer {
+
+  private static final Logger log = LoggerFactory.getLogger(HogwildTrainer.class);
+
+  private final AbstractOnlineLogisticRegression model;
+  private final int numThreads;
+
+  private int miniBatchSize = 1;
+  private int chunkSize = 1024;
+
+  public HogwildTrainer(AbstractOnlineLogisticRegression model) {
+    this(model, Runtime.getRuntime().availableProcessors());
+  }
+
+  public HogwildTrainer(AbstractOnlineLogisticRegression model, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive: %s", numThreads);
+    this.model = model;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Chainable configuration option.
+   *
+   * @param miniBatchSize Number of examples whose gradients are computed before they are applied, 1 by default.
+   * @return This, so other configurations can be chained.
+   */
+  public HogwildTrainer miniBatchSize(int miniBatchSize) {
+    Preconditions.checkArgument(miniBatchSize > 0, "miniBatchSize must be positive: %s", miniBatchSize);
+    this.miniBatchSize = miniBatchSize;
+    return this;
+  }
+
+  /**
+   * Chainable configuration option.
+   *
+   * @param chunkSize Number of examples a thread takes from the shared stream at a time.
+   * @return This, so other configurations can be chained.
+   */
+  public HogwildTrainer chunkSize(int chunkSize) {
+    Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive: %s", chunkSize);
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  public AbstractOnlineLogisticRegression getModel() {
+    return model;
+  }
+
+  /**
+   * Trains the model on all examples of the given stream.
+   *
+   * @param examples pairs of target category and feature vector; only ever read by one thread at a time
+   * @return how many examples were trained on, and how fast
+   */
+  public Statistics train(final Iterator<Pair<Integer, Vector>> examples) {
+    long start = System.nanoTime();
+    final AtomicLong numExamples = new AtomicLong();
+
+    if (numThreads == 1) {
+      new Worker(examples, numExamples).call();
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hogwild-trainer-%d").build());
+      try {
+        List<Future<Void>> futures = Lists.newArrayListWithCapacity(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+          futures.add(executor.submit(new Worker(examples, numExamples)));
+        }
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(ie);
+      } catch (ExecutionException ee) {
+        Throwable cause = ee.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException(cause);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    Statistics statistics = new Statistics(numExamples.get(), System.nanoTime() - start);
+    log.info("Trained on {} examples with {} threads, {} examples/second",
+             new Object[] {statistics.getNumExamples(), numThreads, (long) statistics.getExamplesPerSecond()});
+    return statistics;
+  }
+
+  /**
+   * Trains the model on the given examples.
+   *
+   * @see #train(Iterator)
+   */
+  public Statistics train(int[] actual, List<? extends Vector> instances) {
+    Preconditions.checkArgument(actual.length == instances.size(),
+        "Got %s targets for %s instances", actual.length, instances.size());
+    List<Pair<Integer, Vector>> examples = Lists.newArrayListWithCapacity(actual.length);
+    for (int i = 0; i < actual.length; i++) {
+      examples.add(new Pair<Integer, Vector>(actual[i], instances.get(i)));
+    }
+    return train(examples.iterator());
+  }
+
+  /** Repeatedly claims a chunk of examples from the shared stream and trains on it until the stream is exhausted. */
+  private final class Worker implements Callable<Void> {
+
+    private final Iterator<Pair<Integer, Vector>> examples;
+    private final AtomicLong numExamples;
+    private final int[] actual = new int[chunkSize];
+    private final Vector[] instances = new Vector[chunkSize];
+
+    private Worker(Iterator<Pair<Integer, Vector>> examples, AtomicLong numExamples) {
+      this.examples = examples;
+      this.numExamples = numExamples;
+    }
+
+    @Override
+    public Void call() {
+      int count;
+      while ((count = nextChunk()) > 0) {
+        if (miniBatchSize == 1) {
+          for (int i = 0; i < count; i++) {
+            model.train(actual[i], instances[i]);
+          }
+        } else {
+          Vector[] batch = new Vector[miniBatchSize];
+          int[] batchActual = new int[miniBatchSize];
+          for (int from = 0; from < count; from += miniBatchSize) {
+            int batchCount = Math.min(miniBatchSize, count - from);
+            System.arraycopy(instances, from, batch, 0, batchCount);
+            System.arraycopy(actual, from, batchActual, 0, batchCount);
+            model.train(batchActual, batch, batchCount);
+          }
+        }
+        numExamples.addAndGet(count);
+      }
+      return null;
+    }
+
+    private int nextChunk() {
+      int count = 0;
+      synchronized (examples) {
+        while (count < chunkSize && examples.hasNext()) {
+          Pair<Integer, Vector> example = examples.next();
+          actual[count] = example.getFirst();
+          instances[count] = example.getSecond();
+          count++;
+        }
+      }
+      return count;
+    }
+  }
+
+  /** Summary of one call to {@link HogwildTrainer#train(Iterator)}. */
+  public static final class Statistics {
+
+    private final long numExamples;
+    private final long elapsedNanos;
+
+    Statistics(long numExamples, long elapsedNanos) {
+      this.numExamples = numExamples;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getNumExamples() {
+      return numExamples;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000L;
+    }
+
+    public double getExamplesPerSecond() {
+      return elapsedNanos == 0 ? 0.0 : numExamples * 1.0e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return numExamples + " examples in " + getElapsedMillis() + "ms";
+    }
+  }
+
+}
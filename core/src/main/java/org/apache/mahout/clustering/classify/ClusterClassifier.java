@@ -99,6 +99,14 @@ public class ClusterClassifier extends AbstractVectorClassifier implements Onlin
     return policy.classify(instance, this);
   }
   
+  /**
+   * The clustering policies already return one probability per model.
+   */
+  @Override
+  public Vector classifyFull(Vector r, Vector instance) {
+    return r.assign(classify(instance));
+  }
+
   @Override
   public double classifyScalar(Vector instance) {
     if (models.size() == 2) {
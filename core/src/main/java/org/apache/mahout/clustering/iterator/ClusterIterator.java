@@ -18,6 +18,13 @@ package org.apache.mahout.clustering.iterator;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -29,7 +36,9 @@ import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.mahout.clustering.AbstractCluster;
 import org.apache.mahout.clustering.Cluster;
+import org.apache.mahout.clustering.ClusterObservations;
 import org.apache.mahout.clustering.classify.ClusterClassifier;
 import org.apache.mahout.common.iterator.sequencefile.PathFilters;
 import org.apache.mahout.common.iterator.sequencefile.PathType;
@@ -37,8 +46,14 @@ import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirValueIterab
 import org.apache.mahout.common.iterator.sequencefile.SequenceFileValueIterator;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.VectorWritable;
+import org.apache.mahout.math.function.Functions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * This is a clustering iterator which works with a set of Vector data and a prior ClusterClassifier which has been
@@ -48,8 +63,13 @@ import com.google.common.io.Closeables;
  */
 public class ClusterIterator {
   
+  private static final Logger log = LoggerFactory.getLogger(ClusterIterator.class);
+  
   public static final String PRIOR_PATH_KEY = "org.apache.mahout.clustering.prior.path";
   
+  /** number of vectors a thread claims at a time in {@link #iterate(Iterable, ClusterClassifier, int, int)} */
+  private static final int BLOCK_SIZE = 1024;
+  
   /**
    * Iterate over data using a prior-trained ClusterClassifier, for a number of iterations
    * 
@@ -86,6 +106,104 @@ public class ClusterIterator {
     return classifier;
   }
   
+  /**
+   * Iterate over in-memory data using a prior-trained ClusterClassifier, for a number of iterations, on several
+   * threads. This is the in-memory counterpart of {@link #iterateMR}: in each iteration the policy is updated once,
+   * then each thread classifies blocks of vectors against the prior models and accumulates its own s0/s1/s2 sums
+   * for every model; the sums are added to the models before they are closed. The iterations stop early when all
+   * the models have converged.
+   * <p/>
+   * The models must be {@link AbstractCluster}s, and their pdf() as well as the policy's classify() and select()
+   * must be safe to call from several threads, which is the case for all the models and policies in Mahout.
+   * 
+   * @param data
+   *          the input vectors, copied into a list unless they already are one
+   * @param classifier
+   *          a prior ClusterClassifier
+   * @param numIterations
+   *          the maximum number of iterations to perform
+   * @param numThreads
+   *          the number of threads to use
+   * 
+   * @return the posterior ClusterClassifier
+   */
+  public ClusterClassifier iterate(Iterable<Vector> data,
+                                   final ClusterClassifier classifier,
+                                   int numIterations,
+                                   int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    final List<Cluster> models = classifier.getModels();
+    for (Cluster model : models) {
+      Preconditions.checkArgument(model instanceof AbstractCluster, "Not an AbstractCluster: %s", model);
+    }
+    final List<Vector> vectors = data instanceof List ? (List<Vector>) data : Lists.newArrayList(data);
+    final ClusteringPolicy policy = classifier.getPolicy();
+    int workers = Math.max(1, Math.min(numThreads, (vectors.size() + BLOCK_SIZE - 1) / BLOCK_SIZE));
+    ExecutorService pool = Executors.newFixedThreadPool(workers,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cluster-iterator-%d").build());
+    try {
+      for (int iteration = 1; iteration <= numIterations; iteration++) {
+        long start = System.currentTimeMillis();
+        policy.update(classifier);
+        final AtomicInteger nextBlock = new AtomicInteger();
+        List<Future<PartialSums[]>> futures = Lists.newArrayListWithCapacity(workers);
+        for (int i = 0; i < workers; i++) {
+          futures.add(pool.submit(new Callable<PartialSums[]>() {
+            @Override
+            public PartialSums[] call() {
+              PartialSums[] sums = new PartialSums[models.size()];
+              int block;
+              while ((block = nextBlock.getAndIncrement()) * BLOCK_SIZE < vectors.size()) {
+                int end = Math.min(vectors.size(), (block + 1) * BLOCK_SIZE);
+                for (int v = block * BLOCK_SIZE; v < end; v++) {
+                  Vector vector = vectors.get(v);
+                  Vector weights = policy.select(classifier.classify(vector));
+                  for (Iterator<Vector.Element> it = weights.iterateNonZero(); it.hasNext();) {
+                    Vector.Element weight = it.next();
+                    if (sums[weight.index()] == null) {
+                      sums[weight.index()] = new PartialSums();
+                    }
+                    sums[weight.index()].observe(vector, weight.get());
+                  }
+                }
+              }
+              return sums;
+            }
+          }));
+        }
+        for (Future<PartialSums[]> future : futures) {
+          PartialSums[] sums = future.get();
+          for (int index = 0; index < sums.length; index++) {
+            if (sums[index] != null) {
+              ((AbstractCluster) models.get(index)).observe(sums[index].toObservations());
+            }
+          }
+        }
+        // compute the posterior models
+        classifier.close();
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Iteration {}: {} vectors in {} ms ({} vectors/s) on {} threads",
+            new Object[] {iteration, vectors.size(), time, vectors.size() * 1000L / time, workers});
+        if (isConverged(models)) {
+          log.info("Converged after {} iterations", iteration);
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    return classifier;
+  }
+  
   /**
    * Iterate over data using a prior-trained ClusterClassifier, for a number of iterations using a sequential
    * implementation
@@ -219,4 +337,54 @@ public class ClusterIterator {
     }
     return true;
   }
+  
+  /**
+   * Return if all of the given models have converged or not
+   */
+  private static boolean isConverged(Iterable<Cluster> models) {
+    for (Cluster model : models) {
+      if (!model.isConverged()) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * The observations of one thread for one model, summed the same way as in {@link AbstractCluster}
+   */
+  private static final class PartialSums {
+    
+    private double s0;
+    private Vector s1;
+    private Vector s2;
+    
+    void observe(Vector x, double weight) {
+      s0 += weight;
+      Vector x2 = x.times(x);
+      if (weight == 1.0) {
+        if (s1 == null) {
+          s1 = x.clone();
+        } else {
+          s1.assign(x, Functions.PLUS);
+        }
+      } else {
+        x2 = x2.times(weight);
+        if (s1 == null) {
+          s1 = x.times(weight);
+        } else {
+          s1.assign(x.times(weight), Functions.PLUS);
+        }
+      }
+      if (s2 == null) {
+        s2 = x2;
+      } else {
+        s2.assign(x2, Functions.PLUS);
+      }
+    }
+    
+    ClusterObservations toObservations() {
+      return new ClusterObservations(s0, s1, s2);
+    }
+  }
 }
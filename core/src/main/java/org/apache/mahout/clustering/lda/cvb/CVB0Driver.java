@@ -190,7 +190,7 @@ public class CVB0Driver extends AbstractJob {
         numReduceTasks, backfillPerplexity);
   }
 
-  private static int getNumTerms(Configuration conf, Path dictionaryPath) throws IOException {
+  static int getNumTerms(Configuration conf, Path dictionaryPath) throws IOException {
     FileSystem fs = dictionaryPath.getFileSystem(conf);
     Text key = new Text();
     IntWritable value = new IntWritable();
@@ -87,6 +87,7 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
   private int numTrainingThreads;
   private int numUpdatingThreads;
   private ModelTrainer modelTrainer;
+  private SparseModelTrainer sparseTrainer;
 
   private InMemoryCollapsedVariationalBayes0() {
     // only for main usage
@@ -157,6 +158,19 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
     modelTrainer = new ModelTrainer(topicModel, updatedModel, numTrainingThreads, numTopics, numTerms);
   }
 
+  /**
+   * Trains with a {@link SparseModelTrainer} from now on, starting from the current model.  This
+   * is much faster with many topics, since each term of a document only visits the topics it has
+   * counts for, and the topics of a term with p(topic|term,doc) below minProbability are left out.
+   * The training threads are used, the updating threads are not.
+   */
+  public void useSparseTraining(double minProbability) {
+    TopicModel model = modelTrainer.getReadModel();
+    sparseTrainer = new SparseModelTrainer(
+        new SparseTopicModel(model.topicTermCounts(), model.topicSums(), eta, alpha),
+        numTrainingThreads, minProbability, SparseModelTrainer.DEFAULT_MERGE_INTERVAL);
+  }
+
   private void inferDocuments(double convergence, int maxIter, boolean recalculate) {
     for (int docId = 0; docId < corpusWeights.numRows() ; docId++) {
       Vector inferredDocument = topicModel.infer(corpusWeights.viewRow(docId),
@@ -171,6 +185,11 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
 
   public void trainDocuments(double testFraction) {
     long start = System.nanoTime();
+    if (sparseTrainer != null) {
+      sparseTrainer.train(corpusWeights, 10, testFraction);
+      logTime("train documents", System.nanoTime() - start);
+      return;
+    }
     modelTrainer.start();
     for (int docId = 0; docId < corpusWeights.numRows(); docId++) {
       if (testFraction == 0 || docId % (1/testFraction) != 0) {
@@ -219,11 +238,10 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
     while (iter < minIter) {
       trainDocuments(testFraction);
       if (verbose) {
-        log.info("model after: " + iter + ": " + modelTrainer.getReadModel().toString());
+        log.info("model after: " + iter + ": " + readModelString());
       }
       log.info("iteration " + iter + " complete");
-      oldPerplexity = modelTrainer.calculatePerplexity(corpusWeights, docTopicCounts,
-          testFraction);
+      oldPerplexity = calculatePerplexity(testFraction);
       log.info(oldPerplexity + " = perplexity");
       iter++;
     }
@@ -232,10 +250,9 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
     while (iter < maxIterations && fractionalChange > minFractionalErrorChange) {
       trainDocuments();
       if (verbose) {
-        log.info("model after: " + iter + ": " + modelTrainer.getReadModel().toString());
+        log.info("model after: " + iter + ": " + readModelString());
       }
-      newPerplexity = modelTrainer.calculatePerplexity(corpusWeights, docTopicCounts,
-          testFraction);
+      newPerplexity = calculatePerplexity(testFraction);
       log.info(newPerplexity + " = perplexity");
       iter++;
       fractionalChange = Math.abs(newPerplexity - oldPerplexity) / oldPerplexity;
@@ -252,8 +269,24 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
     return newPerplexity;
   }
 
+  private double calculatePerplexity(double testFraction) {
+    return sparseTrainer != null
+        ? sparseTrainer.calculatePerplexity(corpusWeights, docTopicCounts, testFraction)
+        : modelTrainer.calculatePerplexity(corpusWeights, docTopicCounts, testFraction);
+  }
+
+  private String readModelString() {
+    return sparseTrainer != null
+        ? sparseTrainer.getReadModel().toString()
+        : modelTrainer.getReadModel().toString();
+  }
+
   public void writeModel(Path outputPath) throws IOException {
-    modelTrainer.persist(outputPath);
+    if (sparseTrainer != null) {
+      sparseTrainer.persist(outputPath, getConf());
+    } else {
+      modelTrainer.persist(outputPath);
+    }
   }
 
   private static void logTime(String label, long nanos) {
@@ -335,6 +368,12 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
         .withDescription("number of threads to update the model with")
         .withShortName("nut").create();
 
+    Option sparseOpt = obuilder.withLongName("sparseMinProbability").withRequired(false)
+        .withArgument(abuilder.withName("sparseMinProbability").withMinimum(1).withMaximum(1).create())
+        .withDescription("train a sparse model, leaving out the topics of a term with p(topic|term,doc) "
+            + "below this, e.g. " + SparseModelTrainer.DEFAULT_MIN_PROBABILITY)
+        .withShortName("smp").create();
+
     Option verboseOpt = obuilder.withLongName("verbose").withRequired(false)
         .withArgument(abuilder.withName("verbose").withMinimum(1).withMaximum(1)
         .withDefault("false").create())
@@ -347,7 +386,7 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
         .withOption(dictOpt).withOption(reInferDocTopicsOpt)
         .withOption(outputDocFileOpt).withOption(outputTopicFileOpt).withOption(dfsOpt)
         .withOption(numTrainThreadsOpt).withOption(numUpdateThreadsOpt)
-        .withOption(modelCorpusFractionOption).withOption(verboseOpt).create();
+        .withOption(modelCorpusFractionOption).withOption(sparseOpt).withOption(verboseOpt).create();
 
     try {
       Parser parser = new Parser();
@@ -395,6 +434,9 @@ public class InMemoryCollapsedVariationalBayes0 extends AbstractJob {
 
       start = System.nanoTime();
       cvb0.setVerbose(verbose);
+      if (cmdLine.hasOption(sparseOpt)) {
+        cvb0.useSparseTraining(Double.parseDouble((String) cmdLine.getValue(sparseOpt)));
+      }
       cvb0.iterateUntilConvergence(minFractionalErrorChange, maxIterations, burnInIterations);
       logTime("total training time", System.nanoTime() - start);
 
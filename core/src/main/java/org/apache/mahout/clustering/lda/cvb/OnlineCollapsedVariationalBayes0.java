@@ -0,0 +1,484 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.clustering.lda.cvb;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.mahout.common.AbstractJob;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirValueIterable;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.apache.mahout.math.function.Functions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Online (stochastic) CVB0: instead of passes over the whole corpus, the {@link TopicModel} is
+ * updated after each mini-batch of documents, so that refreshing a model with new documents costs
+ * time in proportion to the new documents only.
+ *
+ * For each mini-batch, p(topic|doc) is inferred for its documents with the current model, as in
+ * {@link ModelTrainer}, and the counts of the batch are scaled up to the size of the corpus the
+ * model stands for, {@code corpusWeight}.  The model then moves towards these counts with the
+ * learning rate {@code rho = (tau0 + t)^-kappa} for the t-th batch:
+ * <pre>
+ *   n(x,a) = (1 - rho) * n(x,a) + rho * corpusWeight / batchWeight * batchCount(x,a)
+ * </pre>
+ * The decay of the terms which are not in the batch is only applied when they show up again,
+ * or when the model is checkpointed, so a batch only touches the columns of its own terms.
+ *
+ * A checkpoint is a directory holding the model and the number of batches and the weight seen so
+ * far, so that training can resume with the right learning rate.
+ */
+public class OnlineCollapsedVariationalBayes0 extends AbstractJob {
+
+  private static final Logger log = LoggerFactory.getLogger(OnlineCollapsedVariationalBayes0.class);
+
+  public static final String BATCH_SIZE = "batch_size";
+  public static final String CORPUS_WEIGHT = "corpus_weight";
+  public static final String TAU0 = "tau0";
+  public static final String KAPPA = "kappa";
+  public static final String CHECKPOINT_INTERVAL = "checkpoint_interval";
+  public static final String PREVIOUS_MODEL = "previous_model";
+
+  private static final String MODEL_DIR = "model";
+  private static final String STATE_FILE = "state";
+  private static final String NUM_BATCHES_KEY = "numBatches";
+  private static final String WEIGHT_SEEN_KEY = "weightSeen";
+
+  private TopicModel model;
+  private double corpusWeight;
+  private double tau0;
+  private double kappa;
+  private int numDocTopicIters;
+  private int numThreads;
+
+  private long numBatches;
+  private double weightSeen;
+  /** sum of log(1 - rho) over all the batches since the model was last reset */
+  private double logDecay;
+  /** value of {@link #logDecay} when the counts of each term were last brought up to date */
+  private double[] termLogDecay;
+
+  private OnlineCollapsedVariationalBayes0() {
+    // only for main usage
+  }
+
+  /**
+   * @param corpusWeight weight of the corpus the model stands for, e.g. the number of tokens of
+   *          the documents of the last month; if 0, the weight of all the documents seen so far
+   * @param tau0 delay of the learning rate, at least 0; with 0 or 1 the first batch replaces the
+   *          initial model
+   * @param kappa forgetting rate of the learning rate, in (0.5, 1] for convergence
+   */
+  public OnlineCollapsedVariationalBayes0(TopicModel model, double corpusWeight, double tau0,
+      double kappa, int numDocTopicIters, int numThreads) {
+    this(model, corpusWeight, tau0, kappa, numDocTopicIters, numThreads, 0, 0);
+  }
+
+  private OnlineCollapsedVariationalBayes0(TopicModel model, double corpusWeight, double tau0,
+      double kappa, int numDocTopicIters, int numThreads, long numBatches, double weightSeen) {
+    Preconditions.checkArgument(corpusWeight >= 0, "corpusWeight must be at least 0");
+    Preconditions.checkArgument(tau0 >= 0, "tau0 must be at least 0");
+    Preconditions.checkArgument(kappa > 0 && kappa <= 1, "kappa must be in (0,1]");
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    this.model = model;
+    this.corpusWeight = corpusWeight;
+    this.tau0 = tau0;
+    this.kappa = kappa;
+    this.numDocTopicIters = numDocTopicIters;
+    this.numThreads = numThreads;
+    this.numBatches = numBatches;
+    this.weightSeen = weightSeen;
+    termLogDecay = new double[model.getNumTerms()];
+  }
+
+  /**
+   * Resumes training from a checkpoint written by {@link #checkpoint(Path)}
+   */
+  public static OnlineCollapsedVariationalBayes0 fromCheckpoint(Configuration conf, Path checkpoint,
+      double eta, double alpha, double corpusWeight, double tau0, double kappa, int numDocTopicIters,
+      int numThreads) throws IOException {
+    TopicModel model = new TopicModel(conf, eta, alpha, null, 1, 1.0, new Path(checkpoint, MODEL_DIR));
+    model.setConf(conf);
+    long numBatches = 0;
+    double weightSeen = 0;
+    Path statePath = new Path(checkpoint, STATE_FILE);
+    SequenceFile.Reader reader = new SequenceFile.Reader(statePath.getFileSystem(conf), statePath, conf);
+    try {
+      Text key = new Text();
+      DoubleWritable value = new DoubleWritable();
+      while (reader.next(key, value)) {
+        if (NUM_BATCHES_KEY.equals(key.toString())) {
+          numBatches = (long) value.get();
+        } else if (WEIGHT_SEEN_KEY.equals(key.toString())) {
+          weightSeen = value.get();
+        }
+      }
+    } finally {
+      Closeables.closeQuietly(reader);
+    }
+    return new OnlineCollapsedVariationalBayes0(model, corpusWeight, tau0, kappa, numDocTopicIters,
+        numThreads, numBatches, weightSeen);
+  }
+
+  /**
+   * @return the model, with the decay of all the terms applied
+   */
+  public TopicModel getModel() {
+    catchUpAll();
+    return model;
+  }
+
+  public long getNumBatches() {
+    return numBatches;
+  }
+
+  double learningRate(long batch) {
+    return Math.min(1.0, Math.pow(tau0 + batch, -kappa));
+  }
+
+  /**
+   * Trains on the documents of an iterator, batchSize documents at a time
+   *
+   * @return the number of documents trained on
+   */
+  public int train(Iterator<Vector> documents, int batchSize) {
+    Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+    List<Vector> batch = Lists.newArrayListWithCapacity(batchSize);
+    int numDocs = 0;
+    while (documents.hasNext()) {
+      batch.add(documents.next());
+      if (batch.size() == batchSize || !documents.hasNext()) {
+        trainBatch(batch);
+        numDocs += batch.size();
+        batch.clear();
+      }
+    }
+    return numDocs;
+  }
+
+  /**
+   * Updates the model with one mini-batch of documents
+   *
+   * @return p(topic|doc) for each document of the batch, inferred before the update
+   */
+  public Matrix trainBatch(final List<Vector> batch) {
+    long start = System.nanoTime();
+    final int numTopics = model.getNumTopics();
+    Matrix topicTermCounts = model.topicTermCounts();
+    Vector topicSums = model.topicSums();
+
+    // bring the terms of the batch up to date before reading them
+    int[] terms = batchTerms(batch);
+    for (int term : terms) {
+      catchUp(topicTermCounts, term);
+    }
+
+    final Matrix docTopics = new DenseMatrix(batch.size(), numTopics);
+    final Matrix[] docTopicModels = new Matrix[batch.size()];
+    final AtomicInteger nextDoc = new AtomicInteger();
+    final int numTerms = model.getNumTerms();
+    List<Callable<double[]>> tasks = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      tasks.add(new Callable<double[]>() {
+        @Override
+        public double[] call() {
+          double perplexity = 0;
+          double weight = 0;
+          int docId;
+          while ((docId = nextDoc.getAndIncrement()) < batch.size()) {
+            Vector document = batch.get(docId);
+            Vector topics = docTopics.viewRow(docId).assign(1.0 / numTopics);
+            Matrix docTopicModel = new SparseRowMatrix(numTopics, numTerms, true);
+            for (int iter = 0; iter < numDocTopicIters; iter++) {
+              model.trainDocTopicModel(document, topics, docTopicModel);
+            }
+            docTopicModels[docId] = docTopicModel;
+            perplexity += model.perplexity(document, topics);
+            weight += document.norm(1);
+          }
+          return new double[] {perplexity, weight};
+        }
+      });
+    }
+    double perplexity = 0;
+    double batchWeight = 0;
+    for (double[] partial : invokeAll(tasks)) {
+      perplexity += partial[0];
+      batchWeight += partial[1];
+    }
+    if (batchWeight == 0) {
+      return docTopics;
+    }
+
+    weightSeen += batchWeight;
+    double rho = learningRate(numBatches);
+    double scale = rho * (corpusWeight > 0 ? corpusWeight : weightSeen) / batchWeight;
+    if (rho >= 1) {
+      // the batch replaces the model
+      topicTermCounts.assign(0.0);
+      topicSums.assign(0.0);
+      logDecay = 0;
+      Arrays.fill(termLogDecay, 0.0);
+    } else {
+      logDecay += Math.log1p(-rho);
+      topicSums.assign(Functions.mult(1 - rho));
+      for (int term : terms) {
+        catchUp(topicTermCounts, term);
+      }
+    }
+    for (Matrix docTopicModel : docTopicModels) {
+      for (int x = 0; x < numTopics; x++) {
+        Vector row = docTopicModel.viewRow(x);
+        double sum = 0;
+        Iterator<Vector.Element> it = row.iterateNonZero();
+        while (it.hasNext()) {
+          Vector.Element e = it.next();
+          double count = scale * e.get();
+          topicTermCounts.setQuick(x, e.index(), topicTermCounts.getQuick(x, e.index()) + count);
+          sum += count;
+        }
+        topicSums.setQuick(x, topicSums.getQuick(x) + sum);
+      }
+    }
+    numBatches++;
+    log.info("Batch {}: {} docs, rho {}, perplexity before update {}, {} ms",
+        new Object[] {numBatches, batch.size(), rho, perplexity / batchWeight,
+            (System.nanoTime() - start) / 1000000});
+    return docTopics;
+  }
+
+  private static int[] batchTerms(Iterable<Vector> batch) {
+    int[] terms = new int[16];
+    int numTerms = 0;
+    for (Vector document : batch) {
+      Iterator<Vector.Element> it = document.iterateNonZero();
+      while (it.hasNext()) {
+        if (numTerms == terms.length) {
+          terms = Arrays.copyOf(terms, 2 * numTerms);
+        }
+        terms[numTerms++] = it.next().index();
+      }
+    }
+    Arrays.sort(terms, 0, numTerms);
+    int distinct = 0;
+    for (int i = 0; i < numTerms; i++) {
+      if (distinct == 0 || terms[i] != terms[distinct - 1]) {
+        terms[distinct++] = terms[i];
+      }
+    }
+    return Arrays.copyOf(terms, distinct);
+  }
+
+  /**
+   * Applies the decay of the batches the term was not part of
+   */
+  private void catchUp(Matrix topicTermCounts, int term) {
+    if (termLogDecay[term] != logDecay) {
+      double factor = Math.exp(logDecay - termLogDecay[term]);
+      for (int x = 0; x < topicTermCounts.numRows(); x++) {
+        topicTermCounts.setQuick(x, term, topicTermCounts.getQuick(x, term) * factor);
+      }
+      termLogDecay[term] = logDecay;
+    }
+  }
+
+  private void catchUpAll() {
+    Matrix topicTermCounts = model.topicTermCounts();
+    for (int term = 0; term < termLogDecay.length; term++) {
+      catchUp(topicTermCounts, term);
+    }
+  }
+
+  /**
+   * Brings all the terms up to date and writes the model and the training state to a directory,
+   * replacing its content. The new checkpoint is written next to the directory and only then
+   * renamed over it, so a failure while writing leaves the previous checkpoint in place.
+   */
+  public void checkpoint(Path checkpoint) throws IOException {
+    catchUpAll();
+    Configuration conf = model.getConf() != null ? model.getConf() : getConf();
+    FileSystem fs = checkpoint.getFileSystem(conf);
+    Path written = new Path(checkpoint.getParent(), checkpoint.getName() + "-tmp");
+    Path previous = new Path(checkpoint.getParent(), checkpoint.getName() + "-old");
+    fs.delete(written, true);
+    model.setConf(conf);
+    model.persist(new Path(written, MODEL_DIR), true);
+    SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf, new Path(written, STATE_FILE),
+        Text.class, DoubleWritable.class);
+    try {
+      writer.append(new Text(NUM_BATCHES_KEY), new DoubleWritable(numBatches));
+      writer.append(new Text(WEIGHT_SEEN_KEY), new DoubleWritable(weightSeen));
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+
+    fs.delete(previous, true);
+    if (fs.exists(checkpoint) && !fs.rename(checkpoint, previous)) {
+      throw new IOException("Could not move " + checkpoint + " to " + previous);
+    }
+    if (!fs.rename(written, checkpoint)) {
+      throw new IOException("Could not move " + written + " to " + checkpoint);
+    }
+    fs.delete(previous, true);
+  }
+
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("online-cvb0-%d").build());
+    try {
+      List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+      for (Future<T> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Override
+  public Configuration getConf() {
+    if (super.getConf() == null) {
+      setConf(new Configuration());
+    }
+    return super.getConf();
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    addInputOption();
+    addOutputOption();
+    addOption(CVB0Driver.NUM_TOPICS, "k", "Number of topics to learn, unless a previous model is given", false);
+    addOption(CVB0Driver.NUM_TERMS, "nt", "Vocabulary size", false);
+    addOption(CVB0Driver.DICTIONARY, "dict", "Path to term-dictionary file(s) (glob expression supported)",
+        false);
+    addOption(CVB0Driver.DOC_TOPIC_SMOOTHING, "a", "Smoothing for document/topic distribution", "0.0001");
+    addOption(CVB0Driver.TERM_TOPIC_SMOOTHING, "e", "Smoothing for topic/term distribution", "0.0001");
+    addOption(PREVIOUS_MODEL, "pm", "Checkpoint of the model to update", false);
+    addOption(BATCH_SIZE, "bs", "Number of documents per mini-batch", "1000");
+    addOption(CORPUS_WEIGHT, "cw", "Weight of the corpus the model stands for, 0 for all the documents seen",
+        "0");
+    addOption(TAU0, "tau", "Delay of the learning rate (tau0 + t)^-kappa", "1");
+    addOption(KAPPA, "kappa", "Forgetting rate of the learning rate (tau0 + t)^-kappa", "0.7");
+    addOption(CHECKPOINT_INTERVAL, "ci", "Number of batches between checkpoints to the output path", "10");
+    addOption(CVB0Driver.MAX_ITERATIONS_PER_DOC, "mipd",
+        "max number of iterations per doc for p(topic|doc) learning", "10");
+    addOption(CVB0Driver.NUM_TRAIN_THREADS, "ntt", "number of threads to train with", "1");
+    addOption(CVB0Driver.RANDOM_SEED, "seed", "Random seed", false);
+
+    if (parseArguments(args) == null) {
+      return -1;
+    }
+
+    Configuration conf = getConf();
+    double alpha = Double.parseDouble(getOption(CVB0Driver.DOC_TOPIC_SMOOTHING));
+    double eta = Double.parseDouble(getOption(CVB0Driver.TERM_TOPIC_SMOOTHING));
+    int batchSize = Integer.parseInt(getOption(BATCH_SIZE));
+    double corpusWeight = Double.parseDouble(getOption(CORPUS_WEIGHT));
+    double tau0 = Double.parseDouble(getOption(TAU0));
+    double kappa = Double.parseDouble(getOption(KAPPA));
+    int checkpointInterval = Integer.parseInt(getOption(CHECKPOINT_INTERVAL));
+    int maxItersPerDoc = Integer.parseInt(getOption(CVB0Driver.MAX_ITERATIONS_PER_DOC));
+    int numThreads = Integer.parseInt(getOption(CVB0Driver.NUM_TRAIN_THREADS));
+
+    OnlineCollapsedVariationalBayes0 trainer;
+    if (hasOption(PREVIOUS_MODEL)) {
+      trainer = fromCheckpoint(conf, new Path(getOption(PREVIOUS_MODEL)), eta, alpha, corpusWeight, tau0,
+          kappa, maxItersPerDoc, numThreads);
+    } else {
+      if (!hasOption(CVB0Driver.NUM_TOPICS)) {
+        log.error("Either --{} or --{} is required", CVB0Driver.NUM_TOPICS, PREVIOUS_MODEL);
+        return -1;
+      }
+      int numTopics = Integer.parseInt(getOption(CVB0Driver.NUM_TOPICS));
+      int numTerms = hasOption(CVB0Driver.NUM_TERMS)
+          ? Integer.parseInt(getOption(CVB0Driver.NUM_TERMS))
+          : CVB0Driver.getNumTerms(conf, new Path(getOption(CVB0Driver.DICTIONARY)));
+      long seed = hasOption(CVB0Driver.RANDOM_SEED)
+          ? Long.parseLong(getOption(CVB0Driver.RANDOM_SEED))
+          : System.nanoTime() % 10000;
+      TopicModel model = new TopicModel(numTopics, numTerms, eta, alpha, RandomUtils.getRandom(seed), null, 1,
+          1.0);
+      model.setConf(conf);
+      trainer = new OnlineCollapsedVariationalBayes0(model, corpusWeight, tau0, kappa, maxItersPerDoc,
+          numThreads);
+    }
+
+    Path output = getOutputPath();
+    Iterator<VectorWritable> documents = new SequenceFileDirValueIterable<VectorWritable>(getInputPath(),
+        PathType.LIST, PathFilters.logsCRCFilter(), conf).iterator();
+    List<Vector> batch = Lists.newArrayListWithCapacity(batchSize);
+    int numDocs = 0;
+    while (documents.hasNext()) {
+      batch.add(documents.next().get());
+      if (batch.size() == batchSize || !documents.hasNext()) {
+        trainer.trainBatch(batch);
+        numDocs += batch.size();
+        batch.clear();
+        if (trainer.getNumBatches() % checkpointInterval == 0) {
+          trainer.checkpoint(output);
+        }
+      }
+    }
+    trainer.checkpoint(output);
+    trainer.getModel().awaitTermination();
+    log.info("Trained on {} documents, {} batches in total", numDocs, trainer.getNumBatches());
+    return 0;
+  }
+
+  public static void main(String[] args) throws Exception {
+    ToolRunner.run(new Configuration(), new OnlineCollapsedVariationalBayes0(), args);
+  }
+
+}
@@ -0,0 +1,324 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.clustering.lda.cvb;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.IntObjectProcedure;
+import org.apache.mahout.math.map.OpenIntObjectHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory, multithreaded CVB0 training over a {@link SparseTopicModel}, the sparse counterpart
+ * of {@link ModelTrainer}: each pass over the corpus infers p(topic|doc) with the read model and
+ * accumulates p(topic|term,doc) into a new write model, which becomes the read model for the next
+ * pass.
+ *
+ * Threads never share what they write: each one adds the topic-term counts of its documents to
+ * its own {@link TopicTermDeltas}, split by term into one part per thread.  Every
+ * {@code mergeInterval} documents the threads stop, and thread j adds part j of every buffer to
+ * the write model, so that each term is only written by one thread.  For each term of a document
+ * only the topics with p(topic|term,doc) of at least {@code minProbability} are added, which is
+ * what keeps the model sparse.
+ */
+public class SparseModelTrainer {
+
+  private static final Logger log = LoggerFactory.getLogger(SparseModelTrainer.class);
+
+  public static final double DEFAULT_MIN_PROBABILITY = 1.0e-3;
+  public static final int DEFAULT_MERGE_INTERVAL = 10000;
+
+  private static final int BLOCK_SIZE = 16;
+
+  private SparseTopicModel readModel;
+  private final int numThreads;
+  private final double minProbability;
+  private final int mergeInterval;
+
+  public SparseModelTrainer(SparseTopicModel initialModel, int numThreads) {
+    this(initialModel, numThreads, DEFAULT_MIN_PROBABILITY, DEFAULT_MERGE_INTERVAL);
+  }
+
+  public SparseModelTrainer(SparseTopicModel initialModel, int numThreads, double minProbability,
+      int mergeInterval) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    Preconditions.checkArgument(minProbability >= 0 && minProbability < 1,
+        "minProbability must be in [0,1)");
+    Preconditions.checkArgument(mergeInterval > 0, "mergeInterval must be positive");
+    this.readModel = initialModel;
+    this.numThreads = numThreads;
+    this.minProbability = minProbability;
+    this.mergeInterval = mergeInterval;
+  }
+
+  public SparseTopicModel getReadModel() {
+    return readModel;
+  }
+
+  public void persist(Path outputPath, Configuration conf) throws IOException {
+    readModel.persist(outputPath, conf, true);
+  }
+
+  /**
+   * One pass over the corpus: each document starts from a uniform p(topic|doc), which is refined
+   * for numDocTopicIters iterations before its counts are added to the model.
+   *
+   * @param testFraction if not 0, the documents whose id is a multiple of 1/testFraction are left
+   *          out, as in {@link ModelTrainer#calculatePerplexity}
+   */
+  public void train(final Matrix corpus, final int numDocTopicIters, final double testFraction) {
+    long start = System.nanoTime();
+    final int numTopics = readModel.getNumTopics();
+    final SparseTopicModel writeModel =
+        new SparseTopicModel(numTopics, readModel.getNumTerms(), readModel.getEta(), readModel.getAlpha());
+    final List<TopicTermDeltas> buffers = Lists.newArrayListWithCapacity(numThreads);
+    List<Callable<Void>> trainers = Lists.newArrayListWithCapacity(numThreads);
+    List<Callable<Void>> mergers = Lists.newArrayListWithCapacity(numThreads);
+    final AtomicInteger nextDoc = new AtomicInteger();
+    final int[] roundEnd = new int[1];
+    for (int i = 0; i < numThreads; i++) {
+      final TopicTermDeltas buffer = new TopicTermDeltas(numTopics, numThreads);
+      buffers.add(buffer);
+      final SparseTopicModel.Inference inference = readModel.new Inference();
+      trainers.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          double[] topics = new double[numTopics];
+          int block;
+          while ((block = nextDoc.getAndAdd(BLOCK_SIZE)) < roundEnd[0]) {
+            int end = Math.min(block + BLOCK_SIZE, roundEnd[0]);
+            for (int docId = block; docId < end; docId++) {
+              if (testFraction != 0 && docId % (1 / testFraction) == 0) {
+                continue;
+              }
+              Vector document = corpus.viewRow(docId);
+              if (document == null) {
+                continue;
+              }
+              inference.setDocument(document);
+              if (inference.isEmpty()) {
+                continue;
+              }
+              Arrays.fill(topics, 1.0 / numTopics);
+              inference.infer(topics, numDocTopicIters);
+              inference.accumulate(topics, minProbability, buffer);
+            }
+          }
+          return null;
+        }
+      });
+      final int part = i;
+      mergers.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          final int[] position = new int[numTopics];
+          Arrays.fill(position, -1);
+          for (TopicTermDeltas deltas : buffers) {
+            deltas.mergeInto(part, writeModel, position);
+          }
+          return null;
+        }
+      });
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sparse-cvb0-%d").build());
+    try {
+      int numDocs = corpus.numRows();
+      for (int roundStart = 0; roundStart < numDocs; roundStart += mergeInterval) {
+        // the callables only read roundEnd once invokeAll() has submitted them
+        roundEnd[0] = Math.min(numDocs, roundStart + mergeInterval);
+        nextDoc.set(roundStart);
+        invokeAll(pool, trainers);
+        invokeAll(pool, mergers);
+        for (TopicTermDeltas deltas : buffers) {
+          writeModel.addTopicSums(deltas.topicSums);
+          Arrays.fill(deltas.topicSums, 0.0);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    readModel = writeModel;
+    log.info("Trained {} docs in {} ms on {} threads, model has {} topic-term entries",
+        new Object[] {corpus.numRows(), (System.nanoTime() - start) / 1000000, numThreads,
+            writeModel.numEntries()});
+  }
+
+  /**
+   * @return the perplexity per unit of document weight, see {@link ModelTrainer#calculatePerplexity}
+   */
+  public double calculatePerplexity(final Matrix corpus, final Matrix docTopicCounts,
+      final double testFraction) {
+    final AtomicInteger nextDoc = new AtomicInteger();
+    final int numTopics = readModel.getNumTopics();
+    List<Callable<double[]>> tasks = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      final SparseTopicModel.Inference inference = readModel.new Inference();
+      tasks.add(new Callable<double[]>() {
+        @Override
+        public double[] call() {
+          double perplexity = 0;
+          double norm = 0;
+          double[] topics = new double[numTopics];
+          int docId;
+          while ((docId = nextDoc.getAndIncrement()) < corpus.numRows()) {
+            if (testFraction != 0 && docId % (1 / testFraction) != 0) {
+              continue;
+            }
+            Vector document = corpus.viewRow(docId);
+            if (document == null) {
+              continue;
+            }
+            inference.setDocument(document);
+            Vector docTopics = docTopicCounts.viewRow(docId);
+            for (int x = 0; x < numTopics; x++) {
+              topics[x] = docTopics.getQuick(x);
+            }
+            inference.infer(topics, 10);
+            for (int x = 0; x < numTopics; x++) {
+              docTopics.setQuick(x, topics[x]);
+            }
+            perplexity += inference.perplexity(topics);
+            norm += inference.norm();
+          }
+          return new double[] {perplexity, norm};
+        }
+      });
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sparse-cvb0-%d").build());
+    try {
+      double perplexity = 0;
+      double norm = 0;
+      for (double[] partial : invokeAll(pool, tasks)) {
+        perplexity += partial[0];
+        norm += partial[1];
+      }
+      return perplexity / norm;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static <T> List<T> invokeAll(ExecutorService pool, List<Callable<T>> tasks) {
+    try {
+      List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+      for (Future<T> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Topic-term counts added by one thread since the last merge, split by term into parts.
+   */
+  static final class TopicTermDeltas {
+
+    private final List<OpenIntObjectHashMap<TermDeltas>> parts;
+    private final double[] topicSums;
+
+    TopicTermDeltas(int numTopics, int numParts) {
+      parts = Lists.newArrayListWithCapacity(numParts);
+      for (int i = 0; i < numParts; i++) {
+        parts.add(new OpenIntObjectHashMap<TermDeltas>());
+      }
+      topicSums = new double[numTopics];
+    }
+
+    /**
+     * Adds weights[k] * scale to the count of (topics[k], term), for k < size
+     */
+    void add(int term, int[] topics, double[] weights, int size, double scale) {
+      OpenIntObjectHashMap<TermDeltas> part = parts.get(term % parts.size());
+      TermDeltas deltas = part.get(term);
+      if (deltas == null) {
+        deltas = new TermDeltas(size);
+        part.put(term, deltas);
+      }
+      for (int k = 0; k < size; k++) {
+        float count = (float) (weights[k] * scale);
+        deltas.add(topics[k], count);
+        topicSums[topics[k]] += count;
+      }
+    }
+
+    void mergeInto(int part, final SparseTopicModel model, final int[] position) {
+      OpenIntObjectHashMap<TermDeltas> deltas = parts.get(part);
+      deltas.forEachPair(new IntObjectProcedure<TermDeltas>() {
+        @Override
+        public boolean apply(int term, TermDeltas termDeltas) {
+          model.add(term, termDeltas.topics, termDeltas.counts, termDeltas.size, position);
+          return true;
+        }
+      });
+      // a new map rather than clear(), which does not reset the last slot of the table
+      parts.set(part, new OpenIntObjectHashMap<TermDeltas>());
+    }
+  }
+
+  /**
+   * Counts added to the topics of one term, appended as they come
+   */
+  private static final class TermDeltas {
+
+    private int[] topics;
+    private float[] counts;
+    private int size;
+
+    TermDeltas(int capacity) {
+      topics = new int[Math.max(4, capacity)];
+      counts = new float[topics.length];
+    }
+
+    void add(int topic, float count) {
+      if (size == topics.length) {
+        topics = Arrays.copyOf(topics, 2 * size);
+        counts = Arrays.copyOf(counts, 2 * size);
+      }
+      topics[size] = topic;
+      counts[size++] = count;
+    }
+  }
+
+}
@@ -0,0 +1,437 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.clustering.lda.cvb;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.DistributedRowMatrixWriter;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.MatrixSlice;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Counts of occurrences of (topic, term) pairs, like {@link TopicModel}, but stored term by term:
+ * each term only keeps the topics it has a count for, as a list of topics and a list of
+ * {@code float} counts.  This is what makes CVB0 inference cheap for models with many topics
+ * and a large vocabulary: in
+ * <pre>
+ *   p(x|a,i) ~ (n(x,a) + eta) * r(x),   r(x) = (p(x|i) + alpha) / (n(x) + eta * numTerms)
+ * </pre>
+ * the part {@code eta * r(x)} only depends on the document, so it is summed over all the topics
+ * once per document, and for each term of the document only the topics with a count for that
+ * term are visited.  The inference is exact; it is the training by {@link SparseModelTrainer}
+ * which keeps the model sparse, by dropping the negligible topics of each term.
+ *
+ * Unlike {@link TopicModel}, a sparse model is not updated asynchronously: it is either read,
+ * by any number of threads, or written, term by term, through {@link #add}.
+ */
+public class SparseTopicModel {
+
+  private static final int[] NO_TOPICS = new int[0];
+  private static final float[] NO_COUNTS = new float[0];
+
+  private final int numTopics;
+  private final int numTerms;
+  private final double eta;
+  private final double alpha;
+  /** topics with a count, for each term, in no particular order */
+  private final int[][] termTopics;
+  /** counts of the topics in {@link #termTopics} */
+  private final float[][] termCounts;
+  private final double[] topicSums;
+
+  /**
+   * Creates an empty model
+   */
+  public SparseTopicModel(int numTopics, int numTerms, double eta, double alpha) {
+    Preconditions.checkArgument(numTopics > 0, "numTopics must be positive");
+    this.numTopics = numTopics;
+    this.numTerms = numTerms;
+    this.eta = eta;
+    this.alpha = alpha;
+    termTopics = new int[numTerms][];
+    termCounts = new float[numTerms][];
+    Arrays.fill(termTopics, NO_TOPICS);
+    Arrays.fill(termCounts, NO_COUNTS);
+    topicSums = new double[numTopics];
+  }
+
+  /**
+   * Copies the non-zero counts of a topic-term matrix, such as {@link TopicModel#topicTermCounts()}
+   */
+  public SparseTopicModel(Matrix topicTermCounts, Vector topicSums, double eta, double alpha) {
+    this(topicTermCounts.numRows(), topicTermCounts.numCols(), eta, alpha);
+    int[] sizes = new int[numTerms];
+    for (MatrixSlice slice : topicTermCounts) {
+      Iterator<Vector.Element> it = slice.vector().iterateNonZero();
+      while (it.hasNext()) {
+        sizes[it.next().index()]++;
+      }
+    }
+    for (int term = 0; term < numTerms; term++) {
+      if (sizes[term] > 0) {
+        termTopics[term] = new int[sizes[term]];
+        termCounts[term] = new float[sizes[term]];
+        sizes[term] = 0;
+      }
+    }
+    for (MatrixSlice slice : topicTermCounts) {
+      Iterator<Vector.Element> it = slice.vector().iterateNonZero();
+      while (it.hasNext()) {
+        Vector.Element e = it.next();
+        int term = e.index();
+        termTopics[term][sizes[term]] = slice.index();
+        termCounts[term][sizes[term]++] = (float) e.get();
+      }
+    }
+    for (int x = 0; x < numTopics; x++) {
+      this.topicSums[x] = topicSums.get(x);
+    }
+  }
+
+  public int getNumTopics() {
+    return numTopics;
+  }
+
+  public int getNumTerms() {
+    return numTerms;
+  }
+
+  public double getEta() {
+    return eta;
+  }
+
+  public double getAlpha() {
+    return alpha;
+  }
+
+  public Vector topicSums() {
+    return new DenseVector(topicSums);
+  }
+
+  /**
+   * @return the number of (topic, term) pairs with a count
+   */
+  public long numEntries() {
+    long entries = 0;
+    for (int[] topics : termTopics) {
+      entries += topics.length;
+    }
+    return entries;
+  }
+
+  /**
+   * @return the counts as a numTopics x numTerms matrix, in the layout of {@link TopicModel}
+   */
+  public Matrix toMatrix() {
+    Matrix matrix = new SparseRowMatrix(numTopics, numTerms, true);
+    for (int term = 0; term < numTerms; term++) {
+      int[] topics = termTopics[term];
+      float[] counts = termCounts[term];
+      for (int k = 0; k < topics.length; k++) {
+        matrix.viewRow(topics[k]).setQuick(term, counts[k]);
+      }
+    }
+    return matrix;
+  }
+
+  public void persist(Path outputDir, Configuration conf, boolean overwrite) throws IOException {
+    FileSystem fs = outputDir.getFileSystem(conf);
+    if (overwrite) {
+      fs.delete(outputDir, true);
+    }
+    DistributedRowMatrixWriter.write(outputDir, conf, toMatrix());
+  }
+
+  /**
+   * Runs CVB0 iterations on p(topic|doc) for a document, as {@link TopicModel#trainDocTopicModel}
+   * does, without keeping p(topic|term,doc) around.
+   *
+   * @param document doc-term vector
+   * @param docTopics p(topic|doc), updated in place
+   */
+  public void inferDocTopics(Vector document, Vector docTopics, int numIterations) {
+    Inference inference = new Inference();
+    double[] topics = toArray(docTopics);
+    inference.setDocument(document);
+    inference.infer(topics, numIterations);
+    for (int x = 0; x < numTopics; x++) {
+      docTopics.setQuick(x, topics[x]);
+    }
+  }
+
+  /**
+   * @see TopicModel#perplexity(Vector, Vector)
+   */
+  public double perplexity(Vector document, Vector docTopics) {
+    Inference inference = new Inference();
+    inference.setDocument(document);
+    return inference.perplexity(toArray(docTopics));
+  }
+
+  private double[] toArray(Vector docTopics) {
+    double[] topics = new double[numTopics];
+    for (int x = 0; x < numTopics; x++) {
+      topics[x] = docTopics.getQuick(x);
+    }
+    return topics;
+  }
+
+  /**
+   * Adds counts to a term.  Only one thread at a time may add to a given term, and the model must
+   * not be read at the same time.
+   *
+   * @param position scratch array of numTopics entries, all -1, which are left that way
+   */
+  void add(int term, int[] topics, float[] counts, int size, int[] position) {
+    int[] currentTopics = termTopics[term];
+    int length = currentTopics.length;
+    for (int k = 0; k < length; k++) {
+      position[currentTopics[k]] = k;
+    }
+    int[] newTopics = currentTopics;
+    float[] newCounts = termCounts[term];
+    int newLength = length;
+    for (int k = 0; k < size; k++) {
+      int topic = topics[k];
+      if (position[topic] < 0) {
+        if (newTopics == currentTopics) {
+          newTopics = Arrays.copyOf(currentTopics, Math.min(numTopics, length + size));
+          newCounts = Arrays.copyOf(newCounts, newTopics.length);
+        }
+        newTopics[newLength] = topic;
+        position[topic] = newLength++;
+      }
+      newCounts[position[topic]] += counts[k];
+    }
+    for (int k = 0; k < newLength; k++) {
+      position[newTopics[k]] = -1;
+    }
+    if (newTopics != currentTopics) {
+      termTopics[term] = newLength == newTopics.length ? newTopics : Arrays.copyOf(newTopics, newLength);
+      termCounts[term] = newLength == newCounts.length ? newCounts : Arrays.copyOf(newCounts, newLength);
+    }
+  }
+
+  /**
+   * Adds to the topic sums; not thread safe
+   */
+  void addTopicSums(double[] sums) {
+    for (int x = 0; x < numTopics; x++) {
+      topicSums[x] += sums[x];
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SparseTopicModel{numTopics=" + numTopics + ", numTerms=" + numTerms
+        + ", numEntries=" + numEntries() + '}';
+  }
+
+  /**
+   * The scratch space to infer the topics of one document after the other.  It is only used by a
+   * single thread, but several of them can read the same model.
+   */
+  final class Inference {
+
+    private int[] terms = new int[16];
+    private double[] weights = new double[16];
+    private int length;
+    /** r(x) for the current p(topic|doc) */
+    private final double[] ratios = new double[numTopics];
+    /** sum over the terms of the sparse part of p(topic|term,doc) */
+    private final double[] sparseTopics = new double[numTopics];
+    /** topics picked for the current term by {@link #accumulate} */
+    private final int[] picked = new int[numTopics];
+    private final double[] pickedWeights = new double[numTopics];
+    private final boolean[] isPicked = new boolean[numTopics];
+    /** topics whose document part alone may not be negligible */
+    private final int[] docTopics = new int[numTopics];
+    private int numDocTopics;
+
+    void setDocument(Vector document) {
+      length = 0;
+      Iterator<Vector.Element> it = document.iterateNonZero();
+      while (it.hasNext()) {
+        Vector.Element e = it.next();
+        if (length == terms.length) {
+          terms = Arrays.copyOf(terms, 2 * length);
+          weights = Arrays.copyOf(weights, 2 * length);
+        }
+        terms[length] = e.index();
+        weights[length++] = e.get();
+      }
+    }
+
+    boolean isEmpty() {
+      return length == 0;
+    }
+
+    double norm() {
+      double norm = 0;
+      for (int j = 0; j < length; j++) {
+        norm += weights[j];
+      }
+      return norm;
+    }
+
+    /**
+     * @return the sum over all the topics of eta * r(x)
+     */
+    private double computeRatios(double[] topics) {
+      double smoothing = 0;
+      double etaTerms = eta * numTerms;
+      for (int x = 0; x < numTopics; x++) {
+        ratios[x] = (topics[x] + alpha) / (topicSums[x] + etaTerms);
+        smoothing += eta * ratios[x];
+      }
+      return smoothing;
+    }
+
+    void infer(double[] topics, int numIterations) {
+      for (int i = 0; i < numIterations; i++) {
+        double smoothing = computeRatios(topics);
+        Arrays.fill(sparseTopics, 0.0);
+        double smoothingWeight = 0;
+        for (int j = 0; j < length; j++) {
+          int[] termTopics = SparseTopicModel.this.termTopics[terms[j]];
+          float[] termCounts = SparseTopicModel.this.termCounts[terms[j]];
+          double sparse = 0;
+          for (int k = 0; k < termTopics.length; k++) {
+            sparse += termCounts[k] * ratios[termTopics[k]];
+          }
+          double factor = weights[j] / (smoothing + sparse);
+          smoothingWeight += factor;
+          for (int k = 0; k < termTopics.length; k++) {
+            sparseTopics[termTopics[k]] += factor * termCounts[k] * ratios[termTopics[k]];
+          }
+        }
+        double sum = 0;
+        for (int x = 0; x < numTopics; x++) {
+          topics[x] = eta * ratios[x] * smoothingWeight + sparseTopics[x];
+          sum += topics[x];
+        }
+        for (int x = 0; x < numTopics; x++) {
+          topics[x] /= sum;
+        }
+      }
+    }
+
+    double perplexity(double[] topics) {
+      double norm = alpha * numTopics;
+      for (int x = 0; x < numTopics; x++) {
+        norm += topics[x];
+      }
+      double smoothing = computeRatios(topics);
+      double perplexity = 0;
+      for (int j = 0; j < length; j++) {
+        int[] termTopics = SparseTopicModel.this.termTopics[terms[j]];
+        float[] termCounts = SparseTopicModel.this.termCounts[terms[j]];
+        double prob = smoothing;
+        for (int k = 0; k < termTopics.length; k++) {
+          prob += termCounts[k] * ratios[termTopics[k]];
+        }
+        perplexity += weights[j] * Math.log(prob / norm);
+      }
+      return -perplexity;
+    }
+
+    /**
+     * Adds weight(a) * p(topic|a,doc) for each term a of the document to the deltas, leaving out
+     * the topics with p(topic|a,doc) below minProbability; the weight of these is spread over the
+     * others so that the document still adds its whole weight to the model.
+     */
+    void accumulate(double[] topics, double minProbability, SparseModelTrainer.TopicTermDeltas deltas) {
+      double smoothing = computeRatios(topics);
+      // p(x|a,doc) >= eta * r(x) / (smoothing + sparse part), so the topics with
+      // eta * r(x) >= minProbability * smoothing are the only ones with no count for a term that may be kept
+      numDocTopics = 0;
+      int mostLikelyTopic = 0;
+      for (int x = 0; x < numTopics; x++) {
+        if (eta * ratios[x] >= minProbability * smoothing) {
+          docTopics[numDocTopics++] = x;
+        }
+        if (ratios[x] > ratios[mostLikelyTopic]) {
+          mostLikelyTopic = x;
+        }
+      }
+      for (int j = 0; j < length; j++) {
+        int[] termTopics = SparseTopicModel.this.termTopics[terms[j]];
+        float[] termCounts = SparseTopicModel.this.termCounts[terms[j]];
+        double sparse = 0;
+        for (int k = 0; k < termTopics.length; k++) {
+          sparse += termCounts[k] * ratios[termTopics[k]];
+        }
+        double normalizer = smoothing + sparse;
+        double threshold = minProbability * normalizer;
+        int numPicked = 0;
+        double pickedSum = 0;
+        int best = -1;
+        double bestWeight = 0;
+        for (int k = 0; k < termTopics.length; k++) {
+          int x = termTopics[k];
+          double weight = (eta + termCounts[k]) * ratios[x];
+          isPicked[x] = true;
+          if (weight >= threshold) {
+            picked[numPicked] = x;
+            pickedWeights[numPicked++] = weight;
+            pickedSum += weight;
+          } else if (weight > bestWeight) {
+            best = x;
+            bestWeight = weight;
+          }
+        }
+        for (int k = 0; k < numDocTopics; k++) {
+          int x = docTopics[k];
+          if (!isPicked[x]) {
+            double weight = eta * ratios[x];
+            if (weight >= threshold) {
+              picked[numPicked] = x;
+              pickedWeights[numPicked++] = weight;
+              pickedSum += weight;
+            } else if (weight > bestWeight) {
+              best = x;
+              bestWeight = weight;
+            }
+          }
+        }
+        for (int k = 0; k < termTopics.length; k++) {
+          isPicked[termTopics[k]] = false;
+        }
+        if (numPicked == 0) {
+          // everything is negligible, e.g. many topics with little data yet: keep the most likely one
+          if (best < 0) {
+            best = mostLikelyTopic;
+          }
+          picked[numPicked] = best;
+          pickedWeights[numPicked++] = 1.0;
+          pickedSum = 1.0;
+        }
+        deltas.add(terms[j], picked, pickedWeights, numPicked, weights[j] / pickedSum);
+      }
+    }
+  }
+
+}
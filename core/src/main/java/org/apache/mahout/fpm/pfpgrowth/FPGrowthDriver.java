@@ -79,6 +79,8 @@ public final class FPGrowthDriver extends AbstractJob {
             + "so keep this value small, but big enough to prevent duplicate tree building. "
             + "Default Value:5 Recommended Values: [5-10]", "5");
     addOption("method", "method", "Method of processing: sequential|mapreduce", "sequential");
+    addOption("numThreads", "t", "(Optional) Number of features mined at the same time by the sequential version."
+              + " Default Value: 1", "1");
     addOption("encoding", "e", "(Optional) The file encoding.  Default value: UTF-8", "UTF-8");
     addFlag("useFPG2", "2", "Use an alternate FPG implementation");
 
@@ -111,6 +113,10 @@ public final class FPGrowthDriver extends AbstractJob {
       params.set("splitPattern", patternString);
     }
 
+    if (hasOption("numThreads")) {
+      params.set("numThreads", getOption("numThreads"));
+    }
+
     String encoding = "UTF-8";
     if (hasOption("encoding")) {
       encoding = getOption("encoding");
@@ -143,6 +149,7 @@ public final class FPGrowthDriver extends AbstractJob {
     log.info("Starting Sequential FPGrowth");
     int maxHeapSize = Integer.valueOf(params.get("maxHeapSize", "50"));
     int minSupport = Integer.valueOf(params.get("minSupport", "3"));
+    int numThreads = Integer.valueOf(params.get("numThreads", "1"));
 
     String output = params.get("output", "output.txt");
 
@@ -172,7 +179,8 @@ public final class FPGrowthDriver extends AbstractJob {
                 maxHeapSize,
                 features,
                 new StringOutputConverter(new SequenceFileOutputCollector<Text, TopKStringPatterns>(writer)),
-                new ContextStatusUpdater(null));
+                new ContextStatusUpdater(null),
+                numThreads);
       } finally {
         Closeables.closeQuietly(writer);
       }
@@ -189,7 +197,8 @@ public final class FPGrowthDriver extends AbstractJob {
                 maxHeapSize,
                 features,
                 new StringOutputConverter(new SequenceFileOutputCollector<Text, TopKStringPatterns>(writer)),
-                new ContextStatusUpdater(null));
+                new ContextStatusUpdater(null),
+                numThreads);
       } finally {
         Closeables.closeQuietly(writer);
       }
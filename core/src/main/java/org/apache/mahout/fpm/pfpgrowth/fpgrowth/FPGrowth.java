@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang.mutable.MutableLong;
@@ -129,6 +130,33 @@ public class FPGrowth<A extends Comparable<? super A>> {
                                                  Collection<A> returnableFeatures,
                                                  OutputCollector<A,List<Pair<List<A>,Long>>> output,
                                                  StatusUpdater updater) throws IOException {
+    generateTopKFrequentPatterns(transactionStream, frequencyList, minSupport, k, returnableFeatures, output,
+        updater, 1);
+  }
+
+  /**
+   * Generate Top K Frequent Patterns for every feature in returnableFeatures
+   * given a stream of transactions and the minimum support, mining several
+   * features at the same time.
+   * <p/>
+   * With a single thread, the minimum support raised while mining a feature
+   * carries over to the next ones. With several threads every feature is
+   * mined from the given minimum support, so that the patterns do not depend
+   * on the number of threads; they can then differ from the single-threaded
+   * ones when a heap of k patterns fills up.
+   *
+   * @param numThreads
+   *          number of features mined at the same time
+   * @see #generateTopKFrequentPatterns(Iterator, Collection, long, int, Collection, OutputCollector, StatusUpdater)
+   */
+  public final void generateTopKFrequentPatterns(Iterator<Pair<List<A>,Long>> transactionStream,
+                                                 Collection<Pair<A, Long>> frequencyList,
+                                                 long minSupport,
+                                                 int k,
+                                                 Collection<A> returnableFeatures,
+                                                 OutputCollector<A,List<Pair<List<A>,Long>>> output,
+                                                 StatusUpdater updater,
+                                                 int numThreads) throws IOException {
 
     Map<Integer,A> reverseMapping = Maps.newHashMap();
     Map<A,Integer> attributeIdMapping = Maps.newHashMap();
@@ -174,7 +202,7 @@ public class FPGrowth<A extends Comparable<? super A>> {
     generateTopKFrequentPatterns(new TransactionIterator<A>(transactionStream,
         attributeIdMapping), attributeFrequency, minSupport, k, reverseMapping
         .size(), returnFeatures, new TopKPatternsOutputConverter<A>(output,
-            reverseMapping), updater);
+            reverseMapping), updater, numThreads);
 
   }
 
@@ -209,7 +237,7 @@ public class FPGrowth<A extends Comparable<? super A>> {
         log.info("Mining FTree Tree for all patterns with {}", attribute);
         MutableLong minSupport = new MutableLong(minSupportValue);
         FrequentPatternMaxHeap frequentPatterns = growth(tree, minSupport, k,
-                                                         treeCache, 0, attribute, updater);
+                                                         treeCache, false, 0, attribute, updater);
         patterns.put(attribute, frequentPatterns);
         outputCollector.collect(attribute, frequentPatterns);
 
@@ -223,6 +251,61 @@ public class FPGrowth<A extends Comparable<? super A>> {
     return patterns;
   }
 
+  /**
+   * Top K FpGrowth Algorithm on several threads. Each thread mines its own
+   * {@link FPTree#conditionalView()} of the tree, and each feature starts from
+   * minSupportValue and only reuses first level trees built for the same
+   * support, so that its patterns do not depend on the features mined before
+   * by the same thread.
+   *
+   * @see #fpGrowth(FPTree, long, int, Collection, TopKPatternsOutputConverter, StatusUpdater)
+   */
+  private Map<Integer,FrequentPatternMaxHeap> parallelFpGrowth(final FPTree tree,
+                                                               final long minSupportValue,
+                                                               final int k,
+                                                               Collection<Integer> requiredFeatures,
+                                                               TopKPatternsOutputConverter<A> outputCollector,
+                                                               StatusUpdater updater,
+                                                               int numThreads) throws IOException {
+
+    List<Integer> features = Lists.newArrayList();
+    for (int i = tree.getHeaderTableCount() - 1; i >= 0; i--) {
+      int attribute = tree.getAttributeAtIndex(i);
+      if (requiredFeatures.contains(attribute)) {
+        features.add(attribute);
+      }
+    }
+    int[] attributes = new int[features.size()];
+    for (int i = 0; i < attributes.length; i++) {
+      attributes[i] = features.get(i);
+    }
+
+    FrequentPatternMaxHeap[] heaps = ParallelGrowth.mine(attributes, numThreads,
+        new Supplier<ParallelGrowth.AttributeMiner>() {
+          @Override
+          public ParallelGrowth.AttributeMiner get() {
+            final FPTree view = tree.conditionalView();
+            final FPTreeDepthCache treeCache = new FPTreeDepthCache();
+            return new ParallelGrowth.AttributeMiner() {
+              @Override
+              public FrequentPatternMaxHeap mine(int attribute, StatusUpdater updater) {
+                return growth(view, new MutableLong(minSupportValue), k, treeCache, true, 0, attribute,
+                    updater);
+              }
+            };
+          }
+        }, updater);
+
+    Map<Integer,FrequentPatternMaxHeap> patterns = Maps.newHashMap();
+    for (int i = 0; i < attributes.length; i++) {
+      log.info("Found {} Patterns with Least Support {} for {}",
+          new Object[] {heaps[i].count(), heaps[i].leastSupport(), attributes[i]});
+      patterns.put(attributes[i], heaps[i]);
+      outputCollector.collect(attributes[i], heaps[i]);
+    }
+    return patterns;
+  }
+
   private static FrequentPatternMaxHeap generateSinglePathPatterns(FPTree tree,
                                                                    int k,
                                                                    long minSupport) {
@@ -266,6 +349,8 @@ public class FPGrowth<A extends Comparable<? super A>> {
    * @param topKPatternsOutputCollector
    *          the outputCollector which transforms the given Pattern in integer
    *          format to the corresponding A Format
+   * @param numThreads
+   *          number of features mined at the same time
    * @return Top K frequent patterns for each attribute
    */
   private Map<Integer,FrequentPatternMaxHeap> generateTopKFrequentPatterns(
@@ -275,7 +360,8 @@ public class FPGrowth<A extends Comparable<? super A>> {
     int k,
     int featureSetSize,
     Collection<Integer> returnFeatures, TopKPatternsOutputConverter<A> topKPatternsOutputCollector,
-    StatusUpdater updater) throws IOException {
+    StatusUpdater updater,
+    int numThreads) throws IOException {
 
     FPTree tree = new FPTree(featureSetSize);
     for (int i = 0; i < featureSetSize; i++) {
@@ -299,6 +385,9 @@ public class FPGrowth<A extends Comparable<? super A>> {
 
     log.info("Number of Nodes in the FP Tree: {}", nodecount);
 
+    if (numThreads > 1) {
+      return parallelFpGrowth(tree, minSupport, k, returnFeatures, topKPatternsOutputCollector, updater, numThreads);
+    }
     return fpGrowth(tree, minSupport, k, returnFeatures, topKPatternsOutputCollector, updater);
   }
 
@@ -306,6 +395,7 @@ public class FPGrowth<A extends Comparable<? super A>> {
                                                MutableLong minSupportMutable,
                                                int k,
                                                FPTreeDepthCache treeCache,
+                                               boolean sameSupportTrees,
                                                int level,
                                                int currentAttribute,
                                                StatusUpdater updater) {
@@ -329,7 +419,9 @@ public class FPGrowth<A extends Comparable<? super A>> {
         continue;
       }
       updater.update("FPGrowth Algorithm for a given feature: " + attribute);
-      FPTree conditionalTree = treeCache.getFirstLevelTree(attribute);
+      FPTree conditionalTree = sameSupportTrees
+          ? treeCache.getFirstLevelTree(attribute, minSupportMutable.longValue())
+          : treeCache.getFirstLevelTree(attribute);
       if (conditionalTree.isEmpty()) {
         traverseAndBuildConditionalFPTreeData(tree.getHeaderNext(attribute),
           minSupportMutable.longValue(), conditionalTree, tree);
@@ -18,13 +18,17 @@
 package org.apache.mahout.fpm.pfpgrowth.fpgrowth;
 
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.TreeSet;
 
 /**
  * The Frequent Pattern Tree datastructure used for mining patterns using
  * {@link FPGrowth} algorithm
- * 
+ * <p/>
+ * Nodes are stored in parallel primitive arrays. The children of all the
+ * nodes share a single pool: each node with children owns a block of the
+ * pool that is moved to a block twice as large when it is full, and leaves
+ * own nothing. {@link #clear()} empties the pool and the header table
+ * without freeing them, so that a tree can be reused for every conditional
+ * tree built at the same depth.
  */
 public class FPTree {
   
@@ -33,25 +37,26 @@ public class FPTree {
   private static final int DEFAULT_HEADER_TABLE_INITIAL_SIZE = 4;
   private static final int DEFAULT_INITIAL_SIZE = 8;
   private static final float GROWTH_RATE = 1.5f;
-  private static final int HEADERTABLEBLOCKSIZE = 2;
-  private static final int HT_LAST = 1;
-  private static final int HT_NEXT = 0;
   
   private int[] attribute;
   private int[] childCount;
+  /** start of the children of each node in {@link #children}, -1 if it has none yet */
+  private int[] childStart;
+  /** the children of all the nodes */
+  private int[] children;
+  private int childrenSize;
   private int[] conditional;
   private long[] headerTableAttributeCount;
   private int[] headerTableAttributes;
   private int headerTableCount;
   private int[] headerTableLookup;
-  private int[][] headerTableProperties;
+  private int[] headerTableNext;
+  private int[] headerTableLast;
   private int[] next;
-  private int[][] nodeChildren;
   private long[] nodeCount;
   private int nodes;
   private int[] parent;
   private boolean singlePath;
-  private final Collection<Integer> sortedSet = new TreeSet<Integer>();
   
   public FPTree() {
     this(DEFAULT_INITIAL_SIZE);
@@ -68,26 +73,54 @@ public class FPTree {
     attribute = new int[size];
     nodeCount = new long[size];
     
-    nodeChildren = new int[size][];
+    childStart = new int[size];
+    children = new int[size];
     conditional = new int[size];
     
     headerTableAttributes = new int[DEFAULT_HEADER_TABLE_INITIAL_SIZE];
     headerTableAttributeCount = new long[DEFAULT_HEADER_TABLE_INITIAL_SIZE];
     headerTableLookup = new int[DEFAULT_HEADER_TABLE_INITIAL_SIZE];
     Arrays.fill(headerTableLookup, -1);
-    headerTableProperties = new int[DEFAULT_HEADER_TABLE_INITIAL_SIZE][];
+    headerTableNext = new int[DEFAULT_HEADER_TABLE_INITIAL_SIZE];
+    headerTableLast = new int[DEFAULT_HEADER_TABLE_INITIAL_SIZE];
     
     singlePath = true;
     createRootNode();
   }
-  
+
+  private FPTree(FPTree tree) {
+    attribute = tree.attribute;
+    childCount = tree.childCount;
+    childStart = tree.childStart;
+    children = tree.children;
+    childrenSize = tree.childrenSize;
+    conditional = new int[tree.conditional.length];
+    headerTableAttributeCount = tree.headerTableAttributeCount;
+    headerTableAttributes = tree.headerTableAttributes;
+    headerTableCount = tree.headerTableCount;
+    headerTableLookup = tree.headerTableLookup;
+    headerTableNext = tree.headerTableNext;
+    headerTableLast = tree.headerTableLast;
+    next = tree.next;
+    nodeCount = tree.nodeCount;
+    nodes = tree.nodes;
+    parent = tree.parent;
+    singlePath = tree.singlePath;
+  }
+
+  /**
+   * Conditional trees are built by marking the nodes of the tree they come from, so a tree cannot be mined by
+   * several threads at once. Each thread can instead mine its own view: a tree that shares all the nodes of
+   * this one but has its own marks. This tree must not be modified while views of it are in use.
+   *
+   * @return a view of this tree for one mining thread
+   */
+  public final FPTree conditionalView() {
+    return new FPTree(this);
+  }
+
   public final void addChild(int parentNodeId, int childnodeId) {
-    int length = childCount[parentNodeId];
-    if (length >= nodeChildren[parentNodeId].length) {
-      resizeChildren(parentNodeId);
-    }
-    nodeChildren[parentNodeId][length++] = childnodeId;
-    childCount[parentNodeId] = length;
+    int length = appendChild(parentNodeId, childnodeId);
     
     if (length > 1 && singlePath) {
       singlePath = false;
@@ -109,12 +142,12 @@ public class FPTree {
   
   public final void addHeaderNext(int attributeValue, int nodeId) {
     int index = getHeaderIndex(attributeValue);
-    if (headerTableProperties[index][HT_NEXT] == -1) {
-      headerTableProperties[index][HT_NEXT] = nodeId;
-      headerTableProperties[index][HT_LAST] = nodeId;
+    if (headerTableNext[index] == -1) {
+      headerTableNext[index] = nodeId;
+      headerTableLast[index] = nodeId;
     } else {
-      setNext(headerTableProperties[index][HT_LAST], nodeId);
-      headerTableProperties[index][HT_LAST] = nodeId;
+      setNext(headerTableLast[index], nodeId);
+      headerTableLast[index] = nodeId;
     }
   }
   
@@ -123,10 +156,10 @@ public class FPTree {
   }
   
   public final int childAtIndex(int nodeId, int index) {
-    if (childCount[nodeId] < index) {
+    if (childCount[nodeId] <= index) {
       return -1;
     }
-    return nodeChildren[nodeId][index];
+    return children[childStart[nodeId] + index];
   }
   
   public final int childCount(int nodeId) {
@@ -134,10 +167,11 @@ public class FPTree {
   }
   
   public final int childWithAttribute(int nodeId, int childAttribute) {
-    int length = childCount[nodeId];
-    for (int i = 0; i < length; i++) {
-      if (attribute[nodeChildren[nodeId][i]] == childAttribute) {
-        return nodeChildren[nodeId][i];
+    int start = childStart[nodeId];
+    int end = start + childCount[nodeId];
+    for (int i = start; i < end; i++) {
+      if (attribute[children[i]] == childAttribute) {
+        return children[i];
       }
     }
     return -1;
@@ -145,10 +179,12 @@ public class FPTree {
   
   public final void clear() {
     nodes = 0;
+    childrenSize = 0;
+    for (int i = 0; i < headerTableCount; i++) {
+      headerTableLookup[headerTableAttributes[i]] = -1;
+    }
     headerTableCount = 0;
     singlePath = true;
-    Arrays.fill(headerTableLookup, -1);
-    sortedSet.clear();
     createRootNode();
   }
   
@@ -171,16 +207,13 @@ public class FPTree {
       resize();
     }
     childCount[nodes] = 0;
+    childStart[nodes] = -1;
     next[nodes] = -1;
     parent[nodes] = -1;
     conditional[nodes] = 0;
     this.attribute[nodes] = attributeValue;
     nodeCount[nodes] = count;
     
-    if (nodeChildren[nodes] == null) {
-      nodeChildren[nodes] = new int[DEFAULT_CHILDREN_INITIAL_SIZE];
-    }
-    
     return nodes++;
   }
   
@@ -190,15 +223,13 @@ public class FPTree {
     }
     
     childCount[nodes] = 0;
+    childStart[nodes] = -1;
     next[nodes] = -1;
     parent[nodes] = parentNodeId;
     this.attribute[nodes] = attributeValue;
     nodeCount[nodes] = count;
     
     conditional[nodes] = 0;
-    if (nodeChildren[nodes] == null) {
-      nodeChildren[nodes] = new int[DEFAULT_CHILDREN_INITIAL_SIZE];
-    }
     
     int childNodeId = nodes++;
     addChild(parentNodeId, childNodeId);
@@ -208,13 +239,11 @@ public class FPTree {
   
   public final int createRootNode() {
     childCount[nodes] = 0;
+    childStart[nodes] = -1;
     next[nodes] = -1;
     parent[nodes] = 0;
     attribute[nodes] = -1;
     nodeCount[nodes] = 0;
-    if (nodeChildren[nodes] == null) {
-      nodeChildren[nodes] = new int[DEFAULT_CHILDREN_INITIAL_SIZE];
-    }
     return nodes++;
   }
   
@@ -224,7 +253,7 @@ public class FPTree {
   
   public final int getHeaderNext(int attributeValue) {
     int index = getHeaderIndex(attributeValue);
-    return headerTableProperties[index][HT_NEXT];
+    return headerTableNext[index];
   }
   
   public final long getHeaderSupportCount(int attributeValue) {
@@ -256,22 +285,20 @@ public class FPTree {
   
   public final void removeHeaderNext(int attributeValue) {
     int index = getHeaderIndex(attributeValue);
-    headerTableProperties[index][HT_NEXT] = -1;
+    headerTableNext[index] = -1;
   }
   
   public final void reorderHeaderTable() {
-    // Arrays.sort(headerTableAttributes, 0, headerTableCount);
-    int i = 0;
-    for (int attr : sortedSet) {
-      headerTableAttributes[i++] = attr;
-    }
+    // the header table holds every attribute once, in the order they were added
+    Arrays.sort(headerTableAttributes, 0, headerTableCount);
   }
   
   public void replaceChild(int parentNodeId, int replacableNode, int childnodeId) {
-    int max = childCount[parentNodeId];
-    for (int i = 0; i < max; i++) {
-      if (nodeChildren[parentNodeId][i] == replacableNode) {
-        nodeChildren[parentNodeId][i] = childnodeId;
+    int start = childStart[parentNodeId];
+    int end = start + childCount[parentNodeId];
+    for (int i = start; i < end; i++) {
+      if (children[i] == replacableNode) {
+        children[i] = childnodeId;
         parent[childnodeId] = parentNodeId;
       }
     }
@@ -296,13 +323,7 @@ public class FPTree {
   public final boolean setParent(int nodeId, int parentNode) {
     if (nodeId < nodes) {
       this.parent[nodeId] = parentNode;
-      
-      int length = childCount[parentNode];
-      if (length >= nodeChildren[parentNode].length) {
-        resizeChildren(parentNode);
-      }
-      nodeChildren[parentNode][length++] = nodeId;
-      childCount[parentNode] = length;
+      appendChild(parentNode, nodeId);
       return true;
     }
     return false;
@@ -316,6 +337,39 @@ public class FPTree {
     return singlePath;
   }
   
+  /**
+   * @return the new number of children of the parent
+   */
+  private int appendChild(int parentNodeId, int childnodeId) {
+    int length = childCount[parentNodeId];
+    if (length == 0) {
+      childStart[parentNodeId] = allocateChildren(DEFAULT_CHILDREN_INITIAL_SIZE);
+    } else if (length >= DEFAULT_CHILDREN_INITIAL_SIZE && (length & (length - 1)) == 0) {
+      // blocks have a power of two size, this one is full
+      int start = allocateChildren(length << 1);
+      System.arraycopy(children, childStart[parentNodeId], children, start, length);
+      childStart[parentNodeId] = start;
+    }
+    children[childStart[parentNodeId] + length++] = childnodeId;
+    childCount[parentNodeId] = length;
+    return length;
+  }
+  
+  /**
+   * @return the start of a new block of the given size in the children pool
+   */
+  private int allocateChildren(int size) {
+    if (childrenSize + size > children.length) {
+      int newSize = Math.max((int) (GROWTH_RATE * children.length), childrenSize + size);
+      int[] oldChildren = children;
+      children = new int[newSize];
+      System.arraycopy(oldChildren, 0, children, 0, childrenSize);
+    }
+    int start = childrenSize;
+    childrenSize += size;
+    return start;
+  }
+  
   private int getHeaderIndex(int attributeValue) {
     if (attributeValue >= headerTableLookup.length) {
       resizeHeaderLookup(attributeValue);
@@ -326,15 +380,11 @@ public class FPTree {
         resizeHeaderTable();
       }
       headerTableAttributes[headerTableCount] = attributeValue;
-      if (headerTableProperties[headerTableCount] == null) {
-        headerTableProperties[headerTableCount] = new int[HEADERTABLEBLOCKSIZE];
-      }
       headerTableAttributeCount[headerTableCount] = 0;
-      headerTableProperties[headerTableCount][HT_NEXT] = -1;
-      headerTableProperties[headerTableCount][HT_LAST] = -1;
+      headerTableNext[headerTableCount] = -1;
+      headerTableLast[headerTableCount] = -1;
       index = headerTableCount++;
       headerTableLookup[attributeValue] = index;
-      sortedSet.add(attributeValue);
     }
     return index;
   }
@@ -345,41 +395,13 @@ public class FPTree {
       size = DEFAULT_INITIAL_SIZE;
     }
     
-    int[] oldChildCount = childCount;
-    int[] oldAttribute = attribute;
-    long[] oldnodeCount = nodeCount;
-    int[] oldParent = parent;
-    int[] oldNext = next;
-    int[][] oldNodeChildren = nodeChildren;
-    int[] oldConditional = conditional;
-    
-    childCount = new int[size];
-    attribute = new int[size];
-    nodeCount = new long[size];
-    parent = new int[size];
-    next = new int[size];
-    
-    nodeChildren = new int[size][];
-    conditional = new int[size];
-    
-    System.arraycopy(oldChildCount, 0, this.childCount, 0, nodes);
-    System.arraycopy(oldAttribute, 0, this.attribute, 0, nodes);
-    System.arraycopy(oldnodeCount, 0, this.nodeCount, 0, nodes);
-    System.arraycopy(oldParent, 0, this.parent, 0, nodes);
-    System.arraycopy(oldNext, 0, this.next, 0, nodes);
-    System.arraycopy(oldNodeChildren, 0, this.nodeChildren, 0, nodes);
-    System.arraycopy(oldConditional, 0, this.conditional, 0, nodes);
-  }
-  
-  private void resizeChildren(int nodeId) {
-    int length = childCount[nodeId];
-    int size = (int) (GROWTH_RATE * length);
-    if (size < DEFAULT_CHILDREN_INITIAL_SIZE) {
-      size = DEFAULT_CHILDREN_INITIAL_SIZE;
-    }
-    int[] oldNodeChildren = nodeChildren[nodeId];
-    nodeChildren[nodeId] = new int[size];
-    System.arraycopy(oldNodeChildren, 0, this.nodeChildren[nodeId], 0, length);
+    childCount = Arrays.copyOf(childCount, size);
+    childStart = Arrays.copyOf(childStart, size);
+    attribute = Arrays.copyOf(attribute, size);
+    nodeCount = Arrays.copyOf(nodeCount, size);
+    parent = Arrays.copyOf(parent, size);
+    next = Arrays.copyOf(next, size);
+    conditional = Arrays.copyOf(conditional, size);
   }
   
   private void resizeHeaderLookup(int attributeValue) {
@@ -396,18 +418,10 @@ public class FPTree {
       size = DEFAULT_HEADER_TABLE_INITIAL_SIZE;
     }
     
-    int[] oldAttributes = headerTableAttributes;
-    long[] oldAttributeCount = headerTableAttributeCount;
-    int[][] oldProperties = headerTableProperties;
-    headerTableAttributes = new int[size];
-    headerTableAttributeCount = new long[size];
-    headerTableProperties = new int[size][];
-    System.arraycopy(oldAttributes, 0, this.headerTableAttributes, 0,
-      headerTableCount);
-    System.arraycopy(oldAttributeCount, 0, this.headerTableAttributeCount, 0,
-      headerTableCount);
-    System.arraycopy(oldProperties, 0, this.headerTableProperties, 0,
-      headerTableCount);
+    headerTableAttributes = Arrays.copyOf(headerTableAttributes, size);
+    headerTableAttributeCount = Arrays.copyOf(headerTableAttributeCount, size);
+    headerTableNext = Arrays.copyOf(headerTableNext, size);
+    headerTableLast = Arrays.copyOf(headerTableLast, size);
   }
 
   private void toStringHelper(StringBuilder sb, int currNode, String prefix) {
@@ -425,7 +439,7 @@ public class FPTree {
         fakePre.append(' ');
       }
       for (int i = 0; i < childCount[currNode]; i++) {
-        toStringHelper(sb, nodeChildren[currNode][i], (i == 0 ? newPre : fakePre).toString() + '-' + i + "->");
+        toStringHelper(sb, childAtIndex(currNode, i), (i == 0 ? newPre : fakePre).toString() + '-' + i + "->");
       }
     }
   }
@@ -18,8 +18,10 @@
 package org.apache.mahout.fpm.pfpgrowth.fpgrowth;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Caches large FPTree {@link Object} for each level of the recursive
@@ -27,22 +29,57 @@ import java.util.List;
  */
 public class FPTreeDepthCache {
 
+  /** minimum support of the first level trees which {@link #getFirstLevelTree(Integer)} reuses whatever it is */
+  private static final long ANY_SUPPORT = -1L;
+
   private final LeastKCache<Integer,FPTree> firstLevelCache = new LeastKCache<Integer,FPTree>(5);
+  /** minimum support each tree in the first level cache was built for */
+  private final Map<FPTree,Long> firstLevelSupport = Maps.newIdentityHashMap();
   private int hits;
   private int misses;
+  /** last tree evicted from the first level cache, reused for the next miss */
+  private FPTree spare;
   private final List<FPTree> treeCache = Lists.newArrayList();
   
+  /**
+   * @return the cached conditional tree of attr, whatever minimum support it was built for, or an empty tree
+   *         the caller has to build when there is none
+   */
   public final FPTree getFirstLevelTree(Integer attr) {
+    return getFirstLevelTree(attr, ANY_SUPPORT);
+  }
+
+  /**
+   * @return the conditional tree of attr built for minSupport, or an empty tree the caller has to build when
+   *         there is none, so that the tree never depends on what was mined before
+   */
+  public final FPTree getFirstLevelTree(Integer attr, long minSupport) {
     FPTree tree = firstLevelCache.get(attr);
     if (tree != null) {
-      hits++;
+      if (minSupport == ANY_SUPPORT || firstLevelSupport.get(tree) == minSupport) {
+        hits++;
+        return tree;
+      }
+      misses++;
+      tree.clear();
+      firstLevelSupport.put(tree, minSupport);
       return tree;
+    }
+    misses++;
+    FPTree conditionalTree;
+    if (spare == null) {
+      conditionalTree = new FPTree();
     } else {
-      misses++;
-      FPTree conditionalTree = new FPTree();
-      firstLevelCache.set(attr, conditionalTree);
-      return conditionalTree;
+      // the caller is done with the previous first level tree when it asks for the next one
+      conditionalTree = spare;
+      conditionalTree.clear();
     }
+    firstLevelSupport.put(conditionalTree, minSupport);
+    spare = firstLevelCache.set(attr, conditionalTree);
+    if (spare != null) {
+      firstLevelSupport.remove(spare);
+    }
+    return conditionalTree;
   }
   
   public final int getHits() {
@@ -39,15 +39,20 @@ public class LeastKCache<K extends Comparable<? super K>,V> {
     return cache.get(key);
   }
   
-  public final void set(K key, V value) {
+  /**
+   * @return the value evicted to make room for the new one, null if none was
+   */
+  public final V set(K key, V value) {
     if (!contains(key)) {
       queue.add(key);
     }
     cache.put(key, value);
+    V evicted = null;
     while (queue.size() > capacity) {
       K k = queue.poll();
-      cache.remove(k);
+      evicted = cache.remove(k);
     }
+    return evicted;
   }
   
   public final long size() {
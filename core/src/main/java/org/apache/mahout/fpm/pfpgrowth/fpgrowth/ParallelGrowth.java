@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.fpm.pfpgrowth.fpgrowth;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.mahout.fpm.pfpgrowth.convertors.StatusUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mines the top K patterns of several features at the same time, on the threads of the local machine. Features
+ * are handed out one at a time, in the given order, to miners that each thread gets from a {@link Supplier}, so
+ * a miner may keep buffers that are only used by its own thread.
+ */
+public final class ParallelGrowth {
+
+  private static final Logger log = LoggerFactory.getLogger(ParallelGrowth.class);
+
+  /**
+   * Mines the patterns of one feature at a time. An instance is only used by a single thread.
+   */
+  public interface AttributeMiner {
+    FrequentPatternMaxHeap mine(int attribute, StatusUpdater updater);
+  }
+
+  private ParallelGrowth() { }
+
+  /**
+   * @param attributes
+   *          the features to mine
+   * @param miners
+   *          called once by each thread to get its miner
+   * @param updater
+   *          shared by all threads, calls are synchronized
+   * @return the top K patterns of each feature, in the same order as the features
+   */
+  public static FrequentPatternMaxHeap[] mine(final int[] attributes,
+                                              int numThreads,
+                                              final Supplier<? extends AttributeMiner> miners,
+                                              StatusUpdater updater) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    final FrequentPatternMaxHeap[] patterns = new FrequentPatternMaxHeap[attributes.length];
+    final StatusUpdater sharedUpdater = new SynchronizedUpdater(updater);
+    final AtomicInteger nextAttribute = new AtomicInteger();
+    Callable<Void> worker = new Callable<Void>() {
+      @Override
+      public Void call() {
+        AttributeMiner miner = miners.get();
+        int index;
+        while ((index = nextAttribute.getAndIncrement()) < attributes.length) {
+          patterns[index] = miner.mine(attributes[index], sharedUpdater);
+        }
+        return null;
+      }
+    };
+
+    int workers = Math.max(1, Math.min(numThreads, attributes.length));
+    long start = System.currentTimeMillis();
+    ExecutorService pool = Executors.newFixedThreadPool(workers,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("fpgrowth-%d").build());
+    try {
+      List<Future<Void>> futures = Lists.newArrayListWithCapacity(workers);
+      for (int i = 0; i < workers; i++) {
+        futures.add(pool.submit(worker));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    log.info("Mined {} features in {} ms on {} threads",
+        new Object[] {attributes.length, System.currentTimeMillis() - start, workers});
+    return patterns;
+  }
+
+  private static final class SynchronizedUpdater implements StatusUpdater {
+
+    private final StatusUpdater delegate;
+
+    SynchronizedUpdater(StatusUpdater delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void update(String status) {
+      delegate.update(status);
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -45,6 +46,7 @@ import org.slf4j.LoggerFactory;
 
 import  org.apache.mahout.fpm.pfpgrowth.fpgrowth.Pattern;
 import  org.apache.mahout.fpm.pfpgrowth.fpgrowth.FrequentPatternMaxHeap;
+import  org.apache.mahout.fpm.pfpgrowth.fpgrowth.ParallelGrowth;
 /**
  * Implementation of PFGrowth Algorithm
  */
@@ -90,6 +92,27 @@ public class FPGrowthIds {
                                                  IntArrayList returnableFeatures,
                                                  OutputCollector<Integer,List<Pair<List<Integer>,Long>>> output,
                                                  StatusUpdater updater) throws IOException {
+    generateTopKFrequentPatterns(transactionStream, attributeFrequency, minSupport, k, returnableFeatures, output,
+        updater, 1);
+  }
+
+  /**
+   * Generate Top K Frequent Patterns for every feature in returnableFeatures,
+   * mining several features at the same time. The patterns are the same as
+   * with a single thread.
+   *
+   * @param numThreads
+   *          number of features mined at the same time
+   * @throws IOException
+   */
+  public final void generateTopKFrequentPatterns(Iterator<Pair<IntArrayList,Long>> transactionStream,
+                                                 LongArrayList attributeFrequency,
+                                                 long minSupport,
+                                                 int k,
+                                                 IntArrayList returnableFeatures,
+                                                 OutputCollector<Integer,List<Pair<List<Integer>,Long>>> output,
+                                                 StatusUpdater updater,
+                                                 int numThreads) throws IOException {
 
     for (int i = 0; i < attributeFrequency.size(); i++) {
       if (attributeFrequency.get(i) < minSupport) {
@@ -111,7 +134,7 @@ public class FPGrowthIds {
     log.info("Number of unique pruned items {}", attributeFrequency.size());
     generateTopKFrequentPatterns(transactionStream, attributeFrequency,
         minSupport, k, returnableFeatures,
-        new TopKPatternsOutputConverter<Integer>(output, new IdentityMapping()), updater);
+        new TopKPatternsOutputConverter<Integer>(output, new IdentityMapping()), updater, numThreads);
   }
 
   private static class IdentityMapping extends AbstractMap<Integer, Integer> {
@@ -142,17 +165,47 @@ public class FPGrowthIds {
    * @param outputCollector
    *          the Collector class which converts the given frequent pattern in
    *          integer to A
+   * @param numThreads
+   *          number of features mined at the same time; the tree is only read
+   *          and every feature is mined from minSupportValue, so the threads
+   *          can share it
    * @return Top K Frequent Patterns for each feature and their support
    */
-  private Map<Integer,FrequentPatternMaxHeap> fpGrowth(FPTree tree,
+  private Map<Integer,FrequentPatternMaxHeap> fpGrowth(final FPTree tree,
                                                        long minSupportValue,
-                                                       int k,
+                                                       final int k,
                                                        IntArrayList requiredFeatures,
                                                        TopKPatternsOutputConverter<Integer> outputCollector,
-                                                       StatusUpdater updater) throws IOException {
+                                                       StatusUpdater updater,
+                                                       int numThreads) throws IOException {
 
     Map<Integer,FrequentPatternMaxHeap> patterns = Maps.newHashMap();
     requiredFeatures.sort();
+    if (numThreads > 1) {
+      final long minSupport = minSupportValue;
+      List<Integer> features = Lists.newArrayList();
+      for (int attribute : tree.attrIterableRev()) {
+        if (requiredFeatures.binarySearch(attribute) >= 0) {
+          features.add(attribute);
+        }
+      }
+      int[] attributes = new int[features.size()];
+      for (int i = 0; i < attributes.length; i++) {
+        attributes[i] = features.get(i);
+      }
+      FrequentPatternMaxHeap[] heaps = ParallelGrowth.mine(attributes, numThreads,
+          Suppliers.ofInstance(new ParallelGrowth.AttributeMiner() {
+            @Override
+            public FrequentPatternMaxHeap mine(int attribute, StatusUpdater updater) {
+              return growth(tree, new MutableLong(minSupport), k, attribute, updater);
+            }
+          }), updater);
+      for (int i = 0; i < attributes.length; i++) {
+        patterns.put(attributes[i], heaps[i]);
+        outputCollector.collect(attributes[i], heaps[i]);
+      }
+      return patterns;
+    }
     for (int attribute : tree.attrIterableRev()) {
       if (requiredFeatures.binarySearch(attribute) >= 0) {
         log.info("Mining FTree Tree for all patterns with {}", attribute);
@@ -200,7 +253,8 @@ public class FPGrowthIds {
     int k,
     IntArrayList returnFeatures, 
     TopKPatternsOutputConverter<Integer> topKPatternsOutputCollector,
-    StatusUpdater updater) throws IOException {
+    StatusUpdater updater,
+    int numThreads) throws IOException {
 
     FPTree tree = new FPTree(attributeFrequency, minSupport);
 
@@ -219,7 +273,7 @@ public class FPGrowthIds {
 
     log.info("Number of Nodes in the FP Tree: {}", nodecount);
 
-    return fpGrowth(tree, minSupport, k, returnFeatures, topKPatternsOutputCollector, updater);
+    return fpGrowth(tree, minSupport, k, returnFeatures, topKPatternsOutputCollector, updater, numThreads);
   }
 
   /** 
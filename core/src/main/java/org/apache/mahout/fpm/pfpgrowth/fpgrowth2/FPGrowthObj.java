@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -47,6 +48,7 @@ import org.slf4j.LoggerFactory;
 
 import  org.apache.mahout.fpm.pfpgrowth.fpgrowth.Pattern;
 import  org.apache.mahout.fpm.pfpgrowth.fpgrowth.FrequentPatternMaxHeap;
+import  org.apache.mahout.fpm.pfpgrowth.fpgrowth.ParallelGrowth;
 /**
  * Implementation of PFGrowth Algorithm
  *
@@ -131,6 +133,27 @@ public class FPGrowthObj<A extends Comparable<? super A>> {
                                                  Collection<A> returnableFeatures,
                                                  OutputCollector<A,List<Pair<List<A>,Long>>> output,
                                                  StatusUpdater updater) throws IOException {
+    generateTopKFrequentPatterns(transactionStream, frequencyList, minSupport, k, returnableFeatures, output,
+        updater, 1);
+  }
+
+  /**
+   * Generate Top K Frequent Patterns for every feature in returnableFeatures,
+   * mining several features at the same time. The patterns are the same as
+   * with a single thread.
+   *
+   * @param numThreads
+   *          number of features mined at the same time
+   * @throws IOException
+   */
+  public final void generateTopKFrequentPatterns(Iterator<Pair<List<A>,Long>> transactionStream,
+                                                 Collection<Pair<A, Long>> frequencyList,
+                                                 long minSupport,
+                                                 int k,
+                                                 Collection<A> returnableFeatures,
+                                                 OutputCollector<A,List<Pair<List<A>,Long>>> output,
+                                                 StatusUpdater updater,
+                                                 int numThreads) throws IOException {
 
     Map<Integer,A> reverseMapping = Maps.newHashMap();
     Map<A,Integer> attributeIdMapping = Maps.newHashMap();
@@ -176,7 +199,7 @@ public class FPGrowthObj<A extends Comparable<? super A>> {
     generateTopKFrequentPatterns(new TransactionIterator<A>(transactionStream,
         attributeIdMapping), attributeFrequency, minSupport, k, 
         returnFeatures, new TopKPatternsOutputConverter<A>(output,
-            reverseMapping), updater);
+            reverseMapping), updater, numThreads);
   }
 
   /**
@@ -193,16 +216,46 @@ public class FPGrowthObj<A extends Comparable<? super A>> {
    * @param outputCollector
    *          the Collector class which converts the given frequent pattern in
    *          integer to A
+   * @param numThreads
+   *          number of features mined at the same time; the tree is only read
+   *          and every feature is mined from minSupportValue, so the threads
+   *          can share it
    * @return Top K Frequent Patterns for each feature and their support
    */
-  private Map<Integer,FrequentPatternMaxHeap> fpGrowth(FPTree tree,
+  private Map<Integer,FrequentPatternMaxHeap> fpGrowth(final FPTree tree,
                                                        long minSupportValue,
-                                                       int k,
+                                                       final int k,
                                                        Collection<Integer> requiredFeatures,
                                                        TopKPatternsOutputConverter<A> outputCollector,
-                                                       StatusUpdater updater) throws IOException {
+                                                       StatusUpdater updater,
+                                                       int numThreads) throws IOException {
 
     Map<Integer,FrequentPatternMaxHeap> patterns = Maps.newHashMap();
+    if (numThreads > 1) {
+      final long minSupport = minSupportValue;
+      List<Integer> features = Lists.newArrayList();
+      for (int attribute : tree.attrIterableRev()) {
+        if (requiredFeatures.contains(attribute)) {
+          features.add(attribute);
+        }
+      }
+      int[] attributes = new int[features.size()];
+      for (int i = 0; i < attributes.length; i++) {
+        attributes[i] = features.get(i);
+      }
+      FrequentPatternMaxHeap[] heaps = ParallelGrowth.mine(attributes, numThreads,
+          Suppliers.ofInstance(new ParallelGrowth.AttributeMiner() {
+            @Override
+            public FrequentPatternMaxHeap mine(int attribute, StatusUpdater updater) {
+              return growth(tree, new MutableLong(minSupport), k, attribute, updater);
+            }
+          }), updater);
+      for (int i = 0; i < attributes.length; i++) {
+        patterns.put(attributes[i], heaps[i]);
+        outputCollector.collect(attributes[i], heaps[i]);
+      }
+      return patterns;
+    }
     for (int attribute : tree.attrIterableRev()) {
       if (requiredFeatures.contains(attribute)) {
         log.info("Mining FTree Tree for all patterns with {}", attribute);
@@ -250,7 +303,8 @@ public class FPGrowthObj<A extends Comparable<? super A>> {
     int k,
     //int featureSetSize,
     Collection<Integer> returnFeatures, TopKPatternsOutputConverter<A> topKPatternsOutputCollector,
-    StatusUpdater updater) throws IOException {
+    StatusUpdater updater,
+    int numThreads) throws IOException {
 
     FPTree tree = new FPTree(attributeFrequency, minSupport);
 
@@ -272,7 +326,7 @@ public class FPGrowthObj<A extends Comparable<? super A>> {
 
     log.info("Number of Nodes in the FP Tree: {}", nodecount);
 
-    return fpGrowth(tree, minSupport, k, returnFeatures, topKPatternsOutputCollector, updater);
+    return fpGrowth(tree, minSupport, k, returnFeatures, topKPatternsOutputCollector, updater, numThreads);
   }
 
   /** 
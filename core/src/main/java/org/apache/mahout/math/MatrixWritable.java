@@ -118,23 +118,55 @@ public class MatrixWritable implements Writable {
       r = new SparseRowMatrix(rows, columns, !sequential);
     }
 
-    for (int row = 0; row < rows; row++) {
-      r.viewRow(row).assign(VectorWritable.readVector(in));
+    readRows(in, r);
+    if (hasLabels) {
+      readLabels(in, r);
     }
+    return r;
+  }
 
-    if (hasLabels) {
-      Map<String,Integer> columnLabelBindings = Maps.newHashMap();
-      Map<String,Integer> rowLabelBindings = Maps.newHashMap();
-      readLabels(in, columnLabelBindings, rowLabelBindings);
-      if (!columnLabelBindings.isEmpty()) {
-        r.setColumnLabelBindings(columnLabelBindings);
-      }
-      if (!rowLabelBindings.isEmpty()) {
-        r.setRowLabelBindings(rowLabelBindings);
-      }
+  /**
+   * Reads a matrix written by {@link #writeMatrix(DataOutput, Matrix)} into an existing matrix of the same shape,
+   * row by row through {@link Matrix#viewRow(int)}, so that for instance an {@link OffHeapDenseMatrix} can be filled
+   * without building an on-heap copy first.
+   *
+   * @return {@code into}
+   * @throws CardinalityException if the stored matrix does not have the shape of {@code into}
+   */
+  public static Matrix readMatrix(DataInput in, Matrix into) throws IOException {
+    int flags = in.readInt();
+    Preconditions.checkArgument(flags >> NUM_FLAGS == 0, "Unknown flags set: %d", Integer.toString(flags, 2));
+    int rows = in.readInt();
+    int columns = in.readInt();
+    if (rows != into.rowSize()) {
+      throw new CardinalityException(into.rowSize(), rows);
     }
+    if (columns != into.columnSize()) {
+      throw new CardinalityException(into.columnSize(), columns);
+    }
+    readRows(in, into);
+    if ((flags & FLAG_LABELS) != 0) {
+      readLabels(in, into);
+    }
+    return into;
+  }
 
-    return r;
+  private static void readRows(DataInput in, Matrix m) throws IOException {
+    for (int row = 0; row < m.rowSize(); row++) {
+      VectorWritable.readVector(in, m.viewRow(row));
+    }
+  }
+
+  private static void readLabels(DataInput in, Matrix m) throws IOException {
+    Map<String,Integer> columnLabelBindings = Maps.newHashMap();
+    Map<String,Integer> rowLabelBindings = Maps.newHashMap();
+    readLabels(in, columnLabelBindings, rowLabelBindings);
+    if (!columnLabelBindings.isEmpty()) {
+      m.setColumnLabelBindings(columnLabelBindings);
+    }
+    if (!rowLabelBindings.isEmpty()) {
+      m.setRowLabelBindings(rowLabelBindings);
+    }
   }
 
   /** Writes a typed Matrix instance to the output stream */
@@ -82,8 +82,7 @@ public final class VectorWritable extends Configured implements Writable {
 
   @Override
   public void readFields(DataInput in) throws IOException {
-    int flags = in.readByte();
-    Preconditions.checkArgument(flags >> NUM_FLAGS == 0, "Unknown flags set: %d", Integer.toString(flags, 2));
+    int flags = readFlags(in);
     boolean dense = (flags & FLAG_DENSE) != 0;
     boolean sequential = (flags & FLAG_SEQUENTIAL) != 0;
     boolean named = (flags & FLAG_NAMED) != 0;
@@ -92,32 +91,14 @@ public final class VectorWritable extends Configured implements Writable {
     int size = Varint.readUnsignedVarInt(in);
     Vector v;
     if (dense) {
-      double[] values = new double[size];
-      for (int i = 0; i < size; i++) {
-        values[i] = laxPrecision ? in.readFloat() : in.readDouble();
-      }
-      v = new DenseVector(values);
+      v = new DenseVector(size);
+      readDenseElements(in, v, laxPrecision);
     } else {
       int numNonDefaultElements = Varint.readUnsignedVarInt(in);
       v = sequential
           ? new SequentialAccessSparseVector(size, numNonDefaultElements)
           : new RandomAccessSparseVector(size, numNonDefaultElements);
-      if (sequential) {
-        int lastIndex = 0;
-        for (int i = 0; i < numNonDefaultElements; i++) {
-          int delta = Varint.readUnsignedVarInt(in);
-          int index = lastIndex + delta;
-          lastIndex = index;
-          double value = laxPrecision ? in.readFloat() : in.readDouble();
-          v.setQuick(index, value);
-        }
-      } else {
-        for (int i = 0; i < numNonDefaultElements; i++) {
-          int index = Varint.readUnsignedVarInt(in);
-          double value = laxPrecision ? in.readFloat() : in.readDouble();
-          v.setQuick(index, value);
-        }
-      }
+      readSparseElements(in, v, numNonDefaultElements, sequential, laxPrecision);
     }
     if (named) {
       String name = in.readUTF();
@@ -126,6 +107,42 @@ public final class VectorWritable extends Configured implements Writable {
     vector = v;
   }
 
+  private static int readFlags(DataInput in) throws IOException {
+    int flags = in.readByte();
+    Preconditions.checkArgument(flags >> NUM_FLAGS == 0, "Unknown flags set: %d", Integer.toString(flags, 2));
+    return flags;
+  }
+
+  private static void readDenseElements(DataInput in, Vector v, boolean laxPrecision) throws IOException {
+    int size = v.size();
+    for (int i = 0; i < size; i++) {
+      v.setQuick(i, laxPrecision ? in.readFloat() : in.readDouble());
+    }
+  }
+
+  private static void readSparseElements(DataInput in,
+                                         Vector v,
+                                         int numNonDefaultElements,
+                                         boolean sequential,
+                                         boolean laxPrecision) throws IOException {
+    if (sequential) {
+      int lastIndex = 0;
+      for (int i = 0; i < numNonDefaultElements; i++) {
+        int delta = Varint.readUnsignedVarInt(in);
+        int index = lastIndex + delta;
+        lastIndex = index;
+        double value = laxPrecision ? in.readFloat() : in.readDouble();
+        v.setQuick(index, value);
+      }
+    } else {
+      for (int i = 0; i < numNonDefaultElements; i++) {
+        int index = Varint.readUnsignedVarInt(in);
+        double value = laxPrecision ? in.readFloat() : in.readDouble();
+        v.setQuick(index, value);
+      }
+    }
+  }
+
   /** Write the vector to the output */
   public static void writeVector(DataOutput out, Vector vector) throws IOException {
     writeVector(out, vector, false);
@@ -191,6 +208,34 @@ public final class VectorWritable extends Configured implements Writable {
     return v.get();
   }
 
+  /**
+   * Reads a vector written by {@link #writeVector(DataOutput, Vector, boolean)} straight into an existing vector of
+   * the same size, such as a row of a {@link DenseFloatMatrix} or an {@link OffHeapDenseVector}, instead of
+   * allocating a new one. Elements absent from a sparse encoding are set to zero; any name is read and dropped.
+   *
+   * @return {@code into}
+   * @throws CardinalityException if the stored vector does not have the size of {@code into}
+   */
+  public static Vector readVector(DataInput in, Vector into) throws IOException {
+    int flags = readFlags(in);
+    boolean laxPrecision = (flags & FLAG_LAX_PRECISION) != 0;
+    int size = Varint.readUnsignedVarInt(in);
+    if (size != into.size()) {
+      throw new CardinalityException(into.size(), size);
+    }
+    if ((flags & FLAG_DENSE) != 0) {
+      readDenseElements(in, into, laxPrecision);
+    } else {
+      int numNonDefaultElements = Varint.readUnsignedVarInt(in);
+      into.assign(0.0);
+      readSparseElements(in, into, numNonDefaultElements, (flags & FLAG_SEQUENTIAL) != 0, laxPrecision);
+    }
+    if ((flags & FLAG_NAMED) != 0) {
+      in.readUTF();
+    }
+    return into;
+  }
+
   public static VectorWritable merge(Iterator<VectorWritable> vectors) {
     Vector accumulator = vectors.next().get();
     while (vectors.hasNext()) {
@@ -1,5 +1,8 @@
 package org.apache.mahout.math.ssvd;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.mahout.math.CholeskyDecomposition;
 import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
@@ -9,6 +12,8 @@ import org.apache.mahout.math.RandomTrinaryMatrix;
 import org.apache.mahout.math.SingularValueDecomposition;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.function.Functions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -16,6 +21,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Sequential block-oriented out of core SVD algorithm.
@@ -84,149 +98,312 @@ import java.io.IOException;
  * U = A \Omega R^{-1} U_0
  * <p/>
  * V = B' L'^{-1} V_0
+ * <p/>
+ * All the passes can use several threads.  The blocks of A and the slices of B are processed
+ * concurrently, except while B is computed, where the blocks of A are taken one at a time and their
+ * column slices are processed concurrently.  In every pass, the next blocks are read from disk on a
+ * separate thread while the current ones are being computed on.
  */
 public class SequentialOutOfCoreSvd {
 
+  private static final Logger log = LoggerFactory.getLogger(SequentialOutOfCoreSvd.class);
+
   private final CholeskyDecomposition l2;
   private final SingularValueDecomposition svd;
   private final CholeskyDecomposition r2;
   private final int columnsPerSlice;
   private final int seed;
   private final int dim;
+  private final int numThreads;
 
   public SequentialOutOfCoreSvd(Iterable<File> partsOfA, File tmpDir, int internalDimension, int columnsPerSlice) throws IOException {
+    this(partsOfA, tmpDir, internalDimension, columnsPerSlice, 1);
+  }
+
+  public SequentialOutOfCoreSvd(Iterable<File> partsOfA, final File tmpDir, int internalDimension, int columnsPerSlice,
+                                int numThreads) throws IOException {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
     this.columnsPerSlice = columnsPerSlice;
     this.dim = internalDimension;
+    this.numThreads = numThreads;
 
     seed = 1;
-    Matrix y2 = null;
+    List<File> files = Lists.newArrayList(partsOfA);
 
     // step 1, compute R as in R'R = Y'Y where Y = A \Omega
-    for (File file : partsOfA) {
-      MatrixWritable m = new MatrixWritable();
-      DataInputStream in = new DataInputStream(new FileInputStream(file));
-      try {
-        m.readFields(in);
-      } finally {
-        in.close();
-      }
-
-      Matrix aI = m.get();
-      Matrix omega = new RandomTrinaryMatrix(seed, aI.columnSize(), internalDimension, false);
-      Matrix y = aI.times(omega);
-
-      if (y2 == null) {
-        y2 = y.transpose().times(y);
-      } else {
-        y2.assign(y.transpose().times(y), Functions.PLUS);
+    long start = System.currentTimeMillis();
+    List<YtYWorker> yWorkers = Lists.newArrayList();
+    for (int i = 0; i < numThreads; i++) {
+      yWorkers.add(new YtYWorker());
+    }
+    forEachBlock(files, yWorkers);
+    Matrix y2 = new DenseMatrix(internalDimension, internalDimension);
+    for (YtYWorker worker : yWorkers) {
+      if (worker.y2 != null) {
+        y2.assign(worker.y2, Functions.PLUS);
       }
     }
     r2 = new CholeskyDecomposition(y2);
+    log.info("Computed Y'Y of {} blocks in {} ms", files.size(), System.currentTimeMillis() - start);
 
-    // step 2, compute B
-    int ncols = 0;
-    for (File file : partsOfA) {
-      MatrixWritable m = new MatrixWritable();
-      final DataInputStream in = new DataInputStream(new FileInputStream(file));
-      try {
-        m.readFields(in);
-      } finally {
-        in.close();
-      }
-      Matrix aI = m.get();
-      ncols = Math.max(ncols, aI.columnSize());
-
-      Matrix omega = new RandomTrinaryMatrix(seed, aI.numCols(), internalDimension, false);
-      for (int j = 0; j < aI.numCols(); j += columnsPerSlice) {
-        Matrix yI = aI.times(omega);
-        Matrix aIJ = aI.viewPart(0, aI.rowSize(), j, Math.min(columnsPerSlice, aI.columnSize() - j));
-        Matrix bIJ = r2.solveRight(yI).transpose().times(aIJ);
-        addToSavedCopy(bFile(tmpDir, j), bIJ);
-      }
+    // step 2, compute B, the slices of each block at the same time
+    start = System.currentTimeMillis();
+    BWorker bWorker = new BWorker(tmpDir);
+    ExecutorService pool = newPool(numThreads, "ssvd-compute-%d");
+    try {
+      bWorker.pool = pool;
+      forEachBlock(files, Collections.singletonList(bWorker));
+    } finally {
+      pool.shutdownNow();
     }
+    int ncols = bWorker.ncols;
+    log.info("Computed B in {} ms", System.currentTimeMillis() - start);
 
     // step 3, compute BB', L and SVD(L)
-    Matrix b2 = new DenseMatrix(internalDimension, internalDimension);
-    MatrixWritable bTmp = new MatrixWritable();
+    start = System.currentTimeMillis();
+    List<File> bFiles = Lists.newArrayList();
     for (int j = 0; j < ncols; j += columnsPerSlice) {
       if (bFile(tmpDir, j).exists()) {
-        final DataInputStream in = new DataInputStream(new FileInputStream(bFile(tmpDir, j)));
-        try {
-          bTmp.readFields(in);
-        } finally {
-          in.close();
-        }
-
-        b2.assign(bTmp.get().times(bTmp.get().transpose()), Functions.PLUS);
+        bFiles.add(bFile(tmpDir, j));
       }
     }
+    List<BBtWorker> b2Workers = Lists.newArrayList();
+    for (int i = 0; i < numThreads; i++) {
+      b2Workers.add(new BBtWorker(internalDimension));
+    }
+    forEachBlock(bFiles, b2Workers);
+    Matrix b2 = new DenseMatrix(internalDimension, internalDimension);
+    for (BBtWorker worker : b2Workers) {
+      b2.assign(worker.b2, Functions.PLUS);
+    }
     l2 = new CholeskyDecomposition(b2);
     svd = new SingularValueDecomposition(l2.getL());
+    log.info("Computed BB' of {} slices and SVD(L) in {} ms", bFiles.size(), System.currentTimeMillis() - start);
   }
 
-  public void computeV(File tmpDir, int ncols) throws IOException {
+  public void computeV(final File tmpDir, int ncols) throws IOException {
     // step 5, compute pieces of V
+    long start = System.currentTimeMillis();
+    List<File> bFiles = Lists.newArrayList();
     for (int j = 0; j < ncols; j += columnsPerSlice) {
-      final File bPath = bFile(tmpDir, j);
-      if (bPath.exists()) {
-        MatrixWritable m = new MatrixWritable();
-        final DataInputStream in = new DataInputStream(new FileInputStream(bPath));
-        try {
-          m.readFields(in);
-        } finally {
-          in.close();
-        }
-        m.set(l2.solveRight(m.get().transpose()).times(svd.getV()));
-        final DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(tmpDir, String.format("V-%s", bPath.getName().replaceAll(".*-", "")))));
-        try {
-          m.write(out);
-        } finally {
-          out.close();
-        }
+      if (bFile(tmpDir, j).exists()) {
+        bFiles.add(bFile(tmpDir, j));
       }
     }
+    forEachBlock(bFiles, Collections.nCopies(numThreads, new BlockWorker() {
+      @Override
+      void process(File bPath, Matrix b) throws IOException {
+        writeMatrix(new File(tmpDir, String.format("V-%s", bPath.getName().replaceAll(".*-", ""))),
+            l2.solveRight(b.transpose()).times(svd.getV()));
+      }
+    }));
+    log.info("Computed V from {} slices in {} ms", bFiles.size(), System.currentTimeMillis() - start);
   }
 
-  public void computeU(Iterable<File> partsOfA, File tmpDir) throws IOException {
+  public void computeU(Iterable<File> partsOfA, final File tmpDir) throws IOException {
     // step 4, compute pieces of U
-    for (File file : partsOfA) {
-      MatrixWritable m = new MatrixWritable();
-      m.readFields(new DataInputStream(new FileInputStream(file)));
-      Matrix aI = m.get();
-
-      Matrix y = aI.times(new RandomTrinaryMatrix(seed, aI.numCols(), dim, false));
-      Matrix uI = r2.solveRight(y).times(svd.getU());
-      m.set(uI);
-      final DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(tmpDir, String.format("U-%s", file.getName().replaceAll(".*-", "")))));
-      try {
-        m.write(out);
-      } finally {
-        out.close();
+    long start = System.currentTimeMillis();
+    List<File> files = Lists.newArrayList(partsOfA);
+    forEachBlock(files, Collections.nCopies(numThreads, new BlockWorker() {
+      @Override
+      void process(File file, Matrix aI) throws IOException {
+        Matrix y = aI.times(new RandomTrinaryMatrix(seed, aI.numCols(), dim, false));
+        writeMatrix(new File(tmpDir, String.format("U-%s", file.getName().replaceAll(".*-", ""))),
+            r2.solveRight(y).times(svd.getU()));
+      }
+    }));
+    log.info("Computed U from {} blocks in {} ms", files.size(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Processes the blocks of one thread.  Each thread has its own worker, which it can use for scratch
+   * space, unless the same worker is given for all the threads, which must then be thread-safe.
+   */
+  private abstract static class BlockWorker {
+    abstract void process(File file, Matrix block) throws IOException;
+  }
+
+  /**
+   * Accumulates Y_i' Y_i
+   */
+  private final class YtYWorker extends BlockWorker {
+
+    private Matrix y2;
+
+    @Override
+    void process(File file, Matrix aI) {
+      Matrix omega = new RandomTrinaryMatrix(seed, aI.columnSize(), dim, false);
+      Matrix y = aI.times(omega);
+      if (y2 == null) {
+        y2 = y.transpose().times(y);
+      } else {
+        y2.assign(y.transpose().times(y), Functions.PLUS);
       }
     }
   }
 
-  private static void addToSavedCopy(File file, Matrix matrix) throws IOException {
-    MatrixWritable mw = new MatrixWritable();
-    if (file.exists()) {
-      DataInputStream in = new DataInputStream(new FileInputStream(file));
+  /**
+   * Adds (A_i \Omega R^-1)' A_ij to each slice B_j, the slices of a block at the same time
+   */
+  private final class BWorker extends BlockWorker {
+
+    private final File tmpDir;
+    private ExecutorService pool;
+    private int ncols;
+
+    BWorker(File tmpDir) {
+      this.tmpDir = tmpDir;
+    }
+
+    @Override
+    void process(File file, final Matrix aI) throws IOException {
+      ncols = Math.max(ncols, aI.columnSize());
+      Matrix omega = new RandomTrinaryMatrix(seed, aI.numCols(), dim, false);
+      // the same for all the slices, so computed once
+      final Matrix qT = r2.solveRight(aI.times(omega)).transpose();
+      List<Callable<Void>> tasks = Lists.newArrayList();
+      for (int j = 0; j < aI.numCols(); j += columnsPerSlice) {
+        final int column = j;
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            Matrix aIJ = aI.viewPart(0, aI.rowSize(), column, Math.min(columnsPerSlice, aI.columnSize() - column));
+            addToSavedCopy(bFile(tmpDir, column), qT.times(aIJ));
+            return null;
+          }
+        });
+      }
       try {
-        mw.readFields(in);
-      } finally {
-        in.close();
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+          get(future);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
       }
-      mw.get().assign(matrix, Functions.PLUS);
-    } else {
-      mw.set(matrix);
     }
+  }
+
+  /**
+   * Accumulates B_j B_j'
+   */
+  private static final class BBtWorker extends BlockWorker {
+
+    private final Matrix b2;
+
+    BBtWorker(int dim) {
+      b2 = new DenseMatrix(dim, dim);
+    }
+
+    @Override
+    void process(File file, Matrix b) {
+      b2.assign(b.times(b.transpose()), Functions.PLUS);
+    }
+  }
+
+  /**
+   * Reads the matrices of the files and gives them to the workers, each on its own thread.  The
+   * files are read in order on another thread, at most one ahead of each worker, so that reading
+   * overlaps computing without holding more than twice as many blocks as there are workers.
+   */
+  private static void forEachBlock(final List<File> files, List<? extends BlockWorker> workers) throws IOException {
+    final Semaphore readAhead = new Semaphore(2 * workers.size());
+    ExecutorService reader = newPool(1, "ssvd-read-%d");
+    ExecutorService pool = newPool(workers.size(), "ssvd-block-%d");
+    try {
+      final List<Future<Matrix>> blocks = Lists.newArrayListWithCapacity(files.size());
+      for (final File file : files) {
+        blocks.add(reader.submit(new Callable<Matrix>() {
+          @Override
+          public Matrix call() throws IOException, InterruptedException {
+            readAhead.acquire();
+            return readMatrix(file);
+          }
+        }));
+      }
+      final AtomicInteger nextBlock = new AtomicInteger();
+      List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(workers.size());
+      for (final BlockWorker worker : workers) {
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException, InterruptedException {
+            int index;
+            while ((index = nextBlock.getAndIncrement()) < files.size()) {
+              try {
+                worker.process(files.get(index), get(blocks.get(index)));
+              } finally {
+                blocks.set(index, null);
+                readAhead.release();
+              }
+            }
+            return null;
+          }
+        });
+      }
+      for (Future<Void> future : pool.invokeAll(tasks)) {
+        get(future);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      pool.shutdownNow();
+      reader.shutdownNow();
+    }
+  }
+
+  private static ExecutorService newPool(int numThreads, String nameFormat) {
+    return Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build());
+  }
+
+  /**
+   * Waits for a result, with the {@link IOException}s and {@link RuntimeException}s of the task thrown as they are
+   */
+  private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static Matrix readMatrix(File file) throws IOException {
+    MatrixWritable m = new MatrixWritable();
+    DataInputStream in = new DataInputStream(new FileInputStream(file));
+    try {
+      m.readFields(in);
+    } finally {
+      in.close();
+    }
+    return m.get();
+  }
+
+  private static void writeMatrix(File file, Matrix matrix) throws IOException {
     DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
     try {
-      mw.write(out);
+      new MatrixWritable(matrix).write(out);
     } finally {
       out.close();
     }
   }
 
+  private static void addToSavedCopy(File file, Matrix matrix) throws IOException {
+    Matrix sum = matrix;
+    if (file.exists()) {
+      sum = readMatrix(file);
+      sum.assign(matrix, Functions.PLUS);
+    }
+    writeMatrix(file, sum);
+  }
+
   private static File bFile(File tmpDir, int j) {
     return new File(tmpDir, String.format("B-%09d", j));
   }
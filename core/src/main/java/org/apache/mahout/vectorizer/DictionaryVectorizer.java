@@ -77,7 +77,8 @@ public final class DictionaryVectorizer implements Vectorizer{
   
   private static final String OUTPUT_FILES_PATTERN = "part-*";
   
-  // 4 byte overhead for each entry in the OpenObjectIntHashMap
+  // 4 byte overhead for each entry in the OpenObjectIntHashMap. Chunks are still counted that way, although the
+  // reducers now load them into a TermDictionary: it needs less memory than that map for the same chunk
   private static final int DICTIONARY_BYTE_OVERHEAD = 4;
   
   private static final String VECTOR_OUTPUT_FOLDER = "partial-vectors-";
@@ -113,7 +114,8 @@ public final class DictionaryVectorizer implements Vectorizer{
   /**
    * Create Term Frequency (Tf) Vectors from the input set of documents in {@link SequenceFile} format. This
    * tries to fix the maximum memory used by the feature chunk per node thereby splitting the process across
-   * multiple map/reduces.
+   * multiple map/reduces. When the whole dictionary fits in one chunk, the vectors are made in a single pass,
+   * without partial vectors to merge.
    * 
    * @param input
    *          input directory of the documents in {@link SequenceFile} format
@@ -191,18 +193,26 @@ public final class DictionaryVectorizer implements Vectorizer{
                                  maxTermDimension);
     }
     
+    Path outputDir = new Path(output, tfVectorsFolderName);
+    if (dictionaryChunks.size() == 1) {
+      // the vectors are complete after a single pass, there is nothing to merge
+      makePartialVectors(input, baseConf, maxNGramSize, dictionaryChunks.get(0), outputDir,
+        maxTermDimension[0], sequentialAccess, namedVectors, normPower, logNormalize, numReducers);
+      return;
+    }
+
     int partialVectorIndex = 0;
     Collection<Path> partialVectorPaths = Lists.newArrayList();
     for (Path dictionaryChunk : dictionaryChunks) {
       Path partialVectorOutputPath = new Path(output, VECTOR_OUTPUT_FOLDER + partialVectorIndex++);
       partialVectorPaths.add(partialVectorOutputPath);
       makePartialVectors(input, baseConf, maxNGramSize, dictionaryChunk, partialVectorOutputPath,
-        maxTermDimension[0], sequentialAccess, namedVectors, numReducers);
+        maxTermDimension[0], sequentialAccess, namedVectors, PartialVectorMerger.NO_NORMALIZING, false,
+        numReducers);
     }
     
     Configuration conf = new Configuration(baseConf);
 
-    Path outputDir = new Path(output, tfVectorsFolderName);
     PartialVectorMerger.mergePartialVectors(partialVectorPaths, outputDir, conf, normPower, logNormalize,
       maxTermDimension[0], sequentialAccess, namedVectors, numReducers);
     HadoopUtil.delete(conf, partialVectorPaths);
@@ -279,6 +289,10 @@ public final class DictionaryVectorizer implements Vectorizer{
    *          output vectors should be optimized for sequential access
    * @param namedVectors
    *          output vectors should be named, retaining key (doc id) as a label
+   * @param normPower
+   *          L_p norm of the vectors, only when the dictionary is not split in chunks
+   * @param logNormalize
+   *          whether to use log normalization, only when the dictionary is not split in chunks
    * @param numReducers 
    *          the desired number of reducer tasks
    */
@@ -290,6 +304,8 @@ public final class DictionaryVectorizer implements Vectorizer{
                                          int dimension,
                                          boolean sequentialAccess, 
                                          boolean namedVectors,
+                                         float normPower,
+                                         boolean logNormalize,
                                          int numReducers)
     throws IOException, InterruptedException, ClassNotFoundException {
     
@@ -301,6 +317,8 @@ public final class DictionaryVectorizer implements Vectorizer{
     conf.setBoolean(PartialVectorMerger.SEQUENTIAL_ACCESS, sequentialAccess);
     conf.setBoolean(PartialVectorMerger.NAMED_VECTOR, namedVectors);
     conf.setInt(MAX_NGRAMS, maxNGramSize);   
+    conf.setFloat(PartialVectorMerger.NORMALIZATION_POWER, normPower);
+    conf.setBoolean(PartialVectorMerger.LOG_NORMALIZE, logNormalize);
     DistributedCache.setCacheFiles(new URI[] {dictionaryFilePath.toUri()}, conf);
     
     Job job = new Job(conf);
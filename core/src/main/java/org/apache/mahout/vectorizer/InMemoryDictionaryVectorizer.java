@@ -0,0 +1,627 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.mahout.common.AbstractJob;
+import org.apache.mahout.common.ClassUtils;
+import org.apache.mahout.common.HadoopUtil;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.commandline.DefaultOptionCreator;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.apache.mahout.vectorizer.common.PartialVectorMerger;
+import org.apache.mahout.vectorizer.term.TermDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Does the work of {@link SparseVectorsFromSequenceFiles} for unigrams on a single machine, with several
+ * threads and without Map/Reduce: the documents are read and tokenized once, kept in memory as arrays of term
+ * ids, and the dictionary, the document frequencies and the tf and tf-idf vectors are all made from these
+ * arrays. The output has the same layout as the one of {@link SparseVectorsFromSequenceFiles}.
+ *
+ * Each thread tokenizes documents into its own {@link TermDictionary}, so that tokenizing takes no lock; the
+ * dictionaries of the threads are merged once all the documents are read. The corpus has to fit in memory,
+ * but only as term ids and counts, which is usually much less than its text.
+ */
+public final class InMemoryDictionaryVectorizer extends AbstractJob {
+
+  private static final Logger log = LoggerFactory.getLogger(InMemoryDictionaryVectorizer.class);
+
+  public static final String DICTIONARY_FILE = "dictionary.file-0";
+
+  public static final String FREQUENCY_FILE = "frequency.file-0";
+
+  public static final String TFIDF_OUTPUT_FOLDER = "tfidf-vectors";
+
+  private static final int BLOCK_SIZE = 256;
+
+  private static final String PART_FILE = "part-r-%05d";
+
+  public static void main(String[] args) throws Exception {
+    ToolRunner.run(new InMemoryDictionaryVectorizer(), args);
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    addInputOption();
+    addOutputOption();
+    addOption(DefaultOptionCreator.analyzerOption().create());
+    addOption("minSupport", "s", "Minimum number of occurrences of a term in the corpus", "2");
+    addOption("minDF", "md", "The minimum document frequency", "1");
+    addOption("maxDFPercent", "x", "The max percentage of docs for the DF. Can be used to remove really high "
+        + "frequency terms. Expressed as an integer between 0 and 100", "99");
+    addOption("weight", "wt", "The kind of weight to use. Currently TF or TFIDF", "tfidf");
+    addOption("norm", "n", "The norm to use, expressed as either a float or \"INF\" if you want to use the "
+        + "Infinite norm. Must be greater or equal to 0. The default is not to normalize", false);
+    addFlag("logNormalize", "lnorm", "Whether output vectors should be logNormalize");
+    addFlag("sequentialAccessVector", "seq", "Whether output vectors should be SequentialAccessVectors");
+    addFlag("namedVector", "nv", "Whether output vectors should be NamedVectors");
+    addOption("numThreads", "nt", "Number of threads",
+        String.valueOf(Runtime.getRuntime().availableProcessors()));
+    addOption(DefaultOptionCreator.overwriteOption().create());
+
+    if (parseArguments(args) == null) {
+      return -1;
+    }
+
+    Path output = getOutputPath();
+    if (hasOption(DefaultOptionCreator.OVERWRITE_OPTION)) {
+      HadoopUtil.delete(getConf(), output);
+    }
+
+    String weight = getOption("weight");
+    boolean processIdf;
+    if ("tf".equalsIgnoreCase(weight)) {
+      processIdf = false;
+    } else if ("tfidf".equalsIgnoreCase(weight)) {
+      processIdf = true;
+    } else {
+      log.error("Unknown weight: {}", weight);
+      return -1;
+    }
+
+    float norm = PartialVectorMerger.NO_NORMALIZING;
+    if (hasOption("norm")) {
+      String power = getOption("norm");
+      norm = "INF".equals(power) ? Float.POSITIVE_INFINITY : Float.parseFloat(power);
+    }
+
+    createVectors(getInputPath(),
+                  output,
+                  getConf(),
+                  getAnalyzerClassFromOption(),
+                  Integer.parseInt(getOption("minSupport")),
+                  Integer.parseInt(getOption("minDF")),
+                  Integer.parseInt(getOption("maxDFPercent")),
+                  norm,
+                  hasOption("logNormalize"),
+                  processIdf,
+                  hasOption("sequentialAccessVector"),
+                  hasOption("namedVector"),
+                  Integer.parseInt(getOption("numThreads")));
+    return 0;
+  }
+
+  /**
+   * Creates the dictionary, the document frequencies, the tf vectors and, if asked for, the tf-idf vectors of
+   * a set of documents in {@link SequenceFile} format, with {@link Text} keys and values
+   *
+   * @param minSupport
+   *          the minimum frequency of a term in the corpus to be in the dictionary
+   * @param minDf
+   *          the document frequency used for the terms in fewer documents
+   * @param maxDFPercent
+   *          the terms in more than this percentage of the documents are left out of the tf-idf vectors
+   * @param normPower
+   *          L_p norm of the final vectors, either tf or tf-idf, or {@link PartialVectorMerger#NO_NORMALIZING}
+   * @param processIdf
+   *          whether to make the tf-idf vectors
+   */
+  public static void createVectors(Path input,
+                                   Path output,
+                                   Configuration conf,
+                                   Class<? extends Analyzer> analyzerClass,
+                                   int minSupport,
+                                   int minDf,
+                                   int maxDFPercent,
+                                   float normPower,
+                                   boolean logNormalize,
+                                   boolean processIdf,
+                                   boolean sequentialAccess,
+                                   boolean namedVectors,
+                                   int numThreads) throws IOException {
+    Preconditions.checkArgument(normPower == PartialVectorMerger.NO_NORMALIZING || normPower >= 0,
+        "If specified normPower must be nonnegative", normPower);
+    Preconditions.checkArgument(normPower == PartialVectorMerger.NO_NORMALIZING
+                                || (normPower > 1 && !Double.isInfinite(normPower))
+                                || !logNormalize,
+        "normPower must be > 1 and not infinite if log normalization is chosen", normPower);
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+
+    long start = System.currentTimeMillis();
+    List<Block> blocks = tokenize(input, conf, analyzerClass, numThreads);
+    long tokenized = System.currentTimeMillis();
+
+    Corpus corpus = new Corpus(blocks, minSupport);
+    FileSystem fs = output.getFileSystem(conf);
+    corpus.writeDictionary(fs, conf, new Path(output, DICTIONARY_FILE), new Path(output, FREQUENCY_FILE));
+    long merged = System.currentTimeMillis();
+
+    VectorWriter writer = new VectorWriter(corpus, minDf, maxDFPercent, normPower, logNormalize, processIdf,
+        sequentialAccess, namedVectors);
+    writer.write(fs, conf, new Path(output, DictionaryVectorizer.DOCUMENT_VECTOR_OUTPUT_FOLDER),
+        processIdf ? new Path(output, TFIDF_OUTPUT_FOLDER) : null, numThreads);
+    log.info("Vectorized {} documents with {} terms: tokenized in {} ms, dictionary in {} ms, vectors in {} ms",
+        new Object[] {corpus.numVectors, corpus.dictionary.size(), tokenized - start, merged - tokenized,
+                      System.currentTimeMillis() - merged});
+  }
+
+  /**
+   * Reads the documents on the current thread and tokenizes them on the thread pool, BLOCK_SIZE at a time.
+   * The queue of the pool is bounded and the reader tokenizes blocks itself when it is full, so that at most
+   * a few blocks of text are in memory at once.
+   */
+  private static List<Block> tokenize(Path input,
+                                      Configuration conf,
+                                      final Class<? extends Analyzer> analyzerClass,
+                                      int numThreads) {
+    final ThreadLocal<DocumentTokenizer> tokenizers = new ThreadLocal<DocumentTokenizer>() {
+      @Override
+      protected DocumentTokenizer initialValue() {
+        return new DocumentTokenizer(ClassUtils.instantiateAs(analyzerClass, Analyzer.class));
+      }
+    };
+    ThreadFactory threadFactory =
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("vectorizer-tokenize-%d").build();
+    ExecutorService pool = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(2 * numThreads), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    try {
+      List<Future<Block>> futures = Lists.newArrayList();
+      List<String> keys = Lists.newArrayListWithCapacity(BLOCK_SIZE);
+      List<String> texts = Lists.newArrayListWithCapacity(BLOCK_SIZE);
+      for (Pair<Text,Text> record
+           : new SequenceFileDirIterable<Text,Text>(input, PathType.LIST, PathFilters.logsCRCFilter(), conf)) {
+        keys.add(record.getFirst().toString());
+        texts.add(record.getSecond().toString());
+        if (keys.size() == BLOCK_SIZE) {
+          futures.add(pool.submit(new TokenizeTask(tokenizers, keys, texts)));
+          keys = Lists.newArrayListWithCapacity(BLOCK_SIZE);
+          texts = Lists.newArrayListWithCapacity(BLOCK_SIZE);
+        }
+      }
+      if (!keys.isEmpty()) {
+        futures.add(pool.submit(new TokenizeTask(tokenizers, keys, texts)));
+      }
+      List<Block> blocks = Lists.newArrayListWithCapacity(futures.size());
+      for (Future<Block> future : futures) {
+        blocks.add(future.get());
+      }
+      return blocks;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static final class TokenizeTask implements Callable<Block> {
+
+    private final ThreadLocal<DocumentTokenizer> tokenizers;
+    private final List<String> keys;
+    private final List<String> texts;
+
+    TokenizeTask(ThreadLocal<DocumentTokenizer> tokenizers, List<String> keys, List<String> texts) {
+      this.tokenizers = tokenizers;
+      this.keys = keys;
+      this.texts = texts;
+    }
+
+    @Override
+    public Block call() throws IOException {
+      DocumentTokenizer tokenizer = tokenizers.get();
+      Block block = new Block(keys.toArray(new String[keys.size()]), tokenizer.vocabulary);
+      for (int i = 0; i < texts.size(); i++) {
+        tokenizer.tokenize(block, i, texts.get(i));
+      }
+      return block;
+    }
+  }
+
+  /**
+   * The terms seen by one thread, with their number of occurrences and of documents
+   */
+  private static final class Vocabulary {
+
+    private final TermDictionary terms = new TermDictionary(1024);
+    private long[] termCounts = new long[1024];
+    private int[] docCounts = new int[1024];
+
+    int add(CharSequence term) {
+      int id = terms.get(term);
+      if (id < 0) {
+        id = terms.size();
+        terms.put(term, id);
+        if (id == termCounts.length) {
+          termCounts = Arrays.copyOf(termCounts, 2 * id);
+          docCounts = Arrays.copyOf(docCounts, 2 * id);
+        }
+      }
+      return id;
+    }
+  }
+
+  private static final class DocumentTokenizer {
+
+    private final Analyzer analyzer;
+    private final Vocabulary vocabulary = new Vocabulary();
+    private int[] tokens = new int[1024];
+
+    DocumentTokenizer(Analyzer analyzer) {
+      this.analyzer = analyzer;
+    }
+
+    /**
+     * Stores the sorted term ids of the document and their counts in the block
+     */
+    void tokenize(Block block, int doc, String text) throws IOException {
+      TokenStream stream = analyzer.reusableTokenStream(block.keys[doc], new StringReader(text));
+      CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+      int numTokens = 0;
+      stream.reset();
+      while (stream.incrementToken()) {
+        if (termAtt.length() > 0) {
+          if (numTokens == tokens.length) {
+            tokens = Arrays.copyOf(tokens, 2 * numTokens);
+          }
+          tokens[numTokens++] = vocabulary.add(termAtt);
+        }
+      }
+      stream.end();
+
+      Arrays.sort(tokens, 0, numTokens);
+      int numTerms = 0;
+      for (int i = 0; i < numTokens; i++) {
+        if (i == 0 || tokens[i] != tokens[i - 1]) {
+          numTerms++;
+        }
+      }
+      int[] terms = new int[numTerms];
+      int[] counts = new int[numTerms];
+      int term = -1;
+      for (int i = 0; i < numTokens; i++) {
+        if (i == 0 || tokens[i] != tokens[i - 1]) {
+          term++;
+          terms[term] = tokens[i];
+          vocabulary.docCounts[tokens[i]]++;
+        }
+        counts[term]++;
+        vocabulary.termCounts[tokens[i]]++;
+      }
+      block.terms[doc] = terms;
+      block.counts[doc] = counts;
+    }
+  }
+
+  /**
+   * Tokenized documents, as the term ids of a {@link Vocabulary} and their counts
+   */
+  private static final class Block {
+
+    private final String[] keys;
+    private final int[][] terms;
+    private final int[][] counts;
+    private final Vocabulary vocabulary;
+
+    Block(String[] keys, Vocabulary vocabulary) {
+      this.keys = keys;
+      this.vocabulary = vocabulary;
+      terms = new int[keys.length][];
+      counts = new int[keys.length][];
+    }
+  }
+
+  /**
+   * The merged dictionary of all the threads, in the order of the terms, and the documents with the ids of
+   * this dictionary
+   */
+  private static final class Corpus {
+
+    private final List<Block> blocks;
+    private final TermDictionary dictionary;
+    private final long[] docFrequencies;
+    private int numVectors;
+
+    Corpus(List<Block> blocks, int minSupport) {
+      this.blocks = blocks;
+
+      List<Vocabulary> vocabularies = Lists.newArrayList();
+      for (Block block : blocks) {
+        if (!vocabularies.contains(block.vocabulary)) {
+          vocabularies.add(block.vocabulary);
+        }
+      }
+
+      // add up the counts of the threads
+      TermDictionary allTerms = new TermDictionary();
+      long[] termCounts = new long[1024];
+      int[][] toAllTerms = new int[vocabularies.size()][];
+      for (int v = 0; v < vocabularies.size(); v++) {
+        Vocabulary vocabulary = vocabularies.get(v);
+        int size = vocabulary.terms.size();
+        toAllTerms[v] = new int[size];
+        for (int local = 0; local < size; local++) {
+          String term = vocabulary.terms.termAt(local);
+          int id = allTerms.get(term);
+          if (id < 0) {
+            id = allTerms.size();
+            allTerms.put(term, id);
+            if (id == termCounts.length) {
+              termCounts = Arrays.copyOf(termCounts, 2 * id);
+            }
+          }
+          termCounts[id] += vocabulary.termCounts[local];
+          toAllTerms[v][local] = id;
+        }
+      }
+
+      // keep the frequent terms, with their ids in the order of the terms
+      List<String> kept = Lists.newArrayList();
+      for (int id = 0; id < allTerms.size(); id++) {
+        if (termCounts[id] >= minSupport) {
+          kept.add(allTerms.termAt(id));
+        }
+      }
+      Collections.sort(kept);
+      dictionary = new TermDictionary(kept.size());
+      for (int id = 0; id < kept.size(); id++) {
+        dictionary.put(kept.get(id), id);
+      }
+      int[] allToDictionary = new int[allTerms.size()];
+      for (int id = 0; id < allTerms.size(); id++) {
+        allToDictionary[id] = termCounts[id] >= minSupport ? dictionary.get(allTerms.termAt(id)) : -1;
+      }
+
+      docFrequencies = new long[dictionary.size()];
+      for (int v = 0; v < vocabularies.size(); v++) {
+        Vocabulary vocabulary = vocabularies.get(v);
+        for (int local = 0; local < toAllTerms[v].length; local++) {
+          int id = allToDictionary[toAllTerms[v][local]];
+          toAllTerms[v][local] = id;
+          if (id >= 0) {
+            docFrequencies[id] += vocabulary.docCounts[local];
+          }
+        }
+      }
+
+      // translate the documents, and count those that still have terms, since only they get a vector
+      for (Block block : blocks) {
+        int[] toDictionary = toAllTerms[vocabularies.indexOf(block.vocabulary)];
+        for (int doc = 0; doc < block.keys.length; doc++) {
+          int[] terms = block.terms[doc];
+          boolean empty = true;
+          for (int i = 0; i < terms.length; i++) {
+            terms[i] = toDictionary[terms[i]];
+            empty &= terms[i] < 0;
+          }
+          if (!empty) {
+            numVectors++;
+          }
+        }
+      }
+    }
+
+    void writeDictionary(FileSystem fs, Configuration conf, Path dictionaryPath, Path frequencyPath)
+      throws IOException {
+      SequenceFile.Writer dictWriter =
+          new SequenceFile.Writer(fs, conf, dictionaryPath, Text.class, IntWritable.class);
+      try {
+        for (int i = 0; i < dictionary.size(); i++) {
+          dictWriter.append(new Text(dictionary.termAt(i)), new IntWritable(dictionary.idAt(i)));
+        }
+      } finally {
+        Closeables.closeQuietly(dictWriter);
+      }
+      SequenceFile.Writer freqWriter =
+          new SequenceFile.Writer(fs, conf, frequencyPath, IntWritable.class, LongWritable.class);
+      try {
+        for (int id = 0; id < docFrequencies.length; id++) {
+          freqWriter.append(new IntWritable(id), new LongWritable(docFrequencies[id]));
+        }
+      } finally {
+        Closeables.closeQuietly(freqWriter);
+      }
+    }
+  }
+
+  /**
+   * Writes the tf and tf-idf vectors of the blocks, each thread to its own part file
+   */
+  private static final class VectorWriter {
+
+    private final Corpus corpus;
+    private final int minDf;
+    private final long maxDf;
+    private final float normPower;
+    private final boolean logNormalize;
+    private final boolean processIdf;
+    private final boolean sequentialAccess;
+    private final boolean namedVectors;
+
+    VectorWriter(Corpus corpus, int minDf, long maxDf, float normPower, boolean logNormalize,
+                 boolean processIdf, boolean sequentialAccess, boolean namedVectors) {
+      this.corpus = corpus;
+      this.minDf = minDf;
+      this.maxDf = maxDf;
+      this.normPower = normPower;
+      this.logNormalize = logNormalize;
+      this.processIdf = processIdf;
+      this.sequentialAccess = sequentialAccess;
+      this.namedVectors = namedVectors;
+    }
+
+    void write(final FileSystem fs, final Configuration conf, final Path tfPath, final Path tfidfPath,
+               int numThreads) {
+      final AtomicInteger nextBlock = new AtomicInteger();
+      List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(numThreads);
+      for (int i = 0; i < numThreads; i++) {
+        final Path partFile = new Path(String.format(PART_FILE, i));
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            SequenceFile.Writer tfWriter = new SequenceFile.Writer(fs, conf, new Path(tfPath, partFile),
+                Text.class, VectorWritable.class);
+            SequenceFile.Writer tfidfWriter = tfidfPath == null ? null : new SequenceFile.Writer(fs, conf,
+                new Path(tfidfPath, partFile), Text.class, VectorWritable.class);
+            try {
+              TFIDF tfidf = new TFIDF();
+              int index;
+              while ((index = nextBlock.getAndIncrement()) < corpus.blocks.size()) {
+                writeBlock(corpus.blocks.get(index), tfidf, tfWriter, tfidfWriter);
+              }
+            } finally {
+              Closeables.closeQuietly(tfWriter);
+              Closeables.closeQuietly(tfidfWriter);
+            }
+            return null;
+          }
+        });
+      }
+      ExecutorService pool = Executors.newFixedThreadPool(numThreads,
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("vectorizer-write-%d").build());
+      try {
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException(cause);
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+
+    private void writeBlock(Block block, Weight tfidf, SequenceFile.Writer tfWriter,
+                            SequenceFile.Writer tfidfWriter) throws IOException {
+      int dimension = corpus.dictionary.size();
+      Text key = new Text();
+      VectorWritable value = new VectorWritable();
+      for (int doc = 0; doc < block.keys.length; doc++) {
+        int[] terms = block.terms[doc];
+        int[] counts = block.counts[doc];
+        Vector tf = new RandomAccessSparseVector(dimension, terms.length);
+        for (int i = 0; i < terms.length; i++) {
+          if (terms[i] >= 0) {
+            tf.setQuick(terms[i], counts[i]);
+          }
+        }
+        // like the Map/Reduce version, documents without any term of the dictionary get no vector
+        if (tf.getNumNondefaultElements() == 0) {
+          continue;
+        }
+        key.set(block.keys[doc]);
+
+        if (tfidfWriter != null) {
+          Vector vector = new RandomAccessSparseVector(dimension, terms.length);
+          for (int i = 0; i < terms.length; i++) {
+            if (terms[i] < 0) {
+              continue;
+            }
+            long df = corpus.docFrequencies[terms[i]];
+            if (maxDf > -1 && (100.0 * df) / corpus.numVectors > maxDf) {
+              continue;
+            }
+            if (df < minDf) {
+              df = minDf;
+            }
+            vector.setQuick(terms[i], tfidf.calculate(counts[i], (int) df, dimension, corpus.numVectors));
+          }
+          value.set(finish(vector, block.keys[doc], true));
+          tfidfWriter.append(key, value);
+        }
+        // when there are tf-idf vectors, they are the ones to normalize
+        value.set(finish(tf, block.keys[doc], !processIdf));
+        tfWriter.append(key, value);
+      }
+    }
+
+    private Vector finish(Vector vector, String name, boolean normalize) {
+      Vector result = vector;
+      if (normalize && normPower != PartialVectorMerger.NO_NORMALIZING) {
+        result = logNormalize ? result.logNormalize(normPower) : result.normalize(normPower);
+      }
+      if (sequentialAccess) {
+        result = new SequentialAccessSparseVector(result);
+      }
+      if (namedVectors) {
+        result = new NamedVector(result, name);
+      }
+      return result;
+    }
+  }
+
+}
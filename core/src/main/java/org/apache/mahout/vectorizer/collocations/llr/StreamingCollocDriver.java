@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer.collocations.llr;
+
+import java.io.IOException;
+
+import com.google.common.io.Closeables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.mahout.common.AbstractJob;
+import org.apache.mahout.common.HadoopUtil;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.StringTuple;
+import org.apache.mahout.common.commandline.DefaultOptionCreator;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirValueIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds collocations with a {@link StreamingCollocationFinder} in a single sequential pass over tokenized
+ * documents, as written by {@link org.apache.mahout.vectorizer.DocumentProcessor}. Every {@code emitInterval}
+ * documents, and at the end, the top collocations so far are written to a new file of the output directory,
+ * in the same format as the output of {@link CollocDriver}.
+ */
+public final class StreamingCollocDriver extends AbstractJob {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamingCollocDriver.class);
+
+  public static final String COLLOCATIONS_FILE = "collocations-%012d";
+
+  public static void main(String[] args) throws Exception {
+    ToolRunner.run(new Configuration(), new StreamingCollocDriver(), args);
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    addInputOption();
+    addOutputOption();
+    addOption("maxNGramSize", "ng", "(Optional) The max size of ngrams to create (2 = bigrams, 3 = trigrams, etc)",
+        "2");
+    addOption("minLLR", "ml", "(Optional) The minimum Log Likelihood Ratio",
+        String.valueOf(LLRReducer.DEFAULT_MIN_LLR));
+    addOption("maxNGrams", "mn", "Number of ngrams to keep counts of", "100000");
+    addOption("numCollocations", "nc", "Number of collocations to emit each time", "1000");
+    addOption("sketchDepth", "sd", "Number of rows of the count-min sketches of subgrams", "4");
+    addOption("sketchWidth", "sw", "Number of counters per row of the count-min sketches of subgrams", "262144");
+    addOption("emitInterval", "ei", "Number of documents between two outputs of the top collocations", "10000");
+    addOption(DefaultOptionCreator.overwriteOption().create());
+
+    if (parseArguments(args) == null) {
+      return -1;
+    }
+
+    Path output = getOutputPath();
+    if (hasOption(DefaultOptionCreator.OVERWRITE_OPTION)) {
+      HadoopUtil.delete(getConf(), output);
+    }
+    int maxNGramSize = Integer.parseInt(getOption("maxNGramSize"));
+    double minLLR = Double.parseDouble(getOption("minLLR"));
+    int maxNGrams = Integer.parseInt(getOption("maxNGrams"));
+    int numCollocations = Integer.parseInt(getOption("numCollocations"));
+    int emitInterval = Integer.parseInt(getOption("emitInterval"));
+    StreamingCollocationFinder finder = new StreamingCollocationFinder(maxNGramSize, maxNGrams,
+        Integer.parseInt(getOption("sketchDepth")), Integer.parseInt(getOption("sketchWidth")));
+
+    Configuration conf = getConf();
+    FileSystem fs = output.getFileSystem(conf);
+    long numDocs = 0;
+    for (StringTuple document : new SequenceFileDirValueIterable<StringTuple>(
+        getInputPath(), PathType.LIST, PathFilters.logsCRCFilter(), conf)) {
+      finder.addDocument(document.getEntries());
+      numDocs++;
+      if (numDocs % emitInterval == 0) {
+        emit(finder, numCollocations, minLLR, fs, conf, new Path(output, String.format(COLLOCATIONS_FILE, numDocs)));
+      }
+    }
+    if (numDocs % emitInterval != 0) {
+      emit(finder, numCollocations, minLLR, fs, conf, new Path(output, String.format(COLLOCATIONS_FILE, numDocs)));
+    }
+    return 0;
+  }
+
+  private static void emit(StreamingCollocationFinder finder, int numCollocations, double minLLR,
+                           FileSystem fs, Configuration conf, Path path) throws IOException {
+    SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, path, Text.class, DoubleWritable.class);
+    try {
+      for (Pair<String,Double> collocation : finder.topCollocations(numCollocations, minLLR)) {
+        writer.append(new Text(collocation.getFirst()), new DoubleWritable(collocation.getSecond()));
+      }
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+    log.info("{} ngrams seen, top collocations written to {}", finder.getNGramTotal(), path);
+  }
+
+}
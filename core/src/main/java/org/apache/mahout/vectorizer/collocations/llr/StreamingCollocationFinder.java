@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer.collocations.llr;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import org.apache.lucene.analysis.shingle.ShingleFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.lucene.IteratorTokenStream;
+import org.apache.mahout.math.MurmurHash;
+import org.apache.mahout.math.stats.CountMinSketch;
+import org.apache.mahout.math.stats.LogLikelihood;
+import org.apache.mahout.math.stats.SpaceSaving;
+
+/**
+ * Finds collocations in a stream of tokenized documents in a fixed amount of memory, whatever the length of
+ * the stream. It scores ngrams like {@link CollocMapper}, {@link CollocReducer} and {@link LLRReducer}, but
+ * with approximate counts instead of a shuffle of every ngram:
+ * <ul>
+ * <li>the ngrams are counted by a {@link SpaceSaving} summary, which keeps the most frequent ones,</li>
+ * <li>the head (the leading (n-1)gram) and the tail (the trailing unigram) of the ngrams are counted by
+ * {@link CountMinSketch}es, like the subgram frequencies of {@link CollocReducer}.</li>
+ * </ul>
+ * The log-likelihood ratio of the kept ngrams can be computed at any time, e.g. every few thousand documents.
+ * The ngram counts used for it are the lower bounds given by the summary, so that ngrams which only just
+ * replaced another one do not look like collocations.
+ *
+ * Instances are not thread-safe.
+ */
+public final class StreamingCollocationFinder {
+
+  private static final int HEAD_SEED = 0x3c074a61;
+  private static final int TAIL_SEED = 0xf7c1d59b;
+
+  private final int maxShingleSize;
+  private final SpaceSaving<String> ngrams;
+  private final CountMinSketch heads;
+  private final CountMinSketch tails;
+  private long ngramTotal;
+
+  /**
+   * @param maxShingleSize
+   *          the max size of ngrams, 2 for bigrams
+   * @param maxNGrams
+   *          number of ngrams kept by the summary, the only part of the memory that depends on the ngrams
+   * @param sketchDepth
+   *          number of rows of the subgram sketches
+   * @param sketchWidth
+   *          number of counters of each row of the subgram sketches
+   */
+  public StreamingCollocationFinder(int maxShingleSize, int maxNGrams, int sketchDepth, int sketchWidth) {
+    Preconditions.checkArgument(maxShingleSize >= 2, "maxShingleSize must be at least 2");
+    this.maxShingleSize = maxShingleSize;
+    ngrams = new SpaceSaving<String>(maxNGrams);
+    heads = new CountMinSketch(sketchDepth, sketchWidth);
+    tails = new CountMinSketch(sketchDepth, sketchWidth);
+  }
+
+  private static long hash(String subgram, int seed) {
+    return MurmurHash.hash64A(subgram.getBytes(Charsets.UTF_8), seed);
+  }
+
+  /**
+   * @param tokens
+   *          the tokens of the document, which must not contain spaces
+   */
+  public void addDocument(Iterable<String> tokens) throws IOException {
+    ShingleFilter sf = new ShingleFilter(new IteratorTokenStream(tokens.iterator()), maxShingleSize);
+    try {
+      CharTermAttribute termAtt = sf.getAttribute(CharTermAttribute.class);
+      TypeAttribute typeAtt = sf.getAttribute(TypeAttribute.class);
+      sf.reset();
+      while (sf.incrementToken()) {
+        if (!"shingle".equals(typeAtt.type())) {
+          continue;
+        }
+        String ngram = termAtt.toString();
+        // the shingle filter joins tokens with a space whatever the language, so the tail follows the last one
+        int i = ngram.lastIndexOf(' ');
+        if (i != -1) {
+          ngramTotal++;
+          ngrams.add(ngram, 1);
+          heads.add(hash(ngram.substring(0, i), HEAD_SEED), 1);
+          tails.add(hash(ngram.substring(i + 1), TAIL_SEED), 1);
+        }
+      }
+      sf.end();
+    } finally {
+      Closeables.closeQuietly(sf);
+    }
+  }
+
+  /**
+   * @return the number of ngrams seen so far
+   */
+  public long getNGramTotal() {
+    return ngramTotal;
+  }
+
+  /**
+   * @return the log-likelihood ratio of an ngram, or {@link Double#NaN} if it is not among the kept ngrams
+   */
+  public double logLikelihoodRatio(String ngram) {
+    SpaceSaving.Counter<String> counter = ngrams.get(ngram);
+    return counter == null ? Double.NaN : logLikelihoodRatio(counter);
+  }
+
+  private double logLikelihoodRatio(SpaceSaving.Counter<String> counter) {
+    String ngram = counter.getItem();
+    int i = ngram.lastIndexOf(' ');
+    long k11 = counter.getGuaranteedCount();
+    // the sketches never underestimate, but the ngram count is a lower bound
+    long headFrequency = Math.max(k11, heads.estimate(hash(ngram.substring(0, i), HEAD_SEED)));
+    long tailFrequency = Math.max(k11, tails.estimate(hash(ngram.substring(i + 1), TAIL_SEED)));
+    long k12 = headFrequency - k11;
+    long k21 = tailFrequency - k11;
+    long k22 = Math.max(0, ngramTotal - (headFrequency + tailFrequency - k11));
+    return LogLikelihood.logLikelihoodRatio(k11, k12, k21, k22);
+  }
+
+  /**
+   * @return at most {@code n} of the kept ngrams whose log-likelihood ratio is at least {@code minLLR}, with
+   *         this ratio, by decreasing ratio
+   */
+  public List<Pair<String,Double>> topCollocations(int n, double minLLR) {
+    List<Pair<String,Double>> collocations = Lists.newArrayList();
+    for (SpaceSaving.Counter<String> counter : ngrams.counters()) {
+      if (counter.getGuaranteedCount() > 0) {
+        double llr = logLikelihoodRatio(counter);
+        if (llr >= minLLR) {
+          collocations.add(new Pair<String,Double>(counter.getItem(), llr));
+        }
+      }
+    }
+    Collections.sort(collocations, new Comparator<Pair<String,Double>>() {
+      @Override
+      public int compare(Pair<String,Double> a, Pair<String,Double> b) {
+        return b.getSecond().compareTo(a.getSecond());
+      }
+    });
+    return collocations.size() > n ? Lists.newArrayList(collocations.subList(0, n)) : collocations;
+  }
+
+}
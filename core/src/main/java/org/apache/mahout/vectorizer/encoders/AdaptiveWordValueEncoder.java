@@ -17,6 +17,7 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import org.apache.mahout.math.Vector;
@@ -47,6 +48,15 @@ public class AdaptiveWordValueEncoder extends WordValueEncoder {
     super.addToVector(originalForm, weight, data);
   }
 
+  /**
+   * Slices are counted like Strings, since that is how {@link TextValueEncoder} hands over words.
+   */
+  @Override
+  public void addToVector(byte[] bytes, int offset, int length, double weight, Vector data) {
+    dictionary.add(new String(bytes, offset, length, Charsets.UTF_8));
+    super.addToVector(bytes, offset, length, weight, data);
+  }
+
   @Override
   protected double getWeight(byte[] originalForm, double w) {
     return w * weight(originalForm);
@@ -53,6 +53,11 @@ public abstract class CachingValueEncoder extends FeatureVectorEncoder {
     }
   }
 
+  @Override
+  protected int hashForProbe(byte[] bytes, int offset, int length, int dataSize, String name, int probe) {
+    return hashForProbe((byte[]) null, dataSize, name, probe);
+  }
+
   @Override
   protected int hashForProbe(byte[] originalForm, int dataSize, String name, int probe) {
     int h = cachedProbes[probe] % dataSize;
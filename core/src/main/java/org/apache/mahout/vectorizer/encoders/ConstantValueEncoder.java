@@ -40,11 +40,21 @@ public class ConstantValueEncoder extends CachingValueEncoder {
     }
   }
 
+  @Override
+  public void addToVector(byte[] bytes, int offset, int length, double weight, Vector data) {
+    addToVector((byte[]) null, weight, data);
+  }
+
   @Override
   protected double getWeight(byte[] originalForm, double w) {
     return w;
   }
 
+  @Override
+  protected double getWeight(byte[] bytes, int offset, int length, double w) {
+    return w;
+  }
+
   @Override
   public String asString(String originalForm) {
     return getName();
@@ -17,12 +17,21 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import org.apache.mahout.math.Vector;
 
 /**
  * Continuous values are stored in fixed randomized location in the feature vector.
  */
 public class ContinuousValueEncoder extends CachingValueEncoder {
+  // mantissas of up to 15 digits and powers of ten up to 1e22 are exact doubles, so their
+  // correctly rounded quotient is the correctly rounded value of the decimal
+  private static final int MAX_EXACT_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {
+    1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8, 1.0e9, 1.0e10, 1.0e11,
+    1.0e12, 1.0e13, 1.0e14, 1.0e15, 1.0e16, 1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+  };
+
   public ContinuousValueEncoder(String name) {
     super(name, CONTINUOUS_VALUE_HASH_SEED);
   }
@@ -46,6 +55,20 @@ public class ContinuousValueEncoder extends CachingValueEncoder {
     }
   }
 
+  @Override
+  public void addToVector(byte[] bytes, int offset, int length, double weight, Vector data) {
+    int probes = getProbes();
+    String name = getName();
+    double w = getWeight(bytes, offset, length, weight);
+    for (int i = 0; i < probes; i++) {
+      int n = hashForProbe(bytes, offset, length, data.size(), name, i);
+      if (isTraceEnabled()) {
+        trace((String) null, n);
+      }
+      data.set(n, data.get(n) + w);
+    }
+  }
+
   @Override
   protected double getWeight(byte[] originalForm, double w) {
     if (originalForm != null) {
@@ -55,6 +78,58 @@ public class ContinuousValueEncoder extends CachingValueEncoder {
     }
   }
 
+  @Override
+  protected double getWeight(byte[] bytes, int offset, int length, double w) {
+    return w * parseDouble(bytes, offset, length);
+  }
+
+  /**
+   * Parses a number from ASCII bytes without building a String.  Plain decimals such as
+   * {@code -12.75} that have few enough digits to be exact as a quotient of two doubles are
+   * computed directly, which gives the same result as {@link Double#parseDouble(String)}.  Anything
+   * else (exponents, very long mantissas, garbage) is handed to {@link Double#parseDouble(String)}.
+   */
+  static double parseDouble(byte[] bytes, int offset, int length) {
+    int start = offset;
+    int end = offset + length;
+    while (start < end && bytes[start] <= ' ' && bytes[start] >= 0) {
+      start++;
+    }
+    while (end > start && bytes[end - 1] <= ' ' && bytes[end - 1] >= 0) {
+      end--;
+    }
+
+    int i = start;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean seenPoint = false;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        mantissa = 10 * mantissa + (b - '0');
+        digits++;
+        if (seenPoint) {
+          fractionDigits++;
+        }
+      } else if (b == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        break;
+      }
+    }
+    if (i == end && digits > 0 && digits <= MAX_EXACT_DIGITS && fractionDigits < POWERS_OF_TEN.length) {
+      double value = mantissa / POWERS_OF_TEN[fractionDigits];
+      return negative ? -value : value;
+    }
+    return Double.parseDouble(new String(bytes, offset, length, Charsets.UTF_8));
+  }
+
   /**
    * Converts a value into a form that would help a human understand the internals of how the value
    * is being interpreted.  For text-like things, this is likely to be a list of the terms found with
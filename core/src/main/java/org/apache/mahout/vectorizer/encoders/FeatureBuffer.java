@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.vectorizer.encoders;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import org.apache.mahout.math.AbstractVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A sparse vector meant to be filled by the encoders, handed to a learner and then cleared, over and
+ * over again for every record of a stream.  The non-zero entries are kept as parallel index and
+ * value arrays in order of first insertion, with a small open-addressing table on top to find
+ * them.  {@link #clear()} only touches the entries that were set, and none of the arrays ever shrink,
+ * so once the buffer has seen the largest record of a stream it allocates nothing.
+ * <p/>
+ * Entries that are set to zero keep their slot until the next {@link #clear()}, so
+ * {@link #iterateNonZero()} may return explicit zeros.
+ */
+public final class FeatureBuffer extends AbstractVector {
+
+  private int[] indices;
+  private double[] values;
+  private int used;
+  // position + 1 of the entry for an index, 0 when the slot is free
+  private int[] table;
+
+  public FeatureBuffer(int cardinality) {
+    this(cardinality, 64);
+  }
+
+  public FeatureBuffer(int cardinality, int initialCapacity) {
+    super(cardinality);
+    Preconditions.checkArgument(initialCapacity > 0, "initialCapacity must be positive: %s", initialCapacity);
+    indices = new int[initialCapacity];
+    values = new double[initialCapacity];
+    table = new int[Integer.highestOneBit(2 * initialCapacity - 1) << 1];
+  }
+
+  /**
+   * Removes all entries.  Takes time proportional to the number of entries, not the cardinality.
+   */
+  public void clear() {
+    int mask = table.length - 1;
+    for (int i = 0; i < used; i++) {
+      int slot = mix(indices[i]) & mask;
+      while (table[slot] != 0) {
+        table[slot] = 0;
+        slot = (slot + 1) & mask;
+      }
+    }
+    used = 0;
+    lengthSquared = -1.0;
+  }
+
+  /**
+   * Adds to the value at an index with a single lookup.
+   */
+  public void increment(int index, double delta) {
+    int position = find(index);
+    if (position >= 0) {
+      values[position] += delta;
+    } else {
+      insert(index, delta);
+    }
+    lengthSquared = -1.0;
+  }
+
+  /**
+   * @return the index of the {@code i}th entry, in order of insertion
+   */
+  public int indexAt(int i) {
+    return indices[i];
+  }
+
+  /**
+   * @return the value of the {@code i}th entry, in order of insertion
+   */
+  public double valueAt(int i) {
+    return values[i];
+  }
+
+  @Override
+  public double getQuick(int index) {
+    int position = find(index);
+    return position >= 0 ? values[position] : 0.0;
+  }
+
+  @Override
+  public void setQuick(int index, double value) {
+    int position = find(index);
+    if (position >= 0) {
+      values[position] = value;
+    } else if (value != 0.0) {
+      insert(index, value);
+    }
+    lengthSquared = -1.0;
+  }
+
+  @Override
+  public int getNumNondefaultElements() {
+    return used;
+  }
+
+  @Override
+  public boolean isDense() {
+    return false;
+  }
+
+  @Override
+  public boolean isSequentialAccess() {
+    return false;
+  }
+
+  @Override
+  public FeatureBuffer like() {
+    return new FeatureBuffer(size(), indices.length);
+  }
+
+  @Override
+  protected Matrix matrixLike(int rows, int columns) {
+    return new SparseRowMatrix(rows, columns);
+  }
+
+  @Override
+  public FeatureBuffer clone() {
+    FeatureBuffer r = (FeatureBuffer) super.clone();
+    r.indices = indices.clone();
+    r.values = values.clone();
+    r.table = table.clone();
+    return r;
+  }
+
+  /**
+   * NOTE: this implementation reuses the Vector.Element instance for each call of next(). If you need to preserve the
+   * instance, you need to make a copy of it
+   */
+  @Override
+  public Iterator<Element> iterateNonZero() {
+    return new AbstractIterator<Element>() {
+      private final BufferElement element = new BufferElement();
+
+      @Override
+      protected Element computeNext() {
+        if (element.position + 1 >= used) {
+          return endOfData();
+        }
+        element.position++;
+        return element;
+      }
+    };
+  }
+
+  @Override
+  public Iterator<Element> iterator() {
+    return new AbstractIterator<Element>() {
+      private int index;
+
+      @Override
+      protected Element computeNext() {
+        if (index >= size()) {
+          return endOfData();
+        }
+        return getElement(index++);
+      }
+    };
+  }
+
+  private final class BufferElement implements Element {
+    private int position = -1;
+
+    @Override
+    public double get() {
+      return values[position];
+    }
+
+    @Override
+    public int index() {
+      return indices[position];
+    }
+
+    @Override
+    public void set(double value) {
+      lengthSquared = -1.0;
+      values[position] = value;
+    }
+  }
+
+  private int find(int index) {
+    int mask = table.length - 1;
+    int slot = mix(index) & mask;
+    while (table[slot] != 0) {
+      int position = table[slot] - 1;
+      if (indices[position] == index) {
+        return position;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void insert(int index, double value) {
+    if (used == indices.length) {
+      indices = Arrays.copyOf(indices, 2 * used);
+      values = Arrays.copyOf(values, 2 * used);
+    }
+    indices[used] = index;
+    values[used] = value;
+    used++;
+    if (2 * used > table.length) {
+      rehash(2 * table.length);
+    } else {
+      int mask = table.length - 1;
+      int slot = mix(index) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = used;
+    }
+  }
+
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    int mask = capacity - 1;
+    for (int position = 0; position < used; position++) {
+      int slot = mix(indices[position]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = position + 1;
+    }
+  }
+
+  private static int mix(int index) {
+    int h = index * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
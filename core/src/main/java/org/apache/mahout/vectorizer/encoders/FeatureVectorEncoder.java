@@ -22,6 +22,7 @@ import com.google.common.collect.Sets;
 import org.apache.mahout.math.MurmurHash;
 import org.apache.mahout.math.Vector;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -88,6 +89,23 @@ public abstract class FeatureVectorEncoder {
 
   public abstract void addToVector(byte[] originalForm, double weight, Vector data);
 
+  /**
+   * Adds a weighted value held in a slice of a larger byte array, typically a record that was read
+   * into a reusable buffer.  This encodes exactly as {@link #addToVector(byte[], double, Vector)}
+   * would for a copy of the slice.  The default implementation makes that copy; the word, continuous
+   * and constant encoders override this to hash the slice in place so that encoding a record creates
+   * no garbage.
+   *
+   * @param bytes        The buffer holding the original form of the value.
+   * @param offset       Where the value starts in {@code bytes}.
+   * @param length       The length of the value in bytes.
+   * @param weight       The weight to be applied to this feature.
+   * @param data         The vector to which the value should be added.
+   */
+  public void addToVector(byte[] bytes, int offset, int length, double weight, Vector data) {
+    addToVector(Arrays.copyOfRange(bytes, offset, offset + length), weight, data);
+  }
+
   /**
    * Provides the unique hash for a particular probe.  For all encoders except text, this
    * is all that is needed and the default implementation of hashesForProbe will do the right
@@ -117,10 +135,25 @@ public abstract class FeatureVectorEncoder {
     return Collections.singletonList(hashForProbe(originalForm, dataSize, name, probe));
   }
 
+  /**
+   * Slice version of {@link #hashForProbe(byte[], int, String, int)}.  The default implementation
+   * copies the slice.
+   */
+  protected int hashForProbe(byte[] bytes, int offset, int length, int dataSize, String name, int probe) {
+    return hashForProbe(Arrays.copyOfRange(bytes, offset, offset + length), dataSize, name, probe);
+  }
+
   protected double getWeight(byte[] originalForm, double w) {
     return 1.0;
   }
 
+  /**
+   * Slice version of {@link #getWeight(byte[], double)}.  The default implementation copies the slice.
+   */
+  protected double getWeight(byte[] bytes, int offset, int length, double w) {
+    return getWeight(Arrays.copyOfRange(bytes, offset, offset + length), w);
+  }
+
   // ******* Utility functions used by most implementations
 
   /**
@@ -187,8 +220,25 @@ public abstract class FeatureVectorEncoder {
    *         term and probe.
    */
   protected int hash(byte[] term1, byte[] term2, int probe, int numFeatures) {
+    return hash(term1, term2, 0, term2.length, probe, numFeatures);
+  }
+
+  /**
+   * Hash a byte array, a slice of a second byte array and an integer into the range
+   * [0..numFeatures-1].  Gives the same result as hashing a copy of the slice.
+   *
+   * @param term1       The first term.
+   * @param bytes       Holds the second term.
+   * @param offset      Where the second term starts in {@code bytes}.
+   * @param length      The length of the second term.
+   * @param probe       An integer that modifies the resulting hash.
+   * @param numFeatures The range into which the resulting hash must fit.
+   * @return An integer in the range [0..numFeatures-1] that has good spread for small changes in
+   *         term and probe.
+   */
+  protected static int hash(byte[] term1, byte[] bytes, int offset, int length, int probe, int numFeatures) {
     long r = MurmurHash.hash64A(term1, probe);
-    r = MurmurHash.hash64A(term2, (int) r) % numFeatures;
+    r = MurmurHash.hash64A(bytes, offset, length, (int) r) % numFeatures;
     if (r < 0) {
       r += numFeatures;
     }
@@ -269,6 +319,10 @@ public abstract class FeatureVectorEncoder {
     trace(new String(subName, Charsets.UTF_8), n);
   }
 
+  protected void trace(byte[] bytes, int offset, int length, int n) {
+    trace(new String(bytes, offset, length, Charsets.UTF_8), n);
+  }
+
   public void setTraceDictionary(Map<String, Set<Integer>> traceDictionary) {
     this.traceDictionary = traceDictionary;
   }
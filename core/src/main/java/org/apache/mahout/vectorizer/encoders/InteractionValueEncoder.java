@@ -94,6 +94,42 @@ public class InteractionValueEncoder extends FeatureVectorEncoder {
     }
   }
 
+  /**
+   * Adds a value to a vector, taking both values from slices of byte arrays.  Unless one of the
+   * values is text, which hashes to many locations, this hashes the slices in place and creates no
+   * garbage.
+   *
+   * @param bytes1        Holds the first value.
+   * @param offset1       Where the first value starts in {@code bytes1}.
+   * @param length1       The length of the first value.
+   * @param bytes2        Holds the second value.
+   * @param offset2       Where the second value starts in {@code bytes2}.
+   * @param length2       The length of the second value.
+   * @param weight        How much to weight this interaction
+   * @param data          The vector to which the value should be added.
+   */
+  public void addInteractionToVector(byte[] bytes1, int offset1, int length1,
+                                     byte[] bytes2, int offset2, int length2, double weight, Vector data) {
+    if (firstEncoder instanceof TextValueEncoder || secondEncoder instanceof TextValueEncoder) {
+      addInteractionToVector(Arrays.copyOfRange(bytes1, offset1, offset1 + length1),
+                             Arrays.copyOfRange(bytes2, offset2, offset2 + length2), weight, data);
+      return;
+    }
+    String name = getName();
+    double w = firstEncoder.getWeight(bytes1, offset1, length1, 1.0)
+        * secondEncoder.getWeight(bytes2, offset2, length2, 1.0) * weight;
+    for (int i = 0; i < probes(); i++) {
+      int k = firstEncoder.hashForProbe(bytes1, offset1, length1, data.size(), name, i % firstEncoder.getProbes());
+      int j = secondEncoder.hashForProbe(bytes2, offset2, length2, data.size(), name, i % secondEncoder.getProbes());
+      int n = (k + j) % data.size();
+      if (isTraceEnabled()) {
+        trace(String.format("%s:%s", Arrays.toString(Arrays.copyOfRange(bytes1, offset1, offset1 + length1)),
+            Arrays.toString(Arrays.copyOfRange(bytes2, offset2, offset2 + length2))), n);
+      }
+      data.set(n, data.get(n) + w);
+    }
+  }
+
   private int probes() {
     return getProbes();
   }
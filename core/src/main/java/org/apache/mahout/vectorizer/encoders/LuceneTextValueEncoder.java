@@ -21,11 +21,13 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.mahout.common.lucene.TokenStreamIterator;
+import org.apache.mahout.math.Vector;
 
 
 import java.io.IOException;
 import java.io.Reader;
 import java.nio.CharBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
@@ -58,6 +60,14 @@ public class LuceneTextValueEncoder extends TextValueEncoder {
     }
   }
 
+  /**
+   * The analyzer works on characters, so slices are decoded just like whole arrays are.
+   */
+  @Override
+  public void addToVector(byte[] bytes, int offset, int length, double weight, Vector data) {
+    addToVector(Arrays.copyOfRange(bytes, offset, offset + length), weight, data);
+  }
+
   private static final class CharSequenceReader extends Reader {
     private final CharBuffer buf;
 
@@ -77,4 +77,16 @@ public class StaticWordValueEncoder extends WordValueEncoder {
     }
     return weight;
   }
+
+  @Override
+  protected double weight(byte[] bytes, int offset, int length) {
+    double weight = missingValueWeight;
+    if (dictionary != null) {
+      String s = new String(bytes, offset, length, Charsets.UTF_8);
+      if (dictionary.containsKey(s)) {
+        weight = dictionary.get(s);
+      }
+    }
+    return weight;
+  }
 }
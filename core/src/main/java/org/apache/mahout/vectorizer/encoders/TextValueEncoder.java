@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multiset;
 import org.apache.mahout.math.Vector;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.regex.Pattern;
 
@@ -41,11 +42,13 @@ public class TextValueEncoder extends FeatureVectorEncoder {
 
   private FeatureVectorEncoder wordEncoder;
   private final Multiset<String> counts;
+  private final SliceCounts sliceCounts;
 
   public TextValueEncoder(String name) {
     super(name, 2);
     wordEncoder = new StaticWordValueEncoder(name);
     counts = HashMultiset.create();
+    sliceCounts = new SliceCounts();
   }
 
   /**
@@ -60,6 +63,46 @@ public class TextValueEncoder extends FeatureVectorEncoder {
     flush(weight, data);
   }
 
+  /**
+   * Adds a value held in a slice of a buffer to a vector.  The slice is split on the same
+   * non-alphanum characters as {@link #tokenize(CharSequence)} does, but in place, and each distinct
+   * word is handed to the word encoder as a slice as well, so no Strings are created.  Anything
+   * added with {@link #addText(CharSequence)} but not yet flushed is flushed too.
+   */
+  @Override
+  public void addToVector(byte[] bytes, int offset, int length, double weight, Vector data) {
+    int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      while (i < end && !isWordByte(bytes[i])) {
+        i++;
+      }
+      int start = i;
+      int hash = 0;
+      while (i < end && isWordByte(bytes[i])) {
+        hash = 31 * hash + bytes[i];
+        i++;
+      }
+      if (i > start) {
+        sliceCounts.add(bytes, start, i - start, hash);
+      }
+    }
+    for (int word = 0; word < sliceCounts.size; word++) {
+      wordEncoder.addToVector(bytes, sliceCounts.starts[word], sliceCounts.lengths[word],
+          weight * Math.log1p(sliceCounts.counts[word]) / LOG_2, data);
+    }
+    sliceCounts.clear();
+    flush(weight, data);
+  }
+
+  /**
+   * Mirrors the {@code \W} character class.  Bytes of multi-byte UTF-8 sequences are never word
+   * characters, just as the characters they encode are not.
+   */
+  private static boolean isWordByte(byte b) {
+    return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '_';
+  }
+
   /**
    * Adds text to the internal word counter, but delays converting it to vector
    * form until flush is called.
@@ -107,7 +150,8 @@ public class TextValueEncoder extends FeatureVectorEncoder {
 
   /**
    * Tokenizes a string using the simplest method.  This should be over-ridden for more subtle
-   * tokenization.
+   * tokenization, in which case {@link #addToVector(byte[], int, int, double, Vector)} should be
+   * over-ridden as well since it splits raw bytes on its own.
    * @see LuceneTextValueEncoder
    */
   protected Iterable<String> tokenize(CharSequence originalForm) {
@@ -139,4 +183,83 @@ public class TextValueEncoder extends FeatureVectorEncoder {
   public final void setWordEncoder(FeatureVectorEncoder wordEncoder) {
     this.wordEncoder = wordEncoder;
   }
+
+  /**
+   * Counts distinct words of a single buffer by position, so that they can be encoded without
+   * copying.  The arrays only grow, so once warmed up counting a record allocates nothing.
+   */
+  private static final class SliceCounts {
+    private int[] starts = new int[16];
+    private int[] lengths = new int[16];
+    private int[] counts = new int[16];
+    private int[] hashes = new int[16];
+    private int size;
+    // index + 1 of the word in each slot, 0 when the slot is free
+    private int[] table = new int[32];
+    private byte[] bytes;
+
+    void add(byte[] bytes, int start, int length, int hash) {
+      this.bytes = bytes;
+      int mask = table.length - 1;
+      int slot = mix(hash) & mask;
+      while (table[slot] != 0) {
+        int word = table[slot] - 1;
+        if (hashes[word] == hash && sameBytes(starts[word], lengths[word], start, length)) {
+          counts[word]++;
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, 2 * size);
+        lengths = Arrays.copyOf(lengths, 2 * size);
+        counts = Arrays.copyOf(counts, 2 * size);
+        hashes = Arrays.copyOf(hashes, 2 * size);
+      }
+      starts[size] = start;
+      lengths[size] = length;
+      counts[size] = 1;
+      hashes[size] = hash;
+      size++;
+      table[slot] = size;
+      if (2 * size > table.length) {
+        rehash(2 * table.length);
+      }
+    }
+
+    void clear() {
+      Arrays.fill(table, 0);
+      size = 0;
+      bytes = null;
+    }
+
+    private boolean sameBytes(int start1, int length1, int start2, int length2) {
+      if (length1 != length2) {
+        return false;
+      }
+      for (int i = 0; i < length1; i++) {
+        if (bytes[start1 + i] != bytes[start2 + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rehash(int newCapacity) {
+      table = new int[newCapacity];
+      int mask = newCapacity - 1;
+      for (int word = 0; word < size; word++) {
+        int slot = mix(hashes[word]) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = word + 1;
+      }
+    }
+
+    private static int mix(int hash) {
+      int h = hash * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
 }
@@ -19,6 +19,7 @@ package org.apache.mahout.vectorizer.encoders;
 
 import org.apache.mahout.math.Vector;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 /**
@@ -53,17 +54,40 @@ public abstract class WordValueEncoder extends FeatureVectorEncoder {
     }
   }
 
+  @Override
+  public void addToVector(byte[] bytes, int offset, int length, double w, Vector data) {
+    int probes = getProbes();
+    String name = getName();
+    double weight = getWeight(bytes, offset, length, w);
+    for (int i = 0; i < probes; i++) {
+      int n = hashForProbe(bytes, offset, length, data.size(), name, i);
+      if (isTraceEnabled()) {
+        trace(bytes, offset, length, n);
+      }
+      data.set(n, data.get(n) + weight);
+    }
+  }
 
   @Override
   protected double getWeight(byte[] originalForm, double w) {
     return w * weight(originalForm);
   }
 
+  @Override
+  protected double getWeight(byte[] bytes, int offset, int length, double w) {
+    return w * weight(bytes, offset, length);
+  }
+
   @Override
   protected int hashForProbe(byte[] originalForm, int dataSize, String name, int probe) {
     return hash(nameBytes, originalForm, WORD_LIKE_VALUE_HASH_SEED + probe, dataSize);
   }
 
+  @Override
+  protected int hashForProbe(byte[] bytes, int offset, int length, int dataSize, String name, int probe) {
+    return hash(nameBytes, bytes, offset, length, WORD_LIKE_VALUE_HASH_SEED + probe, dataSize);
+  }
+
     /**
    * Converts a value into a form that would help a human understand the internals of how the value
    * is being interpreted.  For text-like things, this is likely to be a list of the terms found with
@@ -78,4 +102,11 @@ public abstract class WordValueEncoder extends FeatureVectorEncoder {
   }
 
   protected abstract double weight(byte[] originalForm);
+
+  /**
+   * Slice version of {@link #weight(byte[])}.  The default implementation copies the slice.
+   */
+  protected double weight(byte[] bytes, int offset, int length) {
+    return weight(Arrays.copyOfRange(bytes, offset, offset + length));
+  }
 }
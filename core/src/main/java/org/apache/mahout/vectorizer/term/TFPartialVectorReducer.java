@@ -37,7 +37,6 @@ import org.apache.mahout.math.RandomAccessSparseVector;
 import org.apache.mahout.math.SequentialAccessSparseVector;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.VectorWritable;
-import org.apache.mahout.math.map.OpenObjectIntHashMap;
 import org.apache.mahout.vectorizer.DictionaryVectorizer;
 import org.apache.mahout.vectorizer.common.PartialVectorMerger;
 
@@ -50,7 +49,7 @@ import java.util.Iterator;
  */
 public class TFPartialVectorReducer extends Reducer<Text, StringTuple, Text, VectorWritable> {
 
-  private final OpenObjectIntHashMap<String> dictionary = new OpenObjectIntHashMap<String>();
+  private final TermDictionary dictionary = new TermDictionary();
 
   private int dimension;
 
@@ -60,6 +59,10 @@ public class TFPartialVectorReducer extends Reducer<Text, StringTuple, Text, Vec
 
   private int maxNGramSize = 1;
 
+  private double normPower;
+
+  private boolean logNormalize;
+
   @Override
   protected void reduce(Text key, Iterable<StringTuple> values, Context context)
           throws IOException, InterruptedException {
@@ -75,9 +78,9 @@ public class TFPartialVectorReducer extends Reducer<Text, StringTuple, Text, Vec
       ShingleFilter sf = new ShingleFilter(new IteratorTokenStream(value.getEntries().iterator()), maxNGramSize);
       try {
         do {
-          String term = sf.getAttribute(CharTermAttribute.class).toString();
-          if (!term.isEmpty() && dictionary.containsKey(term)) { // ngram
-            int termId = dictionary.get(term);
+          CharTermAttribute term = sf.getAttribute(CharTermAttribute.class);
+          int termId = term.length() > 0 ? dictionary.get(term) : -1;
+          if (termId >= 0) { // ngram
             vector.setQuick(termId, vector.getQuick(termId) + 1);
           }
         } while (sf.incrementToken());
@@ -88,12 +91,20 @@ public class TFPartialVectorReducer extends Reducer<Text, StringTuple, Text, Vec
       }
     } else {
       for (String term : value.getEntries()) {
-        if (!term.isEmpty() && dictionary.containsKey(term)) { // unigram
-          int termId = dictionary.get(term);
+        int termId = term.isEmpty() ? -1 : dictionary.get(term);
+        if (termId >= 0) { // unigram
           vector.setQuick(termId, vector.getQuick(termId) + 1);
         }
       }
     }
+    // only set when the whole dictionary is in one chunk, so that there are no partial vectors to merge
+    if (normPower != PartialVectorMerger.NO_NORMALIZING) {
+      if (logNormalize) {
+        vector = vector.logNormalize(normPower);
+      } else {
+        vector = vector.normalize(normPower);
+      }
+    }
     if (sequentialAccess) {
       vector = new SequentialAccessSparseVector(vector);
     }
@@ -123,6 +134,8 @@ public class TFPartialVectorReducer extends Reducer<Text, StringTuple, Text, Vec
     sequentialAccess = conf.getBoolean(PartialVectorMerger.SEQUENTIAL_ACCESS, false);
     namedVector = conf.getBoolean(PartialVectorMerger.NAMED_VECTOR, false);
     maxNGramSize = conf.getInt(DictionaryVectorizer.MAX_NGRAMS, maxNGramSize);
+    normPower = conf.getFloat(PartialVectorMerger.NORMALIZATION_POWER, PartialVectorMerger.NO_NORMALIZING);
+    logNormalize = conf.getBoolean(PartialVectorMerger.LOG_NORMALIZE, false);
 
     Path dictionaryFile = new Path(localFiles[0].getPath());
     // key is word value is id
@@ -130,6 +143,7 @@ public class TFPartialVectorReducer extends Reducer<Text, StringTuple, Text, Vec
             : new SequenceFileIterable<Writable, IntWritable>(dictionaryFile, true, conf)) {
       dictionary.put(record.getFirst().toString(), record.getSecond().get());
     }
+    dictionary.trimToSize();
   }
 
 }
@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer.term;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A map from terms to ids that keeps no object per term: the characters of all the terms are stored one after
+ * the other in a single {@code char[]}, and an open addressing table of {@code int}s points into it. It takes
+ * about 2 bytes per character plus 16 bytes per term, instead of the 60 bytes or more that a {@link String} in
+ * a hash map costs, so dictionaries of millions of terms fit in memory at once.
+ *
+ * Terms can be looked up by any {@link CharSequence}, e.g. the buffer of a token, without creating a
+ * {@link String}. Once built, the dictionary can be read by several threads.
+ */
+public final class TermDictionary {
+
+  private static final float LOAD_FACTOR = 1.5f;
+
+  private char[] chars;
+  private int numChars;
+  /** start of each term in {@link #chars}, plus the end of the last term */
+  private int[] offsets;
+  private int[] ids;
+  private int numTerms;
+  /** index of the term + 1 in each slot, 0 for empty slots */
+  private int[] table;
+
+  public TermDictionary() {
+    this(16);
+  }
+
+  /**
+   * @param size expected number of terms
+   */
+  public TermDictionary(int size) {
+    Preconditions.checkArgument(size >= 0, "size must be at least 0");
+    chars = new char[Math.max(16, size * 8)];
+    offsets = new int[size + 1];
+    ids = new int[size];
+    table = new int[tableSize(size)];
+  }
+
+  private static int tableSize(int size) {
+    int minSize = Math.max(2, (int) Math.ceil(size * (double) LOAD_FACTOR));
+    return Integer.highestOneBit(minSize - 1) << 1;
+  }
+
+  private static int hash(CharSequence term) {
+    // same as String.hashCode(), with the bits spread since the table size is a power of two
+    int hash = 0;
+    for (int i = 0; i < term.length(); i++) {
+      hash = 31 * hash + term.charAt(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private boolean equals(int index, CharSequence term) {
+    int start = offsets[index];
+    int length = offsets[index + 1] - start;
+    if (length != term.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (chars[start + i] != term.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the slot of the term, or the empty slot where it would be added
+   */
+  private int find(CharSequence term) {
+    int mask = table.length - 1;
+    int slot = hash(term) & mask;
+    int entry;
+    while ((entry = table[slot]) != 0 && !equals(entry - 1, term)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  public int size() {
+    return numTerms;
+  }
+
+  public boolean containsKey(CharSequence term) {
+    return table[find(term)] != 0;
+  }
+
+  /**
+   * @return the id of the term, or -1 if it is not in the dictionary
+   */
+  public int get(CharSequence term) {
+    int entry = table[find(term)];
+    return entry == 0 ? -1 : ids[entry - 1];
+  }
+
+  /**
+   * Adds a term, or changes its id if it is already in the dictionary
+   */
+  public void put(CharSequence term, int id) {
+    int slot = find(term);
+    if (table[slot] != 0) {
+      ids[table[slot] - 1] = id;
+      return;
+    }
+    if (numTerms == ids.length) {
+      int capacity = Math.max(16, numTerms * 2);
+      ids = Arrays.copyOf(ids, capacity);
+      offsets = Arrays.copyOf(offsets, capacity + 1);
+    }
+    int length = term.length();
+    if (numChars + length > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(numChars + length, chars.length * 2));
+    }
+    for (int i = 0; i < length; i++) {
+      chars[numChars + i] = term.charAt(i);
+    }
+    numChars += length;
+    ids[numTerms] = id;
+    offsets[numTerms + 1] = numChars;
+    numTerms++;
+    if (numTerms * LOAD_FACTOR > table.length) {
+      rehash(table.length * 2);
+    } else {
+      table[slot] = numTerms;
+    }
+  }
+
+  private void rehash(int newTableSize) {
+    table = new int[newTableSize];
+    int mask = newTableSize - 1;
+    for (int index = 0; index < numTerms; index++) {
+      // the terms are all different, so only an empty slot is needed
+      int slot = hash(new CharTermView(index)) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = index + 1;
+    }
+  }
+
+  /**
+   * @return the term added in the given position, in the order the terms were added
+   */
+  public String termAt(int index) {
+    Preconditions.checkElementIndex(index, numTerms);
+    return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+  }
+
+  /**
+   * @return the id of the term added in the given position
+   */
+  public int idAt(int index) {
+    Preconditions.checkElementIndex(index, numTerms);
+    return ids[index];
+  }
+
+  /**
+   * Releases the space reserved for terms that were not added
+   */
+  public void trimToSize() {
+    chars = Arrays.copyOf(chars, numChars);
+    offsets = Arrays.copyOf(offsets, numTerms + 1);
+    ids = Arrays.copyOf(ids, numTerms);
+  }
+
+  /**
+   * A term of the dictionary seen as a {@link CharSequence}, to rehash it without copying it
+   */
+  private final class CharTermView implements CharSequence {
+
+    private final int start;
+    private final int end;
+
+    CharTermView(int index) {
+      start = offsets[index];
+      end = offsets[index + 1];
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return chars[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return new String(chars, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+      return new String(chars, start, end - start);
+    }
+  }
+
+}
@@ -24,7 +24,17 @@ public class PredictionArray implements Serializable
     {
 	pa= new double[size];
 	nr= new double[size];
-  
+	update(set);
+    }
+
+    /**
+     * Recomputes the prediction array from the given set, reusing the arrays of this instance.
+     *
+     * @param set The classifier set out of which a prediction array is formed (normally the match set).
+     */
+    public void update(XClassifierSet set)
+    {
+	int size=pa.length;
 	for(int i=0; i<size; i++){
 	    pa[i]=0.;
 	    nr[i]=0.;
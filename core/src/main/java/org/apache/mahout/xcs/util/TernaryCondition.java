@@ -0,0 +1,247 @@
+package org.apache.mahout.xcs.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A ternary classifier condition over {0, 1, #} packed into bit vectors. Each position is represented by one bit in
+ * a care mask, set if the position is specified, and one bit in a value vector, which holds the specified value
+ * (and is always 0 for don't care positions). A condition matches a state packed by {@link #encode(String, long[])}
+ * if <code>((state ^ values) & care) == 0</code> holds for every word, so 64 positions are compared at once.
+ */
+public final class TernaryCondition implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int LOG_BITS = 6;
+
+    private static final int BITS_MASK = (1 << LOG_BITS) - 1;
+
+    /**
+     * The number of positions in the condition.
+     */
+    private final int length;
+
+    /**
+     * Bit i is set if position i is specified, i.e. is not a don't care symbol.
+     */
+    private final long[] care;
+
+    /**
+     * Bit i is set if position i is specified as '1'.
+     */
+    private final long[] values;
+
+    /**
+     * Constructs a condition of don't care symbols only.
+     *
+     * @param length The number of positions in the condition.
+     */
+    public TernaryCondition(int length)
+    {
+        this.length=length;
+        care=new long[words(length)];
+        values=new long[care.length];
+    }
+
+    /**
+     * Constructs a copy of the given condition.
+     */
+    public TernaryCondition(TernaryCondition other)
+    {
+        length=other.length;
+        care=other.care.clone();
+        values=other.values.clone();
+    }
+
+    /**
+     * Parses a condition written with the characters '0', '1' and {@link XCSConstants#dontCare}.
+     */
+    public static TernaryCondition valueOf(String condition)
+    {
+        TernaryCondition result=new TernaryCondition(condition.length());
+        for(int i=0; i<condition.length(); i++){
+            char c=condition.charAt(i);
+            if(c!=XCSConstants.dontCare)
+                result.set(i, c=='1');
+        }
+        return result;
+    }
+
+    /**
+     * Packs a binary state into bits, reusing the given array if it is large enough.
+     *
+     * @param state The state as a string of '0' and '1' characters.
+     * @param into An array to reuse, may be null.
+     * @return The packed state, which is <code>into</code> if it was large enough.
+     */
+    public static long[] encode(String state, long[] into)
+    {
+        int numWords=words(state.length());
+        long[] bits=(into!=null && into.length>=numWords) ? into : new long[numWords];
+        Arrays.fill(bits, 0, numWords, 0L);
+        for(int i=0; i<state.length(); i++){
+            if(state.charAt(i)=='1')
+                bits[i >>> LOG_BITS] |= 1L << (i & BITS_MASK);
+        }
+        return bits;
+    }
+
+    private static int words(int length)
+    {
+        return (length+BITS_MASK) >>> LOG_BITS;
+    }
+
+    /**
+     * Returns the number of positions in the condition.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Returns if the condition matches the packed state.
+     *
+     * @param state The state packed by {@link #encode(String, long[])}.
+     * @param stateLength The number of positions in the state.
+     */
+    public boolean matches(long[] state, int stateLength)
+    {
+        if(stateLength!=length)
+            return false;
+        for(int w=0; w<care.length; w++){
+            if(((state[w] ^ values[w]) & care[w]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the condition matches the state given as a string of '0' and '1' characters.
+     */
+    public boolean matches(String state)
+    {
+        if(state.length()!=length)
+            return false;
+        for(int i=0; i<length; i++){
+            if(!isDontCare(i) && getValue(i)!=(state.charAt(i)=='1'))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns if position i is a don't care symbol.
+     */
+    public boolean isDontCare(int i)
+    {
+        return (care[i >>> LOG_BITS] & (1L << (i & BITS_MASK))) == 0;
+    }
+
+    /**
+     * Returns the specified value at position i, which is false for a don't care symbol.
+     */
+    public boolean getValue(int i)
+    {
+        return (values[i >>> LOG_BITS] & (1L << (i & BITS_MASK))) != 0;
+    }
+
+    /**
+     * Specifies position i.
+     */
+    public void set(int i, boolean value)
+    {
+        int w=i >>> LOG_BITS;
+        long bit=1L << (i & BITS_MASK);
+        care[w] |= bit;
+        if(value)
+            values[w] |= bit;
+        else
+            values[w] &= ~bit;
+    }
+
+    /**
+     * Sets position i to the don't care symbol.
+     */
+    public void setDontCare(int i)
+    {
+        int w=i >>> LOG_BITS;
+        long bit=1L << (i & BITS_MASK);
+        care[w] &= ~bit;
+        values[w] &= ~bit;
+    }
+
+    /**
+     * Exchanges the positions <code>from</code> (inclusive) to <code>to</code> (exclusive) with the other condition,
+     * as done by two point crossover, and returns if any position differed.
+     */
+    public boolean swapRange(TernaryCondition other, int from, int to)
+    {
+        boolean changed=false;
+        for(int w=from >>> LOG_BITS; w<words(to); w++){
+            long mask=-1L;
+            if(w==from >>> LOG_BITS)
+                mask &= -1L << (from & BITS_MASK);
+            if(w==(to-1) >>> LOG_BITS && (to & BITS_MASK)!=0)
+                mask &= -1L >>> (Long.SIZE-(to & BITS_MASK));
+            long careDiff=(care[w] ^ other.care[w]) & mask;
+            long valueDiff=(values[w] ^ other.values[w]) & mask;
+            if((careDiff | valueDiff) != 0){
+                changed=true;
+                care[w] ^= careDiff;
+                other.care[w] ^= careDiff;
+                values[w] ^= valueDiff;
+                other.values[w] ^= valueDiff;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns if this condition is strictly more general than the other one, i.e. it matches every state the other
+     * one matches, and more.
+     */
+    public boolean isMoreGeneral(TernaryCondition other)
+    {
+        boolean ret=false;
+        for(int w=0; w<care.length; w++){
+            if((care[w] & ~other.care[w]) != 0 || ((values[w] ^ other.values[w]) & care[w]) != 0)
+                return false;
+            if((other.care[w] & ~care[w]) != 0)
+                ret=true;
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(!(o instanceof TernaryCondition))
+            return false;
+        TernaryCondition other=(TernaryCondition)o;
+        return length==other.length && Arrays.equals(care, other.care) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(care) + Arrays.hashCode(values);
+    }
+
+    /**
+     * Returns the condition written with the characters '0', '1' and {@link XCSConstants#dontCare}.
+     */
+    @Override
+    public String toString()
+    {
+        char[] chars=new char[length];
+        for(int i=0; i<length; i++){
+            if(isDontCare(i))
+                chars[i]=XCSConstants.dontCare;
+            else
+                chars[i]=getValue(i) ? '1' : '0';
+        }
+        return new String(chars);
+    }
+}
@@ -18,6 +18,15 @@ public class XCS implements Serializable
      * Stores the current population of XCS.
      */
     private XClassifierSet pop;
+
+    /**
+     * Match sets, action sets and the prediction array are reused from step to step instead of being created anew.
+     * Two sets of each kind are kept since in multi step problems the action set of the previous step 
+     * (and through it its match set) is still updated in the current step.
+     */
+    private XClassifierSet[] matchSets;
+    private XClassifierSet[] actionSets;
+    private PredictionArray predictionArray;
     
     /**
      * Stores the specified output File, where the performance will be written.
@@ -151,6 +160,9 @@ public class XCS implements Serializable
             
             //Initialize Population
             pop=new XClassifierSet(env.getNrActions());
+            matchSets=new XClassifierSet[] {new XClassifierSet(), new XClassifierSet()};
+            actionSets=new XClassifierSet[] {new XClassifierSet(), new XClassifierSet()};
+            predictionArray=new PredictionArray(matchSets[0], env.getNrActions());
 
             if(!env.isMultiStepProblem()){
                 doOneSingleStepExperiment(pW);
@@ -158,6 +170,9 @@ public class XCS implements Serializable
                 doOneMultiStepExperiment(pW);
             }
             pop=null;
+            matchSets=null;
+            actionSets=null;
+            predictionArray=null;
         }
     }
 
@@ -207,13 +222,15 @@ public class XCS implements Serializable
      */
     private void doOneSingleStepProblemExplore(String state, int counter)
     {
-        XClassifierSet matchSet = new XClassifierSet(state, pop, counter, env.getNrActions());
+        XClassifierSet matchSet = matchSets[0];
+        matchSet.formMatchSet(state, pop, counter, env.getNrActions());
 
-        PredictionArray predictionArray = new PredictionArray(matchSet, env.getNrActions());
+        predictionArray.update(matchSet);
 
         int actionWinner = predictionArray.randomActionWinner();
     
-        XClassifierSet actionSet = new XClassifierSet(matchSet, actionWinner);
+        XClassifierSet actionSet = actionSets[0];
+        actionSet.formActionSet(matchSet, actionWinner);
     
         double reward = env.executeAction( actionWinner );
 
@@ -236,9 +253,10 @@ public class XCS implements Serializable
      */
     private void doOneSingleStepProblemExploit(String state, int counter, int[] correct, double[] sysError)
     {
-        XClassifierSet matchSet = new XClassifierSet(state, pop, counter, env.getNrActions());
+        XClassifierSet matchSet = matchSets[0];
+        matchSet.formMatchSet(state, pop, counter, env.getNrActions());
     
-        PredictionArray predictionArray = new PredictionArray (matchSet, env.getNrActions());
+        predictionArray.update(matchSet);
 
         int actionWinner = predictionArray.bestActionWinner();
     
@@ -311,13 +329,15 @@ public class XCS implements Serializable
         String prevState=null;
 
         for(steps=0; steps<cons.teletransportation; steps++){
-            XClassifierSet matchSet = new XClassifierSet(state, pop, stepCounter+steps, env.getNrActions());
+            XClassifierSet matchSet = matchSets[steps%2];
+            matchSet.formMatchSet(state, pop, stepCounter+steps, env.getNrActions());
       
-            PredictionArray predictionArray = new PredictionArray(matchSet, env.getNrActions());
+            predictionArray.update(matchSet);
 
             int actionWinner = predictionArray.randomActionWinner();
     
-            XClassifierSet actionSet = new XClassifierSet(matchSet, actionWinner);
+            XClassifierSet actionSet = actionSets[steps%2];
+            actionSet.formActionSet(matchSet, actionWinner);
 
             double reward = env.executeAction( actionWinner );
 
@@ -370,13 +390,15 @@ public class XCS implements Serializable
 
         sysError[trialCounter%50]=0.;
         for( steps=0; steps<cons.teletransportation; steps++){
-            XClassifierSet matchSet = new XClassifierSet(state, pop, stepCounter, env.getNrActions());
+            XClassifierSet matchSet = matchSets[steps%2];
+            matchSet.formMatchSet(state, pop, stepCounter, env.getNrActions());
       
-            PredictionArray predictionArray = new PredictionArray(matchSet, env.getNrActions());
+            predictionArray.update(matchSet);
 
             int actionWinner = predictionArray.bestActionWinner();
     
-            XClassifierSet actionSet = new XClassifierSet(matchSet, actionWinner);
+            XClassifierSet actionSet = actionSets[steps%2];
+            actionSet.formActionSet(matchSet, actionWinner);
     
             double reward = env.executeAction( actionWinner );
       
@@ -9,7 +9,7 @@ public class XClassifier implements Serializable
     /**
      * The condition of this classifier.
      */
-    private String condition;
+    private TernaryCondition condition;
 
     /**
      * The action of this classifier.
@@ -117,7 +117,7 @@ public class XClassifier implements Serializable
      */
     public XClassifier(XClassifier clOld)
     {
-	condition=new String(clOld.condition);
+	condition=new TernaryCondition(clOld.condition);
 	action=clOld.action;	
 	this.prediction=clOld.prediction;
 	this.predictionError=clOld.predictionError;
@@ -136,17 +136,11 @@ public class XClassifier implements Serializable
      */
     private void createRandomCondition(int condLength)
     {
-	char condArray[]=new char[condLength];
+	condition=new TernaryCondition(condLength);
 	for(int i=0; i<condLength; i++){
-	    if(cons.drand()<cons.P_dontcare)
-		condArray[i]=cons.dontCare;
-	    else
-		if(cons.drand()<0.5)
-		    condArray[i]='0';
-		else
-		    condArray[i]='1';
+	    if(cons.drand()>=cons.P_dontcare)
+		condition.set(i, cons.drand()>=0.5);
 	}
-	condition=new String(condArray);
     }	
 		
     /**
@@ -157,15 +151,12 @@ public class XClassifier implements Serializable
     private void createMatchingCondition(String cond)
     {
 	int condLength=cond.length();
-	char condArray[]= new char[condLength];
+	condition=new TernaryCondition(condLength);
     
 	for(int i=0; i<condLength; i++){
-	    if(cons.drand()<cons.P_dontcare)
-		condArray[i]=cons.dontCare;
-	    else
-		condArray[i]=cond.charAt(i);
+	    if(cons.drand()>=cons.P_dontcare)
+		condition.set(i, cond.charAt(i)=='1');
 	}
-	condition=new String(condArray);
     }
   
     /**
@@ -206,13 +197,20 @@ public class XClassifier implements Serializable
      */
     public boolean match(String state)
     {
-	if(condition.length()!=state.length())
-	    return false;
-	for(int i=0; i<condition.length(); i++){
-	    if(condition.charAt(i)!=cons.dontCare && condition.charAt(i)!=state.charAt(i))
-		return false;
-	}
-	return true;
+	return condition.matches(state);
+    }
+
+    /**
+     * Returns if the classifier matches in the current situation, given in packed form.
+     * This is the fast path used when forming match sets, comparing 64 attributes at a time.
+     *
+     * @see TernaryCondition#encode
+     * @param state The current situation packed into bits.
+     * @param stateLength The number of attributes in the current situation.
+     */
+    public boolean match(long[] state, int stateLength)
+    {
+	return condition.matches(state, stateLength);
     }
 	
     /**
@@ -235,20 +233,7 @@ public class XClassifier implements Serializable
 	    }else if(sep1==sep2){
 		sep2++;
 	    }
-	    char[] cond1=condition.toCharArray();
-	    char[] cond2=cl.condition.toCharArray();
-	    for(int i=sep1; i<sep2; i++){
-		if(cond1[i]!=cond2[i]){
-		    changed=true;
-		    char help=cond1[i];
-		    cond1[i]=cond2[i];
-		    cond2[i]=help;
-		}
-	    }
-	    if(changed){
-		condition=new String(cond1);
-		cl.condition=new String(cond2);
-	    }
+	    changed=condition.swapRange(cl.condition, sep1, sep2);
 	}
 	return changed;
     }
@@ -284,15 +269,12 @@ public class XClassifier implements Serializable
     
 	for(int i=0; i<condLength; i++){
 	    if(cons.drand()<cons.pM){
-		char[] cond=condition.toCharArray();
-		char[] stateC=state.toCharArray();
 		changed=true;
-		if(cond[i]==cons.dontCare){
-		    cond[i]=stateC[i];
+		if(condition.isDontCare(i)){
+		    condition.set(i, state.charAt(i)=='1');
 		}else{
-		    cond[i]=cons.dontCare;
+		    condition.setDontCare(i);
 		}
-		condition=new String(cond);
 	    }
 	}
 	return changed;
@@ -369,15 +351,7 @@ public class XClassifier implements Serializable
      */
     public boolean isMoreGeneral(XClassifier cl)
     {
-	boolean ret=false;
-	int length=condition.length();
-	for(int i=0; i<length; i++){
-	    if(condition.charAt(i) != cons.dontCare && condition.charAt(i) != cl.condition.charAt(i))
-		return false;
-	    else if(condition.charAt(i) !=  cl.condition.charAt(i))
-		ret = true;
-	}
-	return ret;
+	return condition.isMoreGeneral(cl.condition);
     }
 
     /**
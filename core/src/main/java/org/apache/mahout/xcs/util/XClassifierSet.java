@@ -1,6 +1,7 @@
 package org.apache.mahout.xcs.util;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Vector;
 import java.io.PrintWriter;
 
@@ -33,6 +34,17 @@ public class XClassifierSet implements Serializable
      */
     private int cllSize;
 
+    /**
+     * Buffers reused each time this set is formed anew as a match set, see {@link #formMatchSet}.
+     */
+    private long[] stateBits;
+    private boolean[] actionCovered;
+
+    /**
+     * Buffer for the accuracies computed in {@link #updateFitnessSet}.
+     */
+    private double[] accuracies;
+
     /**
      * Creates a new, empty population initializing the population array to the maximal population size 
      * plus the number of possible actions.
@@ -63,18 +75,39 @@ public class XClassifierSet implements Serializable
      */
     public XClassifierSet(String state, XClassifierSet pop, int time, int numberOfActions)
     {
-        parentSet=pop;
-        numerositySum=0;
-        cllSize=0;
         clSet=new XClassifier[pop.cllSize+numberOfActions];
+        formMatchSet(state, pop, time, numberOfActions);
+    }
+
+    /**
+     * Constructs an empty set meant to be reused as a match or action set over and over again through
+     * {@link #formMatchSet} and {@link #formActionSet}, which avoids allocating new sets in every step.
+     */
+    public XClassifierSet()
+    {
+        clSet=new XClassifier[0];
+    }
+
+    /**
+     * Forms this set as the match set of the given situation, as the corresponding constructor does, 
+     * but reusing the buffers of this set. Matching is done on the bit packed situation.
+     *
+     * @see #XClassifierSet(String,XClassifierSet,int,int)
+     */
+    public void formMatchSet(String state, XClassifierSet pop, int time, int numberOfActions)
+    {
+        reset(pop, pop.cllSize+numberOfActions);
 
-        boolean[] actionCovered =  new boolean[numberOfActions];
-        for(int i=0; i<actionCovered.length; i++)
-            actionCovered[i]=false;
+        if(actionCovered==null || actionCovered.length!=numberOfActions)
+            actionCovered=new boolean[numberOfActions];
+        else
+            Arrays.fill(actionCovered, false);
 
+        stateBits=TernaryCondition.encode(state, stateBits);
+        int stateLength=state.length();
         for(int i=0; i<pop.cllSize; i++){
             XClassifier cl=pop.clSet[i];
-            if( cl.match(state)){
+            if( cl.match(stateBits, stateLength)){
                 addClassifier(cl);
                 actionCovered[cl.getAction()]=true;
             }
@@ -120,10 +153,19 @@ public class XClassifierSet implements Serializable
      */
     public XClassifierSet(XClassifierSet matchSet, int action)
     {
-        parentSet=matchSet;
-        numerositySum=0;
-        cllSize=0;
         clSet=new XClassifier[matchSet.cllSize];
+        formActionSet(matchSet, action);
+    }
+
+    /**
+     * Forms this set as the action set of the given match set, as the corresponding constructor does, 
+     * but reusing the buffers of this set.
+     *
+     * @see #XClassifierSet(XClassifierSet,int)
+     */
+    public void formActionSet(XClassifierSet matchSet, int action)
+    {
+        reset(matchSet, matchSet.cllSize);
 
         for(int i=0; i<matchSet.cllSize; i++){
             if( matchSet.clSet[i].getAction() == action){
@@ -132,6 +174,21 @@ public class XClassifierSet implements Serializable
         }
     }
 
+    /**
+     * Empties the set, makes it a subset of the given parent and assures room for the given number of classifiers.
+     */
+    private void reset(XClassifierSet parent, int capacity)
+    {
+        parentSet=parent;
+        numerositySum=0;
+        if(clSet.length<capacity){
+            clSet=new XClassifier[capacity];
+        }else{
+            Arrays.fill(clSet, 0, cllSize, null);
+        }
+        cllSize=0;
+    }
+
     /**
      * Returns the position of the classifier in the set if it is present and -1 otherwise.
      */
@@ -200,7 +257,8 @@ public class XClassifierSet implements Serializable
     private void updateFitnessSet()
     {
         double accuracySum=0.;
-        double []accuracies = new double[cllSize];
+        if(accuracies==null || accuracies.length<cllSize)
+            accuracies=new double[clSet.length];
 
         //First, calculate the accuracies of the classifier and the accuracy sums
         for(int i=0; i<cllSize; i++){
@@ -22,7 +22,17 @@ import org.apache.mahout.cf.taste.impl.TasteTestCase;
 import org.apache.mahout.common.RandomUtils;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
 
 public final class CacheTest extends TasteTestCase {
 
@@ -52,6 +62,112 @@ public final class CacheTest extends TasteTestCase {
     }
   }
   
+  @Test
+  public void testBoundedSize() throws TasteException {
+    Cache<Object,Object> cache = new Cache<Object,Object>(new IdentityRetriever(), 100, 4);
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, cache.get(i));
+    }
+    assertTrue(cache.size() <= 100);
+  }
+
+  @Test
+  public void testCounters() throws TasteException {
+    Cache<Object,Object> cache = new Cache<Object,Object>(new IdentityRetriever());
+    for (int i = 0; i < 10; i++) {
+      cache.get(i);
+    }
+    for (int i = 0; i < 10; i++) {
+      cache.get(i);
+    }
+    cache.remove(3);
+    cache.get(3);
+    assertEquals(10, cache.getHitCount());
+    assertEquals(11, cache.getMissCount());
+    assertEquals(11, cache.getLoadCount());
+    assertTrue(cache.getTotalLoadTime() >= 0);
+  }
+
+  @Test
+  public void testNullValues() throws TasteException {
+    final AtomicInteger calls = new AtomicInteger();
+    Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) {
+        calls.incrementAndGet();
+        return null;
+      }
+    });
+    assertNull(cache.get("foo"));
+    assertNull(cache.get("foo"));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testConcurrentMissesLoadOnce() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) throws TasteException {
+        calls.incrementAndGet();
+        try {
+          release.await();
+        } catch (InterruptedException ie) {
+          throw new TasteException(ie);
+        }
+        return key;
+      }
+    });
+    int numThreads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Future<Object>> results = Lists.newArrayList();
+    for (int i = 0; i < numThreads; i++) {
+      results.add(executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws TasteException {
+          return cache.get("key");
+        }
+      }));
+    }
+    // give all threads the chance to miss before the single load completes
+    while (cache.getMissCount() < numThreads) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    for (Future<Object> result : results) {
+      assertEquals("key", result.get());
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(1, calls.get());
+    assertEquals(1, cache.getLoadCount());
+  }
+
+  @Test(expected = TasteException.class)
+  public void testRetrieverException() throws TasteException {
+    Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) throws TasteException {
+        throw new TasteException("no value");
+      }
+    });
+    cache.get("foo");
+  }
+
+  @Test(expected = IllegalStateException.class, timeout = 10000)
+  public void testRecursiveLoadFails() throws TasteException {
+    final List<Cache<Object,Object>> self = Lists.newArrayList();
+    Cache<Object,Object> cache = new Cache<Object,Object>(new Retriever<Object,Object>() {
+      @Override
+      public Object get(Object key) throws TasteException {
+        return self.get(0).get(key);
+      }
+    });
+    self.add(cache);
+    cache.get("foo");
+  }
+
   private static class IdentityRetriever implements Retriever<Object,Object> {
     @Override
     public Object get(Object key) throws TasteException {
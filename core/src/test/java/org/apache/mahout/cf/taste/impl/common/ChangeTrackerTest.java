@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.junit.Test;
+
+/** Tests {@link ChangeTracker} */
+public final class ChangeTrackerTest extends TasteTestCase {
+
+  @Test
+  public void testChangedSince() {
+    ChangeTracker tracker = new ChangeTracker();
+    long before = tracker.now();
+    assertFalse(tracker.changedSince(1L, before));
+    tracker.changed(1L);
+    assertTrue(tracker.changedSince(1L, before));
+    assertFalse(tracker.changedSince(2L, before));
+    long after = tracker.now();
+    assertFalse(tracker.changedSince(1L, after));
+    tracker.changed(2L);
+    assertFalse(tracker.changedSince(1L, after));
+    assertTrue(tracker.changedSince(2L, after));
+  }
+
+  @Test
+  public void testLatestChangeWins() {
+    ChangeTracker tracker = new ChangeTracker();
+    tracker.changed(1L);
+    long time = tracker.now();
+    tracker.changed(1L);
+    assertTrue(tracker.changedSince(1L, time));
+    assertFalse(tracker.changedSince(1L, tracker.now()));
+  }
+
+}
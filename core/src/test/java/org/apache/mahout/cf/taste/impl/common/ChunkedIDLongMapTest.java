@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import com.google.common.collect.Maps;
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+/** <p>Tests {@link ChunkedIDLongMap}.</p> */
+public final class ChunkedIDLongMapTest extends TasteTestCase {
+
+  @Test
+  public void testPutAndGet() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    assertEquals(ChunkedIDLongMap.NO_VALUE, map.get(500000L));
+    assertEquals(ChunkedIDLongMap.NO_VALUE, map.put(500000L, 2L));
+    assertEquals(2L, map.get(500000L));
+    assertEquals(2L, map.put(500000L, 3L));
+    assertEquals(3L, map.get(500000L));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testRemove() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    map.put(500000L, 2L);
+    assertEquals(2L, map.remove(500000L));
+    assertEquals(0, map.size());
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(500000L));
+    assertEquals(ChunkedIDLongMap.NO_VALUE, map.remove(500000L));
+  }
+
+  @Test(timeout = 10000)
+  public void testMissingKeyInFullTable() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap(4, 1.0f);
+    for (long key = 1; key <= 4; key++) {
+      map.put(key, key);
+    }
+    assertEquals(ChunkedIDLongMap.NO_VALUE, map.get(99L));
+    assertFalse(map.containsKey(99L));
+    assertEquals(ChunkedIDLongMap.NO_VALUE, map.remove(99L));
+    assertEquals(4, map.size());
+  }
+
+  @Test
+  public void testClear() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    map.put(500000L, 2L);
+    map.clear();
+    assertEquals(0, map.size());
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(500000L));
+  }
+
+  @Test
+  public void testReservedKey() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    try {
+      map.put(Long.MIN_VALUE, 1L);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      // good
+    }
+    assertFalse(map.containsKey(Long.MIN_VALUE));
+    map.put(Long.MAX_VALUE, 1L);
+    assertEquals(1L, map.get(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testRehash() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    for (long key = 0; key < 100; key++) {
+      map.put(key, -key);
+    }
+    for (long key = 0; key < 90; key++) {
+      map.remove(key);
+    }
+    map.rehash();
+    assertEquals(10, map.size());
+    for (long key = 0; key < 100; key++) {
+      assertEquals(key >= 90, map.containsKey(key));
+    }
+    assertEquals(-95L, map.get(95L));
+  }
+
+  @Test
+  public void testKeySetIterator() {
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    for (long key = 1; key <= 50; key++) {
+      map.put(key * 7, key);
+    }
+    LongPrimitiveIterator it = map.keySetIterator();
+    long sum = 0;
+    int count = 0;
+    while (it.hasNext()) {
+      assertEquals(it.peek(), it.nextLong());
+      count++;
+    }
+    assertEquals(50, count);
+    for (it = map.keySetIterator(); it.hasNext();) {
+      sum += map.get(it.nextLong());
+    }
+    assertEquals(50 * 51 / 2, sum);
+  }
+
+  @Test
+  public void testFromSorted() {
+    long[] ids = {-5L, 3L, 4L, 100L, 1000000000000L};
+    ChunkedIDLongMap map = ChunkedIDLongMap.fromSorted(new LongPrimitiveArrayIterator(ids), ids.length);
+    assertEquals(ids.length, map.size());
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(i, map.get(ids[i]));
+    }
+    try {
+      ChunkedIDLongMap.fromSorted(new LongPrimitiveArrayIterator(new long[] {1L, 3L, 3L}), 3);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      // good
+    }
+  }
+
+  /**
+   * Enough entries to spread the table over several chunks
+   */
+  @Test
+  public void testManyChunks() {
+    int size = 3000000;
+    ChunkedIDLongMap map = new ChunkedIDLongMap();
+    for (int i = 0; i < size; i++) {
+      map.put(i * 31L, i);
+    }
+    assertEquals(size, map.size());
+    for (int i = 0; i < size; i += 3) {
+      assertEquals(i, map.remove(i * 31L));
+    }
+    for (int i = 0; i < size; i++) {
+      assertEquals(i % 3 == 0 ? ChunkedIDLongMap.NO_VALUE : i, map.get(i * 31L));
+    }
+  }
+
+  @Test
+  public void testVersusHashMap() {
+    ChunkedIDLongMap actual = new ChunkedIDLongMap();
+    Map<Long, Long> expected = Maps.newHashMapWithExpectedSize(1000000);
+    Random r = RandomUtils.getRandom();
+    for (int i = 0; i < 1000000; i++) {
+      double d = r.nextDouble();
+      Long key = (long) r.nextInt(100);
+      if (d < 0.4) {
+        assertEquals(expected.containsKey(key), actual.containsKey(key));
+        assertEquals(expected.containsKey(key) ? expected.get(key) : ChunkedIDLongMap.NO_VALUE, actual.get(key));
+      } else {
+        long value = r.nextLong();
+        Long old = d < 0.7 ? expected.put(key, value) : expected.remove(key);
+        long actualOld = d < 0.7 ? actual.put(key, value) : actual.remove(key);
+        assertEquals(old == null ? ChunkedIDLongMap.NO_VALUE : old, actualOld);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+      }
+    }
+  }
+
+}
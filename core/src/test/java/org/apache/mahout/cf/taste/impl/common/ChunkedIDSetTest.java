@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.common;
+
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Random;
+
+/** <p>Tests {@link ChunkedIDSet}.</p> */
+public final class ChunkedIDSetTest extends TasteTestCase {
+
+  @Test
+  public void testContainsAndAdd() {
+    ChunkedIDSet set = new ChunkedIDSet();
+    assertFalse(set.contains(1));
+    assertTrue(set.add(1));
+    assertFalse(set.add(1));
+    assertTrue(set.contains(1));
+  }
+
+  @Test(timeout = 10000)
+  public void testMissingKeyInFullTable() {
+    ChunkedIDSet set = new ChunkedIDSet(4, 1.0f);
+    for (long key = 1; key <= 4; key++) {
+      set.add(key);
+    }
+    assertFalse(set.contains(99L));
+    assertFalse(set.remove(99L));
+    assertEquals(4, set.size());
+  }
+
+  @Test
+  public void testRemove() {
+    ChunkedIDSet set = new ChunkedIDSet();
+    set.add(1);
+    assertTrue(set.remove(1));
+    assertFalse(set.remove(1));
+    assertEquals(0, set.size());
+    assertTrue(set.isEmpty());
+    assertFalse(set.contains(1));
+  }
+
+  @Test
+  public void testReservedValue() {
+    ChunkedIDSet set = new ChunkedIDSet();
+    try {
+      set.add(Long.MIN_VALUE);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      // good
+    }
+    assertFalse(set.contains(Long.MIN_VALUE));
+  }
+
+  @Test
+  public void testIteratorAndToArray() {
+    ChunkedIDSet set = new ChunkedIDSet(1);
+    set.addAll(new long[] {1L, 2L, 3L});
+    Collection<Long> expected = new HashSet<Long>(Arrays.asList(1L, 2L, 3L));
+    LongPrimitiveIterator it = set.iterator();
+    while (it.hasNext()) {
+      assertTrue(expected.remove(it.nextLong()));
+    }
+    assertTrue(expected.isEmpty());
+    long[] array = set.toArray();
+    Arrays.sort(array);
+    assertArrayEquals(new long[] {1L, 2L, 3L}, array);
+  }
+
+  @Test
+  public void testIntersectionSize() {
+    ChunkedIDSet set1 = new ChunkedIDSet();
+    set1.addAll(new long[] {1L, 2L, 3L, 4L});
+    ChunkedIDSet set2 = new ChunkedIDSet();
+    set2.addAll(new long[] {3L, 4L, 5L});
+    assertEquals(2, set1.intersectionSize(set2));
+    assertEquals(2, set2.intersectionSize(set1));
+  }
+
+  @Test
+  public void testFromSorted() {
+    long[] ids = {-5L, 3L, 4L, 100L};
+    ChunkedIDSet set = ChunkedIDSet.fromSorted(new LongPrimitiveArrayIterator(ids), ids.length);
+    assertEquals(ids.length, set.size());
+    for (long id : ids) {
+      assertTrue(set.contains(id));
+    }
+    try {
+      ChunkedIDSet.fromSorted(new LongPrimitiveArrayIterator(new long[] {3L, 1L}), 2);
+      fail("Should have thrown IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      // good
+    }
+  }
+
+  @Test
+  public void testVersusHashSet() {
+    ChunkedIDSet actual = new ChunkedIDSet(1);
+    Collection<Long> expected = new HashSet<Long>(1000000);
+    Random r = RandomUtils.getRandom();
+    for (int i = 0; i < 1000000; i++) {
+      double d = r.nextDouble();
+      long key = r.nextInt(100);
+      if (d < 0.4) {
+        assertEquals(expected.contains(key), actual.contains(key));
+      } else {
+        if (d < 0.7) {
+          assertEquals(expected.add(key), actual.add(key));
+        } else {
+          assertEquals(expected.remove(key), actual.remove(key));
+        }
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+      }
+    }
+  }
+
+}
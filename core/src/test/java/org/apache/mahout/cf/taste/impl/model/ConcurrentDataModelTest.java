@@ -0,0 +1,326 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.similarity.CachingItemSimilarity;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.model.PreferenceChangeListener;
+import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
+import org.apache.mahout.common.RandomUtils;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentDataModel}.
+ */
+public final class ConcurrentDataModelTest extends TasteTestCase {
+
+  @Test
+  public void testCopiesInitialData() throws Exception {
+    DataModel original = getDataModel();
+    ConcurrentDataModel model = new ConcurrentDataModel(GenericDataModel.toDataMap(original));
+    assertEquals(original.getNumUsers(), model.getNumUsers());
+    assertEquals(original.getNumItems(), model.getNumItems());
+    assertEquals(original.getMinPreference(), model.getMinPreference(), EPSILON);
+    assertEquals(original.getMaxPreference(), model.getMaxPreference(), EPSILON);
+    assertSameIDs(original.getUserIDs(), model.getUserIDs());
+    assertSameIDs(original.getItemIDs(), model.getItemIDs());
+    LongPrimitiveIterator itemIDs = original.getItemIDs();
+    while (itemIDs.hasNext()) {
+      long itemID = itemIDs.nextLong();
+      assertEquals(original.getPreferencesForItem(itemID), model.getPreferencesForItem(itemID));
+    }
+    assertEquals(original.getNumUsersWithPreferenceFor(0, 1), model.getNumUsersWithPreferenceFor(0, 1));
+  }
+
+  @Test
+  public void testSetAndRemove() throws Exception {
+    ConcurrentDataModel model = new ConcurrentDataModel();
+    model.setPreference(1, 20, 2.0f);
+    model.setPreference(1, 10, 1.0f, 1000L);
+    model.setPreference(2, 10, 3.0f);
+
+    PreferenceArray fromUser = model.getPreferencesFromUser(1);
+    assertEquals(2, fromUser.length());
+    assertEquals(10, fromUser.getItemID(0));
+    assertEquals(20, fromUser.getItemID(1));
+    assertEquals(1.0f, model.getPreferenceValue(1, 10), EPSILON);
+    assertEquals(Long.valueOf(1000L), model.getPreferenceTime(1, 10));
+    assertNull(model.getPreferenceTime(1, 20));
+    assertNull(model.getPreferenceValue(2, 20));
+    assertEquals(2, model.getNumUsersWithPreferenceFor(10));
+    assertEquals(1, model.getNumUsersWithPreferenceFor(10, 20));
+    assertEquals(1.0f, model.getMinPreference(), EPSILON);
+    assertEquals(3.0f, model.getMaxPreference(), EPSILON);
+    assertSameIDs(new long[] {1, 2}, model.getUserIDs());
+    assertSameIDs(new long[] {10, 20}, model.getItemIDs());
+
+    // updates replace the value and keep arrays sorted
+    model.setPreference(1, 10, 5.0f);
+    assertEquals(5.0f, model.getPreferenceValue(1, 10), EPSILON);
+    assertNull(model.getPreferenceTime(1, 10));
+    PreferenceArray forItem = model.getPreferencesForItem(10);
+    assertEquals(1, forItem.getUserID(0));
+    assertEquals(2, forItem.getUserID(1));
+    assertEquals(5.0f, forItem.getValue(0), EPSILON);
+    // arrays handed out earlier are unaffected
+    assertEquals(1.0f, fromUser.getValue(0), EPSILON);
+
+    model.removePreference(2, 10);
+    assertSameIDs(new long[] {1}, model.getUserIDs());
+    try {
+      model.getPreferencesFromUser(2);
+      fail();
+    } catch (NoSuchUserException nsue) {
+      // good
+    }
+    model.removePreference(1, 20);
+    assertSameIDs(new long[] {10}, model.getItemIDs());
+    try {
+      model.getPreferencesForItem(20);
+      fail();
+    } catch (NoSuchItemException nsie) {
+      // good
+    }
+    // removing what is not there is fine
+    model.removePreference(1, 20);
+    model.removePreference(3, 30);
+    assertEquals(1, model.getNumUsers());
+    assertEquals(1, model.getNumItems());
+  }
+
+  @Test
+  public void testListeners() throws Exception {
+    ConcurrentDataModel model = new ConcurrentDataModel();
+    PreferenceChangeListener listener = EasyMock.createMock(PreferenceChangeListener.class);
+    listener.preferenceChanged(1, 2);
+    listener.preferenceChanged(1, 2);
+    EasyMock.replay(listener);
+
+    model.addPreferenceChangeListener(listener);
+    model.setPreference(1, 2, 1.0f);
+    model.removePreference(1, 2);
+    // not there, no notification
+    model.removePreference(1, 2);
+    model.removePreferenceChangeListener(listener);
+    model.setPreference(1, 2, 1.0f);
+
+    EasyMock.verify(listener);
+  }
+
+  @Test
+  public void testInvalidatesCachedSimilarities() throws Exception {
+    ConcurrentDataModel model = new ConcurrentDataModel();
+    ItemSimilarity similarity = EasyMock.createMock(ItemSimilarity.class);
+    EasyMock.expect(similarity.itemSimilarity(1, 2)).andReturn(0.5);
+    EasyMock.expect(similarity.itemSimilarity(3, 4)).andReturn(0.1);
+    EasyMock.expect(similarity.itemSimilarity(1, 2)).andReturn(0.7);
+    EasyMock.replay(similarity);
+
+    CachingItemSimilarity caching = new CachingItemSimilarity(similarity, 100);
+    model.addPreferenceChangeListener(caching);
+    assertEquals(0.5, caching.itemSimilarity(1, 2), EPSILON);
+    assertEquals(0.1, caching.itemSimilarity(3, 4), EPSILON);
+    model.setPreference(7, 2, 1.0f);
+    // only similarities involving item 2 are recomputed
+    assertEquals(0.7, caching.itemSimilarity(2, 1), EPSILON);
+    assertEquals(0.1, caching.itemSimilarity(3, 4), EPSILON);
+
+    EasyMock.verify(similarity);
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final ConcurrentDataModel model = new ConcurrentDataModel();
+    final int numUsers = 50;
+    final int numItems = 40;
+    int numThreads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int t = 0; t < numThreads; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            Random random = RandomUtils.getRandom(thread);
+            // every thread sets every preference, then removes those of odd items, in its own order
+            for (int i = 0; i < numUsers * numItems; i++) {
+              model.setPreference(random.nextInt(numUsers), random.nextInt(numItems), 1.0f);
+            }
+            for (int user = 0; user < numUsers; user++) {
+              for (int item = 0; item < numItems; item++) {
+                model.setPreference(user, item, item);
+              }
+            }
+            for (int user = 0; user < numUsers; user++) {
+              for (int item = 1; item < numItems; item += 2) {
+                model.removePreference(user, item);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(numUsers, model.getNumUsers());
+    assertEquals(numItems / 2, model.getNumItems());
+    for (int user = 0; user < numUsers; user++) {
+      PreferenceArray prefs = model.getPreferencesFromUser(user);
+      assertEquals(numItems / 2, prefs.length());
+      for (int i = 0; i < prefs.length(); i++) {
+        assertEquals(2 * i, prefs.getItemID(i));
+        assertEquals(2 * i, prefs.getValue(i), EPSILON);
+      }
+    }
+    for (int item = 0; item < numItems; item += 2) {
+      assertEquals(numUsers, model.getNumUsersWithPreferenceFor(item));
+    }
+  }
+
+  @Test
+  public void testSetAndRemoveSamePreference() throws Exception {
+    final ConcurrentDataModel model = new ConcurrentDataModel();
+    final int numPairs = 8;
+    int numThreads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int t = 0; t < numThreads; t++) {
+        final boolean setting = t % 2 == 0;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            // half of the threads set, the others remove the very same few preferences
+            for (int i = 0; i < 20000; i++) {
+              int pair = i % numPairs;
+              if (setting) {
+                model.setPreference(pair / 2, pair % 2, 1.0f);
+              } else {
+                model.removePreference(pair / 2, pair % 2);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    for (int pair = 0; pair < numPairs; pair++) {
+      long userID = pair / 2;
+      long itemID = pair % 2;
+      boolean fromUser = model.getPreferenceValue(userID, itemID) != null;
+      boolean forItem = false;
+      LongPrimitiveIterator itemIDs = model.getItemIDs();
+      while (itemIDs.hasNext()) {
+        if (itemIDs.nextLong() == itemID) {
+          PreferenceArray prefs = model.getPreferencesForItem(itemID);
+          for (int i = 0; i < prefs.length(); i++) {
+            forItem |= prefs.getUserID(i) == userID;
+          }
+        }
+      }
+      assertEquals(fromUser, forItem);
+    }
+  }
+
+  @Test
+  public void testReturnsSnapshots() throws Exception {
+    ConcurrentDataModel model = new ConcurrentDataModel();
+    model.setPreference(1, 1, 3.0f);
+    model.setPreference(1, 2, 1.0f);
+    model.setPreference(2, 1, 5.0f);
+
+    PreferenceArray userPrefs = model.getPreferencesFromUser(1);
+    PreferenceArray itemPrefs = model.getPreferencesForItem(1);
+    assertSame(userPrefs, model.getPreferencesFromUser(1));
+    model.setPreference(1, 1, 4.0f);
+    model.removePreference(2, 1);
+
+    // updates publish new arrays and leave those already returned untouched
+    assertEquals(2, userPrefs.length());
+    assertEquals(3.0f, userPrefs.getValue(0), EPSILON);
+    assertEquals(2, itemPrefs.length());
+    assertEquals(5.0f, itemPrefs.getValue(1), EPSILON);
+    assertEquals(4.0f, model.getPreferencesFromUser(1).getValue(0), EPSILON);
+    assertEquals(1, model.getPreferencesForItem(1).length());
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    ConcurrentDataModel model = new ConcurrentDataModel(GenericDataModel.toDataMap(getDataModel()));
+    model.setPreference(10, 20, 1.0f, 1234L);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(baos);
+    out.writeObject(model);
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    ConcurrentDataModel copy = (ConcurrentDataModel) in.readObject();
+    assertEquals(model.getNumUsers(), copy.getNumUsers());
+    assertSameIDs(model.getItemIDs(), copy.getItemIDs());
+    assertEquals(Long.valueOf(1234L), copy.getPreferenceTime(10, 20));
+    copy.addPreferenceChangeListener(EasyMock.createNiceMock(PreferenceChangeListener.class));
+    copy.setPreference(10, 21, 2.0f);
+    assertEquals(2, copy.getPreferencesFromUser(10).length());
+  }
+
+  private static void assertSameIDs(long[] expected, LongPrimitiveIterator actual) {
+    for (long id : expected) {
+      assertTrue(actual.hasNext());
+      assertEquals(id, actual.nextLong());
+    }
+    assertFalse(actual.hasNext());
+  }
+
+  private static void assertSameIDs(LongPrimitiveIterator expected, LongPrimitiveIterator actual) {
+    while (expected.hasNext()) {
+      assertTrue(actual.hasNext());
+      assertEquals(expected.nextLong(), actual.nextLong());
+    }
+    assertFalse(actual.hasNext());
+  }
+
+}
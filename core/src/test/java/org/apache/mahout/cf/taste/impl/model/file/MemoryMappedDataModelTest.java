@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.model.file;
+
+import java.io.File;
+
+import org.apache.mahout.cf.taste.common.NoSuchItemException;
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
+import org.apache.mahout.cf.taste.common.TasteException;
+import org.apache.mahout.cf.taste.eval.IRStatistics;
+import org.apache.mahout.cf.taste.eval.RecommenderBuilder;
+import org.apache.mahout.cf.taste.eval.RecommenderIRStatsEvaluator;
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.common.LongPrimitiveIterator;
+import org.apache.mahout.cf.taste.impl.eval.GenericRecommenderIRStatsEvaluator;
+import org.apache.mahout.cf.taste.impl.neighborhood.NearestNUserNeighborhood;
+import org.apache.mahout.cf.taste.impl.recommender.GenericUserBasedRecommender;
+import org.apache.mahout.cf.taste.impl.recommender.slopeone.SlopeOneRecommender;
+import org.apache.mahout.cf.taste.impl.similarity.PearsonCorrelationSimilarity;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.neighborhood.UserNeighborhood;
+import org.apache.mahout.cf.taste.recommender.Recommender;
+import org.apache.mahout.cf.taste.similarity.UserSimilarity;
+import org.junit.Before;
+import org.junit.Test;
+
+/** <p>Tests {@link MemoryMappedDataModel}.</p> */
+public final class MemoryMappedDataModelTest extends TasteTestCase {
+
+  private static final String[] DATA = {
+      "123,456,0.1,1000",
+      "123,789,0.6,1001",
+      "123,654,0.7,1002",
+      "234,123,0.5,1003",
+      "234,234,1.0,1004",
+      "234,999,0.9,1005",
+      "345,789,0.6,1006",
+      "345,654,0.7,1007",
+      "345,123,1.0,1008",
+      "345,234,0.5,1009",
+      "345,999,0.5,1010",
+      "456,456,0.1,1011",
+      "456,789,0.5,1012",
+      "456,654,0.0,1013",
+      "456,999,0.2,1014",};
+
+  private DataModel textModel;
+  private DataModel model;
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    File textFile = getTestTempFile("test.txt");
+    writeLines(textFile, DATA);
+    File binaryFile = getTestTempFile("binary.bin");
+    MemoryMappedDataModelWriter.convert(textFile, binaryFile);
+    textModel = new FileDataModel(textFile);
+    model = new MemoryMappedDataModel(binaryFile);
+  }
+
+  @Test
+  public void testSameAsTextModel() throws Exception {
+    assertEquals(textModel.getNumUsers(), model.getNumUsers());
+    assertEquals(textModel.getNumItems(), model.getNumItems());
+    assertEquals(textModel.getMinPreference(), model.getMinPreference(), EPSILON);
+    assertEquals(textModel.getMaxPreference(), model.getMaxPreference(), EPSILON);
+    assertTrue(model.hasPreferenceValues());
+
+    LongPrimitiveIterator userIDs = model.getUserIDs();
+    LongPrimitiveIterator textUserIDs = textModel.getUserIDs();
+    while (textUserIDs.hasNext()) {
+      long userID = textUserIDs.nextLong();
+      assertEquals(userID, userIDs.nextLong());
+      assertPrefsEqual(textModel.getPreferencesFromUser(userID), model.getPreferencesFromUser(userID));
+      assertEquals(textModel.getItemIDsFromUser(userID), model.getItemIDsFromUser(userID));
+    }
+    assertFalse(userIDs.hasNext());
+
+    LongPrimitiveIterator itemIDs = model.getItemIDs();
+    LongPrimitiveIterator textItemIDs = textModel.getItemIDs();
+    while (textItemIDs.hasNext()) {
+      long itemID = textItemIDs.nextLong();
+      assertEquals(itemID, itemIDs.nextLong());
+      assertPrefsEqual(textModel.getPreferencesForItem(itemID), model.getPreferencesForItem(itemID));
+      assertEquals(textModel.getNumUsersWithPreferenceFor(itemID), model.getNumUsersWithPreferenceFor(itemID));
+    }
+    assertFalse(itemIDs.hasNext());
+
+    assertEquals(textModel.getNumUsersWithPreferenceFor(789, 654), model.getNumUsersWithPreferenceFor(789, 654));
+    assertEquals(textModel.getNumUsersWithPreferenceFor(123, 456), model.getNumUsersWithPreferenceFor(123, 456));
+  }
+
+  @Test
+  public void testPreferenceValueAndTime() throws Exception {
+    assertEquals(0.7f, model.getPreferenceValue(345, 654), EPSILON);
+    assertNull(model.getPreferenceValue(345, 456));
+    assertEquals(Long.valueOf(1007L), model.getPreferenceTime(345, 654));
+    assertNull(model.getPreferenceTime(345, 456));
+  }
+
+  @Test
+  public void testPreferenceArrayView() throws Exception {
+    PreferenceArray prefs = model.getPreferencesFromUser(345);
+    assertTrue(prefs.hasPrefWithItemID(999));
+    assertFalse(prefs.hasPrefWithItemID(456));
+    assertTrue(prefs.hasPrefWithUserID(345));
+    PreferenceArray copy = prefs.clone();
+    copy.sortByValueReversed();
+    assertEquals(1.0f, copy.getValue(0), EPSILON);
+    assertEquals(123, copy.getItemID(0));
+  }
+
+  @Test
+  public void testSortViewByValue() throws Exception {
+    PreferenceArray prefs = model.getPreferencesFromUser(345);
+    prefs.sortByValueReversed();
+    assertEquals(123, prefs.getItemID(0));
+    assertEquals(1.0f, prefs.getValue(0), EPSILON);
+    assertEquals(0.5f, prefs.getValue(prefs.length() - 1), EPSILON);
+    assertTrue(prefs.hasPrefWithItemID(999));
+    prefs.sortByValue();
+    assertEquals(0.5f, prefs.getValue(0), EPSILON);
+    assertEquals(1.0f, prefs.getValue(prefs.length() - 1), EPSILON);
+    prefs.sortByItem();
+    assertPrefsEqual(textModel.getPreferencesFromUser(345), prefs);
+  }
+
+  @Test
+  public void testIRStatsEvaluator() throws Exception {
+    RecommenderBuilder builder = new RecommenderBuilder() {
+      @Override
+      public Recommender buildRecommender(DataModel dataModel) throws TasteException {
+        return new SlopeOneRecommender(dataModel);
+      }
+    };
+    RecommenderIRStatsEvaluator evaluator = new GenericRecommenderIRStatsEvaluator();
+    IRStatistics expected = evaluator.evaluate(builder, null, textModel, null, 2, 0.4, 1.0);
+    IRStatistics actual = evaluator.evaluate(builder, null, model, null, 2, 0.4, 1.0);
+    assertEquals(expected.getPrecision(), actual.getPrecision(), EPSILON);
+    assertEquals(expected.getRecall(), actual.getRecall(), EPSILON);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testViewIsReadOnly() throws Exception {
+    model.getPreferencesFromUser(345).setValue(0, 1.0f);
+  }
+
+  @Test(expected = NoSuchUserException.class)
+  public void testNoSuchUser() throws Exception {
+    model.getPreferencesFromUser(1);
+  }
+
+  @Test(expected = NoSuchItemException.class)
+  public void testNoSuchItem() throws Exception {
+    model.getPreferencesForItem(1);
+  }
+
+  @Test
+  public void testBooleanPrefs() throws Exception {
+    File textFile = getTestTempFile("boolean.txt");
+    writeLines(textFile, "1,10", "1,11", "2,10");
+    File binaryFile = getTestTempFile("binary-boolean.bin");
+    MemoryMappedDataModelWriter.convert(textFile, binaryFile);
+    DataModel booleanModel = new MemoryMappedDataModel(binaryFile);
+    assertFalse(booleanModel.hasPreferenceValues());
+    assertEquals(2, booleanModel.getNumUsersWithPreferenceFor(10));
+    assertEquals(1.0f, booleanModel.getPreferenceValue(1, 11), EPSILON);
+    assertEquals(new FastIDSet(new long[] {10, 11}), booleanModel.getItemIDsFromUser(1));
+  }
+
+  @Test
+  public void testRecommend() throws Exception {
+    UserSimilarity userSimilarity = new PearsonCorrelationSimilarity(model);
+    UserNeighborhood neighborhood = new NearestNUserNeighborhood(3, userSimilarity, model);
+    Recommender recommender = new GenericUserBasedRecommender(model, neighborhood, userSimilarity);
+    assertEquals(1, recommender.recommend(123, 3).size());
+    assertEquals(0, recommender.recommend(234, 3).size());
+    assertEquals(1, recommender.recommend(345, 3).size());
+
+    // Make sure this doesn't throw an exception
+    model.refresh(null);
+  }
+
+  private static void assertPrefsEqual(PreferenceArray expected, PreferenceArray actual) {
+    assertEquals(expected.length(), actual.length());
+    for (int i = 0; i < expected.length(); i++) {
+      assertEquals(expected.getUserID(i), actual.getUserID(i));
+      assertEquals(expected.getItemID(i), actual.getItemID(i));
+      assertEquals(expected.getValue(i), actual.getValue(i), EPSILON);
+    }
+  }
+
+}
@@ -75,4 +75,21 @@ public final class CachingRecommenderTest extends TasteTestCase {
     assertEquals(11, recommendCount.intValue());
   }
 
+  @Test
+  public void testPreferenceChanged() throws Exception {
+    MutableInt recommendCount = new MutableInt();
+    CachingRecommender cachingRecommender = new CachingRecommender(new MockRecommender(recommendCount));
+    cachingRecommender.estimatePreference(1, 1);
+    cachingRecommender.estimatePreference(2, 1);
+    assertEquals(2, recommendCount.intValue());
+    cachingRecommender.preferenceChanged(1, 3);
+    // only the estimates of user 1 are recomputed
+    cachingRecommender.estimatePreference(1, 1);
+    assertEquals(3, recommendCount.intValue());
+    cachingRecommender.estimatePreference(2, 1);
+    assertEquals(3, recommendCount.intValue());
+    cachingRecommender.estimatePreference(1, 1);
+    assertEquals(3, recommendCount.intValue());
+  }
+
 }
@@ -18,6 +18,7 @@
 package org.apache.mahout.cf.taste.impl.recommender;
 
 import com.google.common.collect.Lists;
+import org.apache.mahout.cf.taste.common.Refreshable;
 import org.apache.mahout.cf.taste.impl.TasteTestCase;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.impl.model.GenericPreference;
@@ -28,6 +29,7 @@ import org.apache.mahout.cf.taste.model.PreferenceArray;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
 import org.apache.mahout.cf.taste.recommender.ItemBasedRecommender;
 import org.apache.mahout.cf.taste.recommender.MostSimilarItemsCandidateItemsStrategy;
+import org.apache.mahout.cf.taste.recommender.RecommendationCallback;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.apache.mahout.cf.taste.recommender.Recommender;
 import org.apache.mahout.cf.taste.similarity.ItemSimilarity;
@@ -37,6 +39,8 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** <p>Tests {@link GenericItemBasedRecommender}.</p> */
 public final class GenericItemBasedRecommenderTest extends TasteTestCase {
@@ -90,6 +94,103 @@ public final class GenericItemBasedRecommenderTest extends TasteTestCase {
     }
   }
 
+  @Test
+  public void testParallelScoring() throws Exception {
+    DataModel dataModel = getDataModel(
+            new long[] {1, 2, 3, 4, 5},
+            new Double[][] {
+                    {0.1, 0.2},
+                    {0.2, 0.3, 0.3, 0.6},
+                    {0.4, 0.4, 0.5, 0.9},
+                    {0.1, 0.4, 0.5, 0.8, 0.9, 1.0},
+                    {0.2, 0.3, 0.6, 0.7, 0.1, 0.2},
+            });
+
+    Collection<GenericItemSimilarity.ItemItemSimilarity> similarities = Lists.newArrayList();
+    for (int i = 0; i < 6; i++) {
+      for (int j = i + 1; j < 6; j++) {
+        similarities.add(
+            new GenericItemSimilarity.ItemItemSimilarity(i, j, 1.0 / (1.0 + i + j)));
+      }
+    }
+    ItemSimilarity similarity = new GenericItemSimilarity(similarities);
+    GenericItemBasedRecommender recommender = new GenericItemBasedRecommender(dataModel, similarity);
+    List<RecommendedItem> sequential = recommender.recommend(1, 3);
+    assertFalse(sequential.isEmpty());
+    recommender.setMinCandidatesForParallelScoring(1);
+    assertEquals(1, recommender.getMinCandidatesForParallelScoring());
+    assertEquals(sequential, recommender.recommend(1, 3));
+  }
+
+  @Test
+  public void testBatchRecommend() throws Exception {
+    DataModel dataModel = getDataModel();
+    GenericItemBasedRecommender recommender = new GenericItemBasedRecommender(dataModel, new ItemSimilarity() {
+      @Override
+      public double itemSimilarity(long itemID1, long itemID2) {
+        return 1.0 / (1.0 + Math.abs(itemID1 - itemID2));
+      }
+      @Override
+      public double[] itemSimilarities(long itemID1, long[] itemID2s) {
+        double[] result = new double[itemID2s.length];
+        for (int i = 0; i < itemID2s.length; i++) {
+          result[i] = itemSimilarity(itemID1, itemID2s[i]);
+        }
+        return result;
+      }
+      @Override
+      public long[] allSimilarItemIDs(long itemID) {
+        throw new UnsupportedOperationException();
+      }
+      @Override
+      public void refresh(Collection<Refreshable> alreadyRefreshed) {
+      }
+    });
+
+    final Map<Long,List<RecommendedItem>> batch = new ConcurrentHashMap<Long,List<RecommendedItem>>();
+    recommender.recommend(new long[] {1, 2, 3, 4, 5}, 2, null, new RecommendationCallback() {
+      @Override
+      public void recommended(long userID, List<RecommendedItem> recommendations) {
+        assertNull(batch.put(userID, recommendations));
+      }
+    });
+
+    assertEquals(5, batch.size());
+    for (long userID = 1; userID <= 4; userID++) {
+      assertEquals(recommender.recommend(userID, 2), batch.get(userID));
+    }
+    assertTrue(batch.get(5L).isEmpty());
+  }
+
+  @Test
+  public void testOverriddenEstimateUsed() throws Exception {
+    DataModel dataModel = getDataModel();
+    Collection<GenericItemSimilarity.ItemItemSimilarity> similarities = Lists.newArrayList();
+    similarities.add(new GenericItemSimilarity.ItemItemSimilarity(0, 1, 1.0));
+    similarities.add(new GenericItemSimilarity.ItemItemSimilarity(0, 2, 0.5));
+    similarities.add(new GenericItemSimilarity.ItemItemSimilarity(1, 2, 0.0));
+    GenericItemBasedRecommender recommender =
+        new GenericItemBasedRecommender(dataModel, new GenericItemSimilarity(similarities)) {
+          @Override
+          protected float doEstimatePreference(long userID, PreferenceArray preferencesFromUser, long itemID) {
+            return 100.0f + itemID;
+          }
+        };
+
+    List<RecommendedItem> recommended = recommender.recommend(1, 1);
+    assertEquals(1, recommended.size());
+    assertEquals(102.0f, recommended.get(0).getValue(), EPSILON);
+
+    final Map<Long,List<RecommendedItem>> batch = new ConcurrentHashMap<Long,List<RecommendedItem>>();
+    recommender.recommend(new long[] {1}, 1, null, new RecommendationCallback() {
+      @Override
+      public void recommended(long userID, List<RecommendedItem> recommendations) {
+        batch.put(userID, recommendations);
+      }
+    });
+    assertEquals(recommended, batch.get(1L));
+  }
+
   @Test
   public void testRescorer() throws Exception {
 
@@ -56,6 +56,26 @@ public final class TopItemsTest extends TasteTestCase {
     }
   }
 
+  @Test
+  public void testTopItemsInParallel() throws Exception {
+    long[] ids = new long[10000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i;
+    }
+    TopItems.Estimator<Long> estimator = new TopItems.Estimator<Long>() {
+      @Override
+      public double estimate(Long thing) {
+        // filter out every third item, and score the rest in a scrambled order
+        return thing % 3 == 0 ? Double.NaN : (thing * 7919L) % 10007;
+      }
+    };
+    List<RecommendedItem> expected =
+        TopItems.getTopItems(25, new LongPrimitiveArrayIterator(ids), null, estimator);
+    List<RecommendedItem> topItems = TopItems.getTopItemsInParallel(25, ids, null, estimator);
+    assertEquals(expected, topItems);
+    assertTrue(TopItems.getTopItemsInParallel(25, new long[0], null, estimator).isEmpty());
+  }
+
   @Test
   public void testTopItemsRandom() throws Exception {
     long[] ids = new long[100];
@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.cf.taste.impl.recommender.svd;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.mahout.cf.taste.common.Refreshable;
+import org.apache.mahout.cf.taste.impl.TasteTestCase;
+import org.apache.mahout.cf.taste.impl.common.FastByIDMap;
+import org.apache.mahout.cf.taste.impl.common.FastIDSet;
+import org.apache.mahout.cf.taste.impl.model.GenericDataModel;
+import org.apache.mahout.cf.taste.impl.model.GenericUserPreferenceArray;
+import org.apache.mahout.cf.taste.impl.recommender.AllUnknownItemsCandidateItemsStrategy;
+import org.apache.mahout.cf.taste.model.DataModel;
+import org.apache.mahout.cf.taste.model.PreferenceArray;
+import org.apache.mahout.cf.taste.recommender.IDRescorer;
+import org.apache.mahout.cf.taste.recommender.RecommendedItem;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class RandomProjectionForestTest extends TasteTestCase {
+
+  private static final int NUM_USERS = 20;
+  private static final int NUM_ITEMS = 3000;
+  private static final int NUM_FEATURES = 8;
+
+  @Test
+  public void testExactWhenSearchingEverything() throws Exception {
+    Factorization factorization = randomFactorization();
+    RandomProjectionForest forest = new RandomProjectionForest(factorization, 2, 16, NUM_ITEMS);
+    double[] query = factorization.getUserFeatures(0);
+    assertArrayEquals(bruteForce(factorization, query, 10), forest.search(query, 10));
+  }
+
+  @Test
+  public void testRecall() throws Exception {
+    Factorization factorization = randomFactorization();
+    RandomProjectionForest forest = new RandomProjectionForest(factorization, 10, 32, 600);
+    int found = 0;
+    for (int user = 0; user < NUM_USERS; user++) {
+      double[] query = factorization.getUserFeatures(user);
+      long[] approximate = forest.search(query, 10);
+      assertEquals(10, approximate.length);
+      FastIDSet exact = new FastIDSet(bruteForce(factorization, query, 10));
+      for (long itemID : approximate) {
+        if (exact.contains(itemID)) {
+          found++;
+        }
+      }
+    }
+    assertTrue("recall too low: " + found, found >= NUM_USERS * 10 * 8 / 10);
+  }
+
+  @Test
+  public void testIdenticalItems() throws Exception {
+    FastByIDMap<Integer> userIDMapping = new FastByIDMap<Integer>();
+    userIDMapping.put(1L, 0);
+    FastByIDMap<Integer> itemIDMapping = new FastByIDMap<Integer>();
+    double[][] itemFeatures = new double[100][];
+    for (int i = 0; i < itemFeatures.length; i++) {
+      itemIDMapping.put(i, i);
+      itemFeatures[i] = new double[] { 1.0, 2.0 };
+    }
+    Factorization factorization =
+        new Factorization(userIDMapping, itemIDMapping, new double[][] { { 1.0, 1.0 } }, itemFeatures);
+    RandomProjectionForest forest = new RandomProjectionForest(factorization, 3, 4, 10);
+    assertEquals(5, forest.search(new double[] { 1.0, 1.0 }, 5).length);
+  }
+
+  @Test
+  public void testRecommenderWithIndex() throws Exception {
+    final Factorization factorization = randomFactorization();
+    FastByIDMap<PreferenceArray> userData = new FastByIDMap<PreferenceArray>();
+    Random random = RandomUtils.getRandom();
+    for (int user = 0; user < NUM_USERS; user++) {
+      PreferenceArray prefs = new GenericUserPreferenceArray(50);
+      prefs.setUserID(0, user);
+      for (int i = 0; i < 50; i++) {
+        prefs.setItemID(i, random.nextInt(NUM_ITEMS));
+        prefs.setValue(i, 1.0f);
+      }
+      userData.put(user, prefs);
+    }
+    DataModel dataModel = new GenericDataModel(userData);
+    Factorizer factorizer = new Factorizer() {
+      @Override
+      public Factorization factorize() {
+        return factorization;
+      }
+      @Override
+      public void refresh(Collection<Refreshable> alreadyRefreshed) {
+      }
+    };
+
+    SVDRecommender exact = new SVDRecommender(dataModel, factorizer, new AllUnknownItemsCandidateItemsStrategy(),
+        SVDRecommender.getDefaultPersistenceStrategy());
+    // searching all items makes the index exact
+    SVDRecommender indexed = new SVDRecommender(dataModel, factorizer, new AllUnknownItemsCandidateItemsStrategy(),
+        SVDRecommender.getDefaultPersistenceStrategy(), new RandomProjectionForestBuilder(3, 16, NUM_ITEMS));
+    // searching few items forces the fallback to exact scoring when the rescorer filters most of them
+    SVDRecommender fallback = new SVDRecommender(dataModel, factorizer, new AllUnknownItemsCandidateItemsStrategy(),
+        SVDRecommender.getDefaultPersistenceStrategy(), new RandomProjectionForestBuilder(3, 16, 1));
+    IDRescorer fewItemsOnly = new IDRescorer() {
+      @Override
+      public double rescore(long id, double originalScore) {
+        return originalScore;
+      }
+      @Override
+      public boolean isFiltered(long id) {
+        return id % 100 != 0;
+      }
+    };
+
+    for (int user = 0; user < NUM_USERS; user++) {
+      List<RecommendedItem> expected = exact.recommend(user, 10);
+      assertEquals(10, expected.size());
+      assertEquals(expected, indexed.recommend(user, 10));
+      assertEquals(exact.recommend(user, 10, fewItemsOnly), fallback.recommend(user, 10, fewItemsOnly));
+    }
+  }
+
+  private static Factorization randomFactorization() {
+    Random random = RandomUtils.getRandom();
+    FastByIDMap<Integer> userIDMapping = new FastByIDMap<Integer>();
+    double[][] userFeatures = new double[NUM_USERS][NUM_FEATURES];
+    for (int user = 0; user < NUM_USERS; user++) {
+      userIDMapping.put(user, user);
+      for (int k = 0; k < NUM_FEATURES; k++) {
+        userFeatures[user][k] = random.nextGaussian();
+      }
+    }
+    FastByIDMap<Integer> itemIDMapping = new FastByIDMap<Integer>();
+    double[][] itemFeatures = new double[NUM_ITEMS][NUM_FEATURES];
+    for (int item = 0; item < NUM_ITEMS; item++) {
+      itemIDMapping.put(item, item);
+      // varying norms, as is typical of item factors
+      double scale = 0.5 + random.nextDouble();
+      for (int k = 0; k < NUM_FEATURES; k++) {
+        itemFeatures[item][k] = scale * random.nextGaussian();
+      }
+    }
+    return new Factorization(userIDMapping, itemIDMapping, userFeatures, itemFeatures);
+  }
+
+  private static long[] bruteForce(Factorization factorization, final double[] query, int howMany)
+    throws Exception {
+    final double[] scores = new double[NUM_ITEMS];
+    Long[] items = new Long[NUM_ITEMS];
+    for (int item = 0; item < NUM_ITEMS; item++) {
+      double[] features = factorization.getItemFeatures(item);
+      for (int k = 0; k < NUM_FEATURES; k++) {
+        scores[item] += query[k] * features[k];
+      }
+      items[item] = (long) item;
+    }
+    Arrays.sort(items, new Comparator<Long>() {
+      @Override
+      public int compare(Long a, Long b) {
+        return Double.compare(scores[b.intValue()], scores[a.intValue()]);
+      }
+    });
+    long[] result = new long[howMany];
+    for (int i = 0; i < howMany; i++) {
+      result[i] = items[i];
+    }
+    return result;
+  }
+
+}
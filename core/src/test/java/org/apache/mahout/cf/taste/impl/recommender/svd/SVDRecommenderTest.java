@@ -17,16 +17,20 @@
 
 package org.apache.mahout.cf.taste.impl.recommender.svd;
 
+import org.apache.mahout.cf.taste.common.NoSuchUserException;
 import org.apache.mahout.cf.taste.impl.TasteTestCase;
 import org.apache.mahout.cf.taste.impl.common.FastIDSet;
 import org.apache.mahout.cf.taste.model.DataModel;
 import org.apache.mahout.cf.taste.model.PreferenceArray;
 import org.apache.mahout.cf.taste.recommender.CandidateItemsStrategy;
+import org.apache.mahout.cf.taste.recommender.RecommendationCallback;
 import org.apache.mahout.cf.taste.recommender.RecommendedItem;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SVDRecommenderTest extends TasteTestCase {
 
@@ -67,7 +71,6 @@ public class SVDRecommenderTest extends TasteTestCase {
         .andReturn(candidateItems);
     EasyMock.expect(factorization.getUserFeatures(1L)).andReturn(new double[] { 0.4, 2 });
     EasyMock.expect(factorization.getItemFeatures(5L)).andReturn(new double[] { 1, 0.3 });
-    EasyMock.expect(factorization.getUserFeatures(1L)).andReturn(new double[] { 0.4, 2 });
     EasyMock.expect(factorization.getItemFeatures(3L)).andReturn(new double[] { 2, 0.6 });
 
     EasyMock.replay(dataModel, candidateItemsStrategy, factorizer, factorization);
@@ -83,4 +86,46 @@ public class SVDRecommenderTest extends TasteTestCase {
 
     EasyMock.verify(dataModel, candidateItemsStrategy, factorizer, factorization);
   }
+
+  @Test
+  public void recommendBatch() throws Exception {
+    DataModel dataModel = EasyMock.createMock(DataModel.class);
+    PreferenceArray preferencesFromUser = EasyMock.createMock(PreferenceArray.class);
+    CandidateItemsStrategy candidateItemsStrategy = EasyMock.createMock(CandidateItemsStrategy.class);
+    Factorizer factorizer = EasyMock.createMock(Factorizer.class);
+    Factorization factorization = EasyMock.createMock(Factorization.class);
+
+    FastIDSet candidateItems = new FastIDSet();
+    candidateItems.add(5L);
+    candidateItems.add(3L);
+
+    EasyMock.expect(factorizer.factorize()).andReturn(factorization);
+    EasyMock.expect(dataModel.getPreferencesFromUser(1L)).andReturn(preferencesFromUser);
+    EasyMock.expect(dataModel.getPreferencesFromUser(2L)).andThrow(new NoSuchUserException(2L));
+    EasyMock.expect(candidateItemsStrategy.getCandidateItems(1L, preferencesFromUser, dataModel))
+        .andReturn(candidateItems);
+    EasyMock.expect(factorization.getUserFeatures(1L)).andReturn(new double[] { 0.4, 2 });
+    EasyMock.expect(factorization.getItemFeatures(5L)).andReturn(new double[] { 1, 0.3 });
+    EasyMock.expect(factorization.getItemFeatures(3L)).andReturn(new double[] { 2, 0.6 });
+
+    EasyMock.replay(dataModel, candidateItemsStrategy, factorizer, factorization);
+
+    SVDRecommender svdRecommender = new SVDRecommender(dataModel, factorizer, candidateItemsStrategy);
+
+    final Map<Long,List<RecommendedItem>> recommendations = new ConcurrentHashMap<Long,List<RecommendedItem>>();
+    svdRecommender.recommend(new long[] { 1L, 2L }, 1, null, new RecommendationCallback() {
+      @Override
+      public void recommended(long userID, List<RecommendedItem> recommendedItems) {
+        recommendations.put(userID, recommendedItems);
+      }
+    });
+
+    assertEquals(2, recommendations.size());
+    assertEquals(1, recommendations.get(1L).size());
+    assertEquals(3L, recommendations.get(1L).get(0).getItemID());
+    assertEquals(2.0f, recommendations.get(1L).get(0).getValue(), EPSILON);
+    assertTrue(recommendations.get(2L).isEmpty());
+
+    EasyMock.verify(dataModel, candidateItemsStrategy, factorizer, factorization);
+  }
 }
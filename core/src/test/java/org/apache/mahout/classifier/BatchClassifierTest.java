@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier;
+
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.mahout.classifier.sgd.L1;
+import org.apache.mahout.classifier.sgd.OnlineLogisticRegression;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileIterable;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.junit.Test;
+
+public final class BatchClassifierTest extends MahoutTestCase {
+
+  @Test
+  public void testSparseInput() throws Exception {
+    checkScores(false);
+  }
+
+  @Test
+  public void testDenseInput() throws Exception {
+    checkScores(true);
+  }
+
+  private void checkScores(boolean dense) throws Exception {
+    Random gen = RandomUtils.getRandom();
+    OnlineLogisticRegression lr = new OnlineLogisticRegression(3, 20, new L1());
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 20; j++) {
+        lr.setBeta(i, j, gen.nextGaussian());
+      }
+    }
+
+    Configuration conf = new Configuration();
+    Path input = new Path(getTestTempDirPath("input"), "part-00000");
+    Path output = new Path(getTestTempDirPath("output"), "scores");
+    FileSystem fs = input.getFileSystem(conf);
+    List<Vector> vectors = Lists.newArrayList();
+    SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, input, IntWritable.class, VectorWritable.class);
+    try {
+      for (int i = 0; i < 100; i++) {
+        Vector v = dense ? new DenseVector(20) : new RandomAccessSparseVector(20);
+        for (int k = 0; k < 4; k++) {
+          v.set(gen.nextInt(20), gen.nextGaussian());
+        }
+        vectors.add(v);
+        writer.append(new IntWritable(i), new VectorWritable(v));
+      }
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+
+    long n = new BatchClassifier(lr, 3).blockSize(7).classify(input, output, conf);
+    assertEquals(vectors.size(), n);
+
+    int i = 0;
+    for (Pair<IntWritable, VectorWritable> record
+        : new SequenceFileIterable<IntWritable, VectorWritable>(output, true, conf)) {
+      assertEquals(i, record.getFirst().get());
+      Vector expected = lr.classifyFull(vectors.get(i));
+      assertEquals(0, expected.minus(record.getSecond().get()).norm(1), 1.0e-10);
+      i++;
+    }
+    assertEquals(vectors.size(), i);
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import org.apache.mahout.classifier.df.builder.HistogramTreeBuilder;
+import org.apache.mahout.classifier.df.data.Data;
+import org.apache.mahout.classifier.df.data.Dataset;
+import org.apache.mahout.classifier.df.data.Utils;
+import org.apache.mahout.classifier.df.ref.ParallelBuilder;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class FlatForestTest extends MahoutTestCase {
+
+  private static final int NUM_TREES = 10;
+
+  /**
+   * The forest is trained on a bag of the data, so that the test instances reach categories some trees
+   * have never seen
+   */
+  @Test
+  public void testClassify() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    for (boolean regression : new boolean[] {false, true}) {
+      Data data = Utils.randomData(rng, 10, regression, 500);
+      Dataset dataset = data.getDataset();
+      DecisionForest forest =
+          new ParallelBuilder(rng, new HistogramTreeBuilder(), data.bagging(rng), 1).build(NUM_TREES);
+      FlatForest flat = new FlatForest(forest);
+      assertEquals(forest.nbNodes(), flat.nbNodes());
+      assertEquals(NUM_TREES, flat.nbTrees());
+
+      long seed = rng.nextLong();
+      Random expectedRng = RandomUtils.getRandom(seed);
+      Random singleRng = RandomUtils.getRandom(seed);
+      double[] expected = new double[data.size()];
+      for (int index = 0; index < data.size(); index++) {
+        expected[index] = forest.classify(dataset, expectedRng, data.get(index));
+        assertEquals(expected[index], flat.classify(dataset, singleRng, data.get(index)), 0.0);
+      }
+
+      double[] predictions = new double[data.size()];
+      flat.classify(dataset, RandomUtils.getRandom(seed), data, predictions);
+      assertArrayEquals(expected, predictions, 0.0);
+    }
+  }
+
+  @Test
+  public void testWritable() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    Data data = Utils.randomData(rng, 10, false, 200);
+    DecisionForest forest = new ParallelBuilder(rng, new HistogramTreeBuilder(), data, 1).build(NUM_TREES);
+    FlatForest flat = new FlatForest(forest);
+
+    ByteArrayOutputStream byteOutStream = new ByteArrayOutputStream();
+    flat.write(new DataOutputStream(byteOutStream));
+    FlatForest read = FlatForest.read(new DataInputStream(new ByteArrayInputStream(byteOutStream.toByteArray())));
+    assertEquals(flat.nbTrees(), read.nbTrees());
+    assertEquals(flat.nbNodes(), read.nbNodes());
+
+    long seed = rng.nextLong();
+    double[] expected = new double[data.size()];
+    double[] predictions = new double[data.size()];
+    flat.classify(data.getDataset(), RandomUtils.getRandom(seed), data, expected);
+    read.classify(data.getDataset(), RandomUtils.getRandom(seed), data, predictions);
+    assertArrayEquals(expected, predictions, 0.0);
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df.builder;
+
+import java.util.Random;
+
+import org.apache.mahout.classifier.df.data.Data;
+import org.apache.mahout.classifier.df.data.DataLoader;
+import org.apache.mahout.classifier.df.data.Dataset;
+import org.apache.mahout.classifier.df.data.Instance;
+import org.apache.mahout.classifier.df.node.Node;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class HistogramTreeBuilderTest extends MahoutTestCase {
+
+  private static final String[] CATEGORIES = {"a", "b", "c"};
+
+  /**
+   * generates instances of two NUMERICAL attributes and a CATEGORICAL one, where only the first and the last
+   * decide the label
+   */
+  static String[] generate(Random rng, boolean regression, int size) {
+    String[] sData = new String[size];
+    for (int index = 0; index < size; index++) {
+      double x = rng.nextDouble();
+      double noise = rng.nextDouble();
+      String category = CATEGORIES[rng.nextInt(CATEGORIES.length)];
+      String label;
+      if (regression) {
+        label = String.valueOf(2 * x + ("a".equals(category) ? 1 : 0));
+      } else {
+        label = x < 0.3 || "a".equals(category) ? "yes" : "no";
+      }
+      sData[index] = x + "," + noise + ',' + category + ',' + label;
+    }
+    return sData;
+  }
+
+  @Test
+  public void testClassification() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    String[] train = generate(rng, false, 500);
+    Dataset dataset = DataLoader.generateDataset("N N C L", false, train);
+    Data data = DataLoader.loadData(dataset, train);
+
+    HistogramTreeBuilder builder = new HistogramTreeBuilder();
+    builder.setM(3);
+    Node tree = builder.build(rng, data);
+
+    // the data holds no noise, so the tree fits it
+    for (int index = 0; index < data.size(); index++) {
+      Instance instance = data.get(index);
+      assertEquals(dataset.getLabel(instance), tree.classify(instance), 0.0);
+    }
+
+    Data test = DataLoader.loadData(dataset, generate(rng, false, 500));
+    int errors = 0;
+    for (int index = 0; index < test.size(); index++) {
+      Instance instance = test.get(index);
+      if (dataset.getLabel(instance) != tree.classify(instance)) {
+        errors++;
+      }
+    }
+    assertTrue("too many errors: " + errors, errors < 25);
+  }
+
+  @Test
+  public void testRegression() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    String[] train = generate(rng, true, 500);
+    Dataset dataset = DataLoader.generateDataset("N N C L", true, train);
+    Data data = DataLoader.loadData(dataset, train);
+
+    HistogramTreeBuilder builder = new HistogramTreeBuilder();
+    builder.setM(3);
+    Node tree = builder.build(rng, data);
+
+    Data test = DataLoader.loadData(dataset, generate(rng, true, 500));
+    double squaredError = 0.0;
+    for (int index = 0; index < test.size(); index++) {
+      Instance instance = test.get(index);
+      double error = dataset.getLabel(instance) - tree.classify(instance);
+      squaredError += error * error;
+    }
+    assertTrue("mean squared error: " + squaredError / test.size(), squaredError / test.size() < 0.01);
+  }
+
+}
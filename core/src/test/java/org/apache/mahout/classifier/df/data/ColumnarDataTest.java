@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df.data;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class ColumnarDataTest extends MahoutTestCase {
+
+  private static final int ATTRIBUTE_COUNT = 20;
+
+  private static final int DATA_SIZE = 200;
+
+  @Test
+  public void testCodes() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    for (boolean regression : new boolean[] {false, true}) {
+      Data data = Utils.randomData(rng, ATTRIBUTE_COUNT, regression, DATA_SIZE);
+      Dataset dataset = data.getDataset();
+      ColumnarData columns = new ColumnarData(data, 16);
+
+      assertEquals(DATA_SIZE, columns.size());
+      for (int row = 0; row < DATA_SIZE; row++) {
+        assertEquals(dataset.getLabel(data.get(row)), columns.getLabel(row), 0.0);
+      }
+
+      for (int attr = 0; attr < dataset.nbAttributes(); attr++) {
+        if (attr == dataset.getLabelId()) {
+          continue;
+        }
+        int[] codes = columns.getCodes(attr);
+        int nbCodes = columns.nbCodes(attr);
+        if (dataset.isNumerical(attr)) {
+          // the random values are all distinct, so every bin is used
+          assertEquals(16, nbCodes);
+          int[] binSizes = new int[nbCodes];
+          for (int row = 0; row < DATA_SIZE; row++) {
+            double value = data.get(row).get(attr);
+            int code = codes[row];
+            binSizes[code]++;
+            assertTrue(columns.getValue(attr, code) <= value);
+            assertTrue(code == nbCodes - 1 || value < columns.getValue(attr, code + 1));
+          }
+          for (int binSize : binSizes) {
+            assertTrue(binSize >= DATA_SIZE / 16 - 1 && binSize <= DATA_SIZE / 16 + 1);
+          }
+        } else {
+          double[] values = data.values(attr);
+          Arrays.sort(values);
+          assertEquals(values.length, nbCodes);
+          for (int row = 0; row < DATA_SIZE; row++) {
+            assertEquals(data.get(row).get(attr), columns.getValue(attr, codes[row]), 0.0);
+            assertEquals(values[codes[row]], columns.getValue(attr, codes[row]), 0.0);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Attributes with no more distinct values than bins get one bin per value
+   */
+  @Test
+  public void testExactBins() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    Data data = Utils.randomData(rng, ATTRIBUTE_COUNT, false, DATA_SIZE);
+    ColumnarData columns = new ColumnarData(data, DATA_SIZE);
+    Dataset dataset = data.getDataset();
+
+    for (int attr = 0; attr < dataset.nbAttributes(); attr++) {
+      if (attr == dataset.getLabelId()) {
+        continue;
+      }
+      double[] values = data.values(attr);
+      assertEquals(values.length, columns.nbCodes(attr));
+      int[] codes = columns.getCodes(attr);
+      for (int row = 0; row < DATA_SIZE; row++) {
+        assertEquals(data.get(row).get(attr), columns.getValue(attr, codes[row]), 0.0);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.df.ref;
+
+import java.util.Random;
+
+import org.apache.mahout.classifier.df.DecisionForest;
+import org.apache.mahout.classifier.df.builder.HistogramTreeBuilder;
+import org.apache.mahout.classifier.df.data.ColumnarData;
+import org.apache.mahout.classifier.df.data.Data;
+import org.apache.mahout.classifier.df.data.Utils;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class ParallelBuilderTest extends MahoutTestCase {
+
+  private static final int NUM_TREES = 20;
+
+  /**
+   * The forest only depends on the seed, not on the number of threads
+   */
+  @Test
+  public void testThreadCountIndependence() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    for (boolean regression : new boolean[] {false, true}) {
+      Data data = Utils.randomData(rng, 10, regression, 200);
+      ColumnarData columns = new ColumnarData(data);
+      HistogramTreeBuilder treeBuilder = new HistogramTreeBuilder();
+      long seed = rng.nextLong();
+
+      DecisionForest sequential =
+          new ParallelBuilder(RandomUtils.getRandom(seed), treeBuilder, columns, 1).build(NUM_TREES);
+      DecisionForest parallel =
+          new ParallelBuilder(RandomUtils.getRandom(seed), treeBuilder, columns, 4).build(NUM_TREES);
+
+      assertTrue(sequential.nbNodes() >= NUM_TREES);
+      assertEquals(sequential, parallel);
+    }
+  }
+
+  @Test
+  public void testDifferentSeeds() throws Exception {
+    Random rng = RandomUtils.getRandom();
+    Data data = Utils.randomData(rng, 10, false, 200);
+    HistogramTreeBuilder treeBuilder = new HistogramTreeBuilder();
+
+    DecisionForest forest1 = new ParallelBuilder(RandomUtils.getRandom(1), treeBuilder, data, 2).build(NUM_TREES);
+    DecisionForest forest2 = new ParallelBuilder(RandomUtils.getRandom(2), treeBuilder, data, 2).build(NUM_TREES);
+    assertFalse(forest1.equals(forest2));
+  }
+
+}
@@ -18,7 +18,12 @@
 
 package org.apache.mahout.classifier.naivebayes;
 
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -44,5 +49,22 @@ public final class StandardNaiveBayesClassifierTest extends NaiveBayesTestBase {
     assertEquals(3, maxIndex(classifier.classifyFull(new DenseVector(new double[] { 0.0, 0.0, 0.0, 1.0 }))));
     
   }
+
+  @Test
+  public void testClassifyMatrix() throws Exception {
+    Matrix dense = new DenseMatrix(new double[][] {
+        { 1.0, 0.0, 0.0, 0.0 }, { 0.0, 2.0, 0.0, 0.5 }, { 0.0, 0.0, 1.0, 0.0 }, { 0.3, 0.0, 0.0, 1.0 } });
+    Matrix sparse = new SparseRowMatrix(4, 4);
+    for (int row = 0; row < 4; row++) {
+      sparse.assignRow(row, new RandomAccessSparseVector(dense.viewRow(row)));
+    }
+    for (Matrix data : new Matrix[] { dense, sparse }) {
+      Matrix scores = classifier.classifyFull(data);
+      for (int row = 0; row < 4; row++) {
+        Vector expected = classifier.classifyFull(data.viewRow(row));
+        assertEquals(0.0, expected.minus(scores.viewRow(row)).norm(1), 0.0);
+      }
+    }
+  }
   
 }
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.sequencelearning.hmm;
+
+import org.apache.mahout.math.Matrix;
+import org.junit.Test;
+
+public class HMMEngineTest extends HMMTestBase {
+
+  /**
+   * The scaled alpha factors of each time step are the unscaled ones divided
+   * by their sum, and the scale factors multiply up to the model likelihood.
+   */
+  @Test
+  public void testForward() {
+    Matrix alphaExpected = HmmAlgorithms.forwardAlgorithm(getModel(), getSequence(), false);
+    double likelihood = HmmEvaluator.modelLikelihood(alphaExpected, false);
+    for (boolean sparse : new boolean[] {false, true}) {
+      HmmEngine engine = new HmmEngine(getModel(), sparse);
+      assertEquals(sparse, engine.isSparse());
+      assertEquals(Math.log(likelihood), engine.forward(getSequence()), EPSILON);
+      for (int t = 0; t < getSequence().length; ++t) {
+        double sum = alphaExpected.viewRow(t).zSum();
+        for (int i = 0; i < 4; ++i) {
+          assertEquals(alphaExpected.get(t, i) / sum, engine.getAlpha(t, i), EPSILON);
+        }
+      }
+    }
+  }
+
+  /**
+   * The product of scaled alpha and beta factors is the posterior probability
+   * of each hidden state, alpha(t, i) * beta(t, i) / P(O).
+   */
+  @Test
+  public void testBackward() {
+    Matrix alpha = HmmAlgorithms.forwardAlgorithm(getModel(), getSequence(), false);
+    Matrix beta = HmmAlgorithms.backwardAlgorithm(getModel(), getSequence(), false);
+    double likelihood = HmmEvaluator.modelLikelihood(alpha, false);
+    for (boolean sparse : new boolean[] {false, true}) {
+      HmmEngine engine = new HmmEngine(getModel(), sparse);
+      engine.forward(getSequence());
+      engine.backward(getSequence());
+      for (int t = 0; t < getSequence().length; ++t) {
+        for (int i = 0; i < 4; ++i) {
+          assertEquals(alpha.get(t, i) * beta.get(t, i) / likelihood,
+              engine.getAlpha(t, i) * engine.getBeta(t, i), EPSILON);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testViterbi() {
+    int[] expected = HmmAlgorithms.viterbiAlgorithm(getModel(), getSequence(), true);
+    for (boolean sparse : new boolean[] {false, true}) {
+      HmmEngine engine = new HmmEngine(getModel(), sparse);
+      int[] path = new int[getSequence().length];
+      double logProbability = engine.viterbi(getSequence(), path);
+      assertArrayEquals(expected, path);
+      // the probability of the path is that of the joint hidden and observed sequences
+      double joint = getModel().getInitialProbabilities().get(path[0])
+          * getModel().getEmissionMatrix().get(path[0], getSequence()[0]);
+      for (int t = 1; t < path.length; ++t) {
+        joint *= getModel().getTransitionMatrix().get(path[t - 1], path[t])
+            * getModel().getEmissionMatrix().get(path[t], getSequence()[t]);
+      }
+      assertEquals(Math.log(joint), logProbability, EPSILON);
+    }
+  }
+
+  /**
+   * An engine reused over sequences of different lengths and models gives the
+   * same results as fresh ones.
+   */
+  @Test
+  public void testReuse() {
+    HmmModel other = new HmmModel(4, 3, 1234L);
+    HmmEngine engine = new HmmEngine(getModel(), false);
+    for (int length = 1; length < 40; length += 5) {
+      int[] sequence = HmmEvaluator.predict(other, length, length);
+      engine.assign(other);
+      assertEquals(Math.log(HmmEvaluator.modelLikelihood(other, sequence, false)),
+          engine.logLikelihood(sequence), EPSILON);
+      engine.assign(getModel());
+      assertArrayEquals(HmmAlgorithms.viterbiAlgorithm(getModel(), sequence, true), engine.viterbi(sequence));
+    }
+  }
+
+  /**
+   * Sequences the model cannot produce have a log-likelihood of negative
+   * infinity and add nothing to the expected counts.
+   */
+  @Test
+  public void testImpossibleSequence() {
+    // every hidden state emits a single output, and only state 3 emits "O2"
+    HmmModel model = getModel().clone();
+    model.getEmissionMatrix().assign(0.0);
+    model.getEmissionMatrix().set(3, 2, 1.0);
+    model.getEmissionMatrix().set(0, 0, 1.0);
+    model.getEmissionMatrix().set(1, 0, 1.0);
+    model.getEmissionMatrix().set(2, 1, 1.0);
+    HmmEngine engine = new HmmEngine(model);
+    HmmCounts counts = new HmmCounts(4, 3);
+    int[] sequence = {2, 2, 2};
+    assertTrue(engine.accumulate(sequence, counts) > Double.NEGATIVE_INFINITY);
+    assertEquals(1, counts.getNrOfSequences());
+    // "O2" followed by "O1" needs a transition from state 3 to state 2
+    model.getTransitionMatrix().set(3, 2, 0.0);
+    engine.assign(model);
+    assertEquals(Double.NEGATIVE_INFINITY, engine.accumulate(new int[] {2, 1}, counts), 0.0);
+    assertEquals(1, counts.getNrOfSequences());
+  }
+
+}
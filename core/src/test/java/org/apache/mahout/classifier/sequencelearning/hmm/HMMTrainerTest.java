@@ -17,6 +17,10 @@
 
 package org.apache.mahout.classifier.sequencelearning.hmm;
 
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
 import org.apache.mahout.math.Matrix;
 import org.apache.mahout.math.Vector;
 import org.junit.Test;
@@ -160,4 +164,58 @@ public class HMMTrainerTest extends HMMTestBase {
     }
   }
 
+  /**
+   * Training on a collection holding only the test sequence gives the same
+   * model as training on the sequence itself.
+   */
+  @Test
+  public void testBaumWelchTrainingOfCollection() {
+    int[] observed = {1, 0, 2, 2, 0, 0, 1, 1, 1, 0, 2, 0, 1, 0, 0};
+
+    HmmModel expected = HmmTrainer.trainBaumWelch(getModel(), observed, 0.1, 10, false);
+    HmmModel trained = HmmTrainer.trainBaumWelch(getModel(),
+        Collections.singletonList(observed), 0.1, 10, 1);
+
+    assertModelEquals(expected, trained, 0.0001);
+  }
+
+  @Test
+  public void testParallelBaumWelchTraining() {
+    List<int[]> sequences = Lists.newArrayList();
+    for (int i = 1; i <= 300; ++i) {
+      sequences.add(HmmEvaluator.predict(getModel(), 1 + i % 17, i));
+    }
+    HmmModel initial = new HmmModel(4, 3, 42L);
+
+    HmmModel sequential = HmmTrainer.trainBaumWelch(initial, sequences, 0.0001, 20, 1);
+    HmmModel parallel = HmmTrainer.trainBaumWelch(initial, sequences, 0.0001, 20, 4);
+    assertModelEquals(sequential, parallel, 1.0e-9);
+
+    // training must not lower the likelihood of the training data
+    HmmEngine before = new HmmEngine(initial);
+    HmmEngine after = new HmmEngine(parallel);
+    double initialLikelihood = 0;
+    double trainedLikelihood = 0;
+    for (int[] sequence : sequences) {
+      initialLikelihood += before.logLikelihood(sequence);
+      trainedLikelihood += after.logLikelihood(sequence);
+    }
+    assertTrue(trainedLikelihood > initialLikelihood);
+  }
+
+  private static void assertModelEquals(HmmModel expected, HmmModel actual, double epsilon) {
+    for (int i = 0; i < expected.getNrOfHiddenStates(); ++i) {
+      assertEquals(expected.getInitialProbabilities().get(i),
+          actual.getInitialProbabilities().get(i), epsilon);
+      for (int j = 0; j < expected.getNrOfHiddenStates(); ++j) {
+        assertEquals(expected.getTransitionMatrix().getQuick(i, j),
+            actual.getTransitionMatrix().getQuick(i, j), epsilon);
+      }
+      for (int j = 0; j < expected.getNrOfOutputStates(); ++j) {
+        assertEquals(expected.getEmissionMatrix().getQuick(i, j),
+            actual.getEmissionMatrix().getQuick(i, j), epsilon);
+      }
+    }
+  }
+
 }
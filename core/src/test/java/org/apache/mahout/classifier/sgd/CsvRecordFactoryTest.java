@@ -17,11 +17,13 @@
 
 package org.apache.mahout.classifier.sgd;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import org.apache.mahout.common.MahoutTestCase;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.vectorizer.encoders.Dictionary;
+import org.apache.mahout.vectorizer.encoders.FeatureBuffer;
 import org.junit.Test;
 
 public final class CsvRecordFactoryTest extends MahoutTestCase {
@@ -71,6 +73,33 @@ public final class CsvRecordFactoryTest extends MahoutTestCase {
     assertEquals(1.5849625007211563, v.maxValue(), 1.0e-6);
   }
 
+  @Test
+  public void testProcessLineFromBytes() {
+    CsvRecordFactory csv = new CsvRecordFactory("y", ImmutableMap.of("x1", "n", "x2", "w", "x3", "t"));
+    csv.includeBiasTerm(true);
+    csv.firstLine("z,x1,y,x2,x3,q");
+    csv.maxTargetValue(2);
+
+    String[] lines = {
+      "ignore,3.1,yes,tiger, \"this is text\",ignore",
+      "ignore,5.3,no,line, \"and more text and more\",ignore",
+      "ignore,5.3,invalid,line, \"and more text and more\",ignore",
+      "ignore,-1,\"no\",\u00e9l\u00e8ve,\"caf\u00e9 au lait\",ignore",
+      "ignore,0.25,yes,tiger,,ignore"
+    };
+    FeatureBuffer v1 = new FeatureBuffer(2000);
+    for (String line : lines) {
+      byte[] bytes = ('\n' + line + '\n').getBytes(Charsets.UTF_8);
+      int t1 = csv.processLine(bytes, 1, bytes.length - 2, v1);
+
+      Vector v2 = new DenseVector(2000);
+      int t2 = csv.processLine(line, v2);
+      assertEquals(t2, t1);
+      assertEquals(0, v2.minus(v1).norm(1), 1.0e-12);
+      v1.clear();
+    }
+  }
+
   @Test
   public void testDictionaryOrder() {
     Dictionary dict = new Dictionary();
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.classifier.sgd;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.Test;
+
+public final class CsvStreamTrainerTest extends MahoutTestCase {
+
+  private static final String[] WORDS = {"red", "green", "blue", "cyan", "magenta", "yellow"};
+
+  @Test
+  public void testMatchesLineByLineTraining() throws Exception {
+    Random gen = RandomUtils.getRandom();
+    StringBuilder data = new StringBuilder("x,color,y,notes\r\n");
+    List<String> lines = Lists.newArrayList();
+    for (int i = 0; i < 500; i++) {
+      double x = Math.round(gen.nextGaussian() * 1000) / 100.0;
+      String color = WORDS[gen.nextInt(WORDS.length)];
+      String notes = WORDS[gen.nextInt(WORDS.length)] + ' ' + WORDS[gen.nextInt(WORDS.length)];
+      String y = x + gen.nextGaussian() > 0 ? "up" : "down";
+      String line = x + "," + color + ',' + y + ",\"" + notes + '"';
+      lines.add(line);
+      data.append(line).append(i % 2 == 0 ? "\n" : "\r\n");
+      if (i % 100 == 0) {
+        data.append('\n');
+      }
+    }
+    // no terminator after the last line
+    data.setLength(data.length() - 1);
+
+    OnlineLogisticRegression expected = new OnlineLogisticRegression(2, 100, new L1()).lambda(1.0e-4);
+    CsvRecordFactory csv = newFactory();
+    csv.firstLine("x,color,y,notes");
+    for (String line : lines) {
+      Vector v = new RandomAccessSparseVector(100);
+      int target = csv.processLine(line, v);
+      expected.train(target, v);
+    }
+
+    OnlineLogisticRegression actual = new OnlineLogisticRegression(2, 100, new L1()).lambda(1.0e-4);
+    // a tiny buffer makes sure lines straddling reads and lines longer than the buffer are handled
+    CsvStreamTrainer trainer = new CsvStreamTrainer(newFactory(), actual, 100, 16);
+    long n = trainer.train(new ByteArrayInputStream(data.toString().getBytes(Charsets.UTF_8)));
+    assertEquals(lines.size(), n);
+    assertEquals(expected.getStep(), actual.getStep());
+
+    Matrix expectedBeta = expected.getBeta();
+    Matrix actualBeta = actual.getBeta();
+    for (int j = 0; j < expectedBeta.numCols(); j++) {
+      assertEquals(expectedBeta.get(0, j), actualBeta.get(0, j), 1.0e-9);
+    }
+  }
+
+  private static CsvRecordFactory newFactory() {
+    return new CsvRecordFactory("y", ImmutableMap.of("x", "n", "color", "w", "notes", "t")).includeBiasTerm(true);
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.classifier.sgd;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.Test;
+
+public final class HogwildTrainerTest extends OnlineBaseTest {
+
+  @Test
+  public void testSingleThreadMatchesSequentialTraining() throws Exception {
+    Vector target = readStandardData();
+    Matrix input = getInput();
+    int[] order = permute(RandomUtils.getRandom(), input.numRows());
+
+    OnlineLogisticRegression sequential = new OnlineLogisticRegression(2, 8, new L1()).lambda(1.0e-3).learningRate(50);
+    List<Pair<Integer, Vector>> examples = Lists.newArrayList();
+    for (int row : order) {
+      sequential.train((int) target.get(row), input.viewRow(row));
+      examples.add(new Pair<Integer, Vector>((int) target.get(row), input.viewRow(row)));
+    }
+
+    OnlineLogisticRegression hogwild = new OnlineLogisticRegression(2, 8, new L1()).lambda(1.0e-3).learningRate(50);
+    HogwildTrainer.Statistics statistics = new HogwildTrainer(hogwild, 1).chunkSize(7).train(examples.iterator());
+    assertEquals(order.length, statistics.getNumExamples());
+    assertEquals(sequential.getStep(), hogwild.getStep());
+
+    Matrix expected = sequential.getBeta();
+    Matrix actual = hogwild.getBeta();
+    for (int j = 0; j < expected.numCols(); j++) {
+      assertEquals(expected.get(0, j), actual.get(0, j), 0.0);
+    }
+    test(input, target, hogwild, 0.05, 0.3);
+  }
+
+  @Test
+  public void testMiniBatches() throws Exception {
+    Vector target = readStandardData();
+    Matrix input = getInput();
+    Random random = RandomUtils.getRandom();
+    List<Vector> instances = Lists.newArrayList();
+    int[] actual = new int[10 * input.numRows()];
+    int k = 0;
+    for (int pass = 0; pass < 10; pass++) {
+      for (int row : permute(random, input.numRows())) {
+        actual[k++] = (int) target.get(row);
+        instances.add(input.viewRow(row));
+      }
+    }
+
+    OnlineLogisticRegression lr = new OnlineLogisticRegression(2, 8, new L1()).lambda(1.0e-3).learningRate(50);
+    new HogwildTrainer(lr, 1).miniBatchSize(5).train(actual, instances);
+    assertEquals(actual.length, lr.getStep());
+    test(input, target, lr, 0.05, 0.3);
+  }
+
+  @Test
+  public void testManyThreads() {
+    Random random = RandomUtils.getRandom();
+    int numFeatures = 1000;
+    Vector weights = new RandomAccessSparseVector(numFeatures);
+    for (int j = 0; j < numFeatures; j++) {
+      weights.setQuick(j, random.nextGaussian());
+    }
+    final List<Vector> instances = Lists.newArrayList();
+    final int[] actual = new int[20000];
+    for (int i = 0; i < actual.length; i++) {
+      Vector instance = new RandomAccessSparseVector(numFeatures);
+      instance.setQuick(0, 1);
+      for (int n = 0; n < 20; n++) {
+        instance.setQuick(1 + random.nextInt(numFeatures - 1), random.nextGaussian());
+      }
+      actual[i] = instance.dot(weights) > 0 ? 1 : 0;
+      instances.add(instance);
+    }
+
+    OnlineLogisticRegression lr = new OnlineLogisticRegression(2, numFeatures, new L1())
+        .alpha(1)
+        .lambda(1.0e-5)
+        .learningRate(1);
+    HogwildTrainer trainer = new HogwildTrainer(lr, 4).chunkSize(100);
+    long trained = 0;
+    for (int pass = 0; pass < 5; pass++) {
+      Iterator<Pair<Integer, Vector>> examples = new Iterator<Pair<Integer, Vector>>() {
+        private int next;
+        @Override
+        public boolean hasNext() {
+          return next < actual.length;
+        }
+        @Override
+        public Pair<Integer, Vector> next() {
+          Pair<Integer, Vector> example = new Pair<Integer, Vector>(actual[next], instances.get(next));
+          next++;
+          return example;
+        }
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+      trained += trainer.train(examples).getNumExamples();
+    }
+    assertEquals(5L * actual.length, trained);
+    assertEquals(trained, lr.getStep());
+    assertTrue(lr.validModel());
+
+    int correct = 0;
+    for (int i = 0; i < actual.length; i++) {
+      if ((lr.classifyScalar(instances.get(i)) > 0.5) == (actual[i] == 1)) {
+        correct++;
+      }
+    }
+    assertTrue("accuracy " + correct, correct > 0.9 * actual.length);
+  }
+
+}
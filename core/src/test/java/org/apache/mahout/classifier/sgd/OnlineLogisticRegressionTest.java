@@ -18,8 +18,11 @@
 package org.apache.mahout.classifier.sgd;
 
 import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseMatrix;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.SparseRowMatrix;
 import org.apache.mahout.math.Vector;
 import org.junit.Test;
 
@@ -131,6 +134,49 @@ public final class OnlineLogisticRegressionTest extends OnlineBaseTest {
     assertEquals(1 / (1 + Math.exp(0) + Math.exp(1)), v.get(0), 1.0e-8);
   }
 
+  @Test
+  public void testClassifyMatrix() {
+    Random gen = RandomUtils.getRandom();
+    OnlineLogisticRegression lr = new OnlineLogisticRegression(4, 50, new L1());
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 50; j++) {
+        lr.setBeta(i, j, gen.nextGaussian());
+      }
+    }
+    // one row large enough to take the overflow-avoiding branch of the link function
+    Matrix dense = new DenseMatrix(30, 50);
+    Matrix sparse = new SparseRowMatrix(30, 50);
+    for (int row = 0; row < 30; row++) {
+      for (int k = 0; k < 5; k++) {
+        int j = gen.nextInt(50);
+        double x = row == 0 ? 100 : gen.nextGaussian();
+        dense.setQuick(row, j, x);
+        sparse.setQuick(row, j, x);
+      }
+    }
+
+    for (Matrix data : new Matrix[] {dense, sparse}) {
+      Matrix noLink = lr.classifyNoLink(data);
+      Matrix probabilities = lr.classify(data);
+      Matrix full = lr.classifyFull(data);
+      for (int row = 0; row < data.numRows(); row++) {
+        Vector instance = new RandomAccessSparseVector(data.viewRow(row));
+        assertEquals(0, lr.classifyNoLink(instance).minus(noLink.viewRow(row)).norm(1), 1.0e-10);
+        assertEquals(0, lr.classify(instance).minus(probabilities.viewRow(row)).norm(1), 1.0e-10);
+        assertEquals(0, lr.classifyFull(instance).minus(full.viewRow(row)).norm(1), 1.0e-10);
+      }
+    }
+
+    OnlineLogisticRegression binary = new OnlineLogisticRegression(2, 50, new L1());
+    for (int j = 0; j < 50; j++) {
+      binary.setBeta(0, j, gen.nextGaussian());
+    }
+    Vector scores = binary.classifyScalar(sparse);
+    for (int row = 0; row < sparse.numRows(); row++) {
+      assertEquals(binary.classifyScalar(sparse.viewRow(row)), scores.get(row), 1.0e-10);
+    }
+  }
+
   @Test
   public void testTrain() throws Exception {
     Vector target = readStandardData();
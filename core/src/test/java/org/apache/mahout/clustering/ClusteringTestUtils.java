@@ -39,6 +39,10 @@ import java.util.Random;
 
 public final class ClusteringTestUtils {
 
+  /** topic-term and document-topic smoothing of the topic models trained on a {@link #sampledCorpus} */
+  public static final double ETA = 0.1;
+  public static final double ALPHA = 0.1;
+
   private ClusteringTestUtils() {
   }
 
@@ -86,6 +90,19 @@ public final class ClusteringTestUtils {
     return corpus;
   }
 
+  /**
+   * @return numDocs documents of 20 terms, each sampled from a single topic of a model whose topics decay with the
+   *         square of the distance to their centroid
+   */
+  public static Matrix sampledCorpus(int numTopics, int numTerms, int numDocs, Random random) {
+    Matrix model = randomStructuredModel(numTopics, numTerms, new DoubleFunction() {
+      @Override public double apply(double d) {
+        return 1.0 / Math.pow(d + 1.0, 2);
+      }
+    });
+    return sampledCorpus(model, random, numDocs, 20, 1);
+  }
+
   public static Matrix randomStructuredModel(int numTopics, int numTerms) {
     return randomStructuredModel(numTopics, numTerms, new DoubleFunction() {
       @Override public double apply(double d) {
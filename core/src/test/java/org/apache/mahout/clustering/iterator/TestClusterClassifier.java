@@ -19,6 +19,7 @@ package org.apache.mahout.clustering.iterator;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -33,6 +34,7 @@ import org.apache.mahout.clustering.fuzzykmeans.SoftCluster;
 import org.apache.mahout.clustering.kmeans.TestKmeansClustering;
 import org.apache.mahout.clustering.meanshift.MeanShiftCanopy;
 import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
 import org.apache.mahout.common.distance.CosineDistanceMeasure;
 import org.apache.mahout.common.distance.DistanceMeasure;
 import org.apache.mahout.common.distance.ManhattanDistanceMeasure;
@@ -218,6 +220,43 @@ public final class TestClusterClassifier extends MahoutTestCase {
     }
   }
   
+  @Test
+  public void testMultithreadedClusterIterator() {
+    Random random = RandomUtils.getRandom();
+    List<Vector> data = Lists.newArrayList();
+    for (int i = 0; i < 5000; i++) {
+      int center = i % 3 - 1;
+      data.add(new DenseVector(new double[] {center + random.nextGaussian() / 4, center + random.nextGaussian() / 4}));
+    }
+    ClusterIterator iterator = new ClusterIterator();
+    
+    // one iteration at a time, since the sequential iterate() does not stop once converged
+    ClusterClassifier[] kmeans = {newKlusterClassifier(), newKlusterClassifier(), newKlusterClassifier()};
+    ClusterClassifier[] fuzzy = {newSoftClusterClassifier(), newSoftClusterClassifier(), newSoftClusterClassifier()};
+    for (int iteration = 0; iteration < 5; iteration++) {
+      for (ClusterClassifier[] classifiers : new ClusterClassifier[][] {kmeans, fuzzy}) {
+        iterator.iterate(data, classifiers[0], 1);
+        iterator.iterate(data, classifiers[1], 1, 1);
+        iterator.iterate(data, classifiers[2], 1, 4);
+        for (int index = 0; index < 3; index++) {
+          Cluster sequential = classifiers[0].getModels().get(index);
+          for (int i = 1; i < 3; i++) {
+            Cluster parallel = classifiers[i].getModels().get(index);
+            assertEquals(sequential.getNumObservations(), parallel.getNumObservations(), EPSILON);
+            assertEquals(0.0, sequential.getCenter().getDistanceSquared(parallel.getCenter()), EPSILON);
+            assertEquals(0.0, sequential.getRadius().getDistanceSquared(parallel.getRadius()), EPSILON);
+          }
+        }
+      }
+    }
+    // the three blobs are found
+    for (Cluster cluster : kmeans[2].getModels()) {
+      double expected = cluster.getCenter().get(0) > 0.5 ? 1 : cluster.getCenter().get(0) < -0.5 ? -1 : 0;
+      assertEquals(expected, cluster.getCenter().get(0), 0.05);
+      assertEquals(expected, cluster.getCenter().get(1), 0.05);
+    }
+  }
+  
   @Test
   public void testSeqFileClusterIteratorKMeans() throws IOException {
     Path pointsPath = getTestTempDirPath("points");
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.clustering.lda.cvb;
+
+import static org.apache.mahout.clustering.ClusteringTestUtils.ALPHA;
+import static org.apache.mahout.clustering.ClusteringTestUtils.ETA;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.mahout.clustering.ClusteringTestUtils;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.MatrixSlice;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public final class TestOnlineCVB0 extends MahoutTestCase {
+
+  private static Iterator<Vector> rows(Matrix corpus) {
+    List<Vector> rows = Lists.newArrayList();
+    for (MatrixSlice slice : corpus) {
+      rows.add(slice.vector());
+    }
+    return rows.iterator();
+  }
+
+  private static double perplexity(TopicModel model, Matrix corpus) {
+    double perplexity = 0;
+    for (MatrixSlice slice : corpus) {
+      Vector document = slice.vector();
+      Vector topics = new DenseVector(model.getNumTopics()).assign(1.0 / model.getNumTopics());
+      Matrix docTopicModel = new SparseRowMatrix(model.getNumTopics(), model.getNumTerms(), true);
+      for (int i = 0; i < 10; i++) {
+        model.trainDocTopicModel(document, topics, docTopicModel);
+      }
+      perplexity += model.perplexity(document, topics);
+    }
+    return perplexity / corpus.zSum();
+  }
+
+  @Test
+  public void testPerplexityDecreases() {
+    Random random = RandomUtils.getRandom();
+    int numTopics = 10;
+    int numTerms = 100;
+    Matrix corpus = ClusteringTestUtils.sampledCorpus(numTopics, numTerms, 400, random);
+    TopicModel model = new TopicModel(numTopics, numTerms, ETA, ALPHA, random, null, 1, 1);
+    OnlineCollapsedVariationalBayes0 trainer =
+        new OnlineCollapsedVariationalBayes0(model, corpus.zSum(), 1, 0.7, 10, 2);
+    double initialPerplexity = perplexity(model, corpus);
+
+    trainer.train(rows(corpus), 40);
+    assertEquals(10, trainer.getNumBatches());
+    // the counts stand for the weight of the corpus
+    assertEquals(corpus.zSum(), model.topicSums().zSum(), 1.0e-6 * corpus.zSum());
+    assertEquals(model.topicSums().zSum(), trainer.getModel().topicTermCounts().zSum(), 1.0e-6 * corpus.zSum());
+    assertTrue(perplexity(model, corpus) < initialPerplexity);
+    model.awaitTermination();
+  }
+
+  @Test
+  public void testCheckpoint() throws Exception {
+    Random random = RandomUtils.getRandom();
+    int numTopics = 5;
+    int numTerms = 50;
+    Matrix corpus = ClusteringTestUtils.sampledCorpus(numTopics, numTerms, 100, random);
+    TopicModel model = new TopicModel(numTopics, numTerms, ETA, ALPHA, random, null, 1, 1);
+    Configuration conf = new Configuration();
+    model.setConf(conf);
+    OnlineCollapsedVariationalBayes0 trainer =
+        new OnlineCollapsedVariationalBayes0(model, 0, 1, 0.7, 5, 1);
+    Path checkpoint = getTestTempDirPath("checkpoint");
+    trainer.checkpoint(checkpoint);
+    trainer.train(rows(corpus), 30);
+
+    // replaces the checkpoint of the untrained model
+    trainer.checkpoint(checkpoint);
+    FileSystem fs = checkpoint.getFileSystem(conf);
+    assertFalse(fs.exists(new Path(checkpoint.getParent(), checkpoint.getName() + "-tmp")));
+    assertFalse(fs.exists(new Path(checkpoint.getParent(), checkpoint.getName() + "-old")));
+    OnlineCollapsedVariationalBayes0 resumed =
+        OnlineCollapsedVariationalBayes0.fromCheckpoint(conf, checkpoint, ETA, ALPHA, 0, 1, 0.7, 5, 1);
+    assertEquals(trainer.getNumBatches(), resumed.getNumBatches());
+    assertEquals(trainer.learningRate(trainer.getNumBatches()),
+        resumed.learningRate(resumed.getNumBatches()), EPSILON);
+    Matrix expected = trainer.getModel().topicTermCounts();
+    Matrix actual = resumed.getModel().topicTermCounts();
+    for (int x = 0; x < numTopics; x++) {
+      assertEquals(0.0, expected.viewRow(x).getDistanceSquared(actual.viewRow(x)), 1.0e-10);
+    }
+    model.awaitTermination();
+    resumed.getModel().awaitTermination();
+  }
+
+}
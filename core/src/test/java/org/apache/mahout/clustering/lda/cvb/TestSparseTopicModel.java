@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.clustering.lda.cvb;
+
+import static org.apache.mahout.clustering.ClusteringTestUtils.ALPHA;
+import static org.apache.mahout.clustering.ClusteringTestUtils.ETA;
+
+import org.apache.mahout.clustering.ClusteringTestUtils;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.DenseMatrix;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Matrix;
+import org.apache.mahout.math.SparseRowMatrix;
+import org.apache.mahout.math.Vector;
+import org.junit.Test;
+
+import java.util.Random;
+
+public final class TestSparseTopicModel extends MahoutTestCase {
+
+  @Test
+  public void testSameInferenceAsTopicModel() {
+    Random random = RandomUtils.getRandom();
+    int numTopics = 5;
+    int numTerms = 30;
+    Matrix corpus = ClusteringTestUtils.sampledCorpus(numTopics, numTerms, 20, random);
+    TopicModel dense = new TopicModel(numTopics, numTerms, ETA, ALPHA, random, null, 1, 1);
+    SparseTopicModel sparse = new SparseTopicModel(dense.topicTermCounts(), dense.topicSums(), ETA, ALPHA);
+    assertEquals((long) numTopics * numTerms, sparse.numEntries());
+
+    for (int docId = 0; docId < corpus.numRows(); docId++) {
+      Vector document = corpus.viewRow(docId);
+      Vector denseTopics = new DenseVector(numTopics).assign(1.0 / numTopics);
+      Matrix docTopicModel = new SparseRowMatrix(numTopics, numTerms, true);
+      for (int i = 0; i < 5; i++) {
+        dense.trainDocTopicModel(document, denseTopics, docTopicModel);
+      }
+      Vector sparseTopics = new DenseVector(numTopics).assign(1.0 / numTopics);
+      sparse.inferDocTopics(document, sparseTopics, 5);
+      assertEquals(0.0, denseTopics.getDistanceSquared(sparseTopics), 1.0e-10);
+      double perplexity = dense.perplexity(document, denseTopics);
+      assertEquals(perplexity, sparse.perplexity(document, denseTopics), 1.0e-5 * perplexity);
+    }
+    dense.awaitTermination();
+  }
+
+  @Test
+  public void testTraining() {
+    Random random = RandomUtils.getRandom();
+    int numTopics = 20;
+    int numTerms = 200;
+    Matrix corpus = ClusteringTestUtils.sampledCorpus(numTopics, numTerms, 500, random);
+    TopicModel initial = new TopicModel(numTopics, numTerms, ETA, ALPHA, random, null, 1, 1);
+    SparseModelTrainer trainer = new SparseModelTrainer(
+        new SparseTopicModel(initial.topicTermCounts(), initial.topicSums(), ETA, ALPHA), 3, 0.01, 100);
+    initial.awaitTermination();
+
+    Matrix docTopics = new DenseMatrix(corpus.numRows(), numTopics).assign(1.0 / numTopics);
+    double initialPerplexity = trainer.calculatePerplexity(corpus, docTopics, 0);
+    for (int i = 0; i < 5; i++) {
+      trainer.train(corpus, 10, 0);
+    }
+    SparseTopicModel model = trainer.getReadModel();
+    // all the weight of the corpus made it into the model
+    assertEquals(corpus.zSum(), model.topicSums().zSum(), 1.0e-3 * corpus.zSum());
+    assertEquals(model.topicSums().zSum(), model.toMatrix().zSum(), 1.0e-3 * corpus.zSum());
+    // and some topics of the terms were dropped
+    assertTrue(model.numEntries() < numTopics * numTerms);
+    assertTrue(trainer.calculatePerplexity(corpus, docTopics, 0) < initialPerplexity);
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.fpm.pfpgrowth;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.FileLineIterable;
+import org.apache.mahout.common.iterator.StringRecordIterator;
+import org.apache.mahout.fpm.pfpgrowth.convertors.StatusUpdater;
+import org.apache.mahout.fpm.pfpgrowth.fpgrowth.FPGrowth;
+import org.apache.mahout.fpm.pfpgrowth.fpgrowth2.FPGrowthObj;
+import org.junit.Test;
+
+public final class FPGrowthParallelTest extends MahoutTestCase {
+
+  private static final int MIN_SUPPORT = 500;
+
+  @Test
+  public void testFPGrowth() throws IOException {
+    Map<String,Set<Pair<Set<String>,Long>>> expected = mineFPGrowth(1, 1000);
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, mineFPGrowth(4, 1000));
+  }
+
+  @Test
+  public void testFPGrowthFullHeaps() throws IOException {
+    for (int k : new int[] {5, 20}) {
+      // the single thread carries the raised support over, so only the parallel runs have to agree
+      Map<String,Set<Pair<Set<String>,Long>>> expected = mineFPGrowth(2, k);
+      assertTrue(hasFullHeap(expected, k));
+      assertEquals(expected, mineFPGrowth(3, k));
+    }
+  }
+
+  @Test
+  public void testFPGrowthObj() throws IOException {
+    for (int k : new int[] {5, 1000}) {
+      Map<String,Set<Pair<Set<String>,Long>>> expected = mineFPGrowthObj(1, k);
+      assertFalse(expected.isEmpty());
+      assertEquals(expected, mineFPGrowthObj(4, k));
+    }
+  }
+
+  private static Map<String,Set<Pair<Set<String>,Long>>> mineFPGrowth(int numThreads, int k) throws IOException {
+    FPGrowth<String> fp = new FPGrowth<String>();
+    PatternCollector collector = new PatternCollector();
+    fp.generateTopKFrequentPatterns(transactions(), fp.generateFList(transactions(), MIN_SUPPORT), MIN_SUPPORT, k,
+        null, collector, collector, numThreads);
+    return collector.patterns;
+  }
+
+  private static Map<String,Set<Pair<Set<String>,Long>>> mineFPGrowthObj(int numThreads, int k) throws IOException {
+    FPGrowthObj<String> fp = new FPGrowthObj<String>();
+    PatternCollector collector = new PatternCollector();
+    fp.generateTopKFrequentPatterns(transactions(), fp.generateFList(transactions(), MIN_SUPPORT), MIN_SUPPORT, k,
+        null, collector, collector, numThreads);
+    return collector.patterns;
+  }
+
+  private static boolean hasFullHeap(Map<String,Set<Pair<Set<String>,Long>>> patterns, int k) {
+    for (Set<Pair<Set<String>,Long>> featurePatterns : patterns.values()) {
+      if (featurePatterns.size() == k) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static StringRecordIterator transactions() throws IOException {
+    return new StringRecordIterator(new FileLineIterable(Resources.getResource("retail.dat").openStream()), "\\s+");
+  }
+
+  private static final class PatternCollector
+      implements OutputCollector<String,List<Pair<List<String>,Long>>>, StatusUpdater {
+
+    private final Map<String,Set<Pair<Set<String>,Long>>> patterns = Maps.newHashMap();
+
+    @Override
+    public void collect(String key, List<Pair<List<String>,Long>> value) {
+      Set<Pair<Set<String>,Long>> keyPatterns = new HashSet<Pair<Set<String>,Long>>();
+      for (Pair<List<String>,Long> pattern : value) {
+        keyPatterns.add(new Pair<Set<String>,Long>(new HashSet<String>(pattern.getFirst()), pattern.getSecond()));
+      }
+      assertNull(patterns.put(key, keyPatterns));
+    }
+
+    @Override
+    public void update(String status) {
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.fpm.pfpgrowth.fpgrowth;
+
+import org.apache.mahout.common.MahoutTestCase;
+import org.junit.Test;
+
+public final class FPTreeTest extends MahoutTestCase {
+
+  /** adds 1 to the count of the path of the given attributes, creating the missing nodes */
+  private static void addPath(FPTree tree, int... attributes) {
+    int node = FPTree.ROOTNODEID;
+    for (int attribute : attributes) {
+      int child = tree.childWithAttribute(node, attribute);
+      if (child == -1) {
+        node = tree.createNode(node, attribute, 1);
+      } else {
+        node = child;
+        tree.addCount(node, 1);
+      }
+      tree.addHeaderCount(attribute, 1);
+    }
+  }
+
+  @Test
+  public void testChildrenGrow() {
+    FPTree tree = new FPTree();
+    for (int attribute = 0; attribute < 100; attribute++) {
+      for (int grandChild = 100; grandChild < 103; grandChild++) {
+        addPath(tree, attribute, grandChild);
+      }
+    }
+    assertFalse(tree.singlePath());
+    assertEquals(100, tree.childCount(FPTree.ROOTNODEID));
+    for (int i = 0; i < 100; i++) {
+      int child = tree.childAtIndex(FPTree.ROOTNODEID, i);
+      assertEquals(i, tree.attribute(child));
+      assertEquals(3, tree.count(child));
+      assertEquals(FPTree.ROOTNODEID, tree.parent(child));
+      assertEquals(child, tree.childWithAttribute(FPTree.ROOTNODEID, i));
+      assertEquals(3, tree.childCount(child));
+      for (int j = 0; j < 3; j++) {
+        int grandChild = tree.childAtIndex(child, j);
+        assertEquals(100 + j, tree.attribute(grandChild));
+        assertEquals(child, tree.parent(grandChild));
+      }
+      assertEquals(-1, tree.childAtIndex(child, 3));
+    }
+    assertEquals(103, tree.getHeaderTableCount());
+    assertEquals(100, tree.getHeaderSupportCount(101));
+    int length = 0;
+    for (int node = tree.getHeaderNext(101); node != -1; node = tree.next(node)) {
+      assertEquals(101, tree.attribute(node));
+      length++;
+    }
+    assertEquals(100, length);
+  }
+
+  @Test
+  public void testClearAndReuse() {
+    FPTree reused = new FPTree();
+    for (int attribute = 0; attribute < 1000; attribute += 3) {
+      addPath(reused, attribute, attribute + 1, attribute + 2);
+    }
+    reused.clear();
+    assertTrue(reused.isEmpty());
+    assertTrue(reused.singlePath());
+    assertEquals(0, reused.getHeaderTableCount());
+    assertEquals(0, reused.childCount(FPTree.ROOTNODEID));
+
+    FPTree fresh = new FPTree();
+    for (FPTree tree : new FPTree[] {reused, fresh}) {
+      addPath(tree, 5, 7, 9);
+      addPath(tree, 5, 7);
+      addPath(tree, 5, 8);
+      addPath(tree, 6);
+      tree.reorderHeaderTable();
+    }
+    assertEquals(fresh.toString(), reused.toString());
+    assertEquals(5, reused.getHeaderTableCount());
+    for (int i = 0; i < 5; i++) {
+      int attribute = fresh.getAttributeAtIndex(i);
+      assertEquals(attribute, reused.getAttributeAtIndex(i));
+      assertEquals(fresh.getHeaderSupportCount(attribute), reused.getHeaderSupportCount(attribute));
+      assertEquals(fresh.getHeaderNext(attribute), reused.getHeaderNext(attribute));
+    }
+    assertEquals(3, reused.getHeaderSupportCount(5));
+    assertEquals(-1, reused.next(reused.getHeaderNext(9)));
+  }
+
+  @Test
+  public void testConditionalView() {
+    FPTree tree = new FPTree();
+    addPath(tree, 1, 2);
+    FPTree view = tree.conditionalView();
+    int node = tree.getHeaderNext(2);
+    view.setConditional(node, 1);
+    assertEquals(0, tree.conditional(node));
+    assertEquals(1, view.conditional(node));
+    assertEquals(tree.toString(), view.toString());
+  }
+
+  @Test
+  public void testFirstLevelTreesReused() {
+    FPTreeDepthCache cache = new FPTreeDepthCache();
+    FPTree first = cache.getFirstLevelTree(1, 10);
+    assertTrue(first.isEmpty());
+    addPath(first, 2, 3);
+
+    assertSame(first, cache.getFirstLevelTree(1, 10));
+    assertFalse(first.isEmpty());
+    assertEquals(1, cache.getHits());
+    // built for another minimum support, so it has to be built again
+    assertSame(first, cache.getFirstLevelTree(1, 20));
+    assertTrue(first.isEmpty());
+    addPath(first, 2);
+
+    // the cache keeps the five least attributes, and the tree it evicts is reused for the next miss
+    FPTree evicted = null;
+    for (int attribute = 2; attribute <= 5; attribute++) {
+      evicted = cache.getFirstLevelTree(attribute, 20);
+      addPath(evicted, 7, 8);
+    }
+    assertTrue(cache.getFirstLevelTree(0, 20).isEmpty());
+    FPTree recycled = cache.getFirstLevelTree(6, 20);
+    assertSame(evicted, recycled);
+    assertTrue(recycled.isEmpty());
+    assertEquals(0, recycled.getHeaderTableCount());
+    assertSame(first, cache.getFirstLevelTree(1, 20));
+    assertFalse(first.isEmpty());
+    assertEquals(2, cache.getHits());
+    assertEquals(8, cache.getMisses());
+  }
+
+  @Test
+  public void testDeeperTreesCleared() {
+    FPTreeDepthCache cache = new FPTreeDepthCache();
+    FPTree tree = cache.getTree(2);
+    addPath(tree, 1, 2, 3);
+    assertSame(tree, cache.getTree(2));
+    assertTrue(tree.isEmpty());
+    assertEquals(0, tree.getHeaderTableCount());
+  }
+
+}
@@ -63,6 +63,38 @@ public final class MatrixWritableTest extends MahoutTestCase {
 		doTestMatrixWritableEquals(m);
 	}
 
+  @Test
+  public void testReadIntoExistingMatrix() throws Exception {
+    Matrix m = new SparseMatrix(4, 3);
+    m.set(1, 2, 3.0);
+    m.set(3, 0, 5.0);
+    Map<String, Integer> bindings = Maps.newHashMap();
+    bindings.put("A", 0);
+    m.setColumnLabelBindings(bindings);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(baos);
+    try {
+      MatrixWritable.writeMatrix(dos, m);
+    } finally {
+      Closeables.closeQuietly(dos);
+    }
+
+    Matrix into = OffHeapDenseMatrix.allocate(4, 3, OffHeapDenseVector.Precision.FLOAT);
+    into.assign(1.0);
+    DataInputStream dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    assertSame(into, MatrixWritable.readMatrix(dis, into));
+    compareMatrices(m, into);
+
+    dis = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    try {
+      MatrixWritable.readMatrix(dis, new DenseFloatMatrix(3, 4));
+      fail("expected CardinalityException");
+    } catch (CardinalityException ce) {
+      // expected
+    }
+  }
+
 	private static void doTestMatrixWritableEquals(Matrix m) throws IOException {
 		Writable matrixWritable = new MatrixWritable(m);
 		MatrixWritable matrixWritable2 = new MatrixWritable();
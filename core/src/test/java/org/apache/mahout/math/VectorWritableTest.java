@@ -62,6 +62,38 @@ public final class VectorWritableTest extends MahoutTestCase {
     doTestVectorWritableEquals(v);
   }
 
+  @Test
+  public void testReadIntoExistingVector() throws Exception {
+    Vector sparse = new RandomAccessSparseVector(5);
+    sparse.set(1, 3.0);
+    sparse.set(4, -2.0);
+    Vector into = new DenseFloatVector(5);
+    into.assign(7.0);
+    assertSame(into, VectorWritable.readVector(toDataInput(new VectorWritable(sparse)), into));
+    assertEquals(sparse, into);
+
+    Vector dense = new NamedVector(new DenseVector(new double[] {0.5, 1.5, 2.5}), "Victor");
+    into = OffHeapDenseVector.allocate(3, OffHeapDenseVector.Precision.DOUBLE);
+    VectorWritable.readVector(toDataInput(new VectorWritable(dense)), into);
+    assertEquals(dense, into);
+  }
+
+  @Test(expected = CardinalityException.class)
+  public void testReadIntoVectorOfWrongSize() throws Exception {
+    VectorWritable.readVector(toDataInput(new VectorWritable(new DenseVector(3))), new DenseVector(4));
+  }
+
+  private static DataInputStream toDataInput(Writable writable) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(baos);
+    try {
+      writable.write(dos);
+    } finally {
+      Closeables.closeQuietly(dos);
+    }
+    return new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+  }
+
   private static void doTestVectorWritableEquals(Vector v) throws IOException {
     Writable vectorWritable = new VectorWritable(v);
     VectorWritable vectorWritable2 = new VectorWritable();
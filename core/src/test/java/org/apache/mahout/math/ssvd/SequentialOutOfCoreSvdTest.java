@@ -93,6 +93,42 @@ public final class SequentialOutOfCoreSvdTest extends MahoutTestCase {
     assertEquals(0, A.minus(u.times(new DiagonalMatrix(s.getSingularValues())).times(v.transpose())).aggregate(Functions.PLUS, Functions.ABS), 1.0e-7);
   }
 
+  @Test
+  public void testMultithreaded() throws IOException {
+    Matrix A = lowRankMatrix(tmpDir, "A", 200, 970, 1020);
+
+    List<File> partsOfA = Arrays.asList(tmpDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File file, String fileName) {
+        return fileName.matches("A-.*");
+      }
+    }));
+
+    File sequentialDir = getTestTempDir("sequential");
+    File parallelDir = getTestTempDir("parallel");
+    SequentialOutOfCoreSvd sequential = new SequentialOutOfCoreSvd(partsOfA, sequentialDir, 100, 210);
+    SequentialOutOfCoreSvd parallel = new SequentialOutOfCoreSvd(partsOfA, parallelDir, 100, 210, 3);
+    assertEquals(0, sequential.getSingularValues().minus(parallel.getSingularValues()).norm(1), 1.0e-9);
+
+    parallel.computeU(partsOfA, parallelDir);
+    Matrix u = readBlockMatrix(Arrays.asList(parallelDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File file, String fileName) {
+        return fileName.matches("U-.*");
+      }
+    })));
+
+    parallel.computeV(parallelDir, A.columnSize());
+    Matrix v = readBlockMatrix(Arrays.asList(parallelDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File file, String fileName) {
+        return fileName.matches("V-.*");
+      }
+    })));
+
+    assertEquals(0, A.minus(u.times(new DiagonalMatrix(parallel.getSingularValues())).times(v.transpose())).aggregate(Functions.PLUS, Functions.ABS), 1.0e-7);
+  }
+
   /**
    * Reads a list of files that contain a column of blocks.  It is assumed that the files
    * can be sorted lexicographically to determine the order they should be stacked.  It
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileIterable;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.junit.Test;
+
+public final class InMemoryDictionaryVectorizerTest extends MahoutTestCase {
+
+  private static final int NUM_DOCS = 100;
+
+  /**
+   * Both vectorizers must give the same dictionary and vectors
+   */
+  @Test
+  public void testSameAsMapReduce() throws Exception {
+    Configuration conf = new Configuration();
+    Path inputPath = getTestTempFilePath("documents/docs.file");
+    FileSystem fs = FileSystem.get(inputPath.toUri(), conf);
+    SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, inputPath, Text.class, Text.class);
+    RandomDocumentGenerator gen = new RandomDocumentGenerator();
+    try {
+      for (int i = 0; i < NUM_DOCS; i++) {
+        writer.append(new Text("Document::ID::" + i), new Text(gen.getRandomDocument()));
+      }
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+
+    Path mapReduceOutput = getTestTempDirPath("mapreduce");
+    SparseVectorsFromSequenceFiles.main(new String[] {
+        "-i", inputPath.toString(), "-o", mapReduceOutput.toString(), "-n", "2", "-x", "50", "-seq"});
+    Path localOutput = getTestTempDirPath("local");
+    InMemoryDictionaryVectorizer.main(new String[] {
+        "-i", inputPath.toString(), "-o", localOutput.toString(), "-n", "2", "-x", "50", "-seq", "-nt", "3"});
+
+    Map<String,Integer> expectedDictionary = readDictionary(conf, new Path(mapReduceOutput, "dictionary.file-0"));
+    assertFalse(expectedDictionary.isEmpty());
+    assertEquals(expectedDictionary,
+        readDictionary(conf, new Path(localOutput, InMemoryDictionaryVectorizer.DICTIONARY_FILE)));
+
+    for (String folder : new String[] {DictionaryVectorizer.DOCUMENT_VECTOR_OUTPUT_FOLDER,
+                                       InMemoryDictionaryVectorizer.TFIDF_OUTPUT_FOLDER}) {
+      DictionaryVectorizerTest.validateVectors(conf, NUM_DOCS, new Path(localOutput, folder), true, false);
+      Map<String,Vector> expected = readVectors(conf, new Path(mapReduceOutput, folder));
+      Map<String,Vector> actual = readVectors(conf, new Path(localOutput, folder));
+      assertEquals(expected.keySet(), actual.keySet());
+      for (Map.Entry<String,Vector> entry : expected.entrySet()) {
+        assertEquals(0.0, entry.getValue().getDistanceSquared(actual.get(entry.getKey())), EPSILON);
+      }
+    }
+  }
+
+  private static Map<String,Integer> readDictionary(Configuration conf, Path path) {
+    Map<String,Integer> dictionary = Maps.newHashMap();
+    for (Pair<Writable,IntWritable> record : new SequenceFileIterable<Writable,IntWritable>(path, true, conf)) {
+      dictionary.put(record.getFirst().toString(), record.getSecond().get());
+    }
+    return dictionary;
+  }
+
+  private static Map<String,Vector> readVectors(Configuration conf, Path path) {
+    Map<String,Vector> vectors = Maps.newHashMap();
+    for (Pair<Text,VectorWritable> record : new SequenceFileDirIterable<Text,VectorWritable>(
+        path, PathType.LIST, PathFilters.partFilter(), null, true, conf)) {
+      vectors.put(record.getFirst().toString(), record.getSecond().get());
+    }
+    return vectors;
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer.collocations.llr;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.stats.LogLikelihood;
+import org.junit.Test;
+
+public final class StreamingCollocationFinderTest extends MahoutTestCase {
+
+  private static List<List<String>> documents(Random random) {
+    List<List<String>> documents = Lists.newArrayList();
+    for (int doc = 0; doc < 500; doc++) {
+      List<String> tokens = Lists.newArrayList();
+      for (int i = 0; i < 30; i++) {
+        if (random.nextInt(10) == 0) {
+          tokens.add("new");
+          tokens.add("york");
+        } else {
+          tokens.add("w" + random.nextInt(100));
+        }
+      }
+      documents.add(tokens);
+    }
+    return documents;
+  }
+
+  @Test
+  public void testExactWithEnoughMemory() throws Exception {
+    List<List<String>> documents = documents(RandomUtils.getRandom());
+    StreamingCollocationFinder finder = new StreamingCollocationFinder(2, 100000, 4, 1 << 16);
+    Map<String,Long> ngrams = Maps.newHashMap();
+    Map<String,Long> heads = Maps.newHashMap();
+    Map<String,Long> tails = Maps.newHashMap();
+    long total = 0;
+    for (List<String> tokens : documents) {
+      finder.addDocument(tokens);
+      for (int i = 1; i < tokens.size(); i++) {
+        increment(ngrams, tokens.get(i - 1) + ' ' + tokens.get(i));
+        increment(heads, tokens.get(i - 1));
+        increment(tails, tokens.get(i));
+        total++;
+      }
+    }
+    assertEquals(total, finder.getNGramTotal());
+    for (Map.Entry<String,Long> entry : ngrams.entrySet()) {
+      String[] subgrams = entry.getKey().split(" ");
+      long k11 = entry.getValue();
+      long k12 = heads.get(subgrams[0]) - k11;
+      long k21 = tails.get(subgrams[1]) - k11;
+      long k22 = total - (heads.get(subgrams[0]) + tails.get(subgrams[1]) - k11);
+      assertEquals(LogLikelihood.logLikelihoodRatio(k11, k12, k21, k22),
+          finder.logLikelihoodRatio(entry.getKey()), EPSILON);
+    }
+  }
+
+  @Test
+  public void testTopCollocationsInBoundedMemory() throws Exception {
+    StreamingCollocationFinder finder = new StreamingCollocationFinder(2, 200, 3, 64);
+    for (List<String> tokens : documents(RandomUtils.getRandom())) {
+      finder.addDocument(tokens);
+    }
+    List<Pair<String,Double>> top = finder.topCollocations(5, LLRReducer.DEFAULT_MIN_LLR);
+    assertFalse(top.isEmpty());
+    assertTrue(top.size() <= 5);
+    assertEquals("new york", top.get(0).getFirst());
+    for (int i = 1; i < top.size(); i++) {
+      assertTrue(top.get(i - 1).getSecond() >= top.get(i).getSecond());
+    }
+    assertTrue(Double.isNaN(finder.logLikelihoodRatio("york new york")));
+  }
+
+  private static void increment(Map<String,Long> counts, String key) {
+    Long count = counts.get(key);
+    counts.put(key, count == null ? 1L : count + 1);
+  }
+
+}
@@ -17,11 +17,15 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Vector;
 import org.junit.Test;
 
+import java.util.Random;
+
 public final class ContinuousValueEncoderTest extends MahoutTestCase {
   
   @Test
@@ -85,4 +89,45 @@ public final class ContinuousValueEncoderTest extends MahoutTestCase {
     assertEquals("foo:123", enc.asString("123"));
   }
 
+  @Test
+  public void testAddSliceToVector() {
+    FeatureVectorEncoder enc = new ContinuousValueEncoder("foo");
+    enc.setProbes(2);
+    byte[] bytes = "a,-12.5,b".getBytes(Charsets.UTF_8);
+    Vector v1 = new DenseVector(20);
+    enc.addToVector(bytes, 2, 5, 2.0, v1);
+    Vector v2 = new DenseVector(20);
+    enc.addToVector("-12.5", 2.0, v2);
+    assertEquals(0, v1.minus(v2).norm(1), 0);
+    assertEquals(-25, v1.minValue(), 0);
+  }
+
+  @Test
+  public void testParseDouble() {
+    String[] values = {"0", "-0", "+3", "3.", ".25", " 7.5 ", "-123.456", "1e3", "-2.5E-3", "123456789012345678",
+                       "0.1", "0.3", "9007199254740993", "1.7976931348623157", "NaN", "-Infinity"};
+    for (String value : values) {
+      assertParsesLikeJava(value);
+    }
+    Random gen = RandomUtils.getRandom();
+    for (int i = 0; i < 10000; i++) {
+      long mantissa = gen.nextLong() % 1000000000000000L;
+      String digits = Long.toString(Math.abs(mantissa));
+      int point = gen.nextInt(digits.length() + 1);
+      assertParsesLikeJava((mantissa < 0 ? "-" : "") + digits.substring(0, point) + '.' + digits.substring(point));
+    }
+
+    try {
+      ContinuousValueEncoder.parseDouble(new byte[] {'1', '-', '2'}, 0, 3);
+      fail("Should have noticed bad numeric format");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+  }
+
+  private static void assertParsesLikeJava(String value) {
+    byte[] bytes = ("x" + value + "y").getBytes(Charsets.UTF_8);
+    assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+        Double.doubleToLongBits(ContinuousValueEncoder.parseDouble(bytes, 1, bytes.length - 2)));
+  }
 }
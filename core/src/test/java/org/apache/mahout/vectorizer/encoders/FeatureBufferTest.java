@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.vectorizer.encoders;
+
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+public final class FeatureBufferTest extends MahoutTestCase {
+
+  @Test
+  public void testAgainstRandomAccessSparseVector() {
+    Random gen = RandomUtils.getRandom();
+    FeatureBuffer buffer = new FeatureBuffer(1000, 1);
+    for (int round = 0; round < 20; round++) {
+      Vector reference = new RandomAccessSparseVector(1000);
+      int n = gen.nextInt(300);
+      for (int i = 0; i < n; i++) {
+        int index = gen.nextInt(1000);
+        double delta = gen.nextGaussian();
+        if (gen.nextBoolean()) {
+          buffer.increment(index, delta);
+        } else {
+          buffer.set(index, buffer.get(index) + delta);
+        }
+        reference.set(index, reference.get(index) + delta);
+      }
+
+      assertEquals(reference.getNumNondefaultElements(), buffer.getNumNondefaultElements());
+      assertEquals(0, reference.minus(buffer).norm(1), 1.0e-12);
+      assertEquals(reference.getLengthSquared(), buffer.getLengthSquared(), 1.0e-9);
+
+      double sum = 0;
+      Iterator<Vector.Element> nonZeros = buffer.iterateNonZero();
+      int count = 0;
+      while (nonZeros.hasNext()) {
+        Vector.Element element = nonZeros.next();
+        assertEquals(reference.get(element.index()), element.get(), 1.0e-12);
+        assertEquals(buffer.indexAt(count), element.index());
+        assertEquals(buffer.valueAt(count), element.get(), 0);
+        sum += element.get();
+        count++;
+      }
+      assertEquals(buffer.getNumNondefaultElements(), count);
+      assertEquals(reference.zSum(), sum, 1.0e-9);
+
+      buffer.clear();
+      assertEquals(0, buffer.getNumNondefaultElements());
+      assertEquals(0, buffer.norm(1), 0);
+      assertFalse(buffer.iterateNonZero().hasNext());
+    }
+  }
+
+  @Test
+  public void testCloneIsIndependent() {
+    FeatureBuffer buffer = new FeatureBuffer(100);
+    buffer.set(3, 1.5);
+    buffer.set(97, -2);
+    FeatureBuffer copy = buffer.clone();
+    buffer.clear();
+    buffer.set(3, 7);
+    assertEquals(1.5, copy.get(3), 0);
+    assertEquals(-2, copy.get(97), 0);
+    assertEquals(2, copy.getNumNondefaultElements());
+    assertEquals(7, buffer.get(3), 0);
+    assertEquals(0, buffer.get(97), 0);
+  }
+
+  @Test
+  public void testEncodersFillBuffer() {
+    FeatureBuffer buffer = new FeatureBuffer(1000);
+    Vector reference = new RandomAccessSparseVector(1000);
+    for (FeatureVectorEncoder encoder : new FeatureVectorEncoder[] {
+        new StaticWordValueEncoder("w"), new TextValueEncoder("t"), new ConstantValueEncoder("c")}) {
+      encoder.addToVector("some words and some more", buffer);
+      encoder.addToVector("some words and some more", reference);
+    }
+    assertEquals(reference.getNumNondefaultElements(), buffer.getNumNondefaultElements());
+    assertEquals(0, reference.minus(buffer).norm(1), 1.0e-12);
+  }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import org.apache.mahout.common.MahoutTestCase;
 import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.Vector;
@@ -74,4 +75,25 @@ public class InteractionValueEncoderTest extends MahoutTestCase {
     assertEquals((float) k*3, v1.norm(1), 0);
   }
 
+  @Test
+  public void testAddSliceInteractionToVector() {
+    WordValueEncoder wv = new StaticWordValueEncoder("word");
+    ContinuousValueEncoder cv = new ContinuousValueEncoder("cont");
+    InteractionValueEncoder enc = new InteractionValueEncoder("interactions", wv, cv);
+    byte[] bytes = "a,0.9".getBytes(Charsets.UTF_8);
+    Vector v1 = new DenseVector(200);
+    enc.addInteractionToVector(bytes, 0, 1, bytes, 2, 3, 0.5, v1);
+    Vector v2 = new DenseVector(200);
+    enc.addInteractionToVector("a", "0.9", 0.5, v2);
+    assertEquals(0, v1.minus(v2).norm(1), 0);
+
+    TextValueEncoder tv = new TextValueEncoder("text");
+    enc = new InteractionValueEncoder("interactions", tv, wv);
+    bytes = "some text,b".getBytes(Charsets.UTF_8);
+    v1 = new DenseVector(200);
+    enc.addInteractionToVector(bytes, 0, 9, bytes, 10, 1, 1.0, v1);
+    v2 = new DenseVector(200);
+    enc.addInteractionToVector("some text", "b", 1.0, v2);
+    assertEquals(0, v1.minus(v2).norm(1), 0);
+  }
 }
@@ -17,6 +17,7 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.analysis.WhitespaceAnalyzer;
 import org.apache.lucene.util.Version;
@@ -97,4 +98,22 @@ public final class TextValueEncoderTest extends MahoutTestCase {
     assertEquals(2000.0, v1.norm(1), 0);
     assertEquals(19.0, v1.maxValue(), 0);
   }
+
+  @Test
+  public void testAddSliceToVector() {
+    String text = "the quick_fox, the Lazy dog;\u00e9t\u00e9 the end 42 dog";
+    byte[] bytes = ("[" + text + "]").getBytes(Charsets.UTF_8);
+    TextValueEncoder enc = new TextValueEncoder("text");
+
+    Vector v1 = new DenseVector(1000);
+    enc.addToVector(bytes, 1, bytes.length - 2, 2.0, v1);
+    Vector v2 = new DenseVector(1000);
+    enc.addToVector(text, 2.0, v2);
+    assertEquals(0, v1.minus(v2).norm(1), 1.0e-12);
+
+    // counts must not leak from one call to the next
+    v1.assign(0);
+    enc.addToVector(bytes, 1, bytes.length - 2, 2.0, v1);
+    assertEquals(0, v1.minus(v2).norm(1), 1.0e-12);
+  }
 }
@@ -17,6 +17,7 @@
 
 package org.apache.mahout.vectorizer.encoders;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.mahout.common.MahoutTestCase;
@@ -96,4 +97,21 @@ public final class WordLikeValueEncoderTest extends MahoutTestCase {
     }
     assertFalse(j.hasNext());
   }
+
+  @Test
+  public void testAddSliceToVector() {
+    StaticWordValueEncoder enc = new StaticWordValueEncoder("word");
+    enc.setDictionary(ImmutableMap.<String, Double>of("word1", 3.0, "word2", 1.5));
+    byte[] bytes = "xxword1,word2,word3yy".getBytes(Charsets.UTF_8);
+    Vector v1 = new DenseVector(200);
+    enc.addToVector(bytes, 2, 5, 1.0, v1);
+    enc.addToVector(bytes, 8, 5, 2.0, v1);
+    enc.addToVector(bytes, 14, 5, 1.0, v1);
+
+    Vector v2 = new DenseVector(200);
+    enc.addToVector("word1", v2);
+    enc.addToVector("word2", 2.0, v2);
+    enc.addToVector("word3", v2);
+    assertEquals(0, v1.minus(v2).norm(1), 0);
+  }
 }
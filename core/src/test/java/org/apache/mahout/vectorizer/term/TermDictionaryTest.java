@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.vectorizer.term;
+
+import org.apache.mahout.common.MahoutTestCase;
+import org.junit.Test;
+
+public final class TermDictionaryTest extends MahoutTestCase {
+
+  @Test
+  public void testPutGet() {
+    TermDictionary dictionary = new TermDictionary(2);
+    for (int i = 0; i < 10000; i++) {
+      dictionary.put("term" + i, 3 * i);
+    }
+    dictionary.put("", 1);
+    assertEquals(10001, dictionary.size());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(3 * i, dictionary.get("term" + i));
+      // any CharSequence will do
+      assertEquals(3 * i, dictionary.get(new StringBuilder("term").append(i)));
+      assertEquals("term" + i, dictionary.termAt(i));
+      assertEquals(3 * i, dictionary.idAt(i));
+    }
+    assertEquals(1, dictionary.get(""));
+    assertEquals(-1, dictionary.get("term10000"));
+    assertEquals(-1, dictionary.get("term"));
+    assertFalse(dictionary.containsKey("erm1"));
+  }
+
+  @Test
+  public void testReplace() {
+    TermDictionary dictionary = new TermDictionary();
+    dictionary.put("a", 1);
+    dictionary.put("b", 2);
+    dictionary.put("a", 3);
+    dictionary.trimToSize();
+    assertEquals(2, dictionary.size());
+    assertEquals(3, dictionary.get("a"));
+    assertEquals(2, dictionary.get("b"));
+    dictionary.put("c", 4);
+    assertEquals(4, dictionary.get("c"));
+    assertEquals("c", dictionary.termAt(2));
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.xcs.util;
+
+import java.util.Random;
+
+import org.apache.mahout.common.MahoutTestCase;
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
+public final class TernaryConditionTest extends MahoutTestCase {
+
+  @Test
+  public void testParseAndPrint() {
+    String condition = "01#1##0";
+    TernaryCondition c = TernaryCondition.valueOf(condition);
+    assertEquals(7, c.length());
+    assertEquals(condition, c.toString());
+    assertTrue(c.isDontCare(2));
+    assertFalse(c.isDontCare(3));
+    assertTrue(c.getValue(3));
+    c.setDontCare(3);
+    c.set(4, false);
+    assertEquals("01##0#0", c.toString());
+    assertEquals(TernaryCondition.valueOf("01##0#0"), c);
+  }
+
+  @Test
+  public void testMatchesLikeCharacterComparison() {
+    Random random = RandomUtils.getRandom();
+    long[] packed = null;
+    for (int n = 0; n < 2000; n++) {
+      int length = 1 + random.nextInt(150);
+      String condition = randomCondition(random, length, 0.8);
+      String state = randomState(random, length);
+      TernaryCondition c = TernaryCondition.valueOf(condition);
+      packed = TernaryCondition.encode(state, packed);
+      boolean expected = referenceMatch(condition, state);
+      assertEquals(expected, c.matches(state));
+      assertEquals(expected, c.matches(packed, length));
+    }
+    assertFalse(TernaryCondition.valueOf("##").matches("000"));
+  }
+
+  @Test
+  public void testSwapRange() {
+    Random random = RandomUtils.getRandom();
+    for (int n = 0; n < 2000; n++) {
+      int length = 1 + random.nextInt(200);
+      String a = randomCondition(random, length, 0.5);
+      String b = randomCondition(random, length, 0.5);
+      int from = random.nextInt(length);
+      int to = from + 1 + random.nextInt(length - from);
+      char[] a2 = a.toCharArray();
+      char[] b2 = b.toCharArray();
+      boolean expectedChange = false;
+      for (int i = from; i < to; i++) {
+        expectedChange |= a2[i] != b2[i];
+        char help = a2[i];
+        a2[i] = b2[i];
+        b2[i] = help;
+      }
+      TernaryCondition ca = TernaryCondition.valueOf(a);
+      TernaryCondition cb = TernaryCondition.valueOf(b);
+      assertEquals(expectedChange, ca.swapRange(cb, from, to));
+      assertEquals(new String(a2), ca.toString());
+      assertEquals(new String(b2), cb.toString());
+    }
+  }
+
+  @Test
+  public void testIsMoreGeneral() {
+    Random random = RandomUtils.getRandom();
+    for (int n = 0; n < 2000; n++) {
+      int length = 1 + random.nextInt(100);
+      String a = randomCondition(random, length, 0.1);
+      char[] b = a.toCharArray();
+      // specialize or change a few positions so that both outcomes occur
+      for (int i = 0; i < 3; i++) {
+        int pos = random.nextInt(length);
+        b[pos] = random.nextBoolean() ? '1' : '0';
+      }
+      String bs = new String(b);
+      assertEquals(referenceMoreGeneral(a, bs), TernaryCondition.valueOf(a).isMoreGeneral(TernaryCondition.valueOf(bs)));
+      assertEquals(referenceMoreGeneral(bs, a), TernaryCondition.valueOf(bs).isMoreGeneral(TernaryCondition.valueOf(a)));
+    }
+  }
+
+  private static String randomCondition(Random random, int length, double pDontCare) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = random.nextDouble() < pDontCare ? XCSConstants.dontCare : random.nextBoolean() ? '1' : '0';
+    }
+    return new String(chars);
+  }
+
+  private static String randomState(Random random, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = random.nextBoolean() ? '1' : '0';
+    }
+    return new String(chars);
+  }
+
+  private static boolean referenceMatch(String condition, String state) {
+    for (int i = 0; i < condition.length(); i++) {
+      if (condition.charAt(i) != XCSConstants.dontCare && condition.charAt(i) != state.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean referenceMoreGeneral(String general, String specific) {
+    boolean ret = false;
+    for (int i = 0; i < general.length(); i++) {
+      if (general.charAt(i) != XCSConstants.dontCare && general.charAt(i) != specific.charAt(i)) {
+        return false;
+      } else if (general.charAt(i) != specific.charAt(i)) {
+        ret = true;
+      }
+    }
+    return ret;
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.Iterator;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Base of dense vectors which keep their values somewhere other than in a {@code double[]}, like
+ * {@link DenseFloatVector} and {@link OffHeapDenseVector}. Everything is expressed through {@link #getQuick(int)}
+ * and {@link #setQuick(int, double)}.
+ */
+abstract class AbstractDenseVector extends AbstractVector {
+
+  protected AbstractDenseVector(int size) {
+    super(size);
+  }
+
+  @Override
+  protected Matrix matrixLike(int rows, int columns) {
+    return new DenseMatrix(rows, columns);
+  }
+
+  /**
+   * @return true
+   */
+  @Override
+  public boolean isDense() {
+    return true;
+  }
+
+  /**
+   * @return true
+   */
+  @Override
+  public boolean isSequentialAccess() {
+    return true;
+  }
+
+  @Override
+  public int getNumNondefaultElements() {
+    return size();
+  }
+
+  @Override
+  public double dotSelf() {
+    return getLengthSquared();
+  }
+
+  @Override
+  public double getLengthSquared() {
+    if (lengthSquared >= 0.0) {
+      return lengthSquared;
+    }
+    double result = 0.0;
+    int max = size();
+    for (int i = 0; i < max; i++) {
+      double value = getQuick(i);
+      result += value * value;
+    }
+    lengthSquared = result;
+    return result;
+  }
+
+  /**
+   * Returns an iterator that traverses the non-zero elements of this Vector from 0 to cardinality-1, in that order.
+   */
+  @Override
+  public Iterator<Element> iterateNonZero() {
+    return new NonDefaultIterator();
+  }
+
+  @Override
+  public Iterator<Element> iterator() {
+    return new AllIterator();
+  }
+
+  private final class NonDefaultIterator extends AbstractIterator<Element> {
+
+    private final LocalElement element = new LocalElement(-1);
+    private int index = 0;
+
+    @Override
+    protected Element computeNext() {
+      int size = size();
+      while (index < size && getQuick(index) == 0.0) {
+        index++;
+      }
+      if (index < size) {
+        element.index = index;
+        index++;
+        return element;
+      } else {
+        return endOfData();
+      }
+    }
+
+  }
+
+  private final class AllIterator extends AbstractIterator<Element> {
+
+    private final LocalElement element = new LocalElement(-1);
+
+    @Override
+    protected Element computeNext() {
+      if (element.index + 1 < size()) {
+        element.index++;
+        return element;
+      } else {
+        return endOfData();
+      }
+    }
+
+  }
+
+}
@@ -39,6 +39,26 @@ public class DenseMatrix extends AbstractMatrix {
       this.values[i] = values[i].clone();
     }
   }
+
+  /**
+   * Construct a matrix from the given values, optionally without copying them
+   *
+   * @param values
+   *          a double[][]
+   * @param shallowCopy
+   *          if true, the matrix is backed by the given array rather than a copy of it
+   */
+  public DenseMatrix(double[][] values, boolean shallowCopy) {
+    super(values.length, values[0].length);
+    if (shallowCopy) {
+      this.values = values;
+    } else {
+      this.values = new double[values.length][];
+      for (int i = 0; i < values.length; i++) {
+        this.values[i] = values[i].clone();
+      }
+    }
+  }
   
   /**
    * Constructs an empty matrix of the given size.
@@ -155,6 +175,32 @@ public class DenseMatrix extends AbstractMatrix {
     return this;
   }
   
+  /**
+   * Multiplies using a cache-blocked kernel when the other operand is also a {@link DenseMatrix}; large
+   * products are spread over row blocks on all available cores.
+   */
+  @Override
+  public Matrix times(Matrix other) {
+    if (!(other instanceof DenseMatrix) || rowSize() == 0 || other.columnSize() == 0) {
+      return super.times(other);
+    }
+    int columns = columnSize();
+    if (columns != other.rowSize()) {
+      throw new CardinalityException(columns, other.rowSize());
+    }
+    double[][] product =
+        DenseMatrixMultiply.times(values, ((DenseMatrix) other).values, columns, other.columnSize());
+    return new DenseMatrix(product, true);
+  }
+
+  @Override
+  public Matrix transpose() {
+    if (rowSize() == 0 || columnSize() == 0) {
+      return super.transpose();
+    }
+    return new DenseMatrix(DenseMatrixMultiply.transpose(values, rowSize(), columnSize()), true);
+  }
+
   @Override
   public Vector viewRow(int row) {
     if (row < 0 || row >= rowSize()) {
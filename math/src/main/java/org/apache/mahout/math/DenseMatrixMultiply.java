@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Cache-blocked kernels over the {@code double[][]} storage of {@link DenseMatrix}.
+ *
+ * <p>Products are computed against a transposed copy of the right operand so that the innermost loop is a dot
+ * product over two contiguous rows. Row blocks of the result are independent; once a product is large enough
+ * they are handed out to a shared pool of daemon threads, with the calling thread taking part in the work.</p>
+ */
+final class DenseMatrixMultiply {
+
+  /** Edge length of the square tiles the kernels work on; 64 x 64 doubles fit comfortably in L1/L2. */
+  static final int BLOCK_SIZE = 64;
+
+  /** Products needing fewer multiply-adds than this are computed on the calling thread only. */
+  static final long PARALLEL_THRESHOLD = 1L << 21;
+
+  private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private DenseMatrixMultiply() {
+  }
+
+  /** Lazily creates the worker pool on first parallel multiplication. */
+  private static final class PoolHolder {
+    static final ExecutorService POOL = Executors.newFixedThreadPool(
+        Math.max(1, NUM_THREADS - 1),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("dense-matrix-times-%d").build());
+  }
+
+  /**
+   * @param a left operand, {@code rows x inner}
+   * @param b right operand, {@code inner x columns}
+   * @return a new {@code rows x columns} array holding {@code a * b}
+   */
+  static double[][] times(double[][] a, double[][] b, int inner, int columns) {
+    return timesTransposed(a, transpose(b, inner, columns), inner, columns);
+  }
+
+  /**
+   * @param a left operand, {@code rows x inner}
+   * @param bT transpose of the right operand, {@code columns x inner}
+   * @return a new {@code rows x columns} array holding {@code a * bT'}
+   */
+  static double[][] timesTransposed(double[][] a, double[][] bT, int inner, int columns) {
+    int rows = a.length;
+    double[][] c = new double[rows][columns];
+    long work = (long) rows * inner * columns;
+    int numBlocks = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    if (work < PARALLEL_THRESHOLD || NUM_THREADS < 2 || numBlocks < 2) {
+      multiplyRows(a, bT, c, inner, 0, rows);
+      return c;
+    }
+
+    RowBlockMultiplier worker = new RowBlockMultiplier(a, bT, c, inner, numBlocks);
+    int numHelpers = Math.min(NUM_THREADS, numBlocks) - 1;
+    List<Future<Void>> futures = Lists.newArrayListWithCapacity(numHelpers);
+    for (int i = 0; i < numHelpers; i++) {
+      futures.add(PoolHolder.POOL.submit(worker));
+    }
+    worker.call();
+    try {
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    return c;
+  }
+
+  /** Repeatedly claims the next unprocessed block of result rows until none are left. */
+  private static final class RowBlockMultiplier implements Callable<Void> {
+
+    private final double[][] a;
+    private final double[][] bT;
+    private final double[][] c;
+    private final int inner;
+    private final int numBlocks;
+    private final AtomicInteger nextBlock = new AtomicInteger();
+
+    RowBlockMultiplier(double[][] a, double[][] bT, double[][] c, int inner, int numBlocks) {
+      this.a = a;
+      this.bT = bT;
+      this.c = c;
+      this.inner = inner;
+      this.numBlocks = numBlocks;
+    }
+
+    @Override
+    public Void call() {
+      int block;
+      while ((block = nextBlock.getAndIncrement()) < numBlocks) {
+        int start = block * BLOCK_SIZE;
+        multiplyRows(a, bT, c, inner, start, Math.min(a.length, start + BLOCK_SIZE));
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Computes rows {@code [rowStart, rowEnd)} of {@code a * bT'} into {@code c}, tiling over the columns of the
+   * result and the inner dimension so that a tile of {@code bT} stays in cache while it is reused for every row.
+   */
+  static void multiplyRows(double[][] a, double[][] bT, double[][] c, int inner, int rowStart, int rowEnd) {
+    int columns = bT.length;
+    for (int jj = 0; jj < columns; jj += BLOCK_SIZE) {
+      int jEnd = Math.min(columns, jj + BLOCK_SIZE);
+      for (int kk = 0; kk < inner; kk += BLOCK_SIZE) {
+        int kEnd = Math.min(inner, kk + BLOCK_SIZE);
+        for (int i = rowStart; i < rowEnd; i++) {
+          double[] ai = a[i];
+          double[] ci = c[i];
+          for (int j = jj; j < jEnd; j++) {
+            double[] bj = bT[j];
+            double sum = 0.0;
+            for (int k = kk; k < kEnd; k++) {
+              sum += ai[k] * bj[k];
+            }
+            ci[j] += sum;
+          }
+        }
+      }
+    }
+  }
+
+  /** @return a new {@code columns x rows} array holding the transpose of {@code a}, copied tile by tile */
+  static double[][] transpose(double[][] a, int rows, int columns) {
+    double[][] t = new double[columns][rows];
+    for (int ii = 0; ii < rows; ii += BLOCK_SIZE) {
+      int iEnd = Math.min(rows, ii + BLOCK_SIZE);
+      for (int jj = 0; jj < columns; jj += BLOCK_SIZE) {
+        int jEnd = Math.min(columns, jj + BLOCK_SIZE);
+        for (int i = ii; i < iEnd; i++) {
+          double[] ai = a[i];
+          for (int j = jj; j < jEnd; j++) {
+            t[j][i] = ai[j];
+          }
+        }
+      }
+    }
+    return t;
+  }
+
+}
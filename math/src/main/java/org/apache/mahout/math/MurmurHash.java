@@ -100,11 +100,53 @@ public final class MurmurHash {
 
 
   public static long hash64A(byte[] data, int seed) {
-    return hash64A(ByteBuffer.wrap(data), seed);
+    return hash64A(data, 0, data.length, seed);
   }
 
+  /**
+   * Hashes a slice of an array.  Gives the same result as {@link #hash64A(ByteBuffer, int)} on a
+   * wrapped slice, but reads the array directly so that no buffers are allocated.
+   */
   public static long hash64A(byte[] data, int offset, int length, int seed) {
-    return hash64A(ByteBuffer.wrap(data, offset, length), seed);
+    long m = 0xc6a4a7935bd1e995L;
+    int r = 47;
+
+    long h = seed ^ (length * m);
+
+    int end = offset + (length & ~7);
+    for (int i = offset; i < end; i += 8) {
+      long k = (data[i] & 0xffL)
+          | (data[i + 1] & 0xffL) << 8
+          | (data[i + 2] & 0xffL) << 16
+          | (data[i + 3] & 0xffL) << 24
+          | (data[i + 4] & 0xffL) << 32
+          | (data[i + 5] & 0xffL) << 40
+          | (data[i + 6] & 0xffL) << 48
+          | (data[i + 7] & 0xffL) << 56;
+
+      k *= m;
+      k ^= k >>> r;
+      k *= m;
+
+      h ^= k;
+      h *= m;
+    }
+
+    int remaining = length & 7;
+    if (remaining > 0) {
+      long k = 0;
+      for (int i = remaining - 1; i >= 0; i--) {
+        k = k << 8 | (data[end + i] & 0xffL);
+      }
+      h ^= k;
+      h *= m;
+    }
+
+    h ^= h >>> r;
+    h *= m;
+    h ^= h >>> r;
+
+    return h;
   }
 
   public static long hash64A(ByteBuffer buf, int seed) {
@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.google.common.io.Closeables;
+import org.apache.mahout.math.OffHeapDenseVector.Precision;
+
+/**
+ * Dense row-major matrix stored outside the Java heap, either in direct buffers or in a memory-mapped file. A single
+ * {@link ByteBuffer} is limited to 2GB, so the storage is split into chunks holding a whole number of rows each;
+ * {@link #viewRow(int)} hands out an {@link OffHeapDenseVector} over the row's bytes without copying.
+ */
+public class OffHeapDenseMatrix extends AbstractMatrix {
+
+  /** Upper bound on the size of one chunk of storage. */
+  static final int MAX_CHUNK_BYTES = 1 << 30;
+
+  private final Precision precision;
+  private final int rowsPerChunk;
+  private ByteBuffer[] chunks;
+
+  private OffHeapDenseMatrix(int rows, int columns, Precision precision, ByteBuffer[] chunks, int rowsPerChunk) {
+    super(rows, columns);
+    this.precision = precision;
+    this.chunks = chunks;
+    this.rowsPerChunk = rowsPerChunk;
+  }
+
+  /**
+   * @return a new zero matrix backed by direct buffers
+   */
+  public static OffHeapDenseMatrix allocate(int rows, int columns, Precision precision) {
+    int rowsPerChunk = rowsPerChunk(columns, precision);
+    ByteBuffer[] chunks = new ByteBuffer[numChunks(rows, rowsPerChunk)];
+    for (int i = 0; i < chunks.length; i++) {
+      int chunkRows = Math.min(rowsPerChunk, rows - i * rowsPerChunk);
+      chunks[i] = ByteBuffer.allocateDirect(chunkRows * columns * precision.bytes()).order(ByteOrder.nativeOrder());
+    }
+    return new OffHeapDenseMatrix(rows, columns, precision, chunks, rowsPerChunk);
+  }
+
+  /**
+   * Maps the given file, creating or growing it as needed, as a row-major matrix in native byte order. Changes are
+   * written back to the file by the operating system, or explicitly by {@link #force()}.
+   */
+  public static OffHeapDenseMatrix map(File file, int rows, int columns, Precision precision) throws IOException {
+    int rowsPerChunk = rowsPerChunk(columns, precision);
+    long rowBytes = (long) columns * precision.bytes();
+    ByteBuffer[] chunks = new ByteBuffer[numChunks(rows, rowsPerChunk)];
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      FileChannel channel = raf.getChannel();
+      for (int i = 0; i < chunks.length; i++) {
+        int chunkRows = Math.min(rowsPerChunk, rows - i * rowsPerChunk);
+        chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * rowsPerChunk * rowBytes, chunkRows * rowBytes)
+            .order(ByteOrder.nativeOrder());
+      }
+    } finally {
+      Closeables.closeQuietly(raf);
+    }
+    return new OffHeapDenseMatrix(rows, columns, precision, chunks, rowsPerChunk);
+  }
+
+  private static int rowsPerChunk(int columns, Precision precision) {
+    long rowBytes = (long) columns * precision.bytes();
+    if (rowBytes > MAX_CHUNK_BYTES) {
+      throw new IllegalArgumentException("Rows of " + columns + " columns are too large");
+    }
+    return rowBytes == 0 ? Integer.MAX_VALUE : (int) (MAX_CHUNK_BYTES / rowBytes);
+  }
+
+  private static int numChunks(int rows, int rowsPerChunk) {
+    return rows == 0 ? 0 : (rows - 1) / rowsPerChunk + 1;
+  }
+
+  public Precision getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Writes any changes to a memory-mapped matrix back to its file; does nothing for direct buffers.
+   */
+  public void force() {
+    for (ByteBuffer chunk : chunks) {
+      if (chunk instanceof MappedByteBuffer) {
+        ((MappedByteBuffer) chunk).force();
+      }
+    }
+  }
+
+  private int byteOffset(int row, int column) {
+    return ((row % rowsPerChunk) * columns + column) * precision.bytes();
+  }
+
+  @Override
+  public Matrix clone() {
+    OffHeapDenseMatrix clone = (OffHeapDenseMatrix) super.clone();
+    clone.chunks = new ByteBuffer[chunks.length];
+    for (int i = 0; i < chunks.length; i++) {
+      int chunkRows = Math.min(rowsPerChunk, rowSize() - i * rowsPerChunk);
+      ByteBuffer source = chunks[i].duplicate();
+      source.clear();
+      source.limit(chunkRows * columns * precision.bytes());
+      clone.chunks[i] = ByteBuffer.allocateDirect(source.limit()).order(chunks[i].order());
+      clone.chunks[i].duplicate().put(source);
+    }
+    return clone;
+  }
+
+  @Override
+  public double getQuick(int row, int column) {
+    ByteBuffer chunk = chunks[row / rowsPerChunk];
+    int offset = byteOffset(row, column);
+    return precision == Precision.FLOAT ? chunk.getFloat(offset) : chunk.getDouble(offset);
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    ByteBuffer chunk = chunks[row / rowsPerChunk];
+    int offset = byteOffset(row, column);
+    if (precision == Precision.FLOAT) {
+      chunk.putFloat(offset, (float) value);
+    } else {
+      chunk.putDouble(offset, value);
+    }
+  }
+
+  @Override
+  public Matrix like() {
+    return like(rowSize(), columnSize());
+  }
+
+  @Override
+  public Matrix like(int rows, int columns) {
+    return allocate(rows, columns, precision);
+  }
+
+  @Override
+  public Matrix viewPart(int[] offset, int[] size) {
+    return viewPart(offset[ROW], size[ROW], offset[COL], size[COL]);
+  }
+
+  @Override
+  public Matrix viewPart(int rowOffset, int rowsRequested, int columnOffset, int columnsRequested) {
+    if (rowOffset < 0) {
+      throw new IndexException(rowOffset, rowSize());
+    }
+    if (rowOffset + rowsRequested > rowSize()) {
+      throw new IndexException(rowOffset + rowsRequested, rowSize());
+    }
+    if (columnOffset < 0) {
+      throw new IndexException(columnOffset, columnSize());
+    }
+    if (columnOffset + columnsRequested > columnSize()) {
+      throw new IndexException(columnOffset + columnsRequested, columnSize());
+    }
+    return new MatrixView(this, new int[]{rowOffset, columnOffset}, new int[]{rowsRequested, columnsRequested});
+  }
+
+  @Override
+  public Matrix assignColumn(int column, Vector other) {
+    if (rowSize() != other.size()) {
+      throw new CardinalityException(rowSize(), other.size());
+    }
+    if (column < 0 || column >= columnSize()) {
+      throw new IndexException(column, columnSize());
+    }
+    for (int row = 0; row < rowSize(); row++) {
+      setQuick(row, column, other.getQuick(row));
+    }
+    return this;
+  }
+
+  @Override
+  public Matrix assignRow(int row, Vector other) {
+    if (columnSize() != other.size()) {
+      throw new CardinalityException(columnSize(), other.size());
+    }
+    viewRow(row).assign(other);
+    return this;
+  }
+
+  @Override
+  public Vector viewRow(int row) {
+    if (row < 0 || row >= rowSize()) {
+      throw new IndexException(row, rowSize());
+    }
+    ByteBuffer rowBytes = chunks[row / rowsPerChunk].duplicate();
+    int start = byteOffset(row, 0);
+    rowBytes.limit(start + columns * precision.bytes());
+    rowBytes.position(start);
+    return new OffHeapDenseVector(rowBytes.order(chunks[0].order()), precision, columns);
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.mahout.math;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Dense vector whose values live in a {@link ByteBuffer} rather than on the Java heap, as either floats or doubles.
+ * The buffer may be direct or memory-mapped, which keeps very large vectors out of the way of the garbage collector;
+ * rows of an {@link OffHeapDenseMatrix} are views of this kind over the matrix storage.
+ */
+public class OffHeapDenseVector extends AbstractDenseVector {
+
+  /** How each value is stored in the buffer. */
+  public enum Precision {
+    FLOAT(4),
+    DOUBLE(8);
+
+    private final int bytes;
+
+    Precision(int bytes) {
+      this.bytes = bytes;
+    }
+
+    /** @return number of bytes one value takes */
+    public int bytes() {
+      return bytes;
+    }
+  }
+
+  private final ByteBuffer buffer;
+  private final Precision precision;
+
+  /**
+   * Wraps the remaining bytes of the given buffer without copying; writes to this vector go to the buffer.
+   *
+   * @param buffer holds {@code cardinality} values from its current position on, in the buffer's byte order
+   */
+  public OffHeapDenseVector(ByteBuffer buffer, Precision precision, int cardinality) {
+    super(cardinality);
+    if ((long) cardinality * precision.bytes() > buffer.remaining()) {
+      throw new IllegalArgumentException("Buffer holds " + buffer.remaining() + " bytes, need "
+          + (long) cardinality * precision.bytes());
+    }
+    this.buffer = buffer.slice().order(buffer.order());
+    this.precision = precision;
+  }
+
+  /**
+   * @return a new zero vector of the given cardinality backed by a direct buffer
+   */
+  public static OffHeapDenseVector allocate(int cardinality, Precision precision) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(cardinality * precision.bytes()).order(ByteOrder.nativeOrder());
+    return new OffHeapDenseVector(buffer, precision, cardinality);
+  }
+
+  public Precision getPrecision() {
+    return precision;
+  }
+
+  @Override
+  public OffHeapDenseVector clone() {
+    ByteBuffer source = buffer.duplicate();
+    // the buffer may extend past the last value
+    source.clear();
+    source.limit(size() * precision.bytes());
+    // the bytes are copied as they are, so the copy must read them in the same order
+    ByteBuffer copy = ByteBuffer.allocateDirect(source.limit()).order(buffer.order());
+    copy.duplicate().put(source);
+    return new OffHeapDenseVector(copy, precision, size());
+  }
+
+  @Override
+  public double getQuick(int index) {
+    return precision == Precision.FLOAT ? buffer.getFloat(index << 2) : buffer.getDouble(index << 3);
+  }
+
+  @Override
+  public void setQuick(int index, double value) {
+    lengthSquared = -1.0;
+    if (precision == Precision.FLOAT) {
+      buffer.putFloat(index << 2, (float) value);
+    } else {
+      buffer.putDouble(index << 3, value);
+    }
+  }
+
+  @Override
+  public OffHeapDenseVector like() {
+    return allocate(size(), precision);
+  }
+
+}
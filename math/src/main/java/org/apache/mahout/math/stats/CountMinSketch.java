@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math.stats;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Approximate counts of a stream of items in a fixed amount of memory, {@code depth} rows of
+ * {@code width} counters. Each item is counted in one counter per row, chosen by a hash of the item, and its
+ * count is estimated by the smallest of these counters. Estimates are never below the true count, and are
+ * above it by at most {@code e / width} times the total count with probability {@code 1 - exp(-depth)}.
+ *
+ * Items are given by a 64-bit hash, e.g. from {@link org.apache.mahout.math.MurmurHash#hash64A}, whose two
+ * halves are combined into the hash of each row. Counts are updated conservatively: only the counters that
+ * are below the new estimate are raised, which keeps the same guarantee with smaller errors.
+ */
+public final class CountMinSketch {
+
+  private final long[][] counts;
+  private final int width;
+  private long total;
+
+  public CountMinSketch(int depth, int width) {
+    Preconditions.checkArgument(depth > 0, "depth must be positive");
+    Preconditions.checkArgument(width > 0, "width must be positive");
+    this.width = width;
+    counts = new long[depth][width];
+  }
+
+  /**
+   * @param epsilon relative error of the estimates, in proportion of the total count
+   * @param delta probability of an estimate beyond this error
+   */
+  public static CountMinSketch withErrorBounds(double epsilon, double delta) {
+    Preconditions.checkArgument(epsilon > 0 && epsilon < 1, "epsilon must be in (0,1)");
+    Preconditions.checkArgument(delta > 0 && delta < 1, "delta must be in (0,1)");
+    return new CountMinSketch((int) Math.ceil(Math.log(1 / delta)), (int) Math.ceil(Math.E / epsilon));
+  }
+
+  private int index(long hash, int row) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    int combined = h1 + row * h2;
+    return (combined & Integer.MAX_VALUE) % width;
+  }
+
+  /**
+   * Adds to the count of an item
+   *
+   * @return the new estimate of its count
+   */
+  public long add(long hash, long count) {
+    Preconditions.checkArgument(count >= 0, "count must be at least 0");
+    long estimate = estimate(hash) + count;
+    for (int row = 0; row < counts.length; row++) {
+      int i = index(hash, row);
+      if (counts[row][i] < estimate) {
+        counts[row][i] = estimate;
+      }
+    }
+    total += count;
+    return estimate;
+  }
+
+  public long estimate(long hash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < counts.length; row++) {
+      estimate = Math.min(estimate, counts[row][index(hash, row)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * @return the sum of all the counts added
+   */
+  public long total() {
+    return total;
+  }
+
+  public int getDepth() {
+    return counts.length;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math.stats;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Finds the most frequent items of a stream while keeping at most {@code capacity} of them, with the
+ * Space-Saving algorithm of Metwally, Agrawal and El Abbadi. When a new item comes and all the places are
+ * taken, it replaces the item with the smallest count and inherits this count as its possible error. Any item
+ * whose true count is above {@code total / capacity} is guaranteed to be kept, and the count of a kept item
+ * is above its true count by at most its error.
+ *
+ * The items are kept in a binary min-heap on their counts, so adding takes {@code O(log capacity)}.
+ */
+public final class SpaceSaving<T> {
+
+  private final int capacity;
+  private final Map<T,Counter<T>> counters;
+  private final Counter<T>[] heap;
+  private int size;
+  private long total;
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public SpaceSaving(int capacity) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+    this.capacity = capacity;
+    counters = Maps.newHashMapWithExpectedSize(capacity);
+    heap = (Counter<T>[]) new Counter[capacity];
+  }
+
+  /**
+   * A kept item, with its count and the error on this count
+   */
+  public static final class Counter<T> {
+
+    private T item;
+    private long count;
+    private long error;
+    private int position;
+
+    public T getItem() {
+      return item;
+    }
+
+    /**
+     * @return an upper bound of the count of the item
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return by how much the count may be above the true count
+     */
+    public long getError() {
+      return error;
+    }
+
+    /**
+     * @return a lower bound of the count of the item
+     */
+    public long getGuaranteedCount() {
+      return count - error;
+    }
+
+    @Override
+    public String toString() {
+      return item + ":" + count + '(' + error + ')';
+    }
+  }
+
+  public void add(T item) {
+    add(item, 1);
+  }
+
+  /**
+   * Adds to the count of an item
+   *
+   * @return the counter of the item
+   */
+  public Counter<T> add(T item, long count) {
+    Preconditions.checkArgument(count >= 0, "count must be at least 0");
+    total += count;
+    Counter<T> counter = counters.get(item);
+    if (counter == null && size < capacity) {
+      counter = new Counter<T>();
+      counter.item = item;
+      counter.count = count;
+      counters.put(item, counter);
+      heap[size] = counter;
+      siftUp(size++);
+      return counter;
+    }
+    if (counter == null) {
+      // take the place of the least frequent item
+      counter = heap[0];
+      counters.remove(counter.item);
+      counter.item = item;
+      counter.error = counter.count;
+      counters.put(item, counter);
+    }
+    // counts only grow, so a counter can only move down
+    counter.count += count;
+    siftDown(counter.position);
+    return counter;
+  }
+
+  private void siftUp(int position) {
+    Counter<T> counter = heap[position];
+    int current = position;
+    while (current > 0) {
+      int parent = (current - 1) / 2;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      heap[current] = heap[parent];
+      heap[current].position = current;
+      current = parent;
+    }
+    heap[current] = counter;
+    counter.position = current;
+  }
+
+  private void siftDown(int position) {
+    Counter<T> counter = heap[position];
+    int current = position;
+    while (true) {
+      int child = 2 * current + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (heap[child].count >= counter.count) {
+        break;
+      }
+      heap[current] = heap[child];
+      heap[current].position = current;
+      current = child;
+    }
+    heap[current] = counter;
+    counter.position = current;
+  }
+
+  /**
+   * @return the counter of the item, or null if it is not kept
+   */
+  public Counter<T> get(T item) {
+    return counters.get(item);
+  }
+
+  /**
+   * @return the number of kept items
+   */
+  public int size() {
+    return size;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the sum of all the counts added
+   */
+  public long total() {
+    return total;
+  }
+
+  /**
+   * @return the count that a new item would start from, 0 until all the places are taken
+   */
+  public long minCount() {
+    return size < capacity ? 0 : heap[0].count;
+  }
+
+  /**
+   * @return the kept items, by decreasing count
+   */
+  public List<Counter<T>> counters() {
+    List<Counter<T>> result = Lists.newArrayList(Arrays.asList(heap).subList(0, size));
+    Collections.sort(result, new Comparator<Counter<T>>() {
+      @Override
+      public int compare(Counter<T> a, Counter<T> b) {
+        return a.count > b.count ? -1 : a.count < b.count ? 1 : 0;
+      }
+    });
+    return result;
+  }
+
+}
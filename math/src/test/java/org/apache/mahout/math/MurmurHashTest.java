@@ -18,10 +18,13 @@
 package org.apache.mahout.math;
 
 import com.google.common.base.Charsets;
+import org.apache.mahout.common.RandomUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 public class MurmurHashTest extends org.apache.mahout.math.MahoutTestCase {
 
@@ -41,6 +44,20 @@ public class MurmurHashTest extends org.apache.mahout.math.MahoutTestCase {
     Assert.assertEquals(0xcd37895736a81cbcL, MurmurHash.hash64A("abc def ghi jkl moreGoo".getBytes(Charsets.UTF_8), 0));
   }
 
+  @Test
+  public void testHash64Slice() {
+    Random gen = RandomUtils.getRandom();
+    byte[] data = new byte[100];
+    gen.nextBytes(data);
+    for (int offset = 0; offset < 20; offset++) {
+      for (int length = 0; length < 40; length++) {
+        int seed = gen.nextInt();
+        Assert.assertEquals(MurmurHash.hash64A(ByteBuffer.wrap(data, offset, length), seed),
+            MurmurHash.hash64A(data, offset, length, seed));
+      }
+    }
+  }
+
   @Test
   public void testForLotsOfChange32() throws UnsupportedEncodingException {
     int h1 = MurmurHash.hash("abc".getBytes(Charsets.UTF_8), 0);
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math;
+
+import org.junit.Test;
+
+public final class TestDenseFloatMatrix extends MahoutTestCase {
+
+  private static final double[][] VALUES = {{1.5, 2.0}, {-3.0, 4.25}, {5.0, 0.5}};
+
+  @Test
+  public void testGetSet() {
+    Matrix m = new DenseFloatMatrix(VALUES);
+    assertEquals(3, m.rowSize());
+    assertEquals(2, m.columnSize());
+    assertEquals(4.25, m.get(1, 1), 0.0);
+    m.set(1, 1, 0.1);
+    assertEquals((float) 0.1, m.get(1, 1), 0.0);
+  }
+
+  @Test
+  public void testViewRowIsShallow() {
+    Matrix m = new DenseFloatMatrix(2, 3);
+    Vector row = m.viewRow(1);
+    assertSame(DenseFloatVector.class, row.getClass());
+    row.set(2, 4.0);
+    assertEquals(4.0, m.get(1, 2), 0.0);
+  }
+
+  @Test
+  public void testCloneAndLike() {
+    Matrix m = new DenseFloatMatrix(VALUES);
+    Matrix clone = m.clone();
+    clone.set(0, 0, 9.0);
+    assertEquals(1.5, m.get(0, 0), 0.0);
+    assertSame(DenseFloatMatrix.class, m.like().getClass());
+    assertSame(DenseFloatMatrix.class, new DenseFloatVector(2).cross(new DenseFloatVector(3)).getClass());
+  }
+
+  @Test
+  public void testTimes() {
+    Matrix m = new DenseFloatMatrix(VALUES);
+    Matrix product = m.times(m.transpose());
+    Matrix expected = new DenseMatrix(VALUES).times(new DenseMatrix(VALUES).transpose());
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        assertEquals(expected.get(row, col), product.get(row, col), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testAssignRowAndColumn() {
+    Matrix m = new DenseFloatMatrix(3, 2);
+    m.assignRow(2, new DenseVector(new double[] {1.0, 2.0}));
+    m.assignColumn(0, new DenseVector(new double[] {7.0, 8.0, 9.0}));
+    assertEquals(9.0, m.get(2, 0), 0.0);
+    assertEquals(2.0, m.get(2, 1), 0.0);
+    assertEquals(8.0, m.get(1, 0), 0.0);
+  }
+
+  @Test(expected = CardinalityException.class)
+  public void testAssignRowCardinality() {
+    new DenseFloatMatrix(3, 2).assignRow(0, new DenseVector(3));
+  }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public final class TestDenseFloatVector extends MahoutTestCase {
+
+  @Test
+  public void testRoundsToFloat() {
+    Vector v = new DenseFloatVector(new DenseVector(new double[] {0.1, 1.0e40, 3.0}));
+    assertEquals((float) 0.1, v.get(0), 0.0);
+    assertTrue(Double.isInfinite(v.get(1)));
+    assertEquals(3.0, v.get(2), 0.0);
+  }
+
+  @Test
+  public void testShallowCopy() {
+    float[] values = {1.0f, 2.0f};
+    Vector v = new DenseFloatVector(values, true);
+    v.set(1, 5.0);
+    assertEquals(5.0f, values[1], 0.0f);
+    Vector copy = v.clone();
+    copy.set(0, 3.0);
+    assertEquals(1.0f, values[0], 0.0f);
+  }
+
+  @Test
+  public void testIterateNonZero() {
+    Vector v = new DenseFloatVector(new float[] {0.0f, 1.5f, 0.0f, -2.0f});
+    Iterator<Vector.Element> it = v.iterateNonZero();
+    assertEquals(1, it.next().index());
+    Vector.Element e = it.next();
+    assertEquals(3, e.index());
+    e.set(4.0);
+    assertFalse(it.hasNext());
+    assertEquals(4.0, v.get(3), 0.0);
+    assertEquals(4, v.getNumNondefaultElements());
+  }
+
+  @Test
+  public void testDot() {
+    Vector a = new DenseFloatVector(new float[] {1.0f, 2.0f, 3.0f});
+    Vector b = new DenseFloatVector(new float[] {4.0f, -5.0f, 6.0f});
+    assertEquals(12.0, a.dot(b), 0.0);
+    assertEquals(12.0, a.dot(new DenseVector(new double[] {4.0, -5.0, 6.0})), 0.0);
+    assertEquals(14.0, a.getLengthSquared(), 0.0);
+    a.set(0, 2.0);
+    assertEquals(17.0, a.getLengthSquared(), 0.0);
+  }
+
+  @Test(expected = CardinalityException.class)
+  public void testDotCardinality() {
+    new DenseFloatVector(2).dot(new DenseFloatVector(3));
+  }
+
+}
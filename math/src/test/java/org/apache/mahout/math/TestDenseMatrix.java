@@ -17,6 +17,11 @@
 
 package org.apache.mahout.math;
 
+import java.util.Random;
+
+import org.apache.mahout.common.RandomUtils;
+import org.junit.Test;
+
 public final class TestDenseMatrix extends MatrixTest {
 
   @Override
@@ -24,4 +29,56 @@ public final class TestDenseMatrix extends MatrixTest {
     return new DenseMatrix(values);
   }
 
+  @Test
+  public void testTimesMatrixBlocked() {
+    Random random = RandomUtils.getRandom();
+    // big enough to span several blocks and to be multiplied in parallel
+    Matrix a = randomMatrix(random, 150, 130);
+    Matrix b = randomMatrix(random, 130, 170);
+    assertProduct(a, b, a.times(b));
+    // odd shapes smaller than a single block
+    Matrix c = randomMatrix(random, 3, 70);
+    Matrix d = randomMatrix(random, 70, 1);
+    assertProduct(c, d, c.times(d));
+  }
+
+  @Test
+  public void testTransposeTimesMatrixBlocked() {
+    Random random = RandomUtils.getRandom();
+    Matrix a = randomMatrix(random, 200, 90);
+    Matrix b = randomMatrix(random, 200, 110);
+    Matrix aT = a.transpose();
+    assertSame(DenseMatrix.class, aT.getClass());
+    for (int row = 0; row < a.rowSize(); row++) {
+      for (int col = 0; col < a.columnSize(); col++) {
+        assertEquals(a.getQuick(row, col), aT.getQuick(col, row), 0.0);
+      }
+    }
+    assertProduct(aT, b, aT.times(b));
+  }
+
+  private static Matrix randomMatrix(Random random, int rows, int columns) {
+    Matrix m = new DenseMatrix(rows, columns);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        m.setQuick(row, col, random.nextGaussian());
+      }
+    }
+    return m;
+  }
+
+  private static void assertProduct(Matrix a, Matrix b, Matrix product) {
+    assertEquals(a.rowSize(), product.rowSize());
+    assertEquals(b.columnSize(), product.columnSize());
+    for (int row = 0; row < a.rowSize(); row++) {
+      for (int col = 0; col < b.columnSize(); col++) {
+        double expected = 0.0;
+        for (int k = 0; k < a.columnSize(); k++) {
+          expected += a.getQuick(row, k) * b.getQuick(k, col);
+        }
+        assertEquals("value[" + row + "][" + col + ']', expected, product.getQuick(row, col), EPSILON);
+      }
+    }
+  }
+
 }
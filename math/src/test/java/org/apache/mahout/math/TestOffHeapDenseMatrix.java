@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math;
+
+import java.io.File;
+
+import org.apache.mahout.math.OffHeapDenseVector.Precision;
+import org.junit.Test;
+
+public final class TestOffHeapDenseMatrix extends MatrixTest {
+
+  @Override
+  public Matrix matrixFactory(double[][] values) {
+    Matrix m = OffHeapDenseMatrix.allocate(values.length, values[0].length, Precision.DOUBLE);
+    m.assign(values);
+    return m;
+  }
+
+  @Test
+  public void testViewRowIsShallow() {
+    Matrix m = OffHeapDenseMatrix.allocate(3, 4, Precision.FLOAT);
+    Vector row = m.viewRow(2);
+    row.set(3, 4.0);
+    assertEquals(4.0, m.get(2, 3), 0.0);
+    m.set(2, 0, 1.5);
+    assertEquals(1.5, row.get(0), 0.0);
+  }
+
+  @Test
+  public void testMappedFile() throws Exception {
+    File file = getTestTempFile("matrix.bin");
+    OffHeapDenseMatrix m = OffHeapDenseMatrix.map(file, 5, 3, Precision.DOUBLE);
+    for (int row = 0; row < 5; row++) {
+      for (int col = 0; col < 3; col++) {
+        m.set(row, col, row * 10 + col);
+      }
+    }
+    m.force();
+    assertEquals(5 * 3 * 8, file.length());
+
+    Matrix reopened = OffHeapDenseMatrix.map(file, 5, 3, Precision.DOUBLE);
+    for (int row = 0; row < 5; row++) {
+      for (int col = 0; col < 3; col++) {
+        assertEquals(row * 10 + col, reopened.get(row, col), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testCloneOfRowView() {
+    Matrix m = OffHeapDenseMatrix.allocate(3, 2, Precision.DOUBLE);
+    m.assign(new double[][] {{1.0, 2.0}, {3.0, 4.0}, {5.0, 6.0}});
+    Vector row = m.viewRow(1).clone();
+    row.set(0, 0.0);
+    assertEquals(4.0, row.get(1), 0.0);
+    assertEquals(3.0, m.get(1, 0), 0.0);
+    Matrix copy = m.clone();
+    copy.set(2, 1, 0.0);
+    assertEquals(5.0, copy.get(2, 0), 0.0);
+    assertEquals(6.0, m.get(2, 1), 0.0);
+  }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math;
+
+import java.nio.ByteBuffer;
+
+import org.apache.mahout.math.OffHeapDenseVector.Precision;
+import org.junit.Test;
+
+public final class TestOffHeapDenseVector extends AbstractTestVector {
+
+  @Override
+  Vector generateTestVector(int cardinality) {
+    return OffHeapDenseVector.allocate(cardinality, Precision.DOUBLE);
+  }
+
+  @Override
+  public void testSize() {
+    assertEquals("size", 7, getTestVector().getNumNondefaultElements());
+  }
+
+  @Test
+  public void testFloatPrecision() {
+    Vector v = OffHeapDenseVector.allocate(3, Precision.FLOAT);
+    v.set(1, 0.1);
+    assertEquals((float) 0.1, v.get(1), 0.0);
+    assertEquals(0.0, v.get(0), 0.0);
+    assertEquals(0.0, v.get(2), 0.0);
+  }
+
+  @Test
+  public void testWrapsBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocate(40);
+    buffer.position(8);
+    Vector v = new OffHeapDenseVector(buffer, Precision.DOUBLE, 4);
+    v.set(0, 2.5);
+    assertEquals(2.5, buffer.getDouble(8), 0.0);
+    Vector copy = v.clone();
+    copy.set(0, 1.0);
+    assertEquals(2.5, v.get(0), 0.0);
+  }
+
+  @Test
+  public void testCloneOfLargerBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocate(80);
+    Vector v = new OffHeapDenseVector(buffer, Precision.DOUBLE, 4);
+    v.assign(new double[] {1.0, 2.0, 3.0, 4.0});
+    Vector copy = v.clone();
+    assertEquals(4, copy.size());
+    assertEquals(0.0, v.getDistanceSquared(copy), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBufferTooSmall() {
+    new OffHeapDenseVector(ByteBuffer.allocate(16), Precision.DOUBLE, 3);
+  }
+
+}
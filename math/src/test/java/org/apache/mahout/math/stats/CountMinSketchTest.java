@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math.stats;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.MahoutTestCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+public final class CountMinSketchTest extends MahoutTestCase {
+
+  @Test
+  public void testBounds() {
+    Random random = RandomUtils.getRandom();
+    CountMinSketch sketch = CountMinSketch.withErrorBounds(0.001, 0.01);
+    int numItems = 10000;
+    long[] counts = new long[numItems];
+    for (int i = 0; i < 200000; i++) {
+      // roughly zipfian
+      int item = (int) Math.min(numItems - 1, Math.floor(Math.exp(random.nextDouble() * Math.log(numItems))) - 1);
+      long count = 1 + random.nextInt(3);
+      counts[item] += count;
+      sketch.add(random(item), count);
+    }
+    long total = sketch.total();
+    int beyondBound = 0;
+    for (int item = 0; item < numItems; item++) {
+      long estimate = sketch.estimate(random(item));
+      assertTrue(estimate >= counts[item]);
+      if (estimate - counts[item] > 0.001 * total) {
+        beyondBound++;
+      }
+    }
+    assertTrue(beyondBound < numItems / 100);
+  }
+
+  @Test
+  public void testExactWhenWide() {
+    CountMinSketch sketch = new CountMinSketch(4, 1 << 16);
+    for (int item = 0; item < 10; item++) {
+      for (int i = 0; i <= item; i++) {
+        sketch.add(random(item), 2);
+      }
+    }
+    for (int item = 0; item < 10; item++) {
+      assertEquals(2 * (item + 1), sketch.estimate(random(item)));
+    }
+    assertEquals(0, sketch.estimate(random(10)));
+    assertEquals(110, sketch.total());
+  }
+
+  private static long random(int item) {
+    // any well mixed hash will do
+    long hash = item * 0x9E3779B97F4A7C15L;
+    return hash ^ (hash >>> 29);
+  }
+
+}
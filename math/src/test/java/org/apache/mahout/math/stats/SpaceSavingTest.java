@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.mahout.math.stats;
+
+import org.apache.mahout.common.RandomUtils;
+import org.apache.mahout.math.MahoutTestCase;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public final class SpaceSavingTest extends MahoutTestCase {
+
+  @Test
+  public void testSmallStream() {
+    SpaceSaving<String> summary = new SpaceSaving<String>(2);
+    summary.add("a");
+    summary.add("a");
+    assertEquals(0, summary.minCount());
+    summary.add("b");
+    assertEquals(1, summary.minCount());
+    summary.add("c");
+    // c took the place of b
+    assertNull(summary.get("b"));
+    assertEquals(2, summary.get("c").getCount());
+    assertEquals(1, summary.get("c").getError());
+    assertEquals(1, summary.get("c").getGuaranteedCount());
+    summary.add("a", 3);
+    List<SpaceSaving.Counter<String>> counters = summary.counters();
+    assertEquals(2, counters.size());
+    assertEquals("a", counters.get(0).getItem());
+    assertEquals(5, counters.get(0).getCount());
+    assertEquals(0, counters.get(0).getError());
+    assertEquals("c", counters.get(1).getItem());
+    assertEquals(7, summary.total());
+  }
+
+  @Test
+  public void testHeavyHitters() {
+    Random random = RandomUtils.getRandom();
+    int capacity = 100;
+    SpaceSaving<Integer> summary = new SpaceSaving<Integer>(capacity);
+    int numItems = 100000;
+    long[] counts = new long[numItems];
+    for (int i = 0; i < 200000; i++) {
+      // a few frequent items in a lot of noise
+      int item = random.nextInt(4) == 0 ? random.nextInt(10) : 10 + random.nextInt(numItems - 10);
+      counts[item]++;
+      summary.add(item);
+    }
+    for (int item = 0; item < numItems; item++) {
+      SpaceSaving.Counter<Integer> counter = summary.get(item);
+      if (counts[item] > summary.total() / capacity) {
+        assertNotNull(counter);
+      }
+      if (counter != null) {
+        assertTrue(counter.getCount() >= counts[item]);
+        assertTrue(counter.getGuaranteedCount() <= counts[item]);
+      }
+    }
+    List<SpaceSaving.Counter<Integer>> counters = summary.counters();
+    for (int i = 0; i < 10; i++) {
+      assertTrue(counters.get(i).getItem() < 10);
+    }
+    for (int i = 1; i < counters.size(); i++) {
+      assertTrue(counters.get(i - 1).getCount() >= counters.get(i).getCount());
+    }
+  }
+
+}